@@ -84,6 +84,10 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
     @Input private ValueNode frameDefaultValue;
     private final boolean intrinsifyAccessors;
     private final JavaKind[] frameSlotKinds;
+    /*
+     * The tag of each static frame slot, or -1 for slots whose tag is tracked by the frame.
+     */
+    private final int[] frameSlotStaticTags;
     private final int frameSize;
 
     private final SpeculationReason intrinsifyAccessorsSpeculation;
@@ -170,6 +174,8 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
         int slotsArrayLength = constantReflection.readArrayLength(slotArray);
 
         frameSlotKinds = new JavaKind[slotsArrayLength];
+        frameSlotStaticTags = new int[slotsArrayLength];
+        Arrays.fill(frameSlotStaticTags, -1);
         int limit = -1;
         for (int i = 0; i < slotsArrayLength; i++) {
             JavaConstant slot = constantReflection.readArrayElement(slotArray, i);
@@ -177,10 +183,18 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
                 JavaConstant slotKind = constantReflection.readFieldValue(types.fieldFrameSlotKind, slot);
                 JavaConstant slotIndex = constantReflection.readFieldValue(types.fieldFrameSlotIndex, slot);
                 if (slotKind.isNonNull() && slotIndex.isNonNull()) {
-                    final JavaKind kind = asJavaKind(constantReflection.readFieldValue(types.fieldFrameSlotKindTag, slotKind));
+                    final JavaConstant slotKindTag = constantReflection.readFieldValue(types.fieldFrameSlotKindTag, slotKind);
+                    final JavaKind kind = asJavaKind(slotKindTag);
                     final int index = slotIndex.asInt();
                     limit = index > limit ? index : limit;
                     frameSlotKinds[index] = kind;
+                    if (constantReflection.readFieldValue(types.fieldFrameSlotIsStatic, slot).asBoolean()) {
+                        /*
+                         * The kind of a static slot never changes, so its tag starts as a
+                         * constant and tag checks of accesses to the slot fold away.
+                         */
+                        frameSlotStaticTags[index] = slotKindTag.asInt();
+                    }
                 }
             }
         }
@@ -226,6 +240,13 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
         return index >= 0 && index < frameSize && frameSlotKinds[index] != null;
     }
 
+    /**
+     * Returns the tag of the static frame slot at the given index, or -1 if the slot is not static.
+     */
+    public int getFrameSlotStaticTag(int index) {
+        return index >= 0 && index < frameSlotStaticTags.length ? frameSlotStaticTags[index] : -1;
+    }
+
     private static ResolvedJavaField findField(ResolvedJavaField[] fields, String fieldName) {
         for (ResolvedJavaField field : fields) {
             if (field.getName().equals(fieldName)) {
@@ -254,6 +275,11 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
             Arrays.fill(objectArrayEntryState, frameDefaultValue);
             if (virtualFrameTagArray != null) {
                 Arrays.fill(tagArrayEntryState, smallIntConstants.get(0));
+                for (int i = 0; i < frameSize; i++) {
+                    if (frameSlotStaticTags[i] >= 0) {
+                        tagArrayEntryState[i] = smallIntConstants.get(frameSlotStaticTags[i]);
+                    }
+                }
             }
             if (virtualFramePrimitiveArray != null) {
                 for (int i = 0; i < frameSize; i++) {
@@ -52,6 +52,15 @@ public final class VirtualFrameSetNode extends VirtualFrameAccessorNode implemen
 
     @Override
     public void virtualize(VirtualizerTool tool) {
+        int staticTag = frame.getFrameSlotStaticTag(frameSlotIndex);
+        if (staticTag >= 0 && staticTag != accessTag) {
+            /*
+             * Setting a static slot to a value of another kind fails in the interpreter, so
+             * deoptimize and let it throw instead of changing the kind of the slot.
+             */
+            insertDeoptimization(tool);
+            return;
+        }
         ValueNode tagAlias = tool.getAlias(frame.virtualFrameTagArray);
         ValueNode dataAlias = tool.getAlias(
                         TruffleCompilerRuntime.getRuntime().getJavaKindForFrameSlotKind(accessTag) == JavaKind.Object ? frame.virtualFrameObjectArray : frame.virtualFramePrimitiveArray);
@@ -61,7 +70,10 @@ public final class VirtualFrameSetNode extends VirtualFrameAccessorNode implemen
             VirtualObjectNode dataVirtual = (VirtualObjectNode) dataAlias;
 
             if (frameSlotIndex < tagVirtual.entryCount() && frameSlotIndex < dataVirtual.entryCount()) {
-                tool.setVirtualEntry(tagVirtual, frameSlotIndex, getConstant(accessTag));
+                if (staticTag < 0) {
+                    /* The tag of a static slot is a constant that never changes. */
+                    tool.setVirtualEntry(tagVirtual, frameSlotIndex, getConstant(accessTag));
+                }
 
                 ValueNode dataEntry = tool.getEntry(dataVirtual, frameSlotIndex);
                 if (dataEntry.getStackKind() == value.getStackKind()) {
@@ -54,6 +54,7 @@ public class KnownTruffleTypes extends AbstractKnownTruffleTypes {
 
     public final ResolvedJavaField fieldFrameSlotKind = findField(classFrameSlot, "kind");
     public final ResolvedJavaField fieldFrameSlotIndex = findField(classFrameSlot, "index");
+    public final ResolvedJavaField fieldFrameSlotIsStatic = findField(classFrameSlot, "isStatic");
 
     public final ResolvedJavaField fieldFrameSlotKindTag = findField(classFrameSlotKind, "tag");
 
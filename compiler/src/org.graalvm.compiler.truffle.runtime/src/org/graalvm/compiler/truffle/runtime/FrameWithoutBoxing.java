@@ -35,6 +35,7 @@ import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.FrameSlotTypeException;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.impl.TVMCI;
 
 import sun.misc.Unsafe;
 
@@ -57,6 +58,13 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     public static final byte FLOAT_TAG = 5;
     public static final byte BOOLEAN_TAG = 6;
     public static final byte BYTE_TAG = 7;
+    /*
+     * Returned by getStaticTag for slots whose kind is tracked in the tags array.
+     */
+    static final byte NO_STATIC_TAG = -1;
+
+    private static final long[] EMPTY_PRIMITIVE_LOCALS = new long[0];
+    private static final byte[] EMPTY_TAGS = new byte[0];
 
     static {
         assert OBJECT_TAG == FrameSlotKind.Object.tag;
@@ -78,8 +86,14 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
         if (defaultValue != null) {
             Arrays.fill(locals, defaultValue);
         }
-        this.primitiveLocals = new long[size];
-        this.tags = new byte[size];
+        /*
+         * Static slots never read or write the tags array and static object slots never use the
+         * primitive array, so the arrays are only allocated if a slot needs them. The flags are
+         * read after the size, a slot added concurrently sets them before it increments the size.
+         */
+        int layout = ((GraalTruffleRuntime) Truffle.getRuntime()).getFrameLayout(descriptor);
+        this.primitiveLocals = (layout & TVMCI.FRAME_PRIMITIVE_SLOTS) != 0 ? new long[size] : EMPTY_PRIMITIVE_LOCALS;
+        this.tags = (layout & TVMCI.FRAME_DYNAMIC_SLOTS) != 0 ? new byte[size] : EMPTY_TAGS;
     }
 
     @Override
@@ -96,7 +110,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public Object getObject(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, OBJECT_TAG);
+        boolean condition = verifyGet(slot, slotIndex, OBJECT_TAG);
         return getObjectUnsafe(slotIndex, slot, condition);
     }
 
@@ -119,7 +133,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setObject(FrameSlot slot, Object value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, OBJECT_TAG);
+        verifySet(slot, slotIndex, OBJECT_TAG);
         setObjectUnsafe(slotIndex, slot, value);
     }
 
@@ -130,7 +144,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public byte getByte(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, BYTE_TAG);
+        boolean condition = verifyGet(slot, slotIndex, BYTE_TAG);
         return getByteUnsafe(slotIndex, slot, condition);
     }
 
@@ -142,7 +156,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setByte(FrameSlot slot, byte value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, BYTE_TAG);
+        verifySet(slot, slotIndex, BYTE_TAG);
         setByteUnsafe(slotIndex, slot, value);
     }
 
@@ -154,7 +168,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public boolean getBoolean(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, BOOLEAN_TAG);
+        boolean condition = verifyGet(slot, slotIndex, BOOLEAN_TAG);
         return getBooleanUnsafe(slotIndex, slot, condition);
     }
 
@@ -166,7 +180,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setBoolean(FrameSlot slot, boolean value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, BOOLEAN_TAG);
+        verifySet(slot, slotIndex, BOOLEAN_TAG);
         setBooleanUnsafe(slotIndex, slot, value);
     }
 
@@ -178,7 +192,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public float getFloat(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, FLOAT_TAG);
+        boolean condition = verifyGet(slot, slotIndex, FLOAT_TAG);
         return getFloatUnsafe(slotIndex, slot, condition);
     }
 
@@ -190,7 +204,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setFloat(FrameSlot slot, float value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, FLOAT_TAG);
+        verifySet(slot, slotIndex, FLOAT_TAG);
         setFloatUnsafe(slotIndex, slot, value);
     }
 
@@ -202,7 +216,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public long getLong(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, LONG_TAG);
+        boolean condition = verifyGet(slot, slotIndex, LONG_TAG);
         return getLongUnsafe(slotIndex, slot, condition);
     }
 
@@ -214,7 +228,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setLong(FrameSlot slot, long value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, LONG_TAG);
+        verifySet(slot, slotIndex, LONG_TAG);
         setLongUnsafe(slotIndex, slot, value);
     }
 
@@ -226,7 +240,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public int getInt(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, INT_TAG);
+        boolean condition = verifyGet(slot, slotIndex, INT_TAG);
         return getIntUnsafe(slotIndex, slot, condition);
     }
 
@@ -238,7 +252,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setInt(FrameSlot slot, int value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, INT_TAG);
+        verifySet(slot, slotIndex, INT_TAG);
         setIntUnsafe(slotIndex, slot, value);
     }
 
@@ -250,7 +264,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public double getDouble(FrameSlot slot) throws FrameSlotTypeException {
         int slotIndex = slot.getIndex();
-        boolean condition = verifyGet(slotIndex, DOUBLE_TAG);
+        boolean condition = verifyGet(slot, slotIndex, DOUBLE_TAG);
         return getDoubleUnsafe(slotIndex, slot, condition);
     }
 
@@ -262,7 +276,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public void setDouble(FrameSlot slot, double value) {
         int slotIndex = slot.getIndex();
-        verifySet(slotIndex, DOUBLE_TAG);
+        verifySet(slot, slotIndex, DOUBLE_TAG);
         setDoubleUnsafe(slotIndex, slot, value);
     }
 
@@ -276,14 +290,42 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
         return this.descriptor;
     }
 
-    private void verifySet(int slotIndex, byte tag) {
+    /**
+     * Returns the tag of a static slot, or {@link #NO_STATIC_TAG} if the kind of the slot is
+     * tracked in the tags array. For a constant slot the result is a constant in compiled code.
+     */
+    byte getStaticTag(FrameSlot slot) {
+        if (descriptor.isStaticFrameSlot(slot)) {
+            return descriptor.getFrameSlotKind(slot).tag;
+        }
+        return NO_STATIC_TAG;
+    }
+
+    int getSize() {
+        return getLocals().length;
+    }
+
+    private void verifySet(FrameSlot slot, int slotIndex, byte tag) {
         checkSlotIndex(slotIndex);
-        getTags()[slotIndex] = tag;
+        byte staticTag = getStaticTag(slot);
+        if (staticTag == NO_STATIC_TAG) {
+            getTags()[slotIndex] = tag;
+        } else if (staticTag != tag) {
+            CompilerDirectives.transferToInterpreter();
+            throw new IllegalArgumentException(String.format("The static frame slot '%s' of kind %s cannot be set to a value of another kind.", slot.getIdentifier(),
+                            descriptor.getFrameSlotKind(slot)));
+        } else {
+            checkStaticSlotIndex(slotIndex, staticTag);
+        }
     }
 
-    private boolean verifyGet(int slotIndex, byte tag) throws FrameSlotTypeException {
+    private boolean verifyGet(FrameSlot slot, int slotIndex, byte tag) throws FrameSlotTypeException {
         checkSlotIndex(slotIndex);
-        boolean condition = getTags()[slotIndex] == tag;
+        byte staticTag = getStaticTag(slot);
+        if (staticTag != NO_STATIC_TAG) {
+            checkStaticSlotIndex(slotIndex, staticTag);
+        }
+        boolean condition = (staticTag == NO_STATIC_TAG ? getTags()[slotIndex] : staticTag) == tag;
         if (!condition) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             throw new FrameSlotTypeException();
@@ -292,7 +334,23 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     }
 
     private void checkSlotIndex(int slotIndex) {
-        if (CompilerDirectives.inInterpreter() && slotIndex >= getTags().length) {
+        if (CompilerDirectives.inInterpreter() && slotIndex >= getSize()) {
+            if (!resize()) {
+                throw new IllegalArgumentException(String.format("The frame slot '%s' is not known by the frame descriptor.", slotIndex));
+            }
+        }
+    }
+
+    /**
+     * Accesses to static slots do not load the tag from the bounds checked tags array, so the index
+     * of a static slot is checked against the array that holds its value, also in compiled code. A
+     * slot added to the descriptor after the frame was created is out of bounds until the frame is
+     * resized.
+     */
+    private void checkStaticSlotIndex(int slotIndex, byte staticTag) {
+        int length = staticTag == OBJECT_TAG ? getLocals().length : getPrimitiveLocals().length;
+        if (slotIndex >= length) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
             if (!resize()) {
                 throw new IllegalArgumentException(String.format("The frame slot '%s' is not known by the frame descriptor.", slotIndex));
             }
@@ -306,11 +364,16 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     @Override
     public Object getValue(FrameSlot slot) {
         int slotIndex = slot.getIndex();
-        if (CompilerDirectives.inInterpreter() && slotIndex >= getTags().length) {
+        if (CompilerDirectives.inInterpreter() && slotIndex >= getSize()) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             resize();
         }
-        byte tag = getTags()[slotIndex];
+        byte tag = getStaticTag(slot);
+        if (tag == NO_STATIC_TAG) {
+            tag = getTags()[slotIndex];
+        } else {
+            checkStaticSlotIndex(slotIndex, tag);
+        }
         boolean condition = (tag == BOOLEAN_TAG);
         if (condition) {
             return getBooleanUnsafe(slotIndex, slot, condition);
@@ -342,7 +405,7 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     }
 
     private boolean resize() {
-        int oldSize = tags.length;
+        int oldSize = locals.length;
         int newSize = descriptor.getSize();
         if (newSize > oldSize) {
             locals = Arrays.copyOf(locals, newSize);
@@ -355,6 +418,10 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
     }
 
     byte getTag(FrameSlot slot) {
+        byte staticTag = getStaticTag(slot);
+        if (staticTag != NO_STATIC_TAG) {
+            return staticTag;
+        }
         int slotIndex = slot.getIndex();
         byte[] cachedTags = getTags();
         if (slotIndex < cachedTags.length) {
@@ -120,6 +120,11 @@ final class GraalTVMCI extends TVMCI {
         return super.getFrameMaterializeCalled(descriptor);
     }
 
+    @Override
+    protected int getFrameLayout(FrameDescriptor descriptor) {
+        return super.getFrameLayout(descriptor);
+    }
+
     @Override
     public RootNode cloneUninitialized(RootNode root) {
         return super.cloneUninitialized(root);
@@ -459,6 +459,28 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime, TruffleComp
         }
     }
 
+    /**
+     * Whether the Truffle version provides the frame layout of descriptors, checked on first use so
+     * that frame allocations do not repeatedly fail on old Truffle versions.
+     */
+    private volatile boolean frameLayoutSupported = true;
+
+    /** Accessor for non-public state in {@link FrameDescriptor}. */
+    public int getFrameLayout(FrameDescriptor descriptor) {
+        if (frameLayoutSupported) {
+            try {
+                return getTvmci().getFrameLayout(descriptor);
+            } catch (Throwable ex) {
+                /*
+                 * Backward compatibility: all slots are dynamic and can hold primitives on old
+                 * Truffle version where static frame slots do not exist.
+                 */
+                frameLayoutSupported = false;
+            }
+        }
+        return TVMCI.FRAME_DYNAMIC_SLOTS | TVMCI.FRAME_PRIMITIVE_SLOTS;
+    }
+
     @Override
     public LoopNode createLoopNode(RepeatingNode repeatingNode) {
         if (!(repeatingNode instanceof Node)) {
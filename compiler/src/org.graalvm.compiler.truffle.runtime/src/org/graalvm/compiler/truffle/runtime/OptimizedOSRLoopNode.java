@@ -517,13 +517,13 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
                 return;
             }
             byte[] currentSourceTags = source.getTags();
-            byte[] currentTargetTags = target.getTags();
 
             /*
              * We check max tags so length of the tags array is not checked inside the loop each
-             * time.
+             * time. Frames of descriptors with only static slots have no tags array, so the frame
+             * size is checked and the tags of static slots are taken from their descriptor.
              */
-            if (currentSourceTags.length < maxTagsLength || currentTargetTags.length < maxTagsLength) {
+            if (source.getSize() < maxTagsLength || target.getSize() < maxTagsLength) {
                 CompilerDirectives.transferToInterpreterAndInvalidate();
                 throw new AssertionError("Frames should never shrink.");
             }
@@ -533,7 +533,8 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
                 int index = slot.getIndex();
 
                 byte speculatedTag = speculatedTags[i];
-                byte currentSourceTag = currentSourceTags[index];
+                byte staticTag = source.getStaticTag(slot);
+                byte currentSourceTag = staticTag != FrameWithoutBoxing.NO_STATIC_TAG ? staticTag : currentSourceTags[index];
                 if (CompilerDirectives.inInterpreter()) {
                     if (currentSourceTag == 0 && speculatedTag != 0) {
                         if (frameSlots == readFrameSlots) {
@@ -107,6 +107,32 @@ public class OptimizedOSRLoopNodeTest extends TestWithSynchronousCompiling {
         Assert.assertTrue(rootNode.wasRepeatingCalledCompiled());
     }
 
+    /*
+     * Test that static frame slots, which have no tags in the frame, are transferred to the OSR
+     * frame and back.
+     */
+    @Theory
+    public void testOSRStaticFrameSlots(OSRLoopFactory factory) {
+        TestRootNode rootNode = new TestRootNode(factory, new TestRepeatingNode(), true) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                Object result = super.execute(frame);
+                try {
+                    Assert.assertEquals(-1, frame.getInt(param1));
+                } catch (FrameSlotTypeException e) {
+                    Assert.fail();
+                }
+                return result;
+            }
+        };
+        CallTarget target = runtime.createCallTarget(rootNode);
+        target.call(OSR_THRESHOLD + 1);
+        assertCompiled(rootNode.getOSRTarget());
+        target.call(2);
+        assertCompiled(rootNode.getOSRTarget());
+        Assert.assertTrue(rootNode.wasRepeatingCalledCompiled());
+    }
+
     @SuppressWarnings("try")
     @Theory
     public void testOSRAndRewriteDoesNotSuppressTargetCompilation(OSRLoopFactory factory) {
@@ -677,9 +703,18 @@ public class OptimizedOSRLoopNodeTest extends TestWithSynchronousCompiling {
         final FrameSlot param2;
 
         protected TestRootNode(OSRLoopFactory factory, TestRepeatingNode repeating) {
+            this(factory, repeating, false);
+        }
+
+        protected TestRootNode(OSRLoopFactory factory, TestRepeatingNode repeating, boolean staticSlots) {
             super(null, new FrameDescriptor());
-            param1 = getFrameDescriptor().addFrameSlot("param1", FrameSlotKind.Int);
-            param2 = getFrameDescriptor().addFrameSlot("param2", FrameSlotKind.Int);
+            if (staticSlots) {
+                param1 = getFrameDescriptor().addStaticFrameSlot("param1", null, FrameSlotKind.Int);
+                param2 = getFrameDescriptor().addStaticFrameSlot("param2", null, FrameSlotKind.Int);
+            } else {
+                param1 = getFrameDescriptor().addFrameSlot("param1", FrameSlotKind.Int);
+                param2 = getFrameDescriptor().addFrameSlot("param2", FrameSlotKind.Int);
+            }
             loopNode = factory.createOSRLoop(repeating, new FrameSlot[]{param1, param2}, new FrameSlot[]{param1, param2});
             repeating.param1 = param1;
             repeating.param2 = param2;
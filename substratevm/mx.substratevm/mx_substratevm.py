@@ -470,6 +470,7 @@ class Tags(set):
 
 GraalTags = Tags([
     'helloworld',
+    'test',
     'maven',
     'js',
     'ruby',
@@ -543,6 +544,10 @@ def svm_gate_body(args, tasks):
                 helloworld(native_image)
                 cinterfacetutorial(native_image)
 
+        with Task('native unittests', tasks, tags=[GraalTags.test]) as t:
+            if t:
+                native_junit(native_image, ['com.oracle.svm.test'])
+
         with Task('JavaScript', tasks, tags=[GraalTags.js]) as t:
             if t:
                 js = build_js(native_image, debug_gr_8964=debug_gr_8964)
@@ -561,6 +566,10 @@ def svm_gate_body(args, tasks):
                 python = build_python(native_image, debug_gr_8964=debug_gr_8964)
                 test_python_smoke([python])
 
+    with Task('image builder unittests', tasks, tags=[GraalTags.test]) as t:
+        if t:
+            mx_unittest.unittest(['com.oracle.svm.hosted'])
+
     with Task('maven plugin checks', tasks, tags=[GraalTags.maven]) as t:
         if t:
             maven_plugin_install([])
@@ -726,6 +735,34 @@ def cinterfacetutorial(native_image, args=None):
     # Start the C executable
     mx.run([buildDir + '/cinterfacetutorial'])
 
+def isolatebenchmark(native_image, args=None):
+    """Build a shared library with isolates and measure the throughput of isolate creation and tear-down"""
+
+    args = [] if args is None else args
+    iterations = [args.pop(0)] if args and args[0].isdigit() else []
+    tutorial_proj = mx.dependency('com.oracle.svm.tutorial')
+    cSourceDir = join(tutorial_proj.dir, 'native')
+    buildDir = join(svmbuild_dir(), tutorial_proj.name, 'isolatebenchmark')
+
+    # clean / create output directory
+    if exists(buildDir):
+        remove_tree(buildDir)
+    mkpath(buildDir)
+
+    # Build the shared library from Java code, with a separate image heap per isolate
+    native_image(['--shared', '-H:+SpawnIsolates', '-H:Path=' + buildDir, '-H:Name=libcinterfacetutorial',
+                  '-H:CLibraryPath=' + tutorial_proj.dir, '-cp', tutorial_proj.output_dir()] + args)
+
+    # Build the C executable
+    mx.run(['cc', '-O2', join(cSourceDir, 'isolatebenchmark.c'),
+            '-I' + buildDir,
+            '-L' + buildDir, '-lcinterfacetutorial',
+            '-ldl', '-Wl,-rpath,' + buildDir,
+            '-o', join(buildDir, 'isolatebenchmark')])
+
+    # Start the C executable
+    mx.run([buildDir + '/isolatebenchmark'] + iterations)
+
 def helloworld(native_image, args=None):
     args = [] if args is None else args
 
@@ -914,6 +951,7 @@ mx.update_commands(suite, {
     'build': [build, ''],
     'helloworld' : [lambda args: native_image_context_run(helloworld, args), ''],
     'cinterfacetutorial' : [lambda args: native_image_context_run(cinterfacetutorial, args), ''],
+    'isolatebenchmark' : [lambda args: native_image_context_run(isolatebenchmark, args), '[iterations] [image options]'],
     'fetch-languages': [lambda args: fetch_languages(args, early_exit=False), ''],
     'benchmark': [benchmark, '--vmargs [vmargs] --runargs [runargs] suite:benchname'],
     'native-image': [native_image_on_jvm, ''],
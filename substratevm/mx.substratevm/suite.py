@@ -228,6 +228,20 @@ suite = {
             "findbugs": "false",
         },
 
+        "com.oracle.svm.test": {
+            "subDir": "src",
+            "sourceDirs": ["src"],
+            "dependencies": [
+                "com.oracle.svm.hosted",
+                "mx:JUNIT",
+            ],
+            "checkstyle": "com.oracle.svm.core",
+            "workingSets": "SVM",
+            "javaCompliance": "1.8",
+            "findbugs": "false",
+            "testProject": True,
+        },
+
         "com.oracle.svm.reflect": {
             "subDir": "src",
             "sourceDirs": ["src"],
@@ -476,6 +490,21 @@ suite = {
             ]
         },
 
+        "SVM_TESTS": {
+            "subDir": "src",
+            "description" : "SubstrateVM tests",
+            "dependencies": [
+                "com.oracle.svm.test",
+            ],
+            "distDependencies": [
+                "SVM",
+            ],
+            "exclude": [
+                "mx:JUNIT",
+            ],
+            "testDistribution": True,
+        },
+
         "SVM_CORE": {
             "subDir": "src",
             "dependencies": [
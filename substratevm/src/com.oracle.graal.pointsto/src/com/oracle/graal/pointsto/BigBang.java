@@ -77,6 +77,7 @@ import com.oracle.graal.pointsto.meta.AnalysisUniverse;
 import com.oracle.graal.pointsto.meta.HostedProviders;
 import com.oracle.graal.pointsto.typestate.PointsToStats;
 import com.oracle.graal.pointsto.typestate.TypeState;
+import com.oracle.graal.pointsto.typestate.TypeStateCache;
 import com.oracle.graal.pointsto.util.CompletionExecutor;
 import com.oracle.graal.pointsto.util.CompletionExecutor.DebugContextRunnable;
 import com.oracle.graal.pointsto.util.Timer;
@@ -107,6 +108,7 @@ public abstract class BigBang {
 
     protected final boolean trackTypeFlowInputs;
     protected final boolean reportAnalysisStatistics;
+    private final TypeStateCache typeStateCache;
 
     /**
      * Processing queue.
@@ -135,6 +137,8 @@ public abstract class BigBang {
         this.unsupportedFeatures = unsupportedFeatures;
         this.providers = providers;
 
+        this.typeStateCache = new TypeStateCache(options, PointstoOptions.ReportAnalysisStatistics.getValue(options));
+
         this.objectType = metaAccess.lookupJavaType(Object.class);
         /*
          * Make sure the all-instantiated type flow is created early. We do not have any
@@ -166,6 +170,10 @@ public abstract class BigBang {
         return reportAnalysisStatistics;
     }
 
+    public TypeStateCache getTypeStateCache() {
+        return typeStateCache;
+    }
+
     public OptionValues getOptions() {
         return options;
     }
@@ -487,10 +495,9 @@ public abstract class BigBang {
     }
 
     public void postFlow(final TypeFlow<?> operation) {
-        if (operation.inQueue) {
+        if (!operation.enqueue()) {
             return;
         }
-        operation.inQueue = true;
 
         executor.execute(new TypeFlowRunnable() {
 
@@ -498,7 +505,7 @@ public abstract class BigBang {
             public void run(DebugContext ignored) {
                 PointsToStats.registerTypeFlowQueuedUpdate(BigBang.this, operation);
 
-                operation.inQueue = false;
+                operation.dequeue();
                 operation.update(BigBang.this);
             }
 
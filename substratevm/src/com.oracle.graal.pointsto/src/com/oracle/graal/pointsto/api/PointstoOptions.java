@@ -98,6 +98,12 @@ public class PointstoOptions {
     @Option(help = "Report analysis statistics.")//
     public static final OptionKey<Boolean> ReportAnalysisStatistics = new OptionKey<>(false);
 
+    @Option(help = "Share type states and type bit sets with equal content, and cache the results of recent type state unions.")//
+    public static final OptionKey<Boolean> InternTypeStates = new OptionKey<>(true);
+
+    @Option(help = "The number of entries of the type state intern table and of the union cache. Rounded up to a power of two.")//
+    public static final OptionKey<Integer> TypeStateCacheSize = new OptionKey<>(4096);
+
     @Option(help = "Path to the contents of the Inspect web server.")//
     public static final OptionKey<String> InspectServerContentPath = new OptionKey<>("inspect");
 
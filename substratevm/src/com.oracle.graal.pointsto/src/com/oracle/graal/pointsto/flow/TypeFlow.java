@@ -26,6 +26,7 @@ package com.oracle.graal.pointsto.flow;
 
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.graalvm.compiler.graph.Node;
@@ -37,7 +38,7 @@ import com.oracle.graal.pointsto.flow.context.AnalysisContext;
 import com.oracle.graal.pointsto.meta.AnalysisType;
 import com.oracle.graal.pointsto.typestate.PointsToStats;
 import com.oracle.graal.pointsto.typestate.TypeState;
-import com.oracle.graal.pointsto.util.ConcurrentLightHashSet;
+import com.oracle.graal.pointsto.util.ConcurrentLightAppendSet;
 
 public abstract class TypeFlow<T> {
 
@@ -51,16 +52,16 @@ public abstract class TypeFlow<T> {
     private volatile TypeState state;
 
     /** The set of all {@link TypeFlow}s that need to be update when this flow changes. */
-    private final ConcurrentLightHashSet<TypeFlow<?>> uses;
+    private final ConcurrentLightAppendSet<TypeFlow<?>> uses;
 
     /** The set of all flows that have this flow as an use. */
-    private final ConcurrentLightHashSet<TypeFlow<?>> inputs;
+    private final ConcurrentLightAppendSet<TypeFlow<?>> inputs;
 
     /** The set of all observers, i.e., objects that are notified when this flow changes. */
-    private final ConcurrentLightHashSet<TypeFlow<?>> observers;
+    private final ConcurrentLightAppendSet<TypeFlow<?>> observers;
 
     /** The set of all observees, i.e., objects that notify this flow when they change. */
-    private final ConcurrentLightHashSet<TypeFlow<?>> observees;
+    private final ConcurrentLightAppendSet<TypeFlow<?>> observees;
 
     private int slot;
     private final boolean isClone; // true -> clone, false -> original
@@ -75,11 +76,18 @@ public abstract class TypeFlow<T> {
      */
     protected boolean usedAsAReceiver;
 
-    public volatile boolean inQueue;
+    /**
+     * 1 if an update of this flow is queued but did not start yet. All state changes that happen
+     * while the flow is queued are propagated by that single update.
+     */
+    private volatile int inQueue;
 
     @SuppressWarnings("rawtypes")//
     private static final AtomicReferenceFieldUpdater<TypeFlow, TypeState> STATE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(TypeFlow.class, TypeState.class, "state");
 
+    @SuppressWarnings("rawtypes")//
+    private static final AtomicIntegerFieldUpdater<TypeFlow> IN_QUEUE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(TypeFlow.class, "inQueue");
+
     private TypeFlow(T source, AnalysisType declaredType, TypeState typeState, int slot, boolean isClone, MethodFlowsGraph graphRef) {
         this.id = nextId.incrementAndGet();
         this.source = source;
@@ -89,10 +97,10 @@ public abstract class TypeFlow<T> {
         this.graphRef = graphRef;
         this.context = graphRef != null ? graphRef.context() : null;
         this.state = typeState;
-        this.uses = new ConcurrentLightHashSet<>();
-        this.inputs = new ConcurrentLightHashSet<>();
-        this.observers = new ConcurrentLightHashSet<>();
-        this.observees = new ConcurrentLightHashSet<>();
+        this.uses = new ConcurrentLightAppendSet<>();
+        this.inputs = new ConcurrentLightAppendSet<>();
+        this.observers = new ConcurrentLightAppendSet<>();
+        this.observees = new ConcurrentLightAppendSet<>();
         this.usedAsAParameter = false;
         this.usedAsAReceiver = false;
     }
@@ -376,6 +384,22 @@ public abstract class TypeFlow<T> {
         return inputs.removeElement(input);
     }
 
+    /**
+     * Marks this flow as queued for an update. Returns false if an update is already queued, in
+     * which case the caller must not queue another one.
+     */
+    public boolean enqueue() {
+        return inQueue == 0 && IN_QUEUE_UPDATER.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Called when the queued update starts, before the state is read, so that a state change that
+     * happens during the update queues a new one.
+     */
+    public void dequeue() {
+        inQueue = 0;
+    }
+
     public TypeState filter(@SuppressWarnings("unused") BigBang bb, TypeState newState) {
         return newState;
     }
@@ -53,6 +53,8 @@ public class MultiTypeState extends TypeState {
     protected final boolean canBeNull;
     /** Has this type state been merged with the all-instantiated type state? */
     protected boolean merged;
+    /** Lazily computed hash code, used when the state is interned. */
+    private int hashCode;
 
     /** Creates a new type state using the provided types bit set and objects. */
     MultiTypeState(BigBang bb, boolean canBeNull, int properties, BitSet typesBitSet, AnalysisObject... objects) {
@@ -72,7 +74,8 @@ public class MultiTypeState extends TypeState {
          * another thread calls clone() the words[] array can be in an inconsistent state.
          */
         TypeStateUtils.trimBitSetToSize(typesBitSet);
-        this.typesBitSet = typesBitSet;
+        /* Share the bit set with other states that have the same types. */
+        this.typesBitSet = bb.getTypeStateCache().internTypes(typesBitSet);
         long cardinality = typesBitSet.cardinality();
         assert cardinality < Integer.MAX_VALUE : "We don't expect so much types.";
         this.typesCount = (int) cardinality;
@@ -200,7 +203,7 @@ public class MultiTypeState extends TypeState {
             return this;
         } else {
             /* Just flip the canBeNull flag and copy the rest of the values from this. */
-            return new MultiTypeState(bb, resultCanBeNull, this);
+            return bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, this));
         }
     }
 
@@ -322,9 +325,14 @@ public class MultiTypeState extends TypeState {
 
     @Override
     public int hashCode() {
-        int result = 1;
-        result = 31 * result + Arrays.hashCode(objects);
-        result = 31 * result + (canBeNull ? 1 : 0);
+        int result = hashCode;
+        if (result == 0) {
+            /* Racy but benign: all threads compute the same value from the immutable content. */
+            result = 1;
+            result = 31 * result + Arrays.hashCode(objects);
+            result = 31 * result + (canBeNull ? 1 : 0);
+            hashCode = result;
+        }
         return result;
     }
 
@@ -105,7 +105,7 @@ public class PointsToStats {
         reportStatistics = bb.reportAnalysisStatistics();
     }
 
-    public static void report(@SuppressWarnings("unused") BigBang bb, String reportNameRoot) {
+    public static void report(BigBang bb, String reportNameRoot) {
 
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
@@ -116,6 +116,7 @@ public class PointsToStats {
             doReport(statsDirectory, reportNameRoot, "union operation stats", timeStamp, PointsToStats::reportUnionOpertationsStats);
             doReport(statsDirectory, reportNameRoot, "type flow stats", timeStamp, PointsToStats::reportTypeFlowStats);
             doReport(statsDirectory, reportNameRoot, "pruned type flow stats", timeStamp, PointsToStats::reportPrunedTypeFlows);
+            doReport(statsDirectory, reportNameRoot, "type state cache stats", timeStamp, out -> reportTypeStateCacheStats(bb.getTypeStateCache(), out));
 
         } catch (IOException e) {
             throw JVMCIError.shouldNotReachHere(e);
@@ -380,6 +381,20 @@ public class PointsToStats {
                         });
     }
 
+    private static void reportTypeStateCacheStats(TypeStateCache cache, BufferedWriter out) {
+        if (!cache.isEnabled()) {
+            doWrite(out, "Type state interning is disabled, use -H:+InternTypeStates\n");
+            return;
+        }
+        long unionLookups = cache.getUnionHits() + cache.getUnionMisses();
+        doWrite(out, String.format("%-30s\t%10d\n", "Shared type states", cache.getSharedStates()));
+        doWrite(out, String.format("%-30s\t%10d\n", "Shared type bit sets", cache.getSharedBitSets()));
+        doWrite(out, String.format("%-30s\t%10d\n", "Estimated bytes saved", cache.getSavedBytes()));
+        doWrite(out, String.format("%-30s\t%10d\n", "Union cache lookups", unionLookups));
+        doWrite(out, String.format("%-30s\t%10d\n", "Union cache hits", cache.getUnionHits()));
+        doWrite(out, String.format("%-30s\t%9.2f%%\n", "Union cache hit rate", unionLookups == 0 ? 0.0 : 100.0 * cache.getUnionHits() / unionLookups));
+    }
+
     // union operations frequency
 
     private static ConcurrentHashMap<UnionOperation, AtomicInteger> unionStats = new ConcurrentHashMap<>();
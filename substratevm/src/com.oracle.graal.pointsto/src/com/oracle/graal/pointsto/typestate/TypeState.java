@@ -367,7 +367,7 @@ public abstract class TypeState {
              */
             BitSet typesBitSet = (BitSet) exactTypes.clone();
             int properties = bb.analysisPolicy().makePoperties(bb, objectsArray);
-            return new MultiTypeState(bb, canBeNull, properties, typesBitSet, objectsArray);
+            return bb.getTypeStateCache().intern(new MultiTypeState(bb, canBeNull, properties, typesBitSet, objectsArray));
         }
     }
 
@@ -400,7 +400,7 @@ public abstract class TypeState {
 
                 BitSet typesBitSet = multiState.typesBitSet;
                 int properties = bb.analysisPolicy().makePoperties(bb, objectsArray);
-                return new MultiTypeState(bb, multiState.canBeNull(), properties, typesBitSet, objectsArray);
+                return bb.getTypeStateCache().intern(new MultiTypeState(bb, multiState.canBeNull(), properties, typesBitSet, objectsArray));
             }
         }
     }
@@ -428,19 +428,39 @@ public abstract class TypeState {
         } else if (s1 instanceof SingleTypeState && s2 instanceof SingleTypeState) {
             return doUnion(bb, (SingleTypeState) s1, (SingleTypeState) s2);
         } else if (s1 instanceof SingleTypeState && s2 instanceof MultiTypeState) {
-            return doUnion(bb, (MultiTypeState) s2, (SingleTypeState) s1);
+            return cachedUnion(bb, (MultiTypeState) s2, s1);
         } else if (s1 instanceof MultiTypeState && s2 instanceof SingleTypeState) {
-            return doUnion(bb, (MultiTypeState) s1, (SingleTypeState) s2);
+            return cachedUnion(bb, (MultiTypeState) s1, s2);
         } else {
             assert s1 instanceof MultiTypeState && s2 instanceof MultiTypeState;
             if (s1.objectsCount() >= s2.objectsCount()) {
-                return doUnion(bb, (MultiTypeState) s1, (MultiTypeState) s2);
+                return cachedUnion(bb, (MultiTypeState) s1, s2);
             } else {
-                return doUnion(bb, (MultiTypeState) s2, (MultiTypeState) s1);
+                return cachedUnion(bb, (MultiTypeState) s2, s1);
             }
         }
     }
 
+    /**
+     * Looks up the union in the {@link TypeStateCache} before computing it. Only unions with a
+     * {@link MultiTypeState} are cached, the other cases are cheap enough to recompute.
+     */
+    private static TypeState cachedUnion(BigBang bb, MultiTypeState s1, TypeState s2) {
+        TypeStateCache cache = bb.getTypeStateCache();
+        TypeState result = cache.lookupUnion(s1, s2);
+        if (result == null) {
+            if (s2 instanceof SingleTypeState) {
+                result = doUnion(bb, s1, (SingleTypeState) s2);
+            } else {
+                result = doUnion(bb, s1, (MultiTypeState) s2);
+            }
+            cache.recordUnion(s1, s2, result);
+        } else {
+            PointsToStats.registerUnionOperation(bb, s1, s2, result);
+        }
+        return result;
+    }
+
     public static TypeState forIntersection(BigBang bb, TypeState s1, TypeState s2) {
         if (s1.isUnknown() || s2.isUnknown()) {
             // Intersection with unknown type state is undefined.
@@ -543,7 +563,7 @@ public abstract class TypeState {
 
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            TypeState result = new MultiTypeState(bb, resultCanBeNull, properties, typesBitSet, resultObjects);
+            TypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, typesBitSet, resultObjects));
             PointsToStats.registerUnionOperation(bb, s1, s2, result);
             return result;
         }
@@ -599,7 +619,7 @@ public abstract class TypeState {
 
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, properties, s1.typesBitSet, resultObjects);
+            MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, s1.typesBitSet, resultObjects));
             assert !result.equals(s1);
             /*
              * No need to check the result size against the all-instantiated since the type count
@@ -633,7 +653,7 @@ public abstract class TypeState {
             BitSet typesBitSet = TypeStateUtils.set(s1.typesBitSet, s2.exactType().getId());
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, properties, typesBitSet, resultObjects);
+            MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, typesBitSet, resultObjects));
             PointsToStats.registerUnionOperation(bb, s1, s2, result);
             return result;
         }
@@ -668,7 +688,7 @@ public abstract class TypeState {
             BitSet resultTypesBitSet = TypeStateUtils.or(s1.typesBitSet, s2.typesBitSet);
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects);
+            MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects));
             PointsToStats.registerUnionOperation(bb, s1, s2, result);
             return result;
 
@@ -682,7 +702,7 @@ public abstract class TypeState {
             BitSet resultTypesBitSet = TypeStateUtils.or(s1.typesBitSet, s2.typesBitSet);
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects);
+            MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects));
             PointsToStats.registerUnionOperation(bb, s1, s2, result);
             return result;
         }
@@ -865,7 +885,7 @@ public abstract class TypeState {
             BitSet resultTypesBitSet = TypeStateUtils.or(s1.typesBitSet, s2.typesBitSet);
             int properties = bb.analysisPolicy().makePopertiesForUnion(s1, s2);
 
-            MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects.copyToArray(new AnalysisObject[resultObjects.size()]));
+            MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, properties, resultTypesBitSet, resultObjects.copyToArray(new AnalysisObject[resultObjects.size()])));
             assert !result.equals(s1) : "speculation code should prevent this case";
 
             /* The result can be equal to s2 only if s1 and s2 have the same number of types. */
@@ -1127,7 +1147,7 @@ public abstract class TypeState {
                 /* Logical AND the type bit sets. */
                 BitSet resultTypesBitSet = TypeStateUtils.and(s1.typesBitSet, s2.typesBitSet);
                 AnalysisObject[] objects = resultObjects.copyToArray(new AnalysisObject[resultObjects.size()]);
-                MultiTypeState result = new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, objects), resultTypesBitSet, objects);
+                MultiTypeState result = bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, objects), resultTypesBitSet, objects));
 
                 /*
                  * The result can be equal to s1 if and only if s1 and s2 have the same type count.
@@ -1236,7 +1256,7 @@ public abstract class TypeState {
                 return new SingleTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, resultObjects), resultObjects);
             } else {
                 BitSet resultTypesBitSet = TypeStateUtils.clear(s1.typesBitSet, s2.exactType().getId());
-                return new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, resultObjects), resultTypesBitSet, resultObjects);
+                return bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, resultObjects), resultTypesBitSet, resultObjects));
             }
 
         } else {
@@ -1350,7 +1370,7 @@ public abstract class TypeState {
             BitSet resultTypesBitSet = TypeStateUtils.andNot(s1.typesBitSet, s2.typesBitSet);
             /* Don't need to check if the result is close-to-all-instantiated since result <= s1. */
             AnalysisObject[] objects = resultObjects.copyToArray(new AnalysisObject[resultObjects.size()]);
-            return new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, objects), resultTypesBitSet, objects);
+            return bb.getTypeStateCache().intern(new MultiTypeState(bb, resultCanBeNull, bb.analysisPolicy().makePoperties(bb, objects), resultTypesBitSet, objects));
         }
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.pointsto.typestate;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.graalvm.compiler.options.OptionValues;
+
+import com.oracle.graal.pointsto.api.PointstoOptions;
+
+/**
+ * Hash-consing of immutable type states. The analysis creates a new {@link MultiTypeState} for
+ * every union, intersection and subtraction that changes a state, and many of these states (and
+ * even more of their types bit sets) have the same content as a state created earlier for another
+ * type flow. Interning them lets type flows share one instance, which saves memory and makes the
+ * identity checks of the union fast paths succeed more often.
+ * <p>
+ * All tables are direct-mapped and lossy: a slot holds the most recently seen value for its hash,
+ * and a colliding value simply replaces it. So the tables never grow, but a slot keeps its value
+ * strongly reachable until a colliding value evicts it, even if no type flow references it
+ * anymore. The slots are read and written without locking, which is safe because all cached
+ * values are immutable.
+ * <p>
+ * The union cache remembers the result of recent unions by the identity of the operands. Since the
+ * operands are interned, a union of two hot states that is repeated by many type flows is computed
+ * only once.
+ */
+public final class TypeStateCache {
+
+    /** Estimated shallow size of a {@link MultiTypeState}, used for the statistics only. */
+    private static final int MULTI_TYPE_STATE_SIZE = 56;
+    /** Estimated size of a {@link BitSet} without its words array. */
+    private static final int BIT_SET_SIZE = 24;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 8;
+
+    private final boolean enabled;
+    private final boolean collectStatistics;
+    private final int mask;
+
+    private final AtomicReferenceArray<MultiTypeState> states;
+    private final AtomicReferenceArray<BitSet> bitSets;
+    private final AtomicReferenceArray<UnionEntry> unions;
+
+    private final LongAdder sharedStates = new LongAdder();
+    private final LongAdder sharedBitSets = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder unionHits = new LongAdder();
+    private final LongAdder unionMisses = new LongAdder();
+
+    public TypeStateCache(OptionValues options, boolean collectStatistics) {
+        this.enabled = PointstoOptions.InternTypeStates.getValue(options);
+        this.collectStatistics = collectStatistics;
+        int size = enabled ? Integer.highestOneBit(Math.max(1, PointstoOptions.TypeStateCacheSize.getValue(options) - 1)) << 1 : 1;
+        this.mask = size - 1;
+        this.states = new AtomicReferenceArray<>(size);
+        this.bitSets = new AtomicReferenceArray<>(size);
+        this.unions = new AtomicReferenceArray<>(size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns a previously created state with the same content as the provided one, if any. */
+    MultiTypeState intern(MultiTypeState state) {
+        if (!enabled) {
+            return state;
+        }
+        int index = spread(state.hashCode()) & mask;
+        MultiTypeState existing = states.get(index);
+        if (existing != null && existing != state && existing.equals(state)) {
+            if (collectStatistics) {
+                sharedStates.increment();
+                savedBytes.add(duplicateSize(state, existing));
+            }
+            return existing;
+        }
+        states.set(index, state);
+        return state;
+    }
+
+    /** Returns a previously seen types bit set with the same content as the provided one, if any. */
+    BitSet internTypes(BitSet typesBitSet) {
+        if (!enabled) {
+            return typesBitSet;
+        }
+        int index = spread(typesBitSet.hashCode()) & mask;
+        BitSet existing = bitSets.get(index);
+        if (existing != null && existing != typesBitSet && existing.equals(typesBitSet)) {
+            if (collectStatistics) {
+                sharedBitSets.increment();
+                savedBytes.add(bitSetSize(typesBitSet));
+            }
+            return existing;
+        }
+        bitSets.set(index, typesBitSet);
+        return typesBitSet;
+    }
+
+    /** Returns the cached result of the union of the two states, or null if it is not cached. */
+    TypeState lookupUnion(TypeState s1, TypeState s2) {
+        if (!enabled) {
+            return null;
+        }
+        UnionEntry entry = unions.get(unionIndex(s1, s2));
+        if (entry != null && entry.s1 == s1 && entry.s2 == s2) {
+            if (collectStatistics) {
+                unionHits.increment();
+            }
+            return entry.result;
+        }
+        if (collectStatistics) {
+            unionMisses.increment();
+        }
+        return null;
+    }
+
+    void recordUnion(TypeState s1, TypeState s2, TypeState result) {
+        if (enabled) {
+            unions.set(unionIndex(s1, s2), new UnionEntry(s1, s2, result));
+        }
+    }
+
+    private int unionIndex(TypeState s1, TypeState s2) {
+        return spread(31 * System.identityHashCode(s1) + System.identityHashCode(s2)) & mask;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long duplicateSize(MultiTypeState duplicate, MultiTypeState canonical) {
+        long size = MULTI_TYPE_STATE_SIZE;
+        if (duplicate.objects != canonical.objects) {
+            size += ARRAY_HEADER_SIZE + (long) REFERENCE_SIZE * duplicate.objects.length;
+        }
+        if (duplicate.typesBitSet != canonical.typesBitSet) {
+            size += bitSetSize(duplicate.typesBitSet);
+        }
+        return size;
+    }
+
+    private static long bitSetSize(BitSet bitSet) {
+        /* The bit sets are trimmed to size, so the words array holds exactly the used words. */
+        return BIT_SET_SIZE + ARRAY_HEADER_SIZE + (long) Long.BYTES * ((bitSet.length() + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    public long getSharedStates() {
+        return sharedStates.sum();
+    }
+
+    public long getSharedBitSets() {
+        return sharedBitSets.sum();
+    }
+
+    /** An estimate of the memory retained by type states that were replaced by a shared state. */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public long getUnionHits() {
+        return unionHits.sum();
+    }
+
+    public long getUnionMisses() {
+        return unionMisses.sum();
+    }
+
+    private static final class UnionEntry {
+        final TypeState s1;
+        final TypeState s2;
+        final TypeState result;
+
+        UnionEntry(TypeState s1, TypeState s2, TypeState result) {
+            this.s1 = s1;
+            this.s2 = s2;
+            this.result = result;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -162,7 +164,7 @@ public final class CompletionExecutor {
                     }
                     completedOperations.increment();
                 } else {
-                    executorService.execute(() -> {
+                    Runnable task = () -> {
                         bb.getHostVM().installInThread(vmConfig);
                         long startTime = 0L;
                         if (timing != null) {
@@ -186,7 +188,19 @@ public final class CompletionExecutor {
                             }
                             completedOperations.increment();
                         }
-                    });
+                    };
+                    Thread thread = Thread.currentThread();
+                    if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == executorService) {
+                        /*
+                         * Tasks posted by a running task go to the local queue of the worker.
+                         * They are usually updates of flows close to the one just processed, and
+                         * the worker picks them up without contending on the shared submission
+                         * queue. Idle workers steal from the other end of the local queue.
+                         */
+                        ForkJoinTask.adapt(task).fork();
+                    } else {
+                        executorService.execute(task);
+                    }
                 }
 
                 break;
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.pointsto.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A concurrent, memory efficient set that is optimized for frequent iteration by many threads
+ * while elements are being added, e.g., the uses and observers of a type flow. Like
+ * {@link ConcurrentLightHashSet} it does not allocate any storage while the set contains no or
+ * only one element. Small sets are immutable arrays that are replaced using a compare-and-swap.
+ * Larger sets append their elements to a segmented array that is never copied, so readers iterate
+ * without locking and without allocating a snapshot, and writers only contend on a single counter.
+ * A removed element leaves an empty slot behind, removal is expected to be rare.
+ *
+ * Iterating the set while it is modified is safe. The iteration is weakly consistent: it sees all
+ * elements added before the iteration started and may or may not see elements added concurrently.
+ *
+ * @param <T> the type of the elements stored in this set, must not be an array type
+ */
+public class ConcurrentLightAppendSet<T> {
+    @SuppressWarnings("rawtypes")//
+    private static final AtomicReferenceFieldUpdater<ConcurrentLightAppendSet, Object> ELEMENTS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(ConcurrentLightAppendSet.class, Object.class,
+                    "elements");
+
+    /** Maximum number of elements stored in an immutable array. */
+    private static final int SMALL_LIMIT = 16;
+
+    /**
+     * The set of all elements in this set. To be as memory efficient as possible, the field has
+     * four possible values:
+     * <ol>
+     * <li>No elements: the field is {@code null}
+     * <li>One element: the single element is stored directly in the field.
+     * <li>Up to {@link #SMALL_LIMIT} elements: the field points to an immutable {@code Object[]}.
+     * <li>More elements: the field points to an append-only {@link Segments} storage.
+     * </ol>
+     */
+    private volatile Object elements;
+
+    public ConcurrentLightAppendSet() {
+
+    }
+
+    public int size() {
+        Object e = elements;
+        if (e == null) {
+            return 0;
+        } else if (e instanceof Object[]) {
+            return ((Object[]) e).length;
+        } else if (e instanceof Segments) {
+            return ((Segments) e).size();
+        } else {
+            return 1;
+        }
+    }
+
+    public boolean addElement(T newElement) {
+        assert newElement != null && !(newElement instanceof Object[]);
+        while (true) {
+            Object oldElements = elements;
+            Object newElements;
+            if (oldElements == null) {
+                /* We add the first element, it is stored directly in the field. */
+                newElements = newElement;
+
+            } else if (oldElements instanceof Segments) {
+                /* The append-only storage takes care of all concurrency issues. */
+                return ((Segments) oldElements).add(newElement);
+
+            } else if (oldElements instanceof Object[]) {
+                Object[] array = (Object[]) oldElements;
+                for (Object element : array) {
+                    if (element.equals(newElement)) {
+                        return false;
+                    }
+                }
+                if (array.length < SMALL_LIMIT) {
+                    Object[] newArray = Arrays.copyOf(array, array.length + 1);
+                    newArray[array.length] = newElement;
+                    newElements = newArray;
+                } else {
+                    /*
+                     * The array is full. The array is immutable, so the copy into the append-only
+                     * storage cannot miss a concurrent modification: that would fail the CAS below.
+                     */
+                    Segments segments = new Segments();
+                    for (Object element : array) {
+                        segments.add(element);
+                    }
+                    segments.add(newElement);
+                    newElements = segments;
+                }
+
+            } else if (!oldElements.equals(newElement)) {
+                /* We add the second element. */
+                newElements = new Object[]{oldElements, newElement};
+
+            } else {
+                /* Corner case: adding the first element again, so nothing to do. */
+                return false;
+            }
+
+            if (ELEMENTS_UPDATER.compareAndSet(this, oldElements, newElements)) {
+                return true;
+            }
+            /* We lost the race with another thread, just try again. */
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Collection<T> getElements() {
+        Object e = elements;
+        if (e == null) {
+            return Collections.emptyList();
+        } else if (e instanceof Object[]) {
+            /* The array is never modified after it is published. */
+            return (Collection<T>) Collections.unmodifiableList(Arrays.asList((Object[]) e));
+        } else if (e instanceof Segments) {
+            return (Collection<T>) e;
+        } else {
+            return (Collection<T>) Collections.singletonList(e);
+        }
+    }
+
+    public boolean removeElement(T element) {
+        while (true) {
+            Object oldElements = elements;
+            Object newElements;
+            if (oldElements == null) {
+                return false;
+
+            } else if (oldElements instanceof Segments) {
+                return ((Segments) oldElements).remove(element);
+
+            } else if (oldElements instanceof Object[]) {
+                Object[] array = (Object[]) oldElements;
+                int index = -1;
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i].equals(element)) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return false;
+                }
+                if (array.length == 2) {
+                    newElements = array[1 - index];
+                } else {
+                    Object[] newArray = new Object[array.length - 1];
+                    System.arraycopy(array, 0, newArray, 0, index);
+                    System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+                    newElements = newArray;
+                }
+
+            } else if (oldElements.equals(element)) {
+                newElements = null;
+
+            } else {
+                return false;
+            }
+
+            if (ELEMENTS_UPDATER.compareAndSet(this, oldElements, newElements)) {
+                return true;
+            }
+            /* We lost the race with another thread, just try again. */
+        }
+    }
+
+    public void clear() {
+        elements = null;
+    }
+
+    /**
+     * Append-only storage for larger sets. Elements are written to slots of a segmented array whose
+     * segments double in size, so the array never has to be copied when it grows. A concurrent
+     * hash map from element to slot index rejects duplicates and finds the slot to clear on
+     * removal.
+     */
+    private static final class Segments extends AbstractCollection<Object> {
+        private static final int FIRST_SEGMENT_LENGTH = 32;
+        private static final int MAX_SEGMENTS = 26;
+
+        /** Marks a slot whose element was removed or whose add lost a race. */
+        private static final Object EMPTY = new Object();
+
+        private final ConcurrentHashMap<Object, Integer> index = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<AtomicReferenceArray<Object>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+        /** The number of reserved slots. */
+        private final AtomicInteger reserved = new AtomicInteger();
+
+        private static int segmentIndex(int slot) {
+            return 31 - Integer.numberOfLeadingZeros(slot / FIRST_SEGMENT_LENGTH + 1);
+        }
+
+        private static int segmentStart(int segment) {
+            return FIRST_SEGMENT_LENGTH * ((1 << segment) - 1);
+        }
+
+        private AtomicReferenceArray<Object> segment(int segment) {
+            AtomicReferenceArray<Object> result = segments.get(segment);
+            if (result == null) {
+                segments.compareAndSet(segment, null, new AtomicReferenceArray<>(FIRST_SEGMENT_LENGTH << segment));
+                result = segments.get(segment);
+            }
+            return result;
+        }
+
+        boolean add(Object element) {
+            if (index.containsKey(element)) {
+                /* Fast path that does not reserve a slot. */
+                return false;
+            }
+            int slot = reserved.getAndIncrement();
+            int s = segmentIndex(slot);
+            AtomicReferenceArray<Object> segment = segment(s);
+            if (index.putIfAbsent(element, slot) != null) {
+                /* Another thread added the same element concurrently. */
+                segment.compareAndSet(slot - segmentStart(s), null, EMPTY);
+                return false;
+            }
+            /* Fails only if the element was already removed again by another thread. */
+            segment.compareAndSet(slot - segmentStart(s), null, element);
+            return true;
+        }
+
+        boolean remove(Object element) {
+            Integer slot = index.remove(element);
+            if (slot == null) {
+                return false;
+            }
+            int s = segmentIndex(slot);
+            segment(s).set(slot - segmentStart(s), EMPTY);
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+                private final int limit = reserved.get();
+                private int slot;
+                private Object next = advance();
+
+                private Object advance() {
+                    while (slot < limit) {
+                        int s = segmentIndex(slot);
+                        AtomicReferenceArray<Object> segment = segments.get(s);
+                        if (segment == null) {
+                            /* The segment is being allocated, none of its slots are written. */
+                            slot = segmentStart(s + 1);
+                            continue;
+                        }
+                        Object element = segment.get(slot - segmentStart(s));
+                        slot++;
+                        if (element != null && element != EMPTY) {
+                            return element;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Object next() {
+                    Object result = next;
+                    if (result == null) {
+                        throw new NoSuchElementException();
+                    }
+                    next = advance();
+                    return result;
+                }
+            };
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 import com.oracle.objectfile.elf.ELFObjectFile;
@@ -1580,21 +1581,46 @@ public abstract class ObjectFile {
         return decisionsByElement;
     }
 
+    /**
+     * Emits the decided content of each element at its decided offset. The layout is complete at
+     * this point, so if the elements occupy disjoint ranges of the output their contents are copied
+     * in parallel, each through its own view of the buffer. For large images the output is a
+     * memory-mapped file of hundreds of megabytes, and copying the text and heap sections
+     * concurrently spreads the page faults of the mapping over multiple threads. The resulting file
+     * is identical to a sequential write.
+     */
     public void writeBuffer(List<Element> sortedObjectFileElements, ByteBuffer out) {
-        /* Emit each one! */
-        for (Element e : sortedObjectFileElements) {
-            int off = (int) decisionsTaken.get(e).getDecision(LayoutDecision.Kind.OFFSET).getValue();
-            assert off != Integer.MAX_VALUE; // not allowed any more -- this was a broken approach
-            out.position(off);
-            int expectedSize = (int) decisionsTaken.get(e).getDecidedValue(LayoutDecision.Kind.SIZE);
-            byte[] content = (byte[]) decisionsTaken.get(e).getDecidedValue(LayoutDecision.Kind.CONTENT);
-            out.put(content);
-            int emittedSize = out.position() - off;
-            assert emittedSize >= 0;
-            if (emittedSize != expectedSize) {
-                throw new IllegalStateException("For element " + e + ", expected size " + expectedSize + " but emitted size " + emittedSize);
+        int count = sortedObjectFileElements.size();
+        int[] offsets = new int[count];
+        int[] sizes = new int[count];
+        byte[][] contents = new byte[count][];
+        boolean disjoint = true;
+        for (int i = 0; i < count; i++) {
+            Element e = sortedObjectFileElements.get(i);
+            offsets[i] = (int) decisionsTaken.get(e).getDecision(LayoutDecision.Kind.OFFSET).getValue();
+            assert offsets[i] != Integer.MAX_VALUE; // not allowed any more -- this was a broken approach
+            sizes[i] = (int) decisionsTaken.get(e).getDecidedValue(LayoutDecision.Kind.SIZE);
+            contents[i] = (byte[]) decisionsTaken.get(e).getDecidedValue(LayoutDecision.Kind.CONTENT);
+            if (contents[i].length != sizes[i]) {
+                throw new IllegalStateException("For element " + e + ", expected size " + sizes[i] + " but emitted size " + contents[i].length);
+            }
+            if (i > 0 && offsets[i - 1] + sizes[i - 1] > offsets[i]) {
+                disjoint = false;
             }
+        }
 
+        if (disjoint) {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                ByteBuffer slice = out.duplicate();
+                slice.position(offsets[i]);
+                slice.put(contents[i]);
+            });
+        } else {
+            /* Overlapping elements: keep the sequential order so that later elements win. */
+            for (int i = 0; i < count; i++) {
+                out.position(offsets[i]);
+                out.put(contents[i]);
+            }
         }
     }
 
@@ -26,6 +26,7 @@ package com.oracle.svm.core.genscavenge;
 
 import org.graalvm.word.Pointer;
 import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.SubstrateOptions;
 import com.oracle.svm.core.annotate.RestrictHeapAccess;
@@ -33,15 +34,18 @@ import com.oracle.svm.core.heap.DiscoverableReference;
 import com.oracle.svm.core.heap.FeebleReference;
 import com.oracle.svm.core.heap.FeebleReferenceList;
 import com.oracle.svm.core.heap.ObjectHeader;
+import com.oracle.svm.core.heap.ObjectReferenceVisitor;
+import com.oracle.svm.core.heap.ReferenceAccess;
 import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.snippets.KnownIntrinsics;
+import com.oracle.svm.core.util.TimeUtils;
 
 public class DiscoverableReferenceProcessing {
 
     /*
      * Public methods for collectors.
      */
-    public static void discoverDiscoverableReference(Object object) {
+    public static void discoverDiscoverableReference(Object object, ObjectReferenceVisitor refVisitor) {
         final Log trace = Log.noopLog();
         /* TODO: What's the cost of this type test, since o will be a concrete subtype? */
         Object obj = KnownIntrinsics.convertUnknownValue(object, Object.class);
@@ -50,11 +54,47 @@ public class DiscoverableReferenceProcessing {
             final DiscoverableReference dr = (DiscoverableReference) obj;
             trace.string("[DiscoverableReference.discoverDiscoverableReference:");
             trace.string("  dr: ").object(dr).string("  referent: ").hex(DiscoverableReference.TestingBackDoor.getReferentPointer(dr)).string("]").newline();
-            addToDiscoveredReferences(dr);
+            if (isRecentlyUsedSoftReference(dr)) {
+                /*
+                 * Treat the referent like a strong reference: the visitor promotes the referent and
+                 * updates the field, so the reference does not have to be discovered.
+                 */
+                refVisitor.visitObjectReference(dr.getReferentFieldPointer(), ReferenceAccess.singleton().haveCompressedReferences());
+            } else {
+                addToDiscoveredReferences(dr);
+            }
         }
 
     }
 
+    /**
+     * The maximum time in milliseconds since the last access for which the referent of a soft
+     * reference is kept alive in the current collection.
+     */
+    private static long softReferenceMaxAgeMillis;
+
+    /**
+     * Advance the soft reference clock and compute the maximum age of soft references that are kept
+     * alive from the free space in the heap, like the LRU policy of the HotSpot VM: the less space
+     * is free, the sooner soft references are cleared.
+     */
+    static void updateSoftReferencePolicy() {
+        DiscoverableReference.setSoftReferenceClock(TimeUtils.divideNanosToMillis(System.nanoTime()));
+        final UnsignedWord maxHeapSize = HeapPolicy.getMaximumHeapSize();
+        final UnsignedWord used = HeapImpl.getHeapImpl().getUsedChunkBytes();
+        final UnsignedWord free = used.belowThan(maxHeapSize) ? maxHeapSize.subtract(used) : WordFactory.zero();
+        final long freeMegabytes = free.unsignedDivide(1024 * 1024).rawValue();
+        softReferenceMaxAgeMillis = freeMegabytes * HeapOptions.SoftRefLRUPolicyMSPerMB.getValue();
+    }
+
+    private static boolean isRecentlyUsedSoftReference(DiscoverableReference dr) {
+        if (!dr.isSoft() || dr.getReferentPointer().isNull()) {
+            return false;
+        }
+        final long age = DiscoverableReference.getSoftReferenceClock() - dr.getSoftAccessTimestamp();
+        return age < softReferenceMaxAgeMillis;
+    }
+
     /** The first element of the discovered list, or null. */
     public static DiscoverableReference getDiscoveredList() {
         return HeapImpl.getHeapImpl().getGCImpl().getDiscoveredReferenceList();
@@ -248,8 +288,7 @@ public class DiscoverableReferenceProcessing {
             if (SubstrateOptions.MultiThreaded.getValue()) {
                 trace.string("  broadcasting").newline();
                 /* Notify anyone blocked waiting for FeebleReferences to be available. */
-                FeebleReferenceList.guaranteeIsLocked();
-                FeebleReferenceList.broadcast();
+                FeebleReferenceList.signalWaiters();
             }
             trace.string("]").newline();
         }
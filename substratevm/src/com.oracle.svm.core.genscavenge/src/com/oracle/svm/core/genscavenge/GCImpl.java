@@ -61,6 +61,7 @@ import com.oracle.svm.core.heap.NoAllocationVerifier;
 import com.oracle.svm.core.heap.ObjectReferenceWalker;
 import com.oracle.svm.core.heap.ObjectVisitor;
 import com.oracle.svm.core.hub.LayoutEncoding;
+import com.oracle.svm.core.jdk.ReferenceHandlerThread;
 import com.oracle.svm.core.jdk.SunMiscSupport;
 import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.option.HostedOptionKey;
@@ -69,6 +70,9 @@ import com.oracle.svm.core.stack.JavaStackWalker;
 import com.oracle.svm.core.stack.ThreadStackPrinter;
 import com.oracle.svm.core.thread.VMOperation;
 import com.oracle.svm.core.thread.VMThreads;
+import com.oracle.svm.core.threadlocal.FastThreadLocalFactory;
+import com.oracle.svm.core.threadlocal.FastThreadLocalObject;
+import com.oracle.svm.core.threadlocal.FastThreadLocalWord;
 import com.oracle.svm.core.util.TimeUtils;
 import com.oracle.svm.core.util.VMError;
 
@@ -289,6 +293,7 @@ public class GCImpl implements GC {
             CommittedMemoryProvider.get().beforeGarbageCollection();
 
             getAccounting().beforeCollection();
+            DiscoverableReferenceProcessing.updateSoftReferencePolicy();
 
             try (Timer ct = collectionTimer.open()) {
                 /*
@@ -895,7 +900,9 @@ public class GCImpl implements GC {
      */
     void possibleCollectionEpilogue(UnsignedWord requestingEpoch) {
         if (requestingEpoch.belowThan(getCollectionEpoch())) {
-            SunMiscSupport.drainCleanerQueue();
+            if (!ReferenceHandlerThread.isRunning()) {
+                SunMiscSupport.drainCleanerQueue();
+            }
             visitWatchersReport();
         }
     }
@@ -1593,6 +1600,14 @@ public class GCImpl implements GC {
 
     public static final class CollectionVMOperation extends VMOperation {
 
+        /*
+         * The arguments and the result of a request are kept per requesting thread, the state of
+         * the operation is only accessed while holding the VMOperation lock.
+         */
+        private static final FastThreadLocalObject<String> requestCause = FastThreadLocalFactory.createObject(String.class);
+        private static final FastThreadLocalWord<UnsignedWord> requestEpoch = FastThreadLocalFactory.createWord();
+        private static final FastThreadLocalObject<OutOfMemoryError> requestResult = FastThreadLocalFactory.createObject(OutOfMemoryError.class);
+
         /* State. */
         private String cause;
         private UnsignedWord requestingEpoch;
@@ -1607,14 +1622,31 @@ public class GCImpl implements GC {
             this.result = null;
         }
 
-        /** A convenience "enqueue" method that sets "cause" and "requestingEpoch" first. */
+        /** A convenience "enqueue" method that records "cause" and "requestingEpoch" first. */
         void enqueue(String causeArg, UnsignedWord requestingEpochArg) {
-            cause = causeArg;
-            requestingEpoch = requestingEpochArg;
-            result = null;
+            requestCause.set(causeArg);
+            requestEpoch.set(requestingEpochArg);
+            requestResult.set(null);
             enqueue();
         }
 
+        @Override
+        protected void beforeRequest(boolean pending) {
+            final UnsignedWord epoch = requestEpoch.get();
+            if (!pending) {
+                cause = requestCause.get();
+                requestingEpoch = epoch;
+            } else if (epoch.aboveThan(requestingEpoch)) {
+                /* The pending collection must also serve a requester that saw a later epoch. */
+                requestingEpoch = epoch;
+            }
+        }
+
+        @Override
+        protected void afterRequest() {
+            requestResult.set(result);
+        }
+
         /** What happens when this VMOperation executes. */
         @Override
         @RestrictHeapAccess(access = RestrictHeapAccess.Access.NO_ALLOCATION, reason = "Must not allocate while collecting")
@@ -1622,8 +1654,11 @@ public class GCImpl implements GC {
             result = HeapImpl.getHeapImpl().getGCImpl().collectOperation(cause, requestingEpoch);
         }
 
+        /** The result of the last request of the current thread. */
         OutOfMemoryError getResult() {
-            return result;
+            final OutOfMemoryError requested = requestResult.get();
+            requestResult.set(null);
+            return requested;
         }
     }
 
@@ -91,7 +91,7 @@ public final class GreyToBlackObjectVisitor implements ObjectVisitor {
             return true;
         }
         trace.string("[GreyToBlackObjectVisitor:").string("  o: ").object(o);
-        DiscoverableReferenceProcessing.discoverDiscoverableReference(o);
+        DiscoverableReferenceProcessing.discoverDiscoverableReference(o, objRefVisitor);
         InteriorObjRefWalker.walkObjectInline(o, objRefVisitor);
         trace.string("]").newline();
         return true;
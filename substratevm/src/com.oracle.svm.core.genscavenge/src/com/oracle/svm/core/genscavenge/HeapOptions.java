@@ -39,6 +39,9 @@ public class HeapOptions {
     @Option(help = "Print the time for each of the phases of each collection.")//
     public static final RuntimeOptionKey<Boolean> PrintGCTimes = new RuntimeOptionKey<>(false);
 
+    @Option(help = "Milliseconds per free megabyte of heap that the referent of a SoftReference is kept alive after its last access.")//
+    public static final RuntimeOptionKey<Long> SoftRefLRUPolicyMSPerMB = new RuntimeOptionKey<>(1000L);
+
     /** This produces a lot of output: be prepared to stream the output to a post-processor. */
     @Option(help = "Trace each object promotion.")//
     public static final HostedOptionKey<Boolean> TraceObjectPromotion = new HostedOptionKey<>(false);
@@ -41,6 +41,7 @@ import org.graalvm.word.UnsignedWord;
 import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.allocationprofile.AllocationSampler;
 import com.oracle.svm.core.annotate.RestrictHeapAccess;
 import com.oracle.svm.core.annotate.Uninterruptible;
 import com.oracle.svm.core.deopt.DeoptTester;
@@ -135,10 +136,14 @@ public final class ThreadLocalAllocation {
     private static Object slowPathNewInstance(DynamicHub hub) {
         /* Allocation might cause a collection. */
         final UnsignedWord gcEpoch = HeapImpl.getHeapImpl().getGCImpl().possibleCollectionPrologue();
+        final UnsignedWord refilledBytes = getAllocationChunkUsedBytes(ThreadLocalAllocation.regularTLAB.getAddress());
         /* Allocate the requested instance. */
         final Object result = slowPathNewInstanceWithoutAllocating(hub);
         /* Allow the collector to do stuff now that allocation, etc., is allowed. */
         HeapImpl.getHeapImpl().getGCImpl().possibleCollectionEpilogue(gcEpoch);
+        if (AllocationSampler.isEnabled()) {
+            AllocationSampler.sampleAllocation(hub, refilledBytes, KnownIntrinsics.readCallerStackPointer(), KnownIntrinsics.readReturnAddress());
+        }
         return result;
     }
 
@@ -202,10 +207,23 @@ public final class ThreadLocalAllocation {
 
         /* Allocation might cause a collection. */
         final UnsignedWord gcEpoch = HeapImpl.getHeapImpl().getGCImpl().possibleCollectionPrologue();
+        final UnsignedWord refilledBytes = getAllocationChunkUsedBytes(ThreadLocalAllocation.regularTLAB.getAddress());
         /* Allocate the requested array. */
         final Object result = slowPathNewArrayWithoutAllocating(hub, length);
         /* Allow the collector to do stuff now that allocation, etc., is allowed. */
         HeapImpl.getHeapImpl().getGCImpl().possibleCollectionEpilogue(gcEpoch);
+        if (AllocationSampler.isEnabled()) {
+            UnsignedWord allocatedBytes = refilledBytes;
+            UnsignedWord size = LayoutEncoding.getSizeFromObject(result);
+            if (size.aboveOrEqual(HeapPolicy.getLargeArrayThreshold())) {
+                /*
+                 * Large arrays are allocated in their own chunk and do not refill the allocation
+                 * chunk, whose bytes are reported when it is refilled. Only the array is counted.
+                 */
+                allocatedBytes = size;
+            }
+            AllocationSampler.sampleAllocation(hub, allocatedBytes, KnownIntrinsics.readCallerStackPointer(), KnownIntrinsics.readReturnAddress());
+        }
         return result;
     }
 
@@ -527,6 +545,23 @@ public final class ThreadLocalAllocation {
         return tlabUsedMemory;
     }
 
+    /**
+     * Returns the number of bytes allocated in the current allocation chunk of the TLAB, i.e., the
+     * bytes allocated since the chunk was last refilled. Only computed for the
+     * {@link AllocationSampler}.
+     */
+    @Uninterruptible(reason = "Reads the TLAB")
+    private static UnsignedWord getAllocationChunkUsedBytes(Descriptor tlab) {
+        if (!AllocationSampler.isEnabled()) {
+            return WordFactory.zero();
+        }
+        Pointer allocationTop = tlab.getAllocationTop(TOP_IDENTITY);
+        if (allocationTop.isNull()) {
+            return WordFactory.zero();
+        }
+        return allocationTop.subtract(AlignedHeapChunk.getAlignedHeapChunkStart(tlab.getAlignedChunk()));
+    }
+
     /**
      * Refill the allocation chunk, i.e.., retire the current allocation chunk (the one in which
      * allocation failed) add a new allocation chunk at the front of the TLAB's aligned chunks.
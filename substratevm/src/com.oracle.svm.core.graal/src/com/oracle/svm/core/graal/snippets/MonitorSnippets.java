@@ -34,6 +34,7 @@ import org.graalvm.compiler.graph.Node;
 import org.graalvm.compiler.graph.Node.ConstantNodeParameter;
 import org.graalvm.compiler.graph.Node.NodeIntrinsic;
 import org.graalvm.compiler.nodes.DeoptimizeNode;
+import org.graalvm.compiler.nodes.extended.BranchProbabilityNode;
 import org.graalvm.compiler.nodes.extended.ForeignCallNode;
 import org.graalvm.compiler.nodes.java.MonitorEnterNode;
 import org.graalvm.compiler.nodes.java.MonitorExitNode;
@@ -70,6 +71,9 @@ public final class MonitorSnippets extends SubstrateTemplates implements Snippet
         if (!SubstrateOptions.MultiThreaded.getValue()) {
             return;
         }
+        if (BranchProbabilityNode.probability(BranchProbabilityNode.FAST_PATH_PROBABILITY, MonitorSupport.tryEnterThin(obj))) {
+            return;
+        }
         ForeignCalls.callMonitorEnter(ForeignCalls.MONITOR_SNIPPETS_SLOW_PATH_MONITOR_ENTER, obj);
     }
 
@@ -81,6 +85,9 @@ public final class MonitorSnippets extends SubstrateTemplates implements Snippet
         if (!SubstrateOptions.MultiThreaded.getValue()) {
             return;
         }
+        if (BranchProbabilityNode.probability(BranchProbabilityNode.FAST_PATH_PROBABILITY, MonitorSupport.tryExitThin(obj))) {
+            return;
+        }
         ForeignCalls.callMonitorExit(ForeignCalls.MONITOR_SNIPPETS_SLOW_PATH_MONITOR_EXIT, obj);
     }
 
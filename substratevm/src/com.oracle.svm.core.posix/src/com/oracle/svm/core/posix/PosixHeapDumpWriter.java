@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.posix;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.CompilerCommandPlugin;
+import com.oracle.svm.core.VMInspection;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.heapdump.HeapDumpWriter;
+import com.oracle.svm.core.jdk.RuntimeFeature;
+import com.oracle.svm.core.jdk.RuntimeSupport;
+
+/** Writes an HPROF heap dump directly to a file descriptor, without allocating Java buffers. */
+public final class PosixHeapDumpWriter extends HeapDumpWriter {
+
+    private final FileDescriptor descriptor;
+
+    public PosixHeapDumpWriter(FileDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    @Override
+    protected boolean writeBytes(Pointer bytes, UnsignedWord length) {
+        return PosixUtils.writeBytes(descriptor, WordFactory.pointer(bytes.rawValue()), length);
+    }
+
+    @AutomaticFeature
+    @Platforms({Platform.LINUX.class, Platform.DARWIN.class})
+    public static class HeapDumpCommandFeature implements Feature {
+        @Override
+        public boolean isInConfiguration(IsInConfigurationAccess access) {
+            return VMInspection.isEnabled();
+        }
+
+        @Override
+        public List<Class<? extends Feature>> getRequiredFeatures() {
+            return Arrays.asList(RuntimeFeature.class);
+        }
+
+        @Override
+        public void afterRegistration(AfterRegistrationAccess access) {
+            RuntimeSupport.getRuntimeSupport().addCommandPlugin(new DumpHeapCommand());
+        }
+    }
+
+    private static class DumpHeapCommand implements CompilerCommandPlugin {
+        @Override
+        public String name() {
+            return "HeapDump.dumpHeap(FileOutputStream, Boolean)Boolean";
+        }
+
+        @Override
+        public Object apply(Object[] args) {
+            FileOutputStream fileOutputStream = (FileOutputStream) args[0];
+            Boolean gcBefore = (Boolean) args[1];
+            try {
+                return new PosixHeapDumpWriter(fileOutputStream.getFD()).writeHeapDump(gcBefore);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -65,6 +65,9 @@ public class UnistdNoTransitions {
     @CFunction(transition = Transition.NO_TRANSITION)
     public static native int fsync(int fd);
 
+    @CFunction(transition = Transition.NO_TRANSITION)
+    public static native SignedWord read(int fd, PointerBase buf, UnsignedWord nbytes);
+
     @CFunction(transition = Transition.NO_TRANSITION)
     public static native SignedWord write(int fd, PointerBase buf, UnsignedWord n);
 
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.posix.linux;
+
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_BEGIN;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_END;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_RELOCATABLE_BEGIN;
+import static com.oracle.svm.core.Isolates.IMAGE_HEAP_RELOCATABLE_END;
+import static com.oracle.svm.core.posix.headers.Fcntl.O_RDONLY;
+import static org.graalvm.word.WordFactory.nullPointer;
+
+import org.graalvm.compiler.options.Option;
+import org.graalvm.compiler.word.Word;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.nativeimage.StackValue;
+import org.graalvm.nativeimage.c.type.CCharPointer;
+import org.graalvm.nativeimage.c.type.CLongPointer;
+import org.graalvm.nativeimage.c.type.WordPointer;
+import org.graalvm.word.LocationIdentity;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.SignedWord;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.MemoryUtil;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.annotate.Uninterruptible;
+import com.oracle.svm.core.c.CGlobalData;
+import com.oracle.svm.core.c.CGlobalDataFactory;
+import com.oracle.svm.core.c.function.CEntryPointCreateIsolateParameters;
+import com.oracle.svm.core.c.function.CEntryPointErrors;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.os.CommittedMemoryProvider;
+import com.oracle.svm.core.os.OSCommittedMemoryProvider;
+import com.oracle.svm.core.os.VirtualMemoryProvider;
+import com.oracle.svm.core.os.VirtualMemoryProvider.Access;
+import com.oracle.svm.core.posix.headers.Fcntl;
+import com.oracle.svm.core.posix.headers.UnistdNoTransitions;
+
+@AutomaticFeature
+@Platforms(Platform.LINUX.class)
+class LinuxCommittedMemoryProviderFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return SubstrateOptions.SpawnIsolates.getValue() && LinuxCommittedMemoryProvider.Options.MapImageHeapCopyOnWrite.getValue();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        if (!ImageSingletons.contains(CommittedMemoryProvider.class)) {
+            ImageSingletons.add(CommittedMemoryProvider.class, new LinuxCommittedMemoryProvider());
+        }
+    }
+}
+
+/**
+ * Creates the image heap of each isolate as a private, copy-on-write mapping of the image heap in
+ * the image file, instead of committing memory and copying the image heap into it. Creating an
+ * isolate then only costs a few system calls, and all isolates share the physical pages of the
+ * image heap until they write to them.
+ * <p>
+ * The location of the image heap in the file is determined from {@code /proc/self/maps} when the
+ * first isolate is created, and the file stays open for creating later isolates. Only the pages of
+ * the {@linkplain com.oracle.svm.core.Isolates#IMAGE_HEAP_RELOCATABLE_BEGIN relocatable part} are
+ * copied from the loaded image, because the dynamic linker applied the relocations only in memory.
+ * When the image file cannot be found or mapped, the image heap is copied as by
+ * {@link OSCommittedMemoryProvider}.
+ */
+@Platforms(Platform.LINUX.class)
+public class LinuxCommittedMemoryProvider extends OSCommittedMemoryProvider {
+
+    public static class Options {
+        @Option(help = "Map the image heap of each isolate copy-on-write from the image file instead of copying it, so that isolates share the physical pages that they do not write.")//
+        public static final HostedOptionKey<Boolean> MapImageHeapCopyOnWrite = new HostedOptionKey<>(true);
+    }
+
+    private static final int NO_FD = -1;
+    private static final int UNINITIALIZED_FD = -2;
+
+    /** The length of a line of {@code /proc/self/maps}: a path of PATH_MAX and the other fields. */
+    private static final int MAX_LINE_LENGTH = 4096 + 128;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final String DELETED_SUFFIX = " (deleted)";
+    private static final int DELETED_SUFFIX_LENGTH = DELETED_SUFFIX.length();
+
+    private static final CGlobalData<CCharPointer> PROC_SELF_MAPS = CGlobalDataFactory.createCString("/proc/self/maps");
+    private static final CGlobalData<CCharPointer> DELETED = CGlobalDataFactory.createCString(DELETED_SUFFIX);
+    /** The open image file, {@link #NO_FD} if it is not available, or {@link #UNINITIALIZED_FD}. */
+    private static final CGlobalData<Pointer> IMAGE_FILE_DESCRIPTOR = CGlobalDataFactory.createWord(WordFactory.signed(UNINITIALIZED_FD));
+    /** The offset of the image heap in the image file. */
+    private static final CGlobalData<WordPointer> IMAGE_HEAP_FILE_OFFSET = CGlobalDataFactory.createWord();
+
+    @Override
+    @Uninterruptible(reason = "Still being initialized.")
+    public int initialize(WordPointer isolatePointer, CEntryPointCreateIsolateParameters parameters) {
+        int fd = getImageFileDescriptor();
+        if (fd == NO_FD) {
+            return super.initialize(isolatePointer, parameters);
+        }
+
+        Word begin = IMAGE_HEAP_BEGIN.get();
+        Word size = IMAGE_HEAP_END.get().subtract(begin);
+        Pointer heap = VirtualMemoryProvider.get().mapFile(nullPointer(), size, WordFactory.signed(fd), IMAGE_HEAP_FILE_OFFSET.get().read(), Access.READ | Access.WRITE);
+        if (heap.isNull()) {
+            return super.initialize(isolatePointer, parameters);
+        }
+
+        Word relocatableBegin = IMAGE_HEAP_RELOCATABLE_BEGIN.get();
+        Word relocatableSize = IMAGE_HEAP_RELOCATABLE_END.get().subtract(relocatableBegin);
+        if (relocatableSize.aboveThan(0)) {
+            MemoryUtil.copyConjointMemoryAtomic(relocatableBegin, heap.add(relocatableBegin.subtract(begin)), relocatableSize);
+        }
+
+        int result = protectImageHeap(heap);
+        if (result != CEntryPointErrors.NO_ERROR) {
+            VirtualMemoryProvider.get().free(heap, size);
+            return result;
+        }
+
+        isolatePointer.write(heap);
+        return CEntryPointErrors.NO_ERROR;
+    }
+
+    /**
+     * Returns the open image file, opening it if no isolate has been created yet. When multiple
+     * threads race to create the first isolates, the file descriptor of the first thread wins and
+     * the others close theirs.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static int getImageFileDescriptor() {
+        Pointer fdPointer = IMAGE_FILE_DESCRIPTOR.get();
+        int fd = (int) fdPointer.readWord(0).rawValue();
+        if (fd != UNINITIALIZED_FD) {
+            return fd;
+        }
+
+        WordPointer fileOffset = StackValue.get(WordPointer.class);
+        int opened = openImageFile(IMAGE_HEAP_BEGIN.get(), fileOffset);
+        if (opened != NO_FD) {
+            /* All threads determine the same offset, so it does not matter which one writes it. */
+            IMAGE_HEAP_FILE_OFFSET.get().write(fileOffset.read());
+        }
+        SignedWord witness = fdPointer.compareAndSwapWord(0, WordFactory.signed(UNINITIALIZED_FD), WordFactory.signed(opened), LocationIdentity.any());
+        if (witness.notEqual(UNINITIALIZED_FD)) {
+            if (opened != NO_FD) {
+                UnistdNoTransitions.close(opened);
+            }
+            return (int) witness.rawValue();
+        }
+        return opened;
+    }
+
+    /**
+     * Searches {@code /proc/self/maps} for the mapping that contains the image heap and opens the
+     * mapped file. Returns the file descriptor and writes the offset of the image heap in the file,
+     * or returns {@link #NO_FD}.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static int openImageFile(Word heapBegin, WordPointer fileOffset) {
+        int mapsFd = Fcntl.NoTransitions.open(PROC_SELF_MAPS.get(), O_RDONLY(), 0);
+        if (mapsFd < 0) {
+            return NO_FD;
+        }
+        CCharPointer buffer = StackValue.get(READ_BUFFER_SIZE);
+        CCharPointer line = StackValue.get(MAX_LINE_LENGTH + 1);
+        int lineLength = 0;
+        int result = NO_FD;
+        long count = UnistdNoTransitions.read(mapsFd, buffer, WordFactory.unsigned(READ_BUFFER_SIZE)).rawValue();
+        while (result == NO_FD && count > 0) {
+            for (int i = 0; i < count && result == NO_FD; i++) {
+                byte c = buffer.read(i);
+                if (c == '\n') {
+                    if (lineLength < MAX_LINE_LENGTH) {
+                        line.write(lineLength, (byte) 0);
+                        result = openIfContains(line, lineLength, heapBegin, fileOffset);
+                    }
+                    lineLength = 0;
+                } else {
+                    if (lineLength < MAX_LINE_LENGTH) {
+                        line.write(lineLength, c);
+                    }
+                    lineLength++;
+                }
+            }
+            if (result == NO_FD) {
+                count = UnistdNoTransitions.read(mapsFd, buffer, WordFactory.unsigned(READ_BUFFER_SIZE)).rawValue();
+            }
+        }
+        UnistdNoTransitions.close(mapsFd);
+        return result;
+    }
+
+    /**
+     * Parses a line of {@code /proc/self/maps}, which has the format
+     * {@code start-end perms offset dev inode pathname}, and opens the file if the mapping contains
+     * the image heap.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static int openIfContains(CCharPointer line, int length, Word heapBegin, WordPointer fileOffset) {
+        CLongPointer value = StackValue.get(CLongPointer.class);
+        int pos = parseHex(line, 0, value);
+        long start = value.read();
+        if (line.read(pos) != '-') {
+            return NO_FD;
+        }
+        pos = parseHex(line, pos + 1, value);
+        long end = value.read();
+        if (heapBegin.belowThan(WordFactory.unsigned(start)) || heapBegin.aboveOrEqual(WordFactory.unsigned(end))) {
+            return NO_FD;
+        }
+        pos = skipField(line, pos); // perms
+        pos = parseHex(line, pos, value);
+        long offset = value.read();
+        pos = skipField(line, pos); // dev
+        pos = skipField(line, pos); // inode
+        if (line.read(pos) != '/' || endsWithDeleted(line, length)) {
+            /* An anonymous mapping, or the file has been replaced since it was loaded. */
+            return NO_FD;
+        }
+        int fd = Fcntl.NoTransitions.open(line.addressOf(pos), O_RDONLY(), 0);
+        if (fd < 0) {
+            return NO_FD;
+        }
+        UnsignedWord heapOffset = heapBegin.subtract(WordFactory.unsigned(start)).add(WordFactory.unsigned(offset));
+        fileOffset.write(heapOffset);
+        return fd;
+    }
+
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static int parseHex(CCharPointer line, int startPos, CLongPointer result) {
+        int pos = startPos;
+        long value = 0;
+        while (true) {
+            byte c = line.read(pos);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else {
+                break;
+            }
+            value = (value << 4) | digit;
+            pos++;
+        }
+        result.write(value);
+        return pos;
+    }
+
+    /** Skips the spaces before the next field and the field, and the spaces after it. */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static int skipField(CCharPointer line, int startPos) {
+        int pos = startPos;
+        while (line.read(pos) == ' ') {
+            pos++;
+        }
+        while (line.read(pos) != ' ' && line.read(pos) != 0) {
+            pos++;
+        }
+        while (line.read(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    private static boolean endsWithDeleted(CCharPointer line, int length) {
+        if (length < DELETED_SUFFIX_LENGTH) {
+            return false;
+        }
+        CCharPointer suffix = DELETED.get();
+        for (int i = 0; i < DELETED_SUFFIX_LENGTH; i++) {
+            if (line.read(length - DELETED_SUFFIX_LENGTH + i) != suffix.read(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -52,6 +52,7 @@ import org.graalvm.word.Pointer;
 import org.graalvm.word.UnsignedWord;
 import org.graalvm.word.WordFactory;
 
+import com.oracle.svm.core.allocationprofile.AllocationSampler;
 import com.oracle.svm.core.allocationprofile.AllocationSite;
 import com.oracle.svm.core.amd64.AMD64CPUFeatureAccess;
 import com.oracle.svm.core.annotate.AutomaticFeature;
@@ -164,6 +165,9 @@ public class JavaMainWrapper {
             if (AllocationSite.Options.AllocationProfiling.getValue()) {
                 Runtime.getRuntime().addShutdownHook(new AllocationSite.AllocationProfilingShutdownHook());
             }
+            if (AllocationSampler.isEnabled()) {
+                Runtime.getRuntime().addShutdownHook(new AllocationSampler.SampledAllocationProfilingShutdownHook());
+            }
             if (SubstrateOptions.PrintGCSummary.getValue()) {
                 Runtime.getRuntime().addShutdownHook(new PrintGCSummaryShutdownHook());
             }
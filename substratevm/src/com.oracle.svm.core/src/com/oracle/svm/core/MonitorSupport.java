@@ -24,14 +24,16 @@
  */
 package com.oracle.svm.core;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.AbstractOwnableSynchronizer;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.graalvm.compiler.api.replacements.Fold;
 import org.graalvm.compiler.core.common.SuppressFBWarnings;
+import org.graalvm.compiler.nodes.extended.BranchProbabilityNode;
+import org.graalvm.compiler.options.Option;
 import org.graalvm.compiler.word.BarrieredAccess;
 import org.graalvm.compiler.word.Word;
 import org.graalvm.nativeimage.Feature;
@@ -42,8 +44,10 @@ import com.oracle.svm.core.annotate.AutomaticFeature;
 import com.oracle.svm.core.annotate.TargetClass;
 import com.oracle.svm.core.heap.ObjectHeader;
 import com.oracle.svm.core.hub.DynamicHub;
+import com.oracle.svm.core.option.HostedOptionKey;
 import com.oracle.svm.core.snippets.KnownIntrinsics;
 import com.oracle.svm.core.snippets.SubstrateForeignCallTarget;
+import com.oracle.svm.core.thread.JavaThreads;
 import com.oracle.svm.core.thread.VMOperation;
 import com.oracle.svm.core.util.VMError;
 
@@ -55,6 +59,16 @@ import com.oracle.svm.core.util.VMError;
  * (and thus need a monitor) and assigns a monitor offset to point to the slot for the monitor. The
  * monitor is implemented with a {@link ReentrantLock}.
  * <p>
+ * With {@link Options#ThinLocking}, the {@link ReentrantLock} is only allocated when it is really
+ * needed. An object that is locked once and without contention stores the owning {@link Thread} in
+ * the monitor slot (a "thin lock"), installed and removed with a single compare-and-swap that the
+ * monitorenter and monitorexit snippets inline. The thin lock is inflated to a
+ * {@link ReentrantLock} on contention, on recursive locking, and on {@link #wait()} or
+ * {@link #notify()}. Inflation can be done by any thread: the inflating thread creates a new lock
+ * that appears as if it has been locked by the thin lock owner, and replaces the owner in the
+ * monitor slot only if the slot still contains the owner. Once inflated, the monitor slot always
+ * contains that {@link ReentrantLock}.
+ * <p>
  * There are a few exceptions: {@link String} and {@link DynamicHub} objects never have monitor
  * fields because we want instances in the image heap to be immutable. Arrays never have monitor
  * fields because it would increase the size of every array and it is not possible to distinguish
@@ -62,28 +76,70 @@ import com.oracle.svm.core.util.VMError;
  * UniverseBuilder.canHaveMonitorFields(AnalysisType) for details.
  * <p>
  * Synchronization on {@link String}, arrays, and other types not detected by the static analysis
- * (like synchronization via JNI) fall back to a monitor stored in {@link #additionalMonitors}.
+ * (like synchronization via JNI) fall back to a monitor slot stored in {@link #additionalMonitors}.
+ * The secondary storage is a {@link StripedWeakIdentityMap}: lookups do not lock, and creating a
+ * new slot only locks the stripe that the object maps to. The secondary slot is an
+ * {@link AtomicReference} that holds the thin lock owner or the {@link ReentrantLock} just like a
+ * monitor slot in the object, so such objects are also only inflated when needed.
  * <p>
  * Because so few objects are receivers of {@link #wait()} and {@link #notify()} calls[citation
  * needed], condition variables for those objects are kept in {@link #additionalConditions}.
  */
 public class MonitorSupport {
 
+    public static class Options {
+        @Option(help = "Store the owning thread in the monitor slot of uncontended objects instead of allocating a lock.")//
+        public static final HostedOptionKey<Boolean> ThinLocking = new HostedOptionKey<>(true);
+    }
+
+    @Fold
+    static boolean useThinLocking() {
+        return SubstrateOptions.MultiThreaded.getValue() && Options.ThinLocking.getValue();
+    }
+
     /**
-     * Secondary storage for monitor slots.
+     * Tries to lock the object with a thin lock, i.e., by installing the current thread in the
+     * monitor slot of an unlocked object. Returns false if the slow path must be taken.
      *
-     * Synchronized to prevent concurrent access and modification.
+     * Can be called from snippets, so the method must be inlinable and allocation free.
      */
-    private final Map<Object, ReentrantLock> additionalMonitors = new WeakHashMap<>();
-    private final ReentrantLock additionalMonitorsLock = new ReentrantLock();
+    public static boolean tryEnterThin(Object obj) {
+        if (!useThinLocking()) {
+            return false;
+        }
+        int monitorOffset = KnownIntrinsics.readHub(obj).getMonitorOffset();
+        if (monitorOffset == 0) {
+            return false;
+        }
+        Thread currentThread = JavaThreads.getCurrentThread();
+        return BranchProbabilityNode.probability(BranchProbabilityNode.FAST_PATH_PROBABILITY, currentThread != null) &&
+                        UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, null, currentThread);
+    }
 
     /**
-     * Secondary storage for condition variable slots.
+     * Tries to unlock an object that is thin-locked by the current thread. Returns false if the
+     * slow path must be taken, i.e., when the monitor has been inflated.
      *
-     * Synchronized to prevent concurrent access and modification.
+     * Can be called from snippets, so the method must be inlinable and allocation free.
      */
-    private final Map<Object, Condition> additionalConditions = new WeakHashMap<>();
-    private final ReentrantLock additionalConditionsLock = new ReentrantLock();
+    public static boolean tryExitThin(Object obj) {
+        if (!useThinLocking()) {
+            return false;
+        }
+        int monitorOffset = KnownIntrinsics.readHub(obj).getMonitorOffset();
+        if (monitorOffset == 0) {
+            return false;
+        }
+        Thread currentThread = JavaThreads.getCurrentThread();
+        return BranchProbabilityNode.probability(BranchProbabilityNode.FAST_PATH_PROBABILITY, currentThread != null) &&
+                        UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, currentThread, null);
+    }
+
+    /** Secondary storage for monitor slots. */
+    private final StripedWeakIdentityMap<AtomicReference<Object>> additionalMonitors = new StripedWeakIdentityMap<>();
+
+    /** Secondary storage for condition variable slots. */
+    private final StripedWeakIdentityMap<Condition> additionalConditions = new StripedWeakIdentityMap<>();
 
     /**
      * Implements the monitorenter bytecode. The null check for the parameter must have already been
@@ -99,9 +155,16 @@ public class MonitorSupport {
             return;
         }
 
+        if (tryEnterThin(obj)) {
+            return;
+        }
         ReentrantLock lockObject = null;
         try {
-            lockObject = ImageSingletons.lookup(MonitorSupport.class).getOrCreateMonitor(obj, true);
+            MonitorSupport monitorSupport = ImageSingletons.lookup(MonitorSupport.class);
+            if (monitorSupport.tryEnterThinSecondary(obj)) {
+                return;
+            }
+            lockObject = monitorSupport.getOrCreateMonitor(obj, true);
             lockObject.lock();
         } catch (Throwable ex) {
             /*
@@ -133,9 +196,16 @@ public class MonitorSupport {
             return;
         }
 
+        if (tryExitThin(obj)) {
+            return;
+        }
         ReentrantLock lockObject = null;
         try {
-            lockObject = ImageSingletons.lookup(MonitorSupport.class).getOrCreateMonitor(obj, true);
+            MonitorSupport monitorSupport = ImageSingletons.lookup(MonitorSupport.class);
+            if (monitorSupport.tryExitThinSecondary(obj)) {
+                return;
+            }
+            lockObject = monitorSupport.getOrCreateMonitor(obj, true);
             lockObject.unlock();
         } catch (Throwable ex) {
             /*
@@ -150,6 +220,37 @@ public class MonitorSupport {
         }
     }
 
+    /**
+     * Tries to thin-lock an object that has no monitor slot, using its slot in the secondary
+     * storage. The slot is created on the first attempt.
+     */
+    private boolean tryEnterThinSecondary(Object obj) {
+        if (!useThinLocking() || ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset() != 0) {
+            return false;
+        }
+        Thread currentThread = JavaThreads.getCurrentThread();
+        return currentThread != null && getOrCreateAdditionalMonitorSlot(obj, true).compareAndSet(null, currentThread);
+    }
+
+    /** Tries to unlock an object without monitor slot that is thin-locked by the current thread. */
+    private boolean tryExitThinSecondary(Object obj) {
+        if (!useThinLocking() || ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset() != 0) {
+            return false;
+        }
+        Thread currentThread = JavaThreads.getCurrentThread();
+        AtomicReference<Object> slot = getOrCreateAdditionalMonitorSlot(obj, false);
+        return currentThread != null && slot != null && slot.compareAndSet(currentThread, null);
+    }
+
+    private AtomicReference<Object> getOrCreateAdditionalMonitorSlot(Object obj, boolean createIfNotExisting) {
+        final AtomicReference<Object> existingSlot = additionalMonitors.get(obj);
+        if (existingSlot != null || !createIfNotExisting) {
+            return existingSlot;
+        }
+        /* If we lose the race, the slot some other thread installed is returned. */
+        return additionalMonitors.putIfAbsent(obj, new AtomicReference<>());
+    }
+
     private static RuntimeException shouldNotReachHere(String label, Object obj, ReentrantLock lockObject, Throwable ex) {
         StringBuilder msg = new StringBuilder();
         msg.append("Unexpected exception in MonitorSupport.").append(label);
@@ -222,6 +323,9 @@ public class MonitorSupport {
             return true;
         }
 
+        if (isThinLockedByCurrentThread(obj)) {
+            return true;
+        }
         ReentrantLock lockObject = getOrCreateMonitor(obj, false);
         return lockObject != null && lockObject.isHeldByCurrentThread();
 
@@ -290,7 +394,8 @@ public class MonitorSupport {
 
     /** Return the lock of the receiver. */
     private ReentrantLock ensureLocked(Object receiver) {
-        ReentrantLock lockObject = getOrCreateMonitor(receiver, false);
+        /* Waiting and notifying need a condition, so a thin lock must be inflated. */
+        ReentrantLock lockObject = getOrCreateMonitor(receiver, isThinLockedByCurrentThread(receiver));
         /*
          * If the monitor field is null then it has not been locked by this thread. If there is a
          * monitor, make sure it is locked by this thread.
@@ -307,37 +412,102 @@ public class MonitorSupport {
         final int monitorOffset = hub.getMonitorOffset();
         if (monitorOffset != 0) {
             /* The common case: memory for the monitor reserved in the object. */
-            final ReentrantLock existingMonitor = KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), ReentrantLock.class);
-            if (existingMonitor != null || !createIfNotExisting) {
-                return existingMonitor;
+            final Object existingMonitor = KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), Object.class);
+            if (existingMonitor instanceof ReentrantLock) {
+                return (ReentrantLock) existingMonitor;
+            } else if (!createIfNotExisting) {
+                /* The object is either unlocked or thin-locked, so there is no lock object. */
+                return null;
             }
-            /* Atomically put a new lock in place of the null at the monitorOffset. */
-            final ReentrantLock newMonitor = new ReentrantLock();
-            if (UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, null, newMonitor)) {
-                return newMonitor;
-            }
-            /* We lost the race, use the lock some other thread installed. */
-            return KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), ReentrantLock.class);
+            return inflate(obj, monitorOffset);
         } else {
             /* No memory reserved for a lock in the object, fall back to our secondary storage. */
+            final AtomicReference<Object> slot = getOrCreateAdditionalMonitorSlot(obj, createIfNotExisting);
+            if (slot == null) {
+                return null;
+            }
+            final Object existingMonitor = slot.get();
+            if (existingMonitor instanceof ReentrantLock) {
+                return (ReentrantLock) existingMonitor;
+            } else if (!createIfNotExisting) {
+                return null;
+            }
+            return inflate(slot);
+        }
+    }
+
+    /**
+     * Replaces the content of the monitor slot with a {@link ReentrantLock}. If the object is
+     * thin-locked, the new lock is locked and then patched so that it appears as if it had been
+     * locked by the thin lock owner. This is safe because the new lock is not visible to any other
+     * thread before it is installed in the monitor slot.
+     */
+    private static ReentrantLock inflate(Object obj, int monitorOffset) {
+        while (true) {
+            final Object existingMonitor = KnownIntrinsics.convertUnknownValue(BarrieredAccess.readObject(obj, monitorOffset), Object.class);
+            if (existingMonitor instanceof ReentrantLock) {
+                return (ReentrantLock) existingMonitor;
+            }
+            final ReentrantLock newMonitor = newInflatedMonitor(existingMonitor);
+            /* Atomically replace the null or the thin lock owner with the new lock. */
+            if (UnsafeAccess.UNSAFE.compareAndSwapObject(obj, monitorOffset, existingMonitor, newMonitor)) {
+                return newMonitor;
+            }
             /*
-             * Lock the monitor map and maybe add a monitor for this object. This serialization
-             * might be a scalability problem.
+             * We lost the race: the thin lock was released or inflated by another thread, or
+             * another thread installed a lock. The discarded lock was never visible to other
+             * threads, so it does not need to be unlocked.
              */
-            additionalMonitorsLock.lock();
-            try {
-                final ReentrantLock existingEntry = additionalMonitors.get(obj);
-                if (existingEntry != null || !createIfNotExisting) {
-                    return existingEntry;
-                }
-                final ReentrantLock newEntry = new ReentrantLock();
-                final ReentrantLock previousEntry = additionalMonitors.put(obj, newEntry);
-                VMError.guarantee(previousEntry == null, "MonitorSupport.getOrCreateMonitor: Replaced monitor");
-                return newEntry;
-            } finally {
-                additionalMonitorsLock.unlock();
+        }
+    }
+
+    /** Same as {@link #inflate(Object, int)}, for a monitor slot in the secondary storage. */
+    private static ReentrantLock inflate(AtomicReference<Object> slot) {
+        while (true) {
+            final Object existingMonitor = slot.get();
+            if (existingMonitor instanceof ReentrantLock) {
+                return (ReentrantLock) existingMonitor;
+            }
+            final ReentrantLock newMonitor = newInflatedMonitor(existingMonitor);
+            if (slot.compareAndSet(existingMonitor, newMonitor)) {
+                return newMonitor;
+            }
+        }
+    }
+
+    /**
+     * Creates the lock that replaces the content of a monitor slot, i.e., null or the owner of a
+     * thin lock. The lock of a thin-locked object is locked on behalf of the owner.
+     */
+    private static ReentrantLock newInflatedMonitor(Object existingMonitor) {
+        final ReentrantLock newMonitor = new ReentrantLock();
+        if (existingMonitor != null) {
+            /* Thin-locked: the slot contains the owner thread. */
+            final Thread owner = KnownIntrinsics.convertUnknownValue(existingMonitor, Thread.class);
+            newMonitor.lock();
+            if (owner != JavaThreads.getCurrentThread()) {
+                Target_java_util_concurrent_locks_ReentrantLock lock = KnownIntrinsics.unsafeCast(newMonitor, Target_java_util_concurrent_locks_ReentrantLock.class);
+                Target_java_util_concurrent_locks_AbstractOwnableSynchronizer sync = KnownIntrinsics.unsafeCast(lock.sync, Target_java_util_concurrent_locks_AbstractOwnableSynchronizer.class);
+                sync.setExclusiveOwnerThread(owner);
             }
         }
+        return newMonitor;
+    }
+
+    private boolean isThinLockedByCurrentThread(Object obj) {
+        if (!useThinLocking()) {
+            return false;
+        }
+        final Thread currentThread = JavaThreads.getCurrentThread();
+        if (currentThread == null) {
+            return false;
+        }
+        final int monitorOffset = ObjectHeader.readDynamicHubFromObject(obj).getMonitorOffset();
+        if (monitorOffset == 0) {
+            final AtomicReference<Object> slot = additionalMonitors.get(obj);
+            return slot != null && slot.get() == currentThread;
+        }
+        return BarrieredAccess.readObject(obj, monitorOffset) == currentThread;
     }
 
     public ReentrantLock getMonitorForTesting(Object obj) {
@@ -346,23 +516,12 @@ public class MonitorSupport {
 
     private Condition getOrCreateCondition(Object obj, ReentrantLock lock, boolean createIfNotExisting) {
         /* No memory reserved for a condition in the object, use secondary storage. */
-        /*
-         * Lock the condition map and maybe add a condition for this object. This serialization
-         * might be a scalability problem.
-         */
-        additionalConditionsLock.lock();
-        try {
-            final Condition existingEntry = additionalConditions.get(obj);
-            if (existingEntry != null || !createIfNotExisting) {
-                return existingEntry;
-            }
-            final Condition newEntry = lock.newCondition();
-            final Condition previousEntry = additionalConditions.put(obj, newEntry);
-            VMError.guarantee(previousEntry == null, "MonitorSupport.getOrCreateCondition: Replaced condition");
-            return newEntry;
-        } finally {
-            additionalConditionsLock.unlock();
+        final Condition existingEntry = additionalConditions.get(obj);
+        if (existingEntry != null || !createIfNotExisting) {
+            return existingEntry;
         }
+        /* If we lose the race, the condition some other thread installed is returned. */
+        return additionalConditions.putIfAbsent(obj, lock.newCondition());
     }
 }
 
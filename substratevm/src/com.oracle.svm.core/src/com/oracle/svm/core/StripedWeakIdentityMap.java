@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent map with weakly referenced keys that are compared by identity. It is used as the
+ * secondary storage of {@link MonitorSupport} for objects that have no monitor slot.
+ * <p>
+ * The map is split into a fixed number of stripes selected by the identity hash code of the key.
+ * Lookups never lock: they read the bucket arrays with volatile semantics and walk immutable entry
+ * chains. Insertions lock only the stripe that the key maps to, so threads synchronizing on
+ * unrelated objects do not contend. Entries whose key has been collected are expunged lazily when
+ * their bucket is modified or when the stripe is resized.
+ * <p>
+ * The implementation must not use {@code synchronized} (directly or indirectly), because it is
+ * called while implementing the monitorenter bytecode.
+ */
+final class StripedWeakIdentityMap<V> {
+
+    private static final int STRIPE_BITS = 5;
+    private static final int STRIPE_COUNT = 1 << STRIPE_BITS;
+    private static final int INITIAL_STRIPE_CAPACITY = 8;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedWeakIdentityMap() {
+        stripes = (Stripe<V>[]) new Stripe<?>[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /** Returns the value mapped to the key, or null if there is none. Does not lock. */
+    V get(Object key) {
+        int hash = hash(key);
+        return stripes[hash & (STRIPE_COUNT - 1)].get(key, hash >>> STRIPE_BITS);
+    }
+
+    /**
+     * Maps the key to the provided value unless there is already a mapping. Returns the value that
+     * is mapped to the key after the operation, i.e., either the existing value or the provided
+     * value.
+     */
+    V putIfAbsent(Object key, V value) {
+        assert key != null && value != null;
+        int hash = hash(key);
+        return stripes[hash & (STRIPE_COUNT - 1)].putIfAbsent(key, hash >>> STRIPE_BITS, value);
+    }
+
+    private static int hash(Object key) {
+        int h = System.identityHashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry<V> extends WeakReference<Object> {
+        final int hash;
+        final V value;
+        final Entry<V> next;
+
+        Entry(Object key, int hash, V value, Entry<V> next) {
+            super(key);
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Stripe<V> {
+        /** Guards all modifications of this stripe, but not lookups. */
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile AtomicReferenceArray<Entry<V>> table = new AtomicReferenceArray<>(INITIAL_STRIPE_CAPACITY);
+        /** Number of entries, including entries with a cleared key. Guarded by {@link #lock}. */
+        private int count;
+
+        V get(Object key, int hash) {
+            AtomicReferenceArray<Entry<V>> tab = table;
+            for (Entry<V> e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && e.get() == key) {
+                    return e.value;
+                }
+            }
+            return null;
+        }
+
+        V putIfAbsent(Object key, int hash, V value) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Entry<V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Entry<V> first = tab.get(index);
+                boolean hasClearedEntries = false;
+                for (Entry<V> e = first; e != null; e = e.next) {
+                    Object existingKey = e.get();
+                    if (existingKey == null) {
+                        hasClearedEntries = true;
+                    } else if (existingKey == key) {
+                        return e.value;
+                    }
+                }
+                if (hasClearedEntries) {
+                    first = expunge(first);
+                }
+                if (count >= tab.length() - (tab.length() >>> 2)) {
+                    /* The bucket array is 75% full: rehash, which also drops all cleared entries. */
+                    tab.set(index, first);
+                    tab = rehash(tab);
+                    index = hash & (tab.length() - 1);
+                    first = tab.get(index);
+                }
+                tab.set(index, new Entry<>(key, hash, value, first));
+                count++;
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns a copy of the chain without the entries whose key has been cleared. The entries
+         * are immutable so that concurrent lookups can continue to walk the old chain.
+         */
+        private Entry<V> expunge(Entry<V> first) {
+            Entry<V> result = null;
+            for (Entry<V> e = first; e != null; e = e.next) {
+                Object existingKey = e.get();
+                if (existingKey == null) {
+                    count--;
+                } else {
+                    result = new Entry<>(existingKey, e.hash, e.value, result);
+                }
+            }
+            return result;
+        }
+
+        private AtomicReferenceArray<Entry<V>> rehash(AtomicReferenceArray<Entry<V>> oldTable) {
+            int liveCount = 0;
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Entry<V> e = oldTable.get(i); e != null; e = e.next) {
+                    if (e.get() != null) {
+                        liveCount++;
+                    }
+                }
+            }
+            int newLength = oldTable.length();
+            /* Only grow when the table is still at least half full after dropping cleared keys. */
+            if (liveCount >= newLength >>> 1) {
+                newLength = newLength << 1;
+            }
+            AtomicReferenceArray<Entry<V>> newTable = new AtomicReferenceArray<>(newLength);
+            int newCount = 0;
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Entry<V> e = oldTable.get(i); e != null; e = e.next) {
+                    Object existingKey = e.get();
+                    if (existingKey != null) {
+                        int newIndex = e.hash & (newLength - 1);
+                        newTable.set(newIndex, new Entry<>(existingKey, e.hash, e.value, newTable.get(newIndex)));
+                        newCount++;
+                    }
+                }
+            }
+            count = newCount;
+            table = newTable;
+            return newTable;
+        }
+    }
+}
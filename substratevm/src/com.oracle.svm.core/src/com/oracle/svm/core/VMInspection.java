@@ -36,6 +36,7 @@ import org.graalvm.nativeimage.Feature;
 import org.graalvm.nativeimage.IsolateThread;
 import org.graalvm.nativeimage.c.function.CEntryPointContext;
 
+import com.oracle.svm.core.allocationprofile.AllocationSampler;
 import com.oracle.svm.core.annotate.AutomaticFeature;
 import com.oracle.svm.core.annotate.NeverInline;
 import com.oracle.svm.core.jdk.RuntimeSupport;
@@ -43,6 +44,7 @@ import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.option.HostedOptionKey;
 import com.oracle.svm.core.stack.JavaStackWalker;
 import com.oracle.svm.core.stack.ThreadStackPrinter;
+import com.oracle.svm.core.thread.SafepointMetrics;
 import com.oracle.svm.core.thread.VMOperation;
 import com.oracle.svm.core.thread.VMThreads;
 import org.graalvm.compiler.api.replacements.Fold;
@@ -101,8 +103,16 @@ class DumpAllStacks implements SignalHandler {
                     log.string(e.getMessage()).newline();
                 }
             }
+            if (SafepointMetrics.isEnabled()) {
+                SafepointMetrics.toLog(log);
+            }
             log.flush();
         });
+        if (AllocationSampler.isEnabled()) {
+            /* Printing the samples allocates, so it is done after the safepoint. */
+            AllocationSampler.singleton().dumpSamples(Log.log());
+            Log.log().flush();
+        }
     }
 
     @NeverInline("catch implicit exceptions")
@@ -135,6 +145,8 @@ class DumpHeapReport implements SignalHandler {
             heapDumpFilePath = Files.createTempFile(Paths.get("."), "svm-heapdump-", ".hprof");
             fileOutputStream = new FileOutputStream(heapDumpFilePath.toFile());
             performHeapDump(fileOutputStream);
+            fileOutputStream.close();
+            Log.log().string("svm-heapdump written to ").string(heapDumpFilePath.toString()).newline().flush();
         } catch (Exception e) {
             Log.log().string("svm-heapdump failed").newline().flush();
             try {
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.allocationprofile;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.graalvm.compiler.api.replacements.Fold;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.annotate.RestrictHeapAccess;
+import com.oracle.svm.core.code.CodeInfoQueryResult;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.code.FrameInfoQueryResult;
+import com.oracle.svm.core.deopt.DeoptimizedFrame;
+import com.oracle.svm.core.hub.DynamicHub;
+import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.option.RuntimeOptionKey;
+import com.oracle.svm.core.stack.JavaStackWalker;
+import com.oracle.svm.core.stack.StackFrameVisitor;
+import com.oracle.svm.core.threadlocal.FastThreadLocalBytes;
+import com.oracle.svm.core.threadlocal.FastThreadLocalFactory;
+import com.oracle.svm.core.threadlocal.FastThreadLocalInt;
+import com.oracle.svm.core.threadlocal.FastThreadLocalLong;
+import com.oracle.svm.core.util.MetricsLogUtils;
+
+/**
+ * A sampling allocation profiler that is cheap enough to be enabled in production images, in
+ * contrast to {@link AllocationSite allocation site profiling} which instruments every allocation.
+ * <p>
+ * The garbage collector reports to the sampler whenever a thread takes the allocation slow path,
+ * i.e., when the thread-local allocation buffer is refilled or a large array is allocated, together
+ * with the number of bytes that the thread allocated since the previous slow path. Each thread
+ * counts the bytes it allocated since its previous sample. When they reach a threshold, the type of
+ * the object that caused the slow path and the Java stack of the allocation are recorded, and the
+ * sample is weighted with the bytes allocated since the previous sample. The thresholds are drawn
+ * uniformly at random around the sampling interval, so that threads that allocate periodically are
+ * not always sampled at the same point, and the first sample of a thread is not always taken at its
+ * first slow path. The sampling granularity is bounded by the size of an allocation chunk.
+ * <p>
+ * Samples with the same type and stack are aggregated in a table of fixed size that is allocated at
+ * image build time. Recording a sample does not allocate and does not lock. Samples that do not
+ * fit into the table anymore are only counted.
+ */
+public final class AllocationSampler {
+
+    public static class Options {
+        @Option(help = "Enable sampling of allocations at the allocation slow path, which is cheap enough for production use.")//
+        public static final HostedOptionKey<Boolean> SampledAllocationProfiling = new HostedOptionKey<>(false);
+
+        @Option(help = "The maximum number of distinct (type, stack) pairs recorded by the sampled allocation profiler.")//
+        public static final HostedOptionKey<Integer> SampledAllocationProfilingTableSize = new HostedOptionKey<>(4096);
+
+        @Option(help = "The maximum number of frames recorded for each allocation sample.")//
+        public static final HostedOptionKey<Integer> SampledAllocationProfilingStackDepth = new HostedOptionKey<>(16);
+
+        @Option(help = "The average number of bytes allocated by a thread between two allocation samples.")//
+        public static final RuntimeOptionKey<Long> SampledAllocationProfilingInterval = new RuntimeOptionKey<>(512L * 1024L);
+
+        @Option(help = "The number of allocation samples printed by the sampled allocation profiler.")//
+        public static final RuntimeOptionKey<Integer> SampledAllocationProfilingPrintCount = new RuntimeOptionKey<>(50);
+    }
+
+    @Fold
+    public static boolean isEnabled() {
+        return Options.SampledAllocationProfiling.getValue();
+    }
+
+    @Fold
+    static int getMaxStackDepth() {
+        return Options.SampledAllocationProfilingStackDepth.getValue();
+    }
+
+    @Fold
+    public static AllocationSampler singleton() {
+        return ImageSingletons.lookup(AllocationSampler.class);
+    }
+
+    private static final int EMPTY = 0;
+    private static final int WRITING = 1;
+    private static final int READY = 2;
+
+    /** The number of bytes the thread allocated since its previous sample. */
+    private static final FastThreadLocalLong bytesSinceSample = FastThreadLocalFactory.createLong();
+    /** The number of bytes after which the thread takes its next sample, or 0 if not yet drawn. */
+    private static final FastThreadLocalLong sampleThreshold = FastThreadLocalFactory.createLong();
+    /** The state of the random number generator of the thread, or 0 if not yet seeded. */
+    private static final FastThreadLocalLong randomState = FastThreadLocalFactory.createLong();
+    /** The instruction pointers of the stack that is currently sampled by the thread. */
+    private static final FastThreadLocalBytes<Pointer> stackBuffer = FastThreadLocalFactory.createBytes(() -> getMaxStackDepth() * Long.BYTES);
+    private static final FastThreadLocalInt stackDepth = FastThreadLocalFactory.createInt();
+
+    private final StackFrameVisitor stackCollector = new StackCollector();
+
+    private final int capacity;
+    private final AtomicIntegerArray states;
+    private final int[] hashes;
+    private final DynamicHub[] types;
+    private final int[] depths;
+    private final long[] frames;
+    private final AtomicLongArray sampleCounts;
+    private final AtomicLongArray sampledBytes;
+    private final AtomicLong droppedSamples;
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    AllocationSampler(int tableSize) {
+        this.capacity = Integer.highestOneBit(Math.max(tableSize, 1) * 2 - 1);
+        this.states = new AtomicIntegerArray(capacity);
+        this.hashes = new int[capacity];
+        this.types = new DynamicHub[capacity];
+        this.depths = new int[capacity];
+        this.frames = new long[capacity * getMaxStackDepth()];
+        this.sampleCounts = new AtomicLongArray(capacity);
+        this.sampledBytes = new AtomicLongArray(capacity);
+        this.droppedSamples = new AtomicLong();
+    }
+
+    /**
+     * Called by the garbage collector on the allocation slow path of the current thread.
+     *
+     * @param hub the type of the object that caused the slow path.
+     * @param allocatedBytes the number of bytes the thread allocated since the previous call.
+     * @param sp the stack pointer of the frame that allocated the object.
+     * @param ip the instruction pointer of the frame that allocated the object.
+     */
+    @RestrictHeapAccess(access = RestrictHeapAccess.Access.NO_ALLOCATION, reason = "Called from the allocation slow path.")
+    public static void sampleAllocation(DynamicHub hub, UnsignedWord allocatedBytes, Pointer sp, CodePointer ip) {
+        long allocated = bytesSinceSample.get() + allocatedBytes.rawValue();
+        long threshold = sampleThreshold.get();
+        if (threshold == 0) {
+            /* The first slow path of the thread. */
+            threshold = nextSampleThreshold(sp);
+            sampleThreshold.set(threshold);
+        }
+        if (allocated < threshold) {
+            bytesSinceSample.set(allocated);
+            return;
+        }
+        bytesSinceSample.set(0);
+        sampleThreshold.set(nextSampleThreshold(sp));
+        /* The bytes allocated since the previous sample are attributed to this sample. */
+        singleton().recordSample(hub, allocated, sp, ip);
+    }
+
+    /**
+     * Returns a threshold drawn uniformly from [1, 2 * interval), which averages to the sampling
+     * interval. Uses a per-thread xorshift generator since this must not allocate.
+     */
+    private static long nextSampleThreshold(Pointer sp) {
+        long interval = Math.max(Options.SampledAllocationProfilingInterval.getValue(), 1L);
+        long x = randomState.get();
+        if (x == 0) {
+            x = (System.nanoTime() ^ sp.rawValue()) | 1L;
+        }
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        randomState.set(x);
+        return 1L + Long.remainderUnsigned(x, 2L * interval - 1L);
+    }
+
+    private void recordSample(DynamicHub hub, long weight, Pointer sp, CodePointer ip) {
+        stackDepth.set(0);
+        JavaStackWalker.walkCurrentThread(sp, ip, stackCollector);
+        Pointer stack = stackBuffer.getAddress();
+        int depth = stackDepth.get();
+
+        int hash = hub.getTypeID();
+        for (int i = 0; i < depth; i++) {
+            long frame = stack.readLong(i * Long.BYTES);
+            hash = 31 * hash + (int) (frame ^ (frame >>> 32));
+        }
+        hash ^= hash >>> 16;
+
+        for (int probe = 0; probe < capacity; probe++) {
+            int index = (hash + probe) & (capacity - 1);
+            int state = states.get(index);
+            if (state == EMPTY && states.compareAndSet(index, EMPTY, WRITING)) {
+                hashes[index] = hash;
+                types[index] = hub;
+                depths[index] = depth;
+                for (int i = 0; i < depth; i++) {
+                    frames[index * getMaxStackDepth() + i] = stack.readLong(i * Long.BYTES);
+                }
+                states.set(index, READY);
+                state = READY;
+            } else if (state == EMPTY) {
+                /* Another thread claimed the entry in the meantime. */
+                state = states.get(index);
+            }
+            if (state == READY && matches(index, hash, hub, stack, depth)) {
+                sampleCounts.incrementAndGet(index);
+                sampledBytes.addAndGet(index, weight);
+                return;
+            }
+            /* An entry that is still being written is skipped, which can create a duplicate. */
+        }
+        droppedSamples.incrementAndGet();
+    }
+
+    private boolean matches(int index, int hash, DynamicHub hub, Pointer stack, int depth) {
+        if (hashes[index] != hash || types[index] != hub || depths[index] != depth) {
+            return false;
+        }
+        for (int i = 0; i < depth; i++) {
+            if (frames[index * getMaxStackDepth() + i] != stack.readLong(i * Long.BYTES)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class StackCollector implements StackFrameVisitor {
+        @Override
+        public boolean visitFrame(Pointer sp, CodePointer ip, DeoptimizedFrame deoptimizedFrame) {
+            int depth = stackDepth.get();
+            stackBuffer.getAddress().writeLong(depth * Long.BYTES, ip.rawValue());
+            stackDepth.set(depth + 1);
+            return depth + 1 < getMaxStackDepth();
+        }
+    }
+
+    /** Returns the number of samples that could not be recorded because the table was full. */
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /** Prints the allocation samples with the most bytes attributed to them. */
+    public void dumpSamples(Log log) {
+        int count = 0;
+        long totalSamples = 0;
+        long totalBytes = 0;
+        Integer[] indices = new Integer[capacity];
+        for (int index = 0; index < capacity; index++) {
+            if (states.get(index) == READY) {
+                indices[count++] = index;
+                totalSamples += sampleCounts.get(index);
+                totalBytes += sampledBytes.get(index);
+            }
+        }
+        Arrays.sort(indices, 0, count, (i1, i2) -> Long.compare(sampledBytes.get(i2), sampledBytes.get(i1)));
+
+        MetricsLogUtils.logSection("Sampled allocation profile");
+        MetricsLogUtils.logCounterMetric("Samples:", totalSamples);
+        MetricsLogUtils.logMemoryMetric("Sampled bytes:", totalBytes);
+        MetricsLogUtils.logCounterMetric("Dropped samples:", droppedSamples.get());
+
+        int printCount = Math.min(count, Options.SampledAllocationProfilingPrintCount.getValue());
+        for (int i = 0; i < printCount; i++) {
+            int index = indices[i];
+            log.string(types[index].getName()).string(";").signed(sampleCounts.get(index)).string(" samples;").signed(sampledBytes.get(index)).string(" bytes").newline();
+            for (int frame = 0; frame < depths[index]; frame++) {
+                logFrame(log, WordFactory.pointer(frames[index * getMaxStackDepth() + frame]));
+            }
+        }
+    }
+
+    private static void logFrame(Log log, CodePointer ip) {
+        CodeInfoQueryResult result = CodeInfoTable.lookupCodeInfoQueryResult(ip);
+        if (result == null || result.getFrameInfo() == null) {
+            log.string("    at ").zhex(ip.rawValue()).newline();
+            return;
+        }
+        for (FrameInfoQueryResult frameInfo = result.getFrameInfo(); frameInfo != null; frameInfo = frameInfo.getCaller()) {
+            log.string("    at ");
+            frameInfo.log(log);
+            log.newline();
+        }
+    }
+
+    /** Resets all samples. Samples that are recorded concurrently can get lost. */
+    public void reset() {
+        for (int index = 0; index < capacity; index++) {
+            sampleCounts.set(index, 0);
+            sampledBytes.set(index, 0);
+        }
+        droppedSamples.set(0);
+    }
+
+    /** A shutdown hook to print the sampled allocation profile. */
+    public static class SampledAllocationProfilingShutdownHook extends Thread {
+
+        public SampledAllocationProfilingShutdownHook() {
+            super("SampledAllocationProfilingShutdownHook");
+        }
+
+        @Override
+        public void run() {
+            singleton().dumpSamples(Log.log());
+        }
+    }
+}
+
+@AutomaticFeature
+class AllocationSamplerFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return AllocationSampler.isEnabled();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(AllocationSampler.class, new AllocationSampler(AllocationSampler.Options.SampledAllocationProfilingTableSize.getValue()));
+    }
+}
@@ -26,10 +26,15 @@ package com.oracle.svm.core.code;
 
 import static com.oracle.svm.core.util.VMError.shouldNotReachHere;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.graalvm.compiler.api.replacements.Fold;
 import org.graalvm.compiler.core.common.util.TypeConversion;
 import org.graalvm.compiler.options.Option;
 import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
 
 import com.oracle.svm.core.annotate.AlwaysInline;
 import com.oracle.svm.core.annotate.UnknownObjectField;
@@ -91,6 +96,22 @@ class CodeInfoDecoder {
         this.frameInfoNames = frameInfoNames;
     }
 
+    /** Returns the arrays that hold the encoded metadata, by name, to report their size. */
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public Map<String, Object> getMetadataArrays() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("codeInfoIndex", codeInfoIndex);
+        result.put("codeInfoEncodings", codeInfoEncodings);
+        result.put("referenceMapEncoding", referenceMapEncoding);
+        result.put("frameInfoEncodings", frameInfoEncodings);
+        result.put("frameInfoObjectConstants", frameInfoObjectConstants);
+        result.put("frameInfoSourceClassNames", frameInfoSourceClassNames);
+        result.put("frameInfoSourceMethodNames", frameInfoSourceMethodNames);
+        result.put("frameInfoSourceFileNames", frameInfoSourceFileNames);
+        result.put("frameInfoNames", frameInfoNames);
+        return result;
+    }
+
     protected long lookupCodeInfoEntryOffset(long ip) {
         long entryIP = lookupEntryIP(ip);
         long entryOffset = loadEntryOffset(ip);
@@ -59,7 +59,11 @@ import com.oracle.svm.core.util.VMError;
  * On top of this, I think you could build PhantomReference and WeakReference classes by adding a
  * getReferent() method that returned the referent as an Object. See {@linkplain FeebleReference}
  * and {@linkplain FeebleReferenceList}. Reference classes that subsequently promote their referent
- * (SoftReference and FinalReference) would be more complicated.
+ * (FinalReference) would be more complicated.
+ *
+ * A DiscoverableReference can be {@linkplain #isSoft() soft}. The referent of a soft reference is
+ * treated as strongly reachable by the collector if it has been accessed recently, see
+ * {@link #getSoftAccessTimestamp()}. Otherwise soft references are treated like weak references.
  *
  * All the state that is needed to build lists, etc., is allocated in the DiscoverableReference
  * instances, because space can not be allocated for lists during a collection.
@@ -85,6 +89,35 @@ public class DiscoverableReference {
         return rawReferent;
     }
 
+    /** Note an access of the referent, for the policy that decides when to clear soft references. */
+    protected void noteSoftAccess() {
+        if (soft && softAccessTimestamp != softReferenceClock) {
+            softAccessTimestamp = softReferenceClock;
+        }
+    }
+
+    public boolean isSoft() {
+        return soft;
+    }
+
+    /**
+     * The value of the {@linkplain #getSoftReferenceClock() soft reference clock} when the referent
+     * of this soft reference was last accessed.
+     */
+    public long getSoftAccessTimestamp() {
+        return softAccessTimestamp;
+    }
+
+    /** The time of the most recent collection, in milliseconds. */
+    public static long getSoftReferenceClock() {
+        return softReferenceClock;
+    }
+
+    /** Called by the collector before it discovers references. */
+    public static void setSoftReferenceClock(long millis) {
+        softReferenceClock = millis;
+    }
+
     /** Clear the referent. */
     public void clear() {
         rawReferent = null;
@@ -98,6 +131,14 @@ public class DiscoverableReference {
         return Word.objectToUntrackedPointer(ObjectAccess.readObject(this, WordFactory.signed(RAW_REFERENT_OFFSET)));
     }
 
+    /**
+     * The address of the referent field, for the garbage collector to visit the referent as a
+     * strong reference.
+     */
+    public Pointer getReferentFieldPointer() {
+        return Word.objectToUntrackedPointer(this).add(WordFactory.unsigned(RAW_REFERENT_OFFSET));
+    }
+
     /**
      * Write access to the referent, as a Pointer. This is the low-level access for the garbage
      * collector, so no barriers are used.
@@ -138,6 +179,18 @@ public class DiscoverableReference {
      * @param referent The Object to be tracked by this DiscoverableReference.
      */
     protected DiscoverableReference(Object referent) {
+        this(referent, false);
+    }
+
+    /**
+     * Constructor for sub-classes.
+     *
+     * @param referent The Object to be tracked by this DiscoverableReference.
+     * @param soft Whether the referent is only cleared when it has not been accessed recently.
+     */
+    protected DiscoverableReference(Object referent, boolean soft) {
+        this.soft = soft;
+        this.softAccessTimestamp = softReferenceClock;
         initialize(referent);
     }
 
@@ -190,6 +243,15 @@ public class DiscoverableReference {
     /** The next element in whichever list of DiscoverableReferences. */
     @SuppressWarnings("unused") private DiscoverableReference next;
 
+    /** Whether this is a soft reference. */
+    private final boolean soft;
+
+    /** See {@link #getSoftAccessTimestamp()}. */
+    private long softAccessTimestamp;
+
+    /** See {@link #getSoftReferenceClock()}. Only written by the collector. */
+    private static long softReferenceClock;
+
     /** For testing and debugging. */
     public static final class TestingBackDoor {
 
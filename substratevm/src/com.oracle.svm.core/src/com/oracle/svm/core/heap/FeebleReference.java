@@ -49,6 +49,7 @@ public class FeebleReference<T> extends DiscoverableReference {
     /** Turn the referent into a strong reference. */
     @SuppressWarnings("unchecked")
     public T get() {
+        noteSoftAccess();
         return (T) getReferentObject();
     }
 
@@ -96,7 +97,12 @@ public class FeebleReference<T> extends DiscoverableReference {
 
     /** Constructor for subclasses. */
     protected FeebleReference(final T referent, final FeebleReferenceList<T> list) {
-        super(referent);
+        this(referent, list, false);
+    }
+
+    /** Constructor for subclasses that can be soft. */
+    protected FeebleReference(final T referent, final FeebleReferenceList<T> list, boolean soft) {
+        super(referent, soft);
         this.list = list;
         FeebleReferenceList.clean(this);
     }
@@ -49,11 +49,19 @@ public final class FeebleReferenceList<T> {
     /**
      * Notification of other threads that FeebleReferences might be available.
      *
-     * I am re-using the VMThreads mutex, but using my own condition variable.
+     * The mutex only protects the condition variable, so neither the collector nor the threads
+     * waiting for FeebleReferences contend with the users of {@link VMThreads#THREAD_MUTEX}.
      */
-    private static final VMMutex availableLock = VMThreads.THREAD_MUTEX;
+    private static final VMMutex availableLock = new VMMutex();
     private static final VMCondition availableCondition = new VMCondition(availableLock);
 
+    /**
+     * Incremented while holding {@link #availableLock} each time the waiters are signaled. A waiter
+     * samples the epoch before it checks its list and only blocks if the epoch has not changed, so
+     * that a notification between the check and the wait is not lost.
+     */
+    private static final UninterruptibleUtils.AtomicInteger availableEpoch = new UninterruptibleUtils.AtomicInteger(0);
+
     /** A pre-allocated InterruptedException. */
     private static final InterruptedException preallocatedInterruptedException = new InterruptedException();
 
@@ -118,9 +126,8 @@ public final class FeebleReferenceList<T> {
         FeebleReference<? extends T> result;
         if (SubstrateOptions.MultiThreaded.getValue()) {
             /*
-             * This method blocks, so it can not run inside a VMOperation. Also, trying to grab the
-             * VMThreads mutex inside a VMOperation will try to re-lock the mutex, which would
-             * deadlock, if I am lucky.
+             * This method blocks, so it can not run inside a VMOperation, which would prevent the
+             * collection that makes FeebleReferences available.
              */
             VMOperation.guaranteeNotInProgress("Calling FeebleReferenceList.remove inside a VMOperation would block.");
             /* The multi-threaded version either returns quickly or blocks until notified. */
@@ -137,6 +144,9 @@ public final class FeebleReferenceList<T> {
         long remainingNanos = timeoutNanos;
         for (; /* break */;) {
 
+            /* Sample the epoch before looking at the list, see availableEpoch. */
+            final int epoch = availableEpoch.get();
+
             /* Check if we can pop an element from the queue and return it. */
             FeebleReference<? extends T> result = pop();
             if (result != null) {
@@ -150,9 +160,9 @@ public final class FeebleReferenceList<T> {
 
             /* Either wait forever or for however long is requested. */
             if (timeoutNanos == 0) {
-                await();
+                await(epoch);
             } else {
-                remainingNanos = await(remainingNanos);
+                remainingNanos = await(epoch, remainingNanos);
                 if (remainingNanos <= 0) {
                     /* Timeout. */
                     return null;
@@ -199,24 +209,24 @@ public final class FeebleReferenceList<T> {
     }
 
     /** Await with thread status change. */
-    private static void await() {
+    private static void await(int epoch) {
         final Thread thread = Thread.currentThread();
         final int oldStatus = JavaThreads.getThreadStatus(thread);
         JavaThreads.setThreadStatus(thread, ThreadStatus.PARKED);
         try {
-            awaitWithTransition();
+            awaitWithTransition(epoch);
         } finally {
             JavaThreads.setThreadStatus(thread, oldStatus);
         }
     }
 
     /** Await(long) with thread status change. */
-    private static long await(long waitNanos) {
+    private static long await(int epoch, long waitNanos) {
         final Thread thread = Thread.currentThread();
         final int oldStatus = JavaThreads.getThreadStatus(thread);
         JavaThreads.setThreadStatus(thread, ThreadStatus.PARKED_TIMED);
         try {
-            return awaitWithTransition(waitNanos);
+            return awaitWithTransition(epoch, waitNanos);
         } finally {
             JavaThreads.setThreadStatus(thread, oldStatus);
         }
@@ -237,44 +247,45 @@ public final class FeebleReferenceList<T> {
      * <pre>
      * cFunctionPrologue();
      * try {
-     *     awaitInNative();
+     *     awaitInNative(epoch);
      * } finally {
      *     cFunctionEpilogue();
      * }
      * </pre>
      *
      * but there is some concern about how much the <code>finally</code> will distort the code
-     * shape. And there is nothing I can do if the {@link #awaitInNative()} fails in some obscure
+     * shape. And there is nothing I can do if the {@link #awaitInNative(int)} fails in some obscure
      * way. Similarly, I could add asserts about the thread state on the way out, but there is not
      * much I can do if things go wrong.
      */
-    private static void awaitWithTransition() {
+    private static void awaitWithTransition(int epoch) {
         CFunctionPrologueNode.cFunctionPrologue();
-        awaitInNative();
+        awaitInNative(epoch);
         CFunctionEpilogueNode.cFunctionEpilogue();
     }
 
-    private static long awaitWithTransition(long waitNanos) {
+    private static long awaitWithTransition(int epoch, long waitNanos) {
         CFunctionPrologueNode.cFunctionPrologue();
-        final long result = awaitInNative(waitNanos);
+        final long result = awaitInNative(epoch, waitNanos);
         CFunctionEpilogueNode.cFunctionEpilogue();
         return result;
     }
 
     /**
-     * Wait until a signal is available, in native. Once I get the lock I will run until
+     * Wait until a signal is available, in native, unless there has been a signal since the given
+     * epoch was sampled. Once I get the lock I will run until
      * {@link VMCondition#blockNoTransition()} releases the mutex or I return and transition out of
      * native.
      * <p>
      * This method is never inlined so that its return address serves as the return address for the
-     * Java frame anchor set up in {@link #awaitWithTransition()}, so that if a collection happens
+     * Java frame anchor set up in {@link #awaitWithTransition(int)}, so that if a collection happens
      * when this code is running, the collector can walk the stack of this thread.
      * <p>
-     * See the note about object references in {@link #awaitWithTransition()}.
+     * See the note about object references in {@link #awaitWithTransition(int)}.
      */
     @Uninterruptible(reason = "Must not stop while in native.")
     @NeverInline("Provide a return address for the Java frame anchor.")
-    private static void awaitInNative() {
+    private static void awaitInNative(int epoch) {
         /* Lock the mutex. */
         lock();
         try {
@@ -282,7 +293,9 @@ public final class FeebleReferenceList<T> {
              * Wait until the condition is notified, unlocking the mutex. Do not transition back to
              * Java on return, because I do not want to stop in this method.
              */
-            availableCondition.blockNoTransition();
+            if (availableEpoch.get() == epoch) {
+                availableCondition.blockNoTransition();
+            }
         } finally {
             unlock();
         }
@@ -290,7 +303,7 @@ public final class FeebleReferenceList<T> {
 
     @Uninterruptible(reason = "Must not stop while in native.")
     @NeverInline("Provide a return address for the Java frame anchor.")
-    private static long awaitInNative(long waitNanos) {
+    private static long awaitInNative(int epoch, long waitNanos) {
         long result = waitNanos;
         /* Lock the mutex. */
         lock();
@@ -299,24 +312,32 @@ public final class FeebleReferenceList<T> {
              * Wait until the condition is notified, unlocking the mutex. Do not transition back to
              * Java on return, because I do not want to stop in this method.
              */
-            result = availableCondition.blockNoTransition(waitNanos);
+            if (availableEpoch.get() == epoch) {
+                result = availableCondition.blockNoTransition(waitNanos);
+            }
         } finally {
             unlock();
         }
         return result;
     }
 
-    public static void broadcast() {
-        guaranteeIsLocked();
-        availableCondition.broadcast();
-    }
-
     /**
-     * Called by {@code Target_java_lang_Thread.interrupt0()} to notify waiters to check to see if
-     * they have been interrupted.
+     * Notify all waiters to check their lists. Called by the collector after it has distributed
+     * FeebleReferences, and by {@code Target_java_lang_Thread.interrupt0()} to notify waiters to
+     * check to see if they have been interrupted.
+     * <p>
+     * The lock is only ever held by uninterruptible code for a short time, so it can be acquired
+     * without a thread status transition, even during a collection.
      */
+    @Uninterruptible(reason = "Called from uninterruptible code.")
     public static void signalWaiters() {
-        broadcast();
+        lock();
+        try {
+            availableEpoch.incrementAndGet();
+            availableCondition.broadcast();
+        } finally {
+            unlock();
+        }
     }
 
     /*
@@ -333,8 +354,4 @@ public final class FeebleReferenceList<T> {
     protected static void clean(FeebleReference<?> fr) {
         fr.listRemove();
     }
-
-    public static void guaranteeIsLocked() {
-        availableLock.guaranteeIsLocked("Should hold VMThreads lock when notifying waiters.");
-    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.heapdump;
+
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+
+import com.oracle.svm.core.annotate.UnknownObjectField;
+
+/**
+ * The field layouts that {@link HeapDumpWriter} needs to describe classes and to write the
+ * contents of objects. The metadata is computed after the layout of all types is known and is
+ * indexed by {@link com.oracle.svm.core.hub.DynamicHub#getTypeID() type id}.
+ * <p>
+ * The fields of all types are stored in flat arrays. For the type with id {@code t}, the declared
+ * instance fields are in the range {@code [fieldStarts[2t], fieldStarts[2t+1])} and the static
+ * fields are in the range {@code [fieldStarts[2t+1], fieldStarts[2t+2])}. Field types are HPROF
+ * basic types. The offset of an instance field is relative to the start of the object, the offset
+ * of a static field is relative to the start of the static field array that holds the field.
+ */
+public final class HeapDumpMetadata {
+
+    @UnknownObjectField(types = {int[].class}) private int[] fieldStarts;
+    @UnknownObjectField(types = {String[].class}) private String[] fieldNames;
+    @UnknownObjectField(types = {byte[].class}) private byte[] fieldTypes;
+    @UnknownObjectField(types = {int[].class}) private int[] fieldOffsets;
+    /** The number of bytes of the fields of an instance, including all superclasses. */
+    @UnknownObjectField(types = {int[].class}) private int[] instanceFieldsSizes;
+    /** The HPROF basic type of the elements of array types, 0 for all other types. */
+    @UnknownObjectField(types = {byte[].class}) private byte[] arrayElementTypes;
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public HeapDumpMetadata() {
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public void setData(int[] newFieldStarts, String[] newFieldNames, byte[] newFieldTypes, int[] newFieldOffsets, int[] newInstanceFieldsSizes, byte[] newArrayElementTypes) {
+        assert newFieldStarts.length == 2 * newInstanceFieldsSizes.length + 1 && newArrayElementTypes.length == newInstanceFieldsSizes.length;
+        assert newFieldNames.length == newFieldTypes.length && newFieldNames.length == newFieldOffsets.length;
+        this.fieldStarts = newFieldStarts;
+        this.fieldNames = newFieldNames;
+        this.fieldTypes = newFieldTypes;
+        this.fieldOffsets = newFieldOffsets;
+        this.instanceFieldsSizes = newInstanceFieldsSizes;
+        this.arrayElementTypes = newArrayElementTypes;
+    }
+
+    public static boolean isAvailable() {
+        return ImageSingletons.contains(HeapDumpMetadata.class);
+    }
+
+    public static HeapDumpMetadata singleton() {
+        return ImageSingletons.lookup(HeapDumpMetadata.class);
+    }
+
+    public int getTypeCount() {
+        return instanceFieldsSizes.length;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    public int getInstanceFieldsStart(int typeID) {
+        return fieldStarts[2 * typeID];
+    }
+
+    public int getInstanceFieldsEnd(int typeID) {
+        return fieldStarts[2 * typeID + 1];
+    }
+
+    public int getStaticFieldsStart(int typeID) {
+        return fieldStarts[2 * typeID + 1];
+    }
+
+    public int getStaticFieldsEnd(int typeID) {
+        return fieldStarts[2 * typeID + 2];
+    }
+
+    public String getFieldName(int field) {
+        return fieldNames[field];
+    }
+
+    public byte getFieldType(int field) {
+        return fieldTypes[field];
+    }
+
+    public int getFieldOffset(int field) {
+        return fieldOffsets[field];
+    }
+
+    public int getInstanceFieldsSize(int typeID) {
+        return instanceFieldsSizes[typeID];
+    }
+
+    public byte getArrayElementType(int typeID) {
+        return arrayElementTypes[typeID];
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.heapdump;
+
+import java.util.List;
+
+import org.graalvm.compiler.word.Word;
+import org.graalvm.nativeimage.IsolateThread;
+import org.graalvm.nativeimage.UnmanagedMemory;
+import org.graalvm.nativeimage.c.function.CEntryPointContext;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.UnsignedWord;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.MemoryUtil;
+import com.oracle.svm.core.StaticFieldsSupport;
+import com.oracle.svm.core.annotate.RestrictHeapAccess;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.deopt.DeoptimizedFrame;
+import com.oracle.svm.core.heap.Heap;
+import com.oracle.svm.core.heap.ObjectReferenceVisitor;
+import com.oracle.svm.core.heap.ObjectVisitor;
+import com.oracle.svm.core.heap.ReferenceAccess;
+import com.oracle.svm.core.hub.DynamicHub;
+import com.oracle.svm.core.hub.LayoutEncoding;
+import com.oracle.svm.core.snippets.KnownIntrinsics;
+import com.oracle.svm.core.stack.JavaStackWalker;
+import com.oracle.svm.core.stack.StackFrameVisitor;
+import com.oracle.svm.core.thread.JavaThreads;
+import com.oracle.svm.core.thread.VMOperation;
+import com.oracle.svm.core.thread.VMThreads;
+import com.oracle.svm.core.util.VMError;
+
+/**
+ * Writes a heap dump in the HPROF binary format (version 1.0.2) that is understood by VisualVM,
+ * Eclipse MAT, and other heap analysis tools.
+ * <p>
+ * The whole dump is written while the VM is at a safepoint. All records are encoded into a buffer
+ * of a fixed size in native memory, which is passed to {@link #writeBytes} whenever it is full, so
+ * the memory needed to write a dump does not depend on the size of the heap. Object and class ids
+ * are the addresses of the objects, which do not change because no garbage collection can happen
+ * at the safepoint. The layout of objects is described by the {@link HeapDumpMetadata}.
+ * <p>
+ * Heap dump records are written as HPROF heap dump segments. The length of a segment is patched
+ * in the buffer before the buffer is written, so a segment never spans a buffer flush. Records
+ * that are larger than the buffer, i.e., large arrays, are written as a segment of their own whose
+ * length is known up front.
+ * <p>
+ * The roots of the dump are all classes (with their static fields), the {@link Thread} objects of
+ * all threads, and the references on the stacks of all threads except the thread that writes the
+ * dump. Stack traces are not recorded.
+ */
+public abstract class HeapDumpWriter {
+
+    /* HPROF record tags. */
+    private static final int TAG_UTF8 = 0x01;
+    private static final int TAG_LOAD_CLASS = 0x02;
+    private static final int TAG_STACK_TRACE = 0x05;
+    private static final int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+    private static final int TAG_HEAP_DUMP_END = 0x2C;
+
+    /* HPROF heap dump sub-record tags. */
+    private static final int ROOT_JAVA_FRAME = 0x03;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int ROOT_THREAD_OBJECT = 0x08;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    /* HPROF basic types. */
+    public static final byte TYPE_OBJECT = 2;
+    public static final byte TYPE_BOOLEAN = 4;
+    public static final byte TYPE_CHAR = 5;
+    public static final byte TYPE_FLOAT = 6;
+    public static final byte TYPE_DOUBLE = 7;
+    public static final byte TYPE_BYTE = 8;
+    public static final byte TYPE_SHORT = 9;
+    public static final byte TYPE_INT = 10;
+    public static final byte TYPE_LONG = 11;
+
+    private static final int ID_SIZE = 8;
+    /** The size of a record header: u1 tag, u4 time, u4 length. */
+    private static final int RECORD_HEADER_SIZE = 9;
+    /** The maximum length of a record, which is stored as an u4. */
+    private static final long MAX_RECORD_LENGTH = 0xFFFFFFFFL;
+    /** The serial number of the single, empty stack trace that all objects refer to. */
+    private static final int STACK_TRACE_SERIAL = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final ObjectVisitor heapVisitor = new HeapVisitor();
+    private final StackFrameVisitor stackFrameVisitor = new StackRootsVisitor();
+    private final ObjectReferenceVisitor frameReferenceVisitor = new FrameReferenceVisitor();
+
+    private Pointer buffer;
+    private int position;
+    /** The position of the heap dump segment that is currently written, or -1 if there is none. */
+    private int segmentStart;
+    private boolean failed;
+    private int fieldNameIdBase;
+    private int currentThreadSerial;
+
+    protected HeapDumpWriter() {
+    }
+
+    /**
+     * Writes bytes of the dump to the destination. Called while the VM is at a safepoint, so it
+     * must not allocate.
+     *
+     * @return true if all bytes have been written, false otherwise.
+     */
+    @RestrictHeapAccess(access = RestrictHeapAccess.Access.NO_ALLOCATION, reason = "Called while walking the heap.")
+    protected abstract boolean writeBytes(Pointer bytes, UnsignedWord length);
+
+    public static int getBasicTypeSize(byte basicType) {
+        switch (basicType) {
+            case TYPE_OBJECT:
+                return ID_SIZE;
+            case TYPE_BOOLEAN:
+            case TYPE_BYTE:
+                return 1;
+            case TYPE_CHAR:
+            case TYPE_SHORT:
+                return 2;
+            case TYPE_FLOAT:
+            case TYPE_INT:
+                return 4;
+            case TYPE_DOUBLE:
+            case TYPE_LONG:
+                return 8;
+            default:
+                throw VMError.shouldNotReachHere();
+        }
+    }
+
+    /**
+     * Writes a dump of the whole heap.
+     *
+     * @param gcBefore whether to collect garbage before the dump, so that the dump mostly contains
+     *            live objects.
+     * @return true if the dump has been written completely, false otherwise.
+     */
+    public final boolean writeHeapDump(boolean gcBefore) {
+        if (!HeapDumpMetadata.isAvailable()) {
+            return false;
+        }
+        if (gcBefore) {
+            System.gc();
+        }
+        /* The class list is computed (and allocated) before going to the safepoint. */
+        List<Class<?>> classes = Heap.getHeap().getClassList();
+        buffer = UnmanagedMemory.malloc(WordFactory.unsigned(BUFFER_SIZE));
+        position = 0;
+        segmentStart = -1;
+        failed = false;
+        try {
+            VMOperation.enqueueBlockingSafepoint("HeapDump", () -> writeHeapDumpAtSafepoint(classes));
+        } finally {
+            UnmanagedMemory.free(buffer);
+            buffer = WordFactory.nullPointer();
+        }
+        return !failed;
+    }
+
+    private void writeHeapDumpAtSafepoint(List<Class<?>> classes) {
+        HeapDumpMetadata metadata = HeapDumpMetadata.singleton();
+        /* Class names have the ids 1..n, field names follow after them. */
+        fieldNameIdBase = classes.size() + 1;
+
+        writeFileHeader();
+        for (int i = 0; i < classes.size(); i++) {
+            writeUTF8Record(i + 1, DynamicHub.fromClass(classes.get(i)).getName(), true);
+        }
+        for (int field = 0; field < metadata.getFieldCount(); field++) {
+            writeUTF8Record(fieldNameIdBase + field, metadata.getFieldName(field), false);
+        }
+        for (int i = 0; i < classes.size(); i++) {
+            writeRecordHeader(TAG_LOAD_CLASS, 4 + ID_SIZE + 4 + ID_SIZE);
+            writeU4(i + 1);
+            writeID(objectId(classes.get(i)));
+            writeU4(STACK_TRACE_SERIAL);
+            writeID(i + 1);
+        }
+        writeRecordHeader(TAG_STACK_TRACE, 4 + 4 + 4);
+        writeU4(STACK_TRACE_SERIAL);
+        writeU4(0);
+        writeU4(0);
+
+        for (int i = 0; i < classes.size() && !failed; i++) {
+            DynamicHub hub = DynamicHub.fromClass(classes.get(i));
+            startSubRecord(1 + ID_SIZE);
+            writeU1(ROOT_STICKY_CLASS);
+            writeID(objectId(hub));
+            writeClassDump(metadata, hub);
+        }
+        writeThreadRoots();
+        if (!failed) {
+            Heap.getHeap().walkObjects(heapVisitor);
+        }
+        closeSegment();
+        writeRecordHeader(TAG_HEAP_DUMP_END, 0);
+        flush();
+    }
+
+    private void writeFileHeader() {
+        String format = "JAVA PROFILE 1.0.2";
+        for (int i = 0; i < format.length(); i++) {
+            writeU1(format.charAt(i));
+        }
+        writeU1(0);
+        writeU4(ID_SIZE);
+        writeU8(System.currentTimeMillis());
+    }
+
+    private void writeRecordHeader(int tag, long length) {
+        assert segmentStart < 0 && length <= MAX_RECORD_LENGTH;
+        writeU1(tag);
+        writeU4(0);
+        writeU4((int) length);
+    }
+
+    /** Writes a name in modified UTF-8, optionally converting a class name to the internal form. */
+    private void writeUTF8Record(long id, String name, boolean isClassName) {
+        int length = 0;
+        for (int i = 0; i < name.length(); i++) {
+            length += utf8Length(name.charAt(i));
+        }
+        writeRecordHeader(TAG_UTF8, ID_SIZE + length);
+        writeID(id);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (isClassName && c == '.') {
+                c = '/';
+            }
+            if (c >= 0x0001 && c <= 0x007F) {
+                writeU1(c);
+            } else if (c <= 0x07FF) {
+                writeU1(0xC0 | (c >> 6));
+                writeU1(0x80 | (c & 0x3F));
+            } else {
+                writeU1(0xE0 | (c >> 12));
+                writeU1(0x80 | ((c >> 6) & 0x3F));
+                writeU1(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(char c) {
+        if (c >= 0x0001 && c <= 0x007F) {
+            return 1;
+        } else if (c <= 0x07FF) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+
+    private void writeClassDump(HeapDumpMetadata metadata, DynamicHub hub) {
+        int typeID = hub.getTypeID();
+        int staticStart = metadata.getStaticFieldsStart(typeID);
+        int staticEnd = metadata.getStaticFieldsEnd(typeID);
+        int instanceStart = metadata.getInstanceFieldsStart(typeID);
+        int instanceEnd = metadata.getInstanceFieldsEnd(typeID);
+
+        long size = 1 + 7 * ID_SIZE + 4 + 4 + 2 + 2 + 2 + (instanceEnd - instanceStart) * (ID_SIZE + 1);
+        for (int field = staticStart; field < staticEnd; field++) {
+            size += ID_SIZE + 1 + getBasicTypeSize(metadata.getFieldType(field));
+        }
+        startSubRecord(size);
+        writeU1(CLASS_DUMP);
+        writeID(objectId(hub));
+        writeU4(STACK_TRACE_SERIAL);
+        writeID(hub.getSuperHub() == null ? 0 : objectId(hub.getSuperHub()));
+        /* Class loader, signers, protection domain, and two reserved ids. */
+        for (int i = 0; i < 5; i++) {
+            writeID(0);
+        }
+        int layoutEncoding = hub.getLayoutEncoding();
+        writeU4(LayoutEncoding.isInstance(layoutEncoding) ? (int) LayoutEncoding.getInstanceSize(layoutEncoding).rawValue() : 0);
+        /* Constant pool. */
+        writeU2(0);
+
+        writeU2(staticEnd - staticStart);
+        Pointer staticObjectFields = Word.objectToUntrackedPointer(StaticFieldsSupport.getStaticObjectFields());
+        Pointer staticPrimitiveFields = Word.objectToUntrackedPointer(StaticFieldsSupport.getStaticPrimitiveFields());
+        for (int field = staticStart; field < staticEnd; field++) {
+            byte type = metadata.getFieldType(field);
+            writeID(fieldNameIdBase + field);
+            writeU1(type);
+            writeValue(type == TYPE_OBJECT ? staticObjectFields : staticPrimitiveFields, metadata.getFieldOffset(field), type);
+        }
+
+        writeU2(instanceEnd - instanceStart);
+        for (int field = instanceStart; field < instanceEnd; field++) {
+            writeID(fieldNameIdBase + field);
+            writeU1(metadata.getFieldType(field));
+        }
+    }
+
+    private void writeThreadRoots() {
+        int threadSerial = 0;
+        for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread) && !failed; vmThread = VMThreads.nextThread(vmThread)) {
+            if (vmThread == CEntryPointContext.getCurrentIsolateThread()) {
+                /* The stack of the thread that writes the dump is not interesting. */
+                continue;
+            }
+            threadSerial++;
+            Thread thread = JavaThreads.singleton().fromVMThread(vmThread);
+            if (thread != null) {
+                startSubRecord(1 + ID_SIZE + 4 + 4);
+                writeU1(ROOT_THREAD_OBJECT);
+                writeID(objectId(thread));
+                writeU4(threadSerial);
+                writeU4(STACK_TRACE_SERIAL);
+            }
+            currentThreadSerial = threadSerial;
+            JavaStackWalker.walkThread(vmThread, stackFrameVisitor);
+        }
+    }
+
+    private void writeObject(Object obj) {
+        HeapDumpMetadata metadata = HeapDumpMetadata.singleton();
+        DynamicHub hub = KnownIntrinsics.readHub(obj);
+        if (hub.isArray()) {
+            if (LayoutEncoding.isObjectArray(hub.getLayoutEncoding())) {
+                writeObjectArray(obj, hub);
+            } else {
+                writePrimitiveArray(obj, hub, metadata.getArrayElementType(hub.getTypeID()));
+            }
+        } else {
+            writeInstance(metadata, obj, hub);
+        }
+    }
+
+    private void writeInstance(HeapDumpMetadata metadata, Object obj, DynamicHub hub) {
+        int fieldsSize = metadata.getInstanceFieldsSize(hub.getTypeID());
+        startSubRecord(1 + ID_SIZE + 4 + ID_SIZE + 4 + fieldsSize);
+        writeU1(INSTANCE_DUMP);
+        writeID(objectId(obj));
+        writeU4(STACK_TRACE_SERIAL);
+        writeID(objectId(hub));
+        writeU4(fieldsSize);
+        Pointer objPointer = Word.objectToUntrackedPointer(obj);
+        for (DynamicHub cur = hub; cur != null; cur = cur.getSuperHub()) {
+            int typeID = cur.getTypeID();
+            for (int field = metadata.getInstanceFieldsStart(typeID); field < metadata.getInstanceFieldsEnd(typeID); field++) {
+                writeValue(objPointer, metadata.getFieldOffset(field), metadata.getFieldType(field));
+            }
+        }
+    }
+
+    private void writeObjectArray(Object array, DynamicHub hub) {
+        int layoutEncoding = hub.getLayoutEncoding();
+        int headerSize = 1 + ID_SIZE + 4 + 4 + ID_SIZE;
+        int length = dumpedArrayLength(KnownIntrinsics.readArrayLength(array), ID_SIZE, headerSize);
+        startSubRecord(headerSize + (long) length * ID_SIZE);
+        writeU1(OBJECT_ARRAY_DUMP);
+        writeID(objectId(array));
+        writeU4(STACK_TRACE_SERIAL);
+        writeU4(length);
+        writeID(objectId(hub));
+        Pointer arrayPointer = Word.objectToUntrackedPointer(array);
+        for (int i = 0; i < length; i++) {
+            writeValue(arrayPointer, (int) LayoutEncoding.getArrayElementOffset(layoutEncoding, i).rawValue(), TYPE_OBJECT);
+        }
+    }
+
+    private void writePrimitiveArray(Object array, DynamicHub hub, byte elementType) {
+        int layoutEncoding = hub.getLayoutEncoding();
+        int elementSize = getBasicTypeSize(elementType);
+        int headerSize = 1 + ID_SIZE + 4 + 4 + 1;
+        int length = dumpedArrayLength(KnownIntrinsics.readArrayLength(array), elementSize, headerSize);
+        startSubRecord(headerSize + (long) length * elementSize);
+        writeU1(PRIMITIVE_ARRAY_DUMP);
+        writeID(objectId(array));
+        writeU4(STACK_TRACE_SERIAL);
+        writeU4(length);
+        writeU1(elementType);
+        Pointer arrayPointer = Word.objectToUntrackedPointer(array);
+        if (elementSize == 1) {
+            /* No byte order conversion necessary. */
+            writeRaw(arrayPointer.add(LayoutEncoding.getArrayBaseOffset(layoutEncoding)), length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                writeValue(arrayPointer, (int) LayoutEncoding.getArrayElementOffset(layoutEncoding, i).rawValue(), elementType);
+            }
+        }
+    }
+
+    /** Arrays that do not fit into a single record are truncated, like the HotSpot VM does. */
+    private static int dumpedArrayLength(int length, int elementSize, int headerSize) {
+        long maxLength = (MAX_RECORD_LENGTH - headerSize) / elementSize;
+        return length > maxLength ? (int) maxLength : length;
+    }
+
+    /** Writes a value of the given basic type, which is stored in native byte order. */
+    private void writeValue(Pointer base, int offset, byte type) {
+        switch (type) {
+            case TYPE_OBJECT:
+                boolean compressed = ReferenceAccess.singleton().haveCompressedReferences();
+                writeID(ReferenceAccess.singleton().readObjectAsUntrackedPointer(base.add(offset), compressed).rawValue());
+                break;
+            case TYPE_BOOLEAN:
+            case TYPE_BYTE:
+                writeU1(base.readByte(offset));
+                break;
+            case TYPE_CHAR:
+            case TYPE_SHORT:
+                writeU2(base.readShort(offset));
+                break;
+            case TYPE_FLOAT:
+            case TYPE_INT:
+                writeU4(base.readInt(offset));
+                break;
+            case TYPE_DOUBLE:
+            case TYPE_LONG:
+                writeU8(base.readLong(offset));
+                break;
+            default:
+                throw VMError.shouldNotReachHere();
+        }
+    }
+
+    private static long objectId(Object obj) {
+        return Word.objectToUntrackedPointer(obj).rawValue();
+    }
+
+    /*
+     * Buffer management.
+     */
+
+    /**
+     * Reserves space for a heap dump sub-record of the given size, starting a new heap dump segment
+     * if necessary. After this call, writing the sub-record does not flush a segment that is still
+     * open.
+     */
+    private void startSubRecord(long size) {
+        if (segmentStart >= 0 && position + size > BUFFER_SIZE) {
+            closeSegment();
+        }
+        if (segmentStart < 0) {
+            if (RECORD_HEADER_SIZE + size > BUFFER_SIZE) {
+                /* Too large for the buffer: the sub-record is streamed as a segment of its own. */
+                writeRecordHeader(TAG_HEAP_DUMP_SEGMENT, size);
+                return;
+            }
+            ensure((int) (RECORD_HEADER_SIZE + size));
+            writeRecordHeader(TAG_HEAP_DUMP_SEGMENT, 0);
+            segmentStart = position - RECORD_HEADER_SIZE;
+        }
+    }
+
+    /** Patches the length of the open heap dump segment, so that the buffer can be flushed. */
+    private void closeSegment() {
+        if (segmentStart >= 0) {
+            int length = position - segmentStart - RECORD_HEADER_SIZE;
+            Pointer lengthPointer = buffer.add(segmentStart + 5);
+            lengthPointer.writeByte(0, (byte) (length >>> 24));
+            lengthPointer.writeByte(1, (byte) (length >>> 16));
+            lengthPointer.writeByte(2, (byte) (length >>> 8));
+            lengthPointer.writeByte(3, (byte) length);
+            segmentStart = -1;
+        }
+    }
+
+    private void ensure(int size) {
+        if (position + size > BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        assert segmentStart < 0 : "must not flush an open heap dump segment";
+        if (position > 0 && !failed) {
+            failed = !writeBytes(buffer, WordFactory.unsigned(position));
+        }
+        position = 0;
+    }
+
+    private void writeU1(int value) {
+        ensure(1);
+        buffer.writeByte(position, (byte) value);
+        position += 1;
+    }
+
+    private void writeU2(int value) {
+        ensure(2);
+        buffer.writeByte(position, (byte) (value >>> 8));
+        buffer.writeByte(position + 1, (byte) value);
+        position += 2;
+    }
+
+    private void writeU4(int value) {
+        ensure(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.writeByte(position + i, (byte) (value >>> (24 - 8 * i)));
+        }
+        position += 4;
+    }
+
+    private void writeU8(long value) {
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            buffer.writeByte(position + i, (byte) (value >>> (56 - 8 * i)));
+        }
+        position += 8;
+    }
+
+    private void writeID(long id) {
+        writeU8(id);
+    }
+
+    private void writeRaw(Pointer bytes, int length) {
+        int written = 0;
+        while (written < length) {
+            if (position == BUFFER_SIZE) {
+                flush();
+            }
+            int chunk = Math.min(length - written, BUFFER_SIZE - position);
+            MemoryUtil.copyConjointMemoryAtomic(bytes.add(written), buffer.add(position), WordFactory.unsigned(chunk));
+            position += chunk;
+            written += chunk;
+        }
+    }
+
+    /*
+     * Visitors.
+     */
+
+    private final class HeapVisitor implements ObjectVisitor {
+        @Override
+        public boolean visitObject(Object obj) {
+            if (!(obj instanceof Class)) {
+                /* Classes have already been written as class dumps. */
+                writeObject(obj);
+            }
+            return !failed;
+        }
+    }
+
+    private final class StackRootsVisitor implements StackFrameVisitor {
+        @Override
+        public boolean visitFrame(Pointer sp, CodePointer ip, DeoptimizedFrame deoptimizedFrame) {
+            return CodeInfoTable.visitObjectReferences(sp, ip, deoptimizedFrame, frameReferenceVisitor) && !failed;
+        }
+    }
+
+    private final class FrameReferenceVisitor implements ObjectReferenceVisitor {
+        @Override
+        public boolean visitObjectReference(Pointer objRef, boolean compressed) {
+            Pointer referent = ReferenceAccess.singleton().readObjectAsUntrackedPointer(objRef, compressed);
+            if (referent.isNonNull()) {
+                startSubRecord(1 + ID_SIZE + 4 + 4);
+                writeU1(ROOT_JAVA_FRAME);
+                writeID(referent.rawValue());
+                writeU4(currentThreadSerial);
+                /* No stack traces are recorded, so the frame number is unknown. */
+                writeU4(-1);
+            }
+            return !failed;
+        }
+    }
+}
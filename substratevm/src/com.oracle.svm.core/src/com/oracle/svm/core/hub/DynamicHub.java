@@ -108,9 +108,10 @@ public final class DynamicHub implements JavaKind.FormatWithToString, AnnotatedE
      * by an instance of this class. If 0, then instances of this class can not be locked.
      * <p>
      * A class has a monitor field if an instance of this class may be an argument to a
-     * "synchronized" statement. The current implementation stores a reference to a
+     * "synchronized" statement. The current implementation stores either the owning
+     * {@link Thread} of a thin lock, or a reference to a
      * {@link java.util.concurrent.locks.ReentrantLock}, which will be allocated the first time an
-     * instance is locked.
+     * instance is locked with contention. See {@link com.oracle.svm.core.MonitorSupport}.
      */
     private int monitorOffset;
 
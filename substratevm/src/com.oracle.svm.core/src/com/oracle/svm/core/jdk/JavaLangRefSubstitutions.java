@@ -28,6 +28,7 @@ package com.oracle.svm.core.jdk;
 
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Field;
 
 import org.graalvm.nativeimage.Platform;
@@ -52,7 +53,7 @@ class ReferenceWrapper extends FeebleReference<Object> {
     protected final Object original;
 
     protected ReferenceWrapper(Object referent, final FeebleReferenceList<Object> list, Object original) {
-        super(referent, list);
+        super(referent, list, original instanceof SoftReference);
         this.original = original;
     }
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.jdk;
+
+import org.graalvm.compiler.api.replacements.Fold;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.option.HostedOptionKey;
+
+/**
+ * A daemon thread that runs {@link sun.misc.Cleaner} instances as soon as the collector has
+ * enqueued them, like the ReferenceHandler thread of the HotSpot VM. Without this thread, the
+ * cleaners are run by the thread that triggered a collection, after the collection, see
+ * {@link SunMiscSupport#drainCleanerQueue()}.
+ */
+public final class ReferenceHandlerThread implements Runnable {
+
+    public static class Options {
+        @Option(help = "Run Cleaners in a dedicated reference handler thread instead of in the thread that triggered a collection.")//
+        public static final HostedOptionKey<Boolean> UseReferenceHandlerThread = new HostedOptionKey<>(false);
+    }
+
+    @Fold
+    public static boolean isSupported() {
+        return Options.UseReferenceHandlerThread.getValue() && SubstrateOptions.MultiThreaded.getValue();
+    }
+
+    private static volatile boolean running;
+
+    /** Returns true if the reference handler thread has been started and runs the cleaners. */
+    public static boolean isRunning() {
+        return isSupported() && running;
+    }
+
+    /** Start the reference handler thread. Called from a startup hook. */
+    static void start() {
+        Thread thread = new Thread(new ReferenceHandlerThread(), "Reference Handler");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    private ReferenceHandlerThread() {
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        try {
+            while (true) {
+                try {
+                    SunMiscSupport.awaitAndDrainCleanerQueue();
+                } catch (InterruptedException e) {
+                    /* Nobody should interrupt this thread, but if so, just continue. */
+                }
+            }
+        } finally {
+            running = false;
+        }
+    }
+}
+
+@AutomaticFeature
+class ReferenceHandlerThreadFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return ReferenceHandlerThread.isSupported();
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        RuntimeSupport.getRuntimeSupport().addStartupHook(ReferenceHandlerThread::start);
+    }
+}
@@ -199,11 +199,12 @@ final class Target_jdk_internal_ref_Cleaner {
     /**
      * Contrary to the comment on {@link sun.misc.Cleaner}.dummyQueue, in SubstrateVM the queue can
      * have Cleaner instances on it, because SubstrateVM does not have a ReferenceHandler thread to
-     * clean instances, so SubstrateVM puts them on the queue and drains the queue after collections
-     * in {@link SunMiscSupport#drainCleanerQueue()}.
+     * clean instances by default, so SubstrateVM puts them on the queue and drains the queue after
+     * collections in {@link SunMiscSupport#drainCleanerQueue()}, or in the
+     * {@link ReferenceHandlerThread} if it is enabled.
      * <p>
      * Cleaner instances that do bad things are even worse in SubstrateVM than they are in the
-     * HotSpot VM, because they are run on the thread that started a collection.
+     * HotSpot VM, because by default they are run on the thread that started a collection.
      * <p>
      * Changing the access from `private` to `protected`, and reinitializing to an empty queue.
      */
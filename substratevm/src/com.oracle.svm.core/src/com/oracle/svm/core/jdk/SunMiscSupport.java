@@ -29,17 +29,30 @@ import org.graalvm.compiler.core.common.SuppressFBWarnings;
 /** Access to methods in support of {@link sun.misc}. */
 public class SunMiscSupport {
 
-    @SuppressFBWarnings(value = "BC", justification = "Target_jdk_internal_ref_Cleaner is an alias for a class that extends Reference")
     public static void drainCleanerQueue() {
         for (; /* return */;) {
             final Object entry = Target_jdk_internal_ref_Cleaner.dummyQueue.poll();
             if (entry == null) {
                 return;
             }
-            if (entry instanceof Target_jdk_internal_ref_Cleaner) {
-                final Target_jdk_internal_ref_Cleaner cleaner = (Target_jdk_internal_ref_Cleaner) entry;
-                cleaner.clean();
-            }
+            clean(entry);
+        }
+    }
+
+    /**
+     * Block until at least one Cleaner is available, then run all available Cleaners. Used by the
+     * {@link ReferenceHandlerThread}.
+     */
+    public static void awaitAndDrainCleanerQueue() throws InterruptedException {
+        clean(Target_jdk_internal_ref_Cleaner.dummyQueue.remove());
+        drainCleanerQueue();
+    }
+
+    @SuppressFBWarnings(value = "BC", justification = "Target_jdk_internal_ref_Cleaner is an alias for a class that extends Reference")
+    private static void clean(Object entry) {
+        if (entry instanceof Target_jdk_internal_ref_Cleaner) {
+            final Target_jdk_internal_ref_Cleaner cleaner = (Target_jdk_internal_ref_Cleaner) entry;
+            cleaner.clean();
         }
     }
 }
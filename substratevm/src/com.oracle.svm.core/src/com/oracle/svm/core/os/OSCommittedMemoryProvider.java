@@ -81,6 +81,24 @@ public class OSCommittedMemoryProvider implements CommittedMemoryProvider {
 
         MemoryUtil.copyConjointMemoryAtomic(begin, heap, size);
 
+        int result = protectImageHeap(heap);
+        if (result != CEntryPointErrors.NO_ERROR) {
+            return result;
+        }
+
+        isolatePointer.write(heap);
+        return CEntryPointErrors.NO_ERROR;
+    }
+
+    /**
+     * Makes the read-only part of an isolate's copy of the image heap read-only, i.e., all pages
+     * except the pages of the writable part.
+     */
+    @Uninterruptible(reason = "Called during isolate initialization.")
+    protected int protectImageHeap(Pointer heap) {
+        Word begin = Isolates.IMAGE_HEAP_BEGIN.get();
+        Word size = Isolates.IMAGE_HEAP_END.get().subtract(begin);
+
         UnsignedWord pageSize = getGranularity();
         UnsignedWord writableBeginPageOffset = UnsignedUtils.roundDown(IMAGE_HEAP_WRITABLE_BEGIN.get().subtract(begin), pageSize);
         if (writableBeginPageOffset.aboveThan(0)) {
@@ -97,7 +115,6 @@ public class OSCommittedMemoryProvider implements CommittedMemoryProvider {
             }
         }
 
-        isolatePointer.write(heap);
         return CEntryPointErrors.NO_ERROR;
     }
 
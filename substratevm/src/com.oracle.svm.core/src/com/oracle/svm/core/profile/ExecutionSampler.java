@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.profile;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.graalvm.compiler.api.replacements.Fold;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.IsolateThread;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.nativeimage.c.function.CEntryPointContext;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.ImageProfiles;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.code.CodeInfoQueryResult;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.code.FrameInfoQueryResult;
+import com.oracle.svm.core.deopt.DeoptimizedFrame;
+import com.oracle.svm.core.jdk.RuntimeSupport;
+import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.option.RuntimeOptionKey;
+import com.oracle.svm.core.stack.JavaStackWalker;
+import com.oracle.svm.core.stack.StackFrameVisitor;
+import com.oracle.svm.core.thread.JavaThreads;
+import com.oracle.svm.core.thread.ThreadStatus;
+import com.oracle.svm.core.thread.VMOperation;
+import com.oracle.svm.core.thread.VMThreads;
+
+/**
+ * Records an execution profile of a running image, which a later image build uses to guide
+ * inlining and code layout, see {@code ImageProfileData} in the hosted code.
+ * <p>
+ * A daemon thread periodically brings all threads to a safepoint and collects the instruction
+ * pointers of the topmost frames of each runnable thread. The samples are symbolized after the
+ * safepoint, using the frame information that is also used for stack traces, so inlined frames
+ * are attributed to their source methods. For each sample, the topmost source method gets a
+ * method sample and each caller/callee pair on the recorded part of the stack gets a call sample.
+ * Methods are identified by their declaring class and name, the signature is not available in the
+ * frame information. The profile is written when the image exits.
+ * <p>
+ * Like all safepoint-based samplers, the samples are biased towards the safepoint checks, i.e.,
+ * method returns and loop back edges. This is precise enough to find hot methods and call edges.
+ */
+public final class ExecutionSampler implements Runnable {
+
+    public static class Options {
+        @Option(help = "Build an image that samples the executed methods and writes a profile at exit, which a later image build can use with -H:UseImageProfile.")//
+        public static final HostedOptionKey<Boolean> CollectImageProfile = new HostedOptionKey<>(false);
+
+        @Option(help = "The maximum number of frames recorded for each thread at each execution sample.")//
+        public static final HostedOptionKey<Integer> ImageProfileStackDepth = new HostedOptionKey<>(8);
+
+        @Option(help = "The maximum number of threads recorded at each execution sample.")//
+        public static final HostedOptionKey<Integer> ImageProfileMaxThreads = new HostedOptionKey<>(64);
+
+        @Option(help = "The interval in milliseconds between two execution samples.")//
+        public static final RuntimeOptionKey<Integer> ImageProfileSamplingInterval = new RuntimeOptionKey<>(10);
+
+        @Option(help = "The file the execution profile is written to when the image exits.")//
+        public static final RuntimeOptionKey<String> ImageProfileFile = new RuntimeOptionKey<>("default.iprof");
+    }
+
+    /** The first line of a profile file. */
+    public static final String FORMAT_HEADER = "# SubstrateVM execution profile v1";
+    /** A line "method TAB samples TAB class.method". */
+    public static final String METHOD_ENTRY = "method";
+    /** A line "call TAB samples TAB callerClass.callerMethod TAB calleeClass.calleeMethod". */
+    public static final String CALL_ENTRY = "call";
+
+    /** Frames of the safepoint slow path, which are on top of every sampled stack. */
+    private static final String SAFEPOINT_CLASS_PREFIX = "com.oracle.svm.core.thread.Safepoint";
+
+    @Fold
+    public static boolean isEnabled() {
+        return Options.CollectImageProfile.getValue() && SubstrateOptions.MultiThreaded.getValue();
+    }
+
+    @Fold
+    public static ExecutionSampler singleton() {
+        return ImageSingletons.lookup(ExecutionSampler.class);
+    }
+
+    private final int maxDepth;
+    private final int maxThreads;
+
+    /* Written only while at a safepoint, read only by the sampler thread after the safepoint. */
+    private final long[] frames;
+    private final int[] depths;
+    private int sampledThreads;
+    private int collectedDepth;
+    private final StackFrameVisitor stackCollector = new StackCollector();
+
+    /* Guarded by this. */
+    private final Map<String, long[]> methodSamples = new HashMap<>();
+    private final Map<String, long[]> callSamples = new HashMap<>();
+    private long totalSamples;
+
+    private volatile boolean stopped;
+    private volatile Thread samplerThread;
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    ExecutionSampler(int maxDepth, int maxThreads) {
+        this.maxDepth = maxDepth;
+        this.maxThreads = maxThreads;
+        this.frames = new long[maxDepth * maxThreads];
+        this.depths = new int[maxThreads];
+    }
+
+    /** Start the sampler thread. Called from a startup hook. */
+    static void start() {
+        Thread thread = new Thread(singleton(), "Execution Sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        samplerThread = Thread.currentThread();
+        int interval = Math.max(1, Options.ImageProfileSamplingInterval.getValue());
+        while (!stopped) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                /* Nobody should interrupt this thread, but if so, just continue. */
+            }
+            if (!stopped) {
+                VMOperation.enqueueBlockingSafepoint("ExecutionSample", () -> collectStacks());
+                aggregateSamples();
+            }
+        }
+    }
+
+    /** Runs at a safepoint, so it must not allocate. */
+    private void collectStacks() {
+        sampledThreads = 0;
+        Thread sampler = samplerThread;
+        for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread) && sampledThreads < maxThreads; vmThread = VMThreads.nextThread(vmThread)) {
+            if (vmThread == CEntryPointContext.getCurrentIsolateThread()) {
+                continue;
+            }
+            Thread thread = JavaThreads.singleton().fromVMThread(vmThread);
+            if (thread == null || thread == sampler || JavaThreads.getThreadStatus(thread) != ThreadStatus.RUNNABLE) {
+                /* Threads that wait or sleep do not consume CPU time. */
+                continue;
+            }
+            collectedDepth = 0;
+            JavaStackWalker.walkThread(vmThread, stackCollector);
+            if (collectedDepth > 0) {
+                depths[sampledThreads] = collectedDepth;
+                sampledThreads++;
+            }
+        }
+    }
+
+    private final class StackCollector implements StackFrameVisitor {
+        @Override
+        public boolean visitFrame(Pointer sp, CodePointer ip, DeoptimizedFrame deoptimizedFrame) {
+            frames[sampledThreads * maxDepth + collectedDepth] = ip.rawValue();
+            collectedDepth++;
+            return collectedDepth < maxDepth;
+        }
+    }
+
+    private synchronized void aggregateSamples() {
+        for (int t = 0; t < sampledThreads; t++) {
+            String callee = null;
+            for (int i = 0; i < depths[t]; i++) {
+                CodeInfoQueryResult result = CodeInfoTable.lookupCodeInfoQueryResult(WordFactory.pointer(frames[t * maxDepth + i]));
+                if (result == null || result.getFrameInfo() == null) {
+                    continue;
+                }
+                for (FrameInfoQueryResult frameInfo = result.getFrameInfo(); frameInfo != null; frameInfo = frameInfo.getCaller()) {
+                    StackTraceElement source = frameInfo.getSourceReference();
+                    if (callee == null && source.getClassName().startsWith(SAFEPOINT_CLASS_PREFIX)) {
+                        continue;
+                    }
+                    String method = source.getClassName() + "." + source.getMethodName();
+                    if (callee == null) {
+                        increment(methodSamples, method);
+                        totalSamples++;
+                    } else {
+                        increment(callSamples, method + "\t" + callee);
+                    }
+                    callee = method;
+                }
+            }
+        }
+    }
+
+    private static void increment(Map<String, long[]> samples, String key) {
+        samples.computeIfAbsent(key, k -> new long[1])[0]++;
+    }
+
+    /** Returns the profile in the format that is written to the profile file. */
+    public synchronized String getProfile() {
+        StringWriter result = new StringWriter();
+        try {
+            writeProfile(result);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result.toString();
+    }
+
+    private synchronized void writeProfile(Writer writer) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        out.println(FORMAT_HEADER);
+        out.println("# samples " + totalSamples);
+        methodSamples.forEach((method, count) -> out.println(METHOD_ENTRY + "\t" + count[0] + "\t" + method));
+        callSamples.forEach((call, count) -> out.println(CALL_ENTRY + "\t" + count[0] + "\t" + call));
+        out.flush();
+    }
+
+    /** Stops sampling and writes the profile file. Called from a shutdown hook. */
+    static void stopAndWrite() {
+        ExecutionSampler sampler = singleton();
+        sampler.stopped = true;
+        String file = Options.ImageProfileFile.getValue();
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            sampler.writeProfile(writer);
+        } catch (IOException e) {
+            Log.log().string("Writing the execution profile to ").string(file).string(" failed: ").string(e.getMessage()).newline();
+        }
+    }
+}
+
+final class ExecutionSamplerProfiles extends ImageProfiles {
+    @Platforms(Platform.HOSTED_ONLY.class)
+    ExecutionSamplerProfiles() {
+    }
+
+    @Override
+    protected String computeProfiles() {
+        return ExecutionSampler.singleton().getProfile();
+    }
+}
+
+@AutomaticFeature
+class ExecutionSamplerFeature implements Feature {
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return ExecutionSampler.isEnabled();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(ExecutionSampler.class, new ExecutionSampler(ExecutionSampler.Options.ImageProfileStackDepth.getValue(), ExecutionSampler.Options.ImageProfileMaxThreads.getValue()));
+        if (!ImageSingletons.contains(ImageProfiles.class)) {
+            ImageSingletons.add(ImageProfiles.class, new ExecutionSamplerProfiles());
+        }
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        RuntimeSupport.getRuntimeSupport().addStartupHook(ExecutionSampler::start);
+        RuntimeSupport.getRuntimeSupport().addShutdownHook(ExecutionSampler::stopAndWrite);
+    }
+}
@@ -312,6 +312,9 @@ public abstract class JavaThreads {
         // Disable thread-local allocation for this thread.
         Heap.getHeap().disableAllocation(vmThread);
 
+        // Keep the safepoint metrics that this thread recorded.
+        SafepointMetrics.detachThread(vmThread);
+
         // Detach ParkEvents for this thread, if any.
 
         final Thread thread = currentThread.get(vmThread);
@@ -421,16 +424,9 @@ public abstract class JavaThreads {
 
     protected static void interruptVMCondVars() {
         /*
-         * On Thread.interrupt, notify anyone who is waiting on a VMCondition (on the
-         * VMThreads.THREAD_MUTEX. Notify in a VMOperation so I only have to grab the VMThreads
-         * mutex once.
+         * On Thread.interrupt, notify anyone who is waiting on a VMCondition. The conditions have
+         * their own mutexes, so no VMOperation and no VMThreads mutex is necessary.
          */
-        VMOperation.enqueueBlockingNoSafepoint("Util_java_lang_Thread.notifyVMMutexConditionsOnThreadInterrupt()", JavaThreads::interruptUnderVMMutex);
-    }
-
-    /** The list of methods to be called under the VMThreads mutex when interrupting a thread. */
-    private static void interruptUnderVMMutex() {
-        VMThreads.THREAD_MUTEX.guaranteeIsLocked("Should hold VMThreads lock when interrupting.");
         FeebleReferenceList.signalWaiters();
     }
 
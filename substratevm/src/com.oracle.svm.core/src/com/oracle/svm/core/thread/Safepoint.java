@@ -40,6 +40,7 @@ import org.graalvm.nativeimage.IsolateThread;
 import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.nativeimage.c.function.CEntryPointContext;
+import org.graalvm.nativeimage.c.function.CodePointer;
 import org.graalvm.word.LocationIdentity;
 import org.graalvm.word.WordFactory;
 
@@ -52,6 +53,7 @@ import com.oracle.svm.core.log.Log;
 import com.oracle.svm.core.nodes.SafepointCheckNode;
 import com.oracle.svm.core.option.HostedOptionKey;
 import com.oracle.svm.core.option.RuntimeOptionKey;
+import com.oracle.svm.core.snippets.KnownIntrinsics;
 import com.oracle.svm.core.snippets.SnippetRuntime;
 import com.oracle.svm.core.snippets.SnippetRuntime.SubstrateForeignCallDescriptor;
 import com.oracle.svm.core.snippets.SubstrateForeignCallTarget;
@@ -70,9 +72,9 @@ import com.oracle.svm.core.util.VMError;
  * {@link #safepointRequested} of each other thread (the slaves) accordingly.
  * <p>
  * The slaves occasionally check their thread-local {@link #safepointRequested} values, and if a
- * safepoint is pending, they call {@link Safepoint#slowPathSafepointCheck()} to block on the mutex
- * that the master is holding. Blocking on the mutex (or other native calls) will transition the
- * slaves to being in native code, via CFunctionSnippets.prologueSnippet().
+ * safepoint is pending, they call {@link Safepoint#slowPathSafepointCheck(CodePointer)} to block on
+ * the mutex that the master is holding. Blocking on the mutex (or other native calls) will
+ * transition the slaves to being in native code, via CFunctionSnippets.prologueSnippet().
  * <p>
  * The master loops waiting for each slave to be in native code. At that point the master will
  * atomically change the thread status of the slave to being at a safepoint. Once a thread is at a
@@ -101,15 +103,16 @@ import com.oracle.svm.core.util.VMError;
  * {@link ThreadingSupportFeature} implements an optional per-thread timer on top of the safepoint
  * mechanism. For that purpose, a safepoint check is actually implemented as a decrement of
  * {@link #safepointRequested} with a zero check that triggers a call to
- * {@link #slowPathSafepointCheck()}. If a timer is registered and the slow path determines that
- * that timer has expired, a timer callback is executed and {@link #safepointRequested} is reset
- * with a value that estimates the number of safepoint checks during the intended timer interval.
+ * {@link #slowPathSafepointCheck(CodePointer)}. If a timer is registered and the slow path
+ * determines that that timer has expired, a timer callback is executed and
+ * {@link #safepointRequested} is reset with a value that estimates the number of safepoint checks
+ * during the intended timer interval.
  * When an actual safepoint is requested, the master overwrites each slave's
  * {@link #safepointRequested} with {@link SafepointRequestValues#ENTER} so it becomes 0 on the next
  * decrement. When no timer is active on a thread, its {@link #safepointRequested} value is reset to
  * {@link SafepointRequestValues#RESET}. Because {@link #safepointRequested} still eventually
- * decrements to 0, threads can very infrequently call {@link #slowPathSafepointCheck()} without
- * cause.
+ * decrements to 0, threads can very infrequently call
+ * {@link #slowPathSafepointCheck(CodePointer)} without cause.
  *
  * @see SafepointCheckNode
  */
@@ -179,9 +182,14 @@ public final class Safepoint {
         return VMThreads.THREAD_MUTEX;
     }
 
-    /** Stop at a safepoint. */
+    /**
+     * Stop at a safepoint.
+     *
+     * @param callerIP the code location of the safepoint check or transition, for
+     *            {@link SafepointMetrics}.
+     */
     @Uninterruptible(reason = "Must not contain safepoint checks.")
-    private static void slowPathSafepointCheck() {
+    private static void slowPathSafepointCheck(CodePointer callerIP) {
         final IsolateThread myself = CEntryPointContext.getCurrentIsolateThread();
 
         boolean needsCallback = ThreadingSupportImpl.singleton().needsCallbackOnSafepointCheckSlowpath();
@@ -209,6 +217,7 @@ public final class Safepoint {
                     wasFrozen = true;
                 }
                 Statistics.incFrozen();
+                SafepointMetrics.noteArrival(callerIP);
                 freezeAtSafepoint();
                 Statistics.incThawed();
             }
@@ -317,7 +326,7 @@ public final class Safepoint {
              * Block on mutex held by thread that requested safepoint, i.e., transition to native
              * code.
              */
-            slowPathSafepointCheck();
+            slowPathSafepointCheck(KnownIntrinsics.readReturnAddress());
 
         } catch (SafepointException se) {
             /* This exception is intended to be thrown from safepoint checks, at one's own risk */
@@ -369,7 +378,7 @@ public final class Safepoint {
 
         Statistics.incSlowPathFrozen();
         try {
-            slowPathSafepointCheck();
+            slowPathSafepointCheck(KnownIntrinsics.readReturnAddress());
         } finally {
             Statistics.incSlowPathThawed();
         }
@@ -421,9 +430,11 @@ public final class Safepoint {
 
             Statistics.reset();
             Statistics.setStartNanos();
+            final long startNanos = System.nanoTime();
             requestSafepoints(reason);
             waitForSafepoints(reason);
             Statistics.setFrozenNanos();
+            SafepointMetrics.recordFrozen(startNanos);
 
             isFrozen = true;
         }
@@ -431,6 +442,7 @@ public final class Safepoint {
         /** Let all of the threads proceed from their safepoint. */
         public void thaw(String reason) {
             assert SubstrateOptions.MultiThreaded.getValue() : "Should only thaw from a safepoint when multi-threaded.";
+            SafepointMetrics.recordThawed();
             isFrozen = false;
             requestingThread = WordFactory.nullPointer();
             releaseSafepoints(reason);
@@ -513,6 +525,7 @@ public final class Safepoint {
                          */
                         inNative += 1;
                         Statistics.incInstalled();
+                        SafepointMetrics.noteArrivalFromNative(vmThread);
 
                     } else {
                         if (getSafepointRequested(vmThread) != SafepointRequestValues.ENTER && !VMThreads.StatusSupport.isStatusIgnoreSafepoints(vmThread)) {
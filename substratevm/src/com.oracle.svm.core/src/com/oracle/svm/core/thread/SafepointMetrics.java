@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.thread;
+
+import org.graalvm.compiler.api.replacements.Fold;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.IsolateThread;
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.nativeimage.c.function.CEntryPointContext;
+import org.graalvm.nativeimage.c.function.CodePointer;
+import org.graalvm.word.Pointer;
+import org.graalvm.word.WordFactory;
+
+import com.oracle.svm.core.annotate.Uninterruptible;
+import com.oracle.svm.core.code.CodeInfoQueryResult;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.locks.VMMutex;
+import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.threadlocal.FastThreadLocalBytes;
+import com.oracle.svm.core.threadlocal.FastThreadLocalFactory;
+import com.oracle.svm.core.threadlocal.FastThreadLocalLong;
+import com.oracle.svm.core.threadlocal.FastThreadLocalWord;
+import com.oracle.svm.core.util.LatencyHistogram;
+
+/**
+ * Continuous latency metrics of safepoints, in contrast to {@link Safepoint.Statistics} which only
+ * describe the most recent safepoint.
+ * <p>
+ * Each thread that stops at a safepoint notes in thread-local variables when it arrived and at
+ * which safepoint check (the code location of the slow-path call). Threads that are in native code
+ * arrive when the master changes their status. After all threads have arrived, the master records
+ * the time-to-safepoint of each thread and remembers which thread arrived last and where. The time
+ * spent in each VMOperation while the system is at a safepoint is recorded per operation name.
+ * <p>
+ * All values are recorded in {@link LatencyHistogram}s, which do not allocate or lock. The master
+ * records into buffers of its own thread, and the buffers of all threads are merged when the
+ * histograms are reported. The master holds the {@link VMThreads#THREAD_MUTEX} while it records, so
+ * merging, resetting and retiring the buffers of an exiting thread also happen with the mutex held.
+ */
+public final class SafepointMetrics {
+
+    public static class Options {
+        @Option(help = "Record histograms of the time-to-safepoint per thread and of the time spent at safepoints per VMOperation.")//
+        public static final HostedOptionKey<Boolean> SafepointLatencyMetrics = new HostedOptionKey<>(false);
+    }
+
+    @Fold
+    public static boolean isEnabled() {
+        return Options.SafepointLatencyMetrics.getValue();
+    }
+
+    /** The maximum number of distinct VMOperation names that get their own histogram. */
+    private static final int MAX_OPERATION_TYPES = 32;
+
+    /** When the thread arrived at the most recent safepoint it stopped at. */
+    private static final FastThreadLocalLong arrivalNanos = FastThreadLocalFactory.createLong();
+    /** The safepoint check at which the thread arrived, or null if it arrived from native code. */
+    private static final FastThreadLocalWord<CodePointer> arrivalIP = FastThreadLocalFactory.createWord();
+
+    /** The histograms of all values, each with its buffer in {@link #histogramBuffers}. */
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[MAX_OPERATION_TYPES + 4];
+    /** The per-thread buffers of all histograms. */
+    private static final FastThreadLocalBytes<Pointer> histogramBuffers = FastThreadLocalFactory.createBytes(() -> histograms.length * LatencyHistogram.BUFFER_SIZE);
+
+    private static final LatencyHistogram timeToSafepoint = createHistogram(0, "timeToSafepoint");
+    private static final LatencyHistogram synchronization = createHistogram(1, "safepointSynchronization");
+    private static final LatencyHistogram timeInSafepoint = createHistogram(2, "timeInSafepoint");
+    private static final LatencyHistogram otherOperations = createHistogram(3, "otherOperations");
+    private static final String[] operationNames = new String[MAX_OPERATION_TYPES];
+    private static final LatencyHistogram[] operationHistograms = new LatencyHistogram[MAX_OPERATION_TYPES];
+
+    static {
+        for (int i = 0; i < MAX_OPERATION_TYPES; i++) {
+            operationHistograms[i] = createHistogram(4 + i, "operation" + i);
+        }
+    }
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    private static LatencyHistogram createHistogram(int index, String name) {
+        LatencyHistogram histogram = new LatencyHistogram(name, index * LatencyHistogram.BUFFER_SIZE);
+        histograms[index] = histogram;
+        return histogram;
+    }
+
+    /* The following fields are only written by the master while it holds the safepoint mutex. */
+
+    private static long frozenNanos;
+    private static IsolateThread lastArrivingThread;
+    private static CodePointer lastArrivingIP;
+    private static long lastArrivingNanos;
+
+    private SafepointMetrics() {
+    }
+
+    /** Called by a thread that is about to block for a safepoint. */
+    @Uninterruptible(reason = "Called when safepoints are requested.")
+    static void noteArrival(CodePointer ip) {
+        if (isEnabled()) {
+            arrivalIP.set(ip);
+            arrivalNanos.set(System.nanoTime());
+        }
+    }
+
+    /** Called by the master when it brings a thread that is in native code to the safepoint. */
+    @Uninterruptible(reason = "Called during safepointing.")
+    static void noteArrivalFromNative(IsolateThread vmThread) {
+        if (isEnabled()) {
+            arrivalIP.set(vmThread, WordFactory.nullPointer());
+            arrivalNanos.set(vmThread, System.nanoTime());
+        }
+    }
+
+    /** Called by the master when all threads have arrived at the safepoint. */
+    static void recordFrozen(long startNanos) {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long latestArrival = Long.MIN_VALUE;
+        for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread); vmThread = VMThreads.nextThread(vmThread)) {
+            long arrival = arrivalNanos.get(vmThread);
+            if (vmThread == CEntryPointContext.getCurrentIsolateThread() || arrival - startNanos < 0) {
+                /* Myself, or a thread that ignores safepoints and did not arrive. */
+                continue;
+            }
+            timeToSafepoint.record(histogramBuffers.getAddress(), arrival - startNanos);
+            if (arrival > latestArrival) {
+                latestArrival = arrival;
+                lastArrivingThread = vmThread;
+                lastArrivingIP = arrivalIP.get(vmThread);
+                lastArrivingNanos = arrival - startNanos;
+            }
+        }
+        synchronization.record(histogramBuffers.getAddress(), now - startNanos);
+        frozenNanos = now;
+    }
+
+    /** Called by the master before it releases the threads from the safepoint. */
+    static void recordThawed() {
+        if (isEnabled()) {
+            timeInSafepoint.record(histogramBuffers.getAddress(), System.nanoTime() - frozenNanos);
+        }
+    }
+
+    /** Called after a VMOperation has been executed while the system was at a safepoint. */
+    static void recordOperation(String name, long startNanos) {
+        if (isEnabled()) {
+            lookupOperationHistogram(name).record(histogramBuffers.getAddress(), System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Must not allocate because it is called during garbage collection. Only called while holding
+     * the VMOperation lock, so claiming a new slot does not need to be atomic.
+     */
+    private static LatencyHistogram lookupOperationHistogram(String name) {
+        for (int i = 0; i < MAX_OPERATION_TYPES; i++) {
+            String existing = operationNames[i];
+            if (existing == null) {
+                operationNames[i] = name;
+                return operationHistograms[i];
+            } else if (existing == name || existing.equals(name)) {
+                return operationHistograms[i];
+            }
+        }
+        return otherOperations;
+    }
+
+    /** Called when a thread exits, while holding the {@link VMThreads#THREAD_MUTEX}. */
+    static void detachThread(IsolateThread vmThread) {
+        if (isEnabled()) {
+            Pointer threadBuffers = histogramBuffers.getAddress(vmThread);
+            for (LatencyHistogram histogram : histograms) {
+                histogram.retire(threadBuffers);
+            }
+        }
+    }
+
+    /**
+     * Merges the buffers of all threads into the histograms. At a safepoint, the VMOperation
+     * already holds the {@link VMThreads#THREAD_MUTEX}, which must not be locked recursively.
+     */
+    private static void mergeBuffers() {
+        if (VMOperation.isInProgress() && VMOperationControl.isFrozen()) {
+            mergeBuffersLocked();
+        } else {
+            try (VMMutex ignored = VMThreads.THREAD_MUTEX.lock()) {
+                mergeBuffersLocked();
+            }
+        }
+    }
+
+    private static void mergeBuffersLocked() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.startMerge();
+        }
+        for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread); vmThread = VMThreads.nextThread(vmThread)) {
+            Pointer threadBuffers = histogramBuffers.getAddress(vmThread);
+            for (LatencyHistogram histogram : histograms) {
+                histogram.merge(threadBuffers);
+            }
+        }
+    }
+
+    /**
+     * The time from requesting a safepoint until a thread arrived at it, for all threads. Like the
+     * other histograms, it contains the values recorded until this method is called.
+     */
+    public static LatencyHistogram getTimeToSafepoint() {
+        mergeBuffers();
+        return timeToSafepoint;
+    }
+
+    /** The time from requesting a safepoint until all threads arrived at it. */
+    public static LatencyHistogram getSafepointSynchronization() {
+        mergeBuffers();
+        return synchronization;
+    }
+
+    /** The time from all threads arriving at a safepoint until they are released. */
+    public static LatencyHistogram getTimeInSafepoint() {
+        mergeBuffers();
+        return timeInSafepoint;
+    }
+
+    /**
+     * The time spent at safepoints executing the VMOperation with the given name, or null if no
+     * such operation has been executed at a safepoint.
+     */
+    public static LatencyHistogram getOperationTimeInSafepoint(String name) {
+        mergeBuffers();
+        for (int i = 0; i < MAX_OPERATION_TYPES; i++) {
+            String existing = operationNames[i];
+            if (existing != null && existing.equals(name)) {
+                return operationHistograms[i];
+            }
+        }
+        return null;
+    }
+
+    /** The thread that arrived last at the most recent safepoint. */
+    public static IsolateThread getLastArrivingThread() {
+        return lastArrivingThread;
+    }
+
+    /**
+     * The safepoint check at which the last thread arrived at the most recent safepoint, or null
+     * if the thread arrived from native code.
+     */
+    public static CodePointer getLastArrivingIP() {
+        return lastArrivingIP;
+    }
+
+    public static Log toLog(Log log) {
+        if (!isEnabled()) {
+            return log.string("[SafepointMetrics: not enabled, use -H:+SafepointLatencyMetrics]").newline();
+        }
+        mergeBuffers();
+        log.string("[SafepointMetrics:").newline();
+        timeToSafepoint.toLog(log);
+        synchronization.toLog(log);
+        timeInSafepoint.toLog(log);
+        for (int i = 0; i < MAX_OPERATION_TYPES && operationNames[i] != null; i++) {
+            log.string(operationNames[i]).string(" ");
+            operationHistograms[i].toLog(log);
+        }
+        if (otherOperations.getCount() > 0) {
+            otherOperations.toLog(log);
+        }
+        if (lastArrivingThread.isNonNull()) {
+            log.string("  lastArrivingThread: ").zhex(lastArrivingThread.rawValue());
+            log.string("  afterNanos: ").signed(lastArrivingNanos);
+            log.string("  at: ");
+            logCodeLocation(log, lastArrivingIP);
+            log.newline();
+        }
+        return log.string("]").newline();
+    }
+
+    private static void logCodeLocation(Log log, CodePointer ip) {
+        if (ip.isNull()) {
+            log.string("native code");
+            return;
+        }
+        log.zhex(ip.rawValue()).string(" ");
+        CodeInfoQueryResult result = CodeInfoTable.lookupCodeInfoQueryResult(ip);
+        if (result != null && result.getFrameInfo() != null) {
+            result.getFrameInfo().log(log);
+        } else {
+            CodeInfoTable.logCodeInfoResult(log, ip);
+        }
+    }
+
+    /** Resets all histograms, e.g., after a warmup phase. */
+    public static void reset() {
+        try (VMMutex ignored = VMThreads.THREAD_MUTEX.lock()) {
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+            for (IsolateThread vmThread = VMThreads.firstThread(); VMThreads.isNonNullThread(vmThread); vmThread = VMThreads.nextThread(vmThread)) {
+                Pointer threadBuffers = histogramBuffers.getAddress(vmThread);
+                for (LatencyHistogram histogram : histograms) {
+                    histogram.clear(threadBuffers);
+                }
+            }
+        }
+    }
+}
@@ -70,6 +70,12 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
      */
     private IsolateThread executingVMThread;
 
+    /** The number of times this operation has been started, guarded by the VMOperation lock. */
+    private long startedExecutions;
+
+    /** The number of times this operation has been finished, guarded by the VMOperation lock. */
+    private long finishedExecutions;
+
     /** Constructor for sub-classes. */
     protected VMOperation(String name, CallerEffect callerEffect, SystemEffect systemEffect) {
         super();
@@ -77,10 +83,10 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
         this.callerEffect = callerEffect;
         this.systemEffect = systemEffect;
         /*
-         * TODO: Currently I am running VMOperations on the thread of the caller, so all
-         * VMOperations block the caller.
+         * Without the dedicated VM operation thread, VMOperations run on the thread of the caller,
+         * so all VMOperations block the caller.
          */
-        assert callerEffect == CallerEffect.BLOCKS_CALLER : "Only blocking calls are implemented";
+        assert callerEffect == CallerEffect.BLOCKS_CALLER || VMOperationControl.useDedicatedVMOperationThread() : "Non-blocking calls need the dedicated VM operation thread";
     }
 
     /** Public interface: Queue the operation for execution. */
@@ -88,7 +94,9 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
         try {
             if (!SubstrateOptions.MultiThreaded.getValue()) {
                 // If I am single-threaded, I can just execute the operation.
+                beforeRequest(false);
                 execute();
+                afterRequest();
             } else {
                 // If I am multi-threaded, then I have to bring the system to a safepoint, etc.
                 setQueuingVMThread(CEntryPointContext.getCurrentIsolateThread());
@@ -101,6 +109,15 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
         }
     }
 
+    /**
+     * Wait until all requests of this operation that were queued before are finished. This allows
+     * the requester of an operation that does not block the caller to continue with other work and
+     * wait for the operation later.
+     */
+    public final void awaitFinishedRequests() {
+        VMOperationControl.awaitFinishedRequests(this);
+    }
+
     @SuppressWarnings({"unchecked"})
     static <E extends Throwable> RuntimeException rethrow(Throwable ex) throws E {
         throw (E) ex;
@@ -136,12 +153,14 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
         final VMOperationControl control = ImageSingletons.lookup(VMOperationControl.class);
         final VMOperation previousInProgress = control.getInProgress();
         try {
+            startedExecutions++;
             executingVMThread = CEntryPointContext.getCurrentIsolateThread();
             control.setInProgress(this);
             operate();
         } finally {
             control.setInProgress(previousInProgress);
             executingVMThread = WordFactory.nullPointer();
+            finishedExecutions++;
         }
     }
 
@@ -168,6 +187,22 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
      * Methods for sub-classes to override
      */
 
+    /**
+     * Called on the requesting thread while holding the VMOperation lock, before the request is
+     * queued. If {@code pending} is true, the operation is already queued and the request is
+     * coalesced with the pending one, so the state of the request must be merged into the pending
+     * state instead of replacing it.
+     */
+    protected void beforeRequest(@SuppressWarnings("unused") boolean pending) {
+    }
+
+    /**
+     * Called on the requesting thread while holding the VMOperation lock, after the execution that
+     * serves its request has finished. Only called for operations that block the caller.
+     */
+    protected void afterRequest() {
+    }
+
     /** Do whatever it is that this VM operation does. */
     @RestrictHeapAccess(access = RestrictHeapAccess.Access.UNRESTRICTED, overridesCallers = true, reason = "Whitelisted because some operations may allocate.")
     protected abstract void operate();
@@ -200,6 +235,14 @@ public abstract class VMOperation extends VMOperationControl.AllocationFreeStack
         return executingVMThread;
     }
 
+    final long getStartedExecutions() {
+        return startedExecutions;
+    }
+
+    final long getFinishedExecutions() {
+        return finishedExecutions;
+    }
+
     /** A VMOperation that executes a thunk. */
     public static class ThunkOperation extends VMOperation {
 
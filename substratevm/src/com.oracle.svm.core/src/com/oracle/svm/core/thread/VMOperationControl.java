@@ -27,24 +27,51 @@ package com.oracle.svm.core.thread;
 import java.util.Collections;
 import java.util.List;
 
+import org.graalvm.compiler.api.replacements.Fold;
+import org.graalvm.compiler.options.Option;
 import org.graalvm.nativeimage.Feature;
 import org.graalvm.nativeimage.ImageSingletons;
+import org.graalvm.nativeimage.IsolateThread;
 import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.nativeimage.c.function.CEntryPointContext;
+import org.graalvm.word.WordFactory;
 
 import com.oracle.svm.core.SubstrateOptions;
 import com.oracle.svm.core.annotate.AutomaticFeature;
 import com.oracle.svm.core.annotate.Uninterruptible;
+import com.oracle.svm.core.jdk.RuntimeSupport;
+import com.oracle.svm.core.locks.VMCondition;
 import com.oracle.svm.core.locks.VMMutex;
 import com.oracle.svm.core.log.Log;
+import com.oracle.svm.core.option.HostedOptionKey;
 import com.oracle.svm.core.threadlocal.FastThreadLocalFactory;
 import com.oracle.svm.core.threadlocal.FastThreadLocalInt;
 import com.oracle.svm.core.util.VMError;
 
-/** A multiplex of VMOperation queues. */
+/**
+ * A multiplex of VMOperation queues.
+ * <p>
+ * By default, a VMOperation is executed by the thread that queues it, while holding the
+ * VMOperation lock. With {@link Options#UseDedicatedVMOperationThread}, a dedicated VM operation
+ * thread is started during VM startup. Other threads then only queue their operations and wait
+ * until the VM operation thread has executed them (or, for operations that do not block the
+ * caller, return immediately). Requests for an operation that is already queued are coalesced:
+ * e.g., when several threads request a garbage collection at the same time, the collection is
+ * executed once and all requesters are released when it is finished.
+ */
 public final class VMOperationControl {
 
+    public static class Options {
+        @Option(help = "Execute VM operations on a dedicated VM operation thread instead of on the thread that requests them.")//
+        public static final HostedOptionKey<Boolean> UseDedicatedVMOperationThread = new HostedOptionKey<>(false);
+    }
+
+    @Fold
+    public static boolean useDedicatedVMOperationThread() {
+        return SubstrateOptions.MultiThreaded.getValue() && Options.UseDedicatedVMOperationThread.getValue();
+    }
+
     /** Is this thread the owner of the VMOperation lock. */
     private static final FastThreadLocalInt isLockOwner = FastThreadLocalFactory.createInt();
 
@@ -67,6 +94,18 @@ public final class VMOperationControl {
     /** An indicator of which VMOperation is in progress. */
     private VMOperation inProgress;
 
+    /**
+     * The dedicated VM operation thread, or null if it is not used or not yet started. Only
+     * accessed while holding the VMOperation lock.
+     */
+    private IsolateThread dedicatedVMOperationThread;
+
+    /** Signaled when an operation is queued for the dedicated VM operation thread. */
+    private final VMCondition operationQueued;
+
+    /** Broadcast by the dedicated VM operation thread after it has drained the queues. */
+    private final VMCondition operationsFinished;
+
     /** Constructor for singleton. */
     @Platforms(Platform.HOSTED_ONLY.class)
     VMOperationControl() {
@@ -76,6 +115,9 @@ public final class VMOperationControl {
         this.blockingSafepointOperations = new Worklist(getLock(), "blockingSafepoint");
         this.reason = "TooSoonToTell";
         this.inProgress = null;
+        this.dedicatedVMOperationThread = WordFactory.nullPointer();
+        this.operationQueued = new VMCondition(getLock());
+        this.operationsFinished = new VMCondition(getLock());
     }
 
     /** There is only one VMOperation controller. Constructed during native image construction. */
@@ -105,9 +147,11 @@ public final class VMOperationControl {
     }
 
     /**
-     * Queue a VMOperation and drain all the queued operations. This is over-engineered now because
-     * I execute a VMOperation as soon as it is enqueued, and I hold a lock (preventing further
-     * enqueuing) by other threads while I do that.
+     * Queue a VMOperation and drain all the queued operations. Without the dedicated VM operation
+     * thread, this is over-engineered because I execute a VMOperation as soon as it is enqueued,
+     * and I hold a lock (preventing further enqueuing) by other threads while I do that. With the
+     * dedicated VM operation thread, the operation is only queued (unless it is already queued) and
+     * the caller waits for its completion if it blocks the caller.
      */
     public static void enqueue(VMOperation operation) {
         final Log trace = SubstrateOptions.TraceVMOperations.getValue() ? Log.log() : Log.noopLog();
@@ -140,19 +184,33 @@ public final class VMOperationControl {
             getVMOperationControl().acquireLock();
         }
         try {
+            final VMOperationControl control = getVMOperationControl();
             // The reason is most recently queued VMOperation.
-            getVMOperationControl().setReason(operation.getName());
-            // Distribute the operation to the correct queue.
-            if ((!operation.getBlocksCaller()) && (!operation.getCausesSafepoint())) {
-                getVMOperationControl().nonBlockingNonSafepointOperations.push(operation);
-            } else if ((!operation.getBlocksCaller()) && (operation.getCausesSafepoint())) {
-                getVMOperationControl().nonBlockingSafepointOperations.push(operation);
-            } else if ((operation.getBlocksCaller()) && (!operation.getCausesSafepoint())) {
-                getVMOperationControl().blockingNonSafepointOperations.push(operation);
-            } else if ((operation.getBlocksCaller()) && (operation.getCausesSafepoint())) {
-                getVMOperationControl().blockingSafepointOperations.push(operation);
+            control.setReason(operation.getName());
+            if (needLockUnlock && control.dedicatedVMOperationThread.isNonNull()) {
+                /*
+                 * Hand the operation over to the dedicated VM operation thread. Nested operations
+                 * (queued while this thread already owns the lock, e.g., by the VM operation thread
+                 * itself) are still executed immediately below.
+                 */
+                final boolean pending = operation.isEnqueued();
+                operation.beforeRequest(pending);
+                if (pending) {
+                    trace.string("  coalesced with pending request");
+                } else {
+                    control.push(operation);
+                    control.operationQueued.signal();
+                }
+                if (operation.getBlocksCaller()) {
+                    control.awaitFinished(operation);
+                    operation.afterRequest();
+                }
+            } else {
+                operation.beforeRequest(false);
+                control.push(operation);
+                control.drain();
+                operation.afterRequest();
             }
-            getVMOperationControl().drain();
         } finally {
             if (needLockUnlock) {
                 getVMOperationControl().releaseLock();
@@ -165,6 +223,85 @@ public final class VMOperationControl {
         trace.string("]").newline();
     }
 
+    /** Distribute the operation to the correct queue. */
+    private void push(VMOperation operation) {
+        if ((!operation.getBlocksCaller()) && (!operation.getCausesSafepoint())) {
+            nonBlockingNonSafepointOperations.push(operation);
+        } else if ((!operation.getBlocksCaller()) && (operation.getCausesSafepoint())) {
+            nonBlockingSafepointOperations.push(operation);
+        } else if ((operation.getBlocksCaller()) && (!operation.getCausesSafepoint())) {
+            blockingNonSafepointOperations.push(operation);
+        } else if ((operation.getBlocksCaller()) && (operation.getCausesSafepoint())) {
+            blockingSafepointOperations.push(operation);
+        }
+    }
+
+    private boolean hasQueuedOperations() {
+        return !nonBlockingNonSafepointOperations.isEmpty() || !blockingNonSafepointOperations.isEmpty() || !nonBlockingSafepointOperations.isEmpty() ||
+                        !blockingSafepointOperations.isEmpty();
+    }
+
+    /**
+     * Wait until all requests for the operation that have been made so far are finished. If the
+     * operation is queued, that is the next execution, otherwise it is the execution that is
+     * currently in progress (if any). Must be called while holding the lock.
+     */
+    private void awaitFinished(VMOperation operation) {
+        final long target = operation.getStartedExecutions() + (operation.isEnqueued() ? 1 : 0);
+        while (operation.getFinishedExecutions() < target) {
+            operationsFinished.block();
+        }
+    }
+
+    /**
+     * Wait until all requests for the operation that have been made so far are finished. Used by
+     * requesters of operations that do not block the caller, which can continue with other work
+     * after queuing the operation and wait for it later.
+     */
+    static void awaitFinishedRequests(VMOperation operation) {
+        if (!useDedicatedVMOperationThread() || isLockOwner()) {
+            /* The operation was executed by the requesting thread, or is executed right now. */
+            return;
+        }
+        final VMOperationControl control = getVMOperationControl();
+        control.acquireLock();
+        try {
+            control.awaitFinished(operation);
+        } finally {
+            control.releaseLock();
+        }
+    }
+
+    /** Start the dedicated VM operation thread. Called from a startup hook. */
+    static void startDedicatedVMOperationThread() {
+        Thread thread = new Thread(VMOperationControl::runDedicatedVMOperationThread, "VMOperationThread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The body of the dedicated VM operation thread. It owns the VMOperation lock all the time,
+     * except while it is waiting for operations to be queued.
+     */
+    private static void runDedicatedVMOperationThread() {
+        final VMOperationControl control = getVMOperationControl();
+        control.acquireLock();
+        try {
+            control.dedicatedVMOperationThread = CEntryPointContext.getCurrentIsolateThread();
+            while (true) {
+                if (control.hasQueuedOperations()) {
+                    control.drain();
+                    control.operationsFinished.broadcast();
+                } else {
+                    control.operationQueued.block();
+                }
+            }
+        } finally {
+            control.dedicatedVMOperationThread = WordFactory.nullPointer();
+            control.releaseLock();
+        }
+    }
+
     protected void drain() {
         final Log trace = SubstrateOptions.TraceVMOperations.getValue() ? Log.log() : Log.noopLog();
         Safepoint.Master master = Safepoint.Master.singleton();
@@ -308,7 +445,12 @@ public final class VMOperationControl {
                 final Log trace = SubstrateOptions.TraceVMOperations.getValue() ? Log.log() : Log.noopLog();
                 trace.string("[Worklist.drain:  queue: ").string(name);
                 for (VMOperation operation = pop(); operation != null; operation = pop()) {
+                    final boolean atSafepoint = SafepointMetrics.isEnabled() && isFrozen();
+                    final long startNanos = atSafepoint ? System.nanoTime() : 0L;
                     operation.execute();
+                    if (atSafepoint) {
+                        SafepointMetrics.recordOperation(operation.getName(), startNanos);
+                    }
                 }
                 trace.string("]").newline();
             }
@@ -384,6 +526,11 @@ public final class VMOperationControl {
                 super();
             }
 
+            /** Whether this element is currently on a stack. */
+            protected final boolean isEnqueued() {
+                return enqueued;
+            }
+
             /** Get the next element of the list. */
             private Element<T> getNext() {
                 // Since I only put instances of T on the list, the next element is always a T.
@@ -465,4 +612,11 @@ class VMOperationControlFeature implements Feature {
     public void afterRegistration(AfterRegistrationAccess access) {
         ImageSingletons.add(VMOperationControl.class, new VMOperationControl());
     }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        if (VMOperationControl.useDedicatedVMOperationThread()) {
+            RuntimeSupport.getRuntimeSupport().addStartupHook(VMOperationControl::startDedicatedVMOperationThread);
+        }
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.core.util;
+
+import org.graalvm.nativeimage.Platform;
+import org.graalvm.nativeimage.Platforms;
+import org.graalvm.word.Pointer;
+
+import com.oracle.svm.core.log.Log;
+
+/**
+ * A histogram of nanosecond durations with power-of-two buckets: bucket {@code i} counts the values
+ * in the range [2^i, 2^(i+1)). Values are recorded into a buffer of the recording thread, so
+ * recording does not allocate, does not synchronize and does not write memory that other threads
+ * record into. It can be used while the VM is at a safepoint or collecting garbage. The buffers of
+ * all threads are merged when the histogram is reported: the getters return the values as of the
+ * last {@link #startMerge()} and {@link #merge(Pointer)} of all buffers.
+ * <p>
+ * The owner of a histogram provides the per-thread buffers, usually as one thread-local block of
+ * memory for several histograms, each of which uses {@link #BUFFER_SIZE} bytes at its offset. The
+ * owner must ensure that a buffer is not recorded into while it is merged, retired or cleared.
+ * Histograms must be allocated during native image generation.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private static final int COUNT_INDEX = BUCKET_COUNT;
+    private static final int TOTAL_INDEX = BUCKET_COUNT + 1;
+    private static final int MAX_INDEX = BUCKET_COUNT + 2;
+    private static final int VALUE_COUNT = BUCKET_COUNT + 3;
+
+    /** The number of bytes of the per-thread buffer of a histogram. */
+    public static final int BUFFER_SIZE = VALUE_COUNT * Long.BYTES;
+
+    private final String name;
+    /** The offset of the buffer of this histogram within the per-thread block of memory. */
+    private final int bufferOffset;
+    /** The values of the buffers of threads that no longer exist. */
+    private final long[] retired;
+    /** The values of the buffers of all threads, as of the last merge. */
+    private final long[] merged;
+
+    @Platforms(Platform.HOSTED_ONLY.class)
+    public LatencyHistogram(String name, int bufferOffset) {
+        this.name = name;
+        this.bufferOffset = bufferOffset;
+        this.retired = new long[VALUE_COUNT];
+        this.merged = new long[VALUE_COUNT];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a value into the buffer of this histogram in the given block of the current thread.
+     */
+    public void record(Pointer threadBuffers, long nanos) {
+        Pointer buffer = threadBuffers.add(bufferOffset);
+        long value = nanos < 0 ? 0 : nanos;
+        add(buffer, bucketIndex(value), 1);
+        add(buffer, COUNT_INDEX, 1);
+        add(buffer, TOTAL_INDEX, value);
+        if (value > buffer.readLong(MAX_INDEX * Long.BYTES)) {
+            buffer.writeLong(MAX_INDEX * Long.BYTES, value);
+        }
+    }
+
+    private static void add(Pointer buffer, int index, long delta) {
+        int offset = index * Long.BYTES;
+        buffer.writeLong(offset, buffer.readLong(offset) + delta);
+    }
+
+    private static int bucketIndex(long value) {
+        return value == 0 ? 0 : 63 - Long.numberOfLeadingZeros(value);
+    }
+
+    /** Starts a merge with the values of the threads that no longer exist. */
+    public void startMerge() {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            merged[i] = retired[i];
+        }
+    }
+
+    /** Adds the buffer of this histogram in the given block of a thread to the merged values. */
+    public void merge(Pointer threadBuffers) {
+        addBuffer(merged, threadBuffers.add(bufferOffset));
+    }
+
+    /**
+     * Keeps the values of the buffer of this histogram in the given block of a thread that is
+     * about to exit.
+     */
+    public void retire(Pointer threadBuffers) {
+        addBuffer(retired, threadBuffers.add(bufferOffset));
+    }
+
+    private static void addBuffer(long[] values, Pointer buffer) {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            long value = buffer.readLong(i * Long.BYTES);
+            if (i == MAX_INDEX) {
+                values[i] = Math.max(values[i], value);
+            } else {
+                values[i] += value;
+            }
+        }
+    }
+
+    public long getCount() {
+        return merged[COUNT_INDEX];
+    }
+
+    public long getTotalNanos() {
+        return merged[TOTAL_INDEX];
+    }
+
+    public long getMaxNanos() {
+        return merged[MAX_INDEX];
+    }
+
+    /** Returns the number of recorded values in the range [2^index, 2^(index+1)). */
+    public long getBucketCount(int index) {
+        return merged[index];
+    }
+
+    public static int getBucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile (between 0 and 100), i.e., the exclusive upper
+     * limit of the bucket that contains the percentile.
+     */
+    public long getPercentileUpperBoundNanos(int percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (total * percentile + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += merged[i];
+            if (seen >= threshold) {
+                return i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (i + 1);
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /** Clears the buffer of this histogram in the given block of a thread. */
+    public void clear(Pointer threadBuffers) {
+        Pointer buffer = threadBuffers.add(bufferOffset);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            buffer.writeLong(i * Long.BYTES, 0);
+        }
+    }
+
+    /** Clears the values of the threads that no longer exist and the merged values. */
+    public void reset() {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            retired[i] = 0;
+            merged[i] = 0;
+        }
+    }
+
+    public Log toLog(Log log) {
+        long total = getCount();
+        log.string("[").string(name).string(":  count: ").signed(total);
+        if (total > 0) {
+            log.string("  avgNanos: ").signed(getTotalNanos() / total);
+            log.string("  p50Nanos: <").signed(getPercentileUpperBoundNanos(50));
+            log.string("  p99Nanos: <").signed(getPercentileUpperBoundNanos(99));
+            log.string("  maxNanos: ").signed(getMaxNanos());
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucket = merged[i];
+                if (bucket != 0) {
+                    log.newline().string("    [2^").signed(i).string(", 2^").signed(i + 1).string("): ").signed(bucket);
+                }
+            }
+        }
+        return log.string("]").newline();
+    }
+}
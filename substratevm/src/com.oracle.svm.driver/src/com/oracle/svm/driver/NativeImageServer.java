@@ -73,6 +73,7 @@ final class NativeImageServer extends NativeImage {
     private static final String machineDirPrefix = "machine-id-";
     private static final String sessionDirPrefix = "session-id-";
     private static final String defaultLockFileName = ".lock";
+    private static final String buildLockFilePrefix = ".build-lock-";
 
     private static final String pKeyMaxServers = "MaxServers";
     private static final String machineProperties = "machine.properties";
@@ -111,6 +112,8 @@ final class NativeImageServer extends NativeImage {
         final LinkedHashSet<String> serverJavaArgs;
         final LinkedHashSet<Path> serverBootClasspath;
         final LinkedHashSet<Path> serverClasspath;
+        /** The id of the build that this driver requested, used to abort only that build. */
+        private volatile String buildId;
 
         private Server(Path serverDir) throws Exception {
             this.serverDir = serverDir;
@@ -163,7 +166,12 @@ final class NativeImageServer extends NativeImage {
         }
 
         void sendBuildRequest(LinkedHashSet<Path> imageCP, LinkedHashSet<String> imageArgs) {
-            withLockDirFileChannel(serverDir, lockFileChannel -> {
+            buildId = imageBuildId(imageArgs);
+            /*
+             * Builds of different images run concurrently on the server. A new build of the same
+             * image aborts the build in progress.
+             */
+            withFileChannel(serverDir.resolve(buildLockFilePrefix + buildId), lockFileChannel -> {
                 boolean abortedOnce = false;
                 boolean finished = false;
                 while (!finished) {
@@ -176,7 +184,7 @@ final class NativeImageServer extends NativeImage {
                         } else {
                             /* Cancel strategy */
                             if (!abortedOnce) {
-                                showMessagePart("A previous build is in progress. Aborting previous build...");
+                                showMessagePart("A previous build of this image is in progress. Aborting previous build...");
                                 abortTask();
                                 abortedOnce = true;
                             }
@@ -191,6 +199,7 @@ final class NativeImageServer extends NativeImage {
                         /* Now we have the server-lock and can send the build-request */
                         List<String> command = new ArrayList<>();
                         command.add("-task=" + "com.oracle.svm.hosted.NativeImageGeneratorRunner");
+                        command.add(NativeImageBuildServer.BUILD_ID_PREFIX + buildId);
                         LinkedHashSet<Path> imagecp = new LinkedHashSet<>(serverClasspath);
                         imagecp.addAll(imageCP);
                         command.addAll(Arrays.asList("-imagecp", imagecp.stream().map(Path::toString).collect(Collectors.joining(":"))));
@@ -232,7 +241,7 @@ final class NativeImageServer extends NativeImage {
 
         void abortTask() {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            sendRequest(byteStreamToByteConsumer(baos), byteStreamToByteConsumer(baos), ServerCommand.ABORT_BUILD);
+            sendRequest(byteStreamToByteConsumer(baos), byteStreamToByteConsumer(baos), ServerCommand.ABORT_BUILD, buildId);
             showVerboseMessage(verboseServer, "Server abort response:" + new String(baos.toByteArray()));
         }
 
@@ -785,6 +794,27 @@ final class NativeImageServer extends NativeImage {
         return sb.toString();
     }
 
+    /**
+     * The id of a build request, derived from the path and name of the image, so that only builds
+     * of the same image abort each other.
+     */
+    private static String imageBuildId(LinkedHashSet<String> imageArgs) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw showError("SHA-256 digest is not available", e);
+        }
+        imageArgs.stream().filter(arg -> arg.startsWith(oHPath) || arg.startsWith(oHName)).map(String::getBytes).forEach(digest::update);
+
+        byte[] digestBytes = digest.digest();
+        StringBuilder sb = new StringBuilder(digestBytes.length * 2);
+        for (byte b : digestBytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
     private static void updateHash(MessageDigest md, Path pathElement) {
         try {
             if (!(Files.isReadable(pathElement) && pathElement.getFileName().toString().endsWith(".jar"))) {
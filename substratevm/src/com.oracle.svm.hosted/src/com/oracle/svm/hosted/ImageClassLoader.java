@@ -53,6 +53,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -89,6 +90,26 @@ public final class ImageClassLoader {
         Word.ensureInitialized();
     }
 
+    /**
+     * The class names of the jar files on the class path, shared by all image builds in this VM,
+     * so that an image build server does not scan the same jar files for every build. A jar file
+     * is scanned again when its size or modification time changes. Directories are always
+     * scanned, because their modification time does not reflect changes deeper in the tree.
+     */
+    private static final ConcurrentHashMap<Path, JarIndex> jarIndexCache = new ConcurrentHashMap<>();
+
+    private static final class JarIndex {
+        final long size;
+        final long lastModified;
+        final List<String> classNames;
+
+        JarIndex(long size, long lastModified, List<String> classNames) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classNames = classNames;
+        }
+    }
+
     private final Platform platform;
     private final ClassLoader classLoader;
     private final String[] classpath;
@@ -202,10 +223,8 @@ public final class ImageClassLoader {
             String name = path.toAbsolutePath().toString();
             if (path.getNameCount() > 0 && name.endsWith(".jar")) {
                 try {
-                    name = name.replace('\\', '/');
-                    URI jarURI = new URI("jar:file:///" + name);
-                    try (FileSystem jarFileSystem = FileSystems.newFileSystem(jarURI, Collections.emptyMap())) {
-                        initAllClasses(jarFileSystem.getPath("/"), Collections.emptySet(), executor);
+                    for (String className : getJarIndex(path, name).classNames) {
+                        executor.execute(() -> loadClass(className));
                     }
                 } catch (ClosedByInterruptException ignored) {
                     throw new InterruptImageBuilding();
@@ -220,6 +239,60 @@ public final class ImageClassLoader {
         }
     }
 
+    /**
+     * Returns the names of the classes in the jar file, from {@link #jarIndexCache} if the jar file
+     * has not changed since it was scanned.
+     */
+    private static JarIndex getJarIndex(Path path, String absoluteName) throws IOException, URISyntaxException {
+        Path realPath = toRealPath(path);
+        long size = Files.size(realPath);
+        long lastModified = Files.getLastModifiedTime(realPath).toMillis();
+        JarIndex cached = jarIndexCache.get(realPath);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached;
+        }
+        URI jarURI = new URI("jar:file:///" + absoluteName.replace('\\', '/'));
+        List<String> classNames = new ArrayList<>();
+        try (FileSystem jarFileSystem = FileSystems.newFileSystem(jarURI, Collections.emptyMap())) {
+            Path root = jarFileSystem.getPath("/");
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String className = toClassName(root, file);
+                    if (className != null) {
+                        classNames.add(className);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        JarIndex result = new JarIndex(size, lastModified, classNames);
+        jarIndexCache.put(realPath, result);
+        return result;
+    }
+
+    private static String toClassName(Path root, Path file) {
+        String fileName = root.relativize(file).toString().replace('/', '.');
+        if (fileName.endsWith(".class")) {
+            return fileName.substring(0, fileName.length() - CLASS_LENGTH);
+        }
+        return null;
+    }
+
+    private void loadClass(String className) {
+        try {
+            Class<?> systemClass = Class.forName(className, false, classLoader);
+            if (includedInPlatform(systemClass)) {
+                synchronized (systemClasses) {
+                    systemClasses.add(systemClass);
+                }
+                findSystemElements(systemClass);
+            }
+        } catch (Throwable t) {
+            handleClassLoadingError(t);
+        }
+    }
+
     private void findSystemElements(Class<?> systemClass) {
         try {
             for (Method systemMethod : systemClass.getDeclaredMethods()) {
@@ -265,23 +338,10 @@ public final class ImageClassLoader {
                 if (excludes.contains(file.getParent())) {
                     return FileVisitResult.SKIP_SIBLINGS;
                 }
-                executor.execute(() -> {
-                    String fileName = root.relativize(file).toString().replace('/', '.');
-                    if (fileName.endsWith(".class")) {
-                        String className = fileName.substring(0, fileName.length() - CLASS_LENGTH);
-                        try {
-                            Class<?> systemClass = Class.forName(className, false, classLoader);
-                            if (includedInPlatform(systemClass)) {
-                                synchronized (systemClasses) {
-                                    systemClasses.add(systemClass);
-                                }
-                                findSystemElements(systemClass);
-                            }
-                        } catch (Throwable t) {
-                            handleClassLoadingError(t);
-                        }
-                    }
-                });
+                String className = toClassName(root, file);
+                if (className != null) {
+                    executor.execute(() -> loadClass(className));
+                }
                 return FileVisitResult.CONTINUE;
             }
 
@@ -56,6 +56,7 @@ import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -214,6 +215,7 @@ import com.oracle.svm.hosted.code.CEntryPointData;
 import com.oracle.svm.hosted.code.CFunctionSubstitutionProcessor;
 import com.oracle.svm.hosted.code.CompileQueue;
 import com.oracle.svm.hosted.code.HostedRuntimeConfigurationBuilder;
+import com.oracle.svm.hosted.code.IncrementalBuildFeature;
 import com.oracle.svm.hosted.code.NativeMethodSubstitutionProcessor;
 import com.oracle.svm.hosted.code.RestrictHeapAccessCallees;
 import com.oracle.svm.hosted.code.SharedRuntimeConfigurationBuilder;
@@ -265,6 +267,14 @@ public class NativeImageGenerator {
     private AbstractBootImage image;
     private AtomicBoolean buildStarted = new AtomicBoolean();
 
+    /**
+     * Held while an image is built, because the build sets process-global state such as the
+     * {@link ImageInfo#PROPERTY_IMAGE_CODE_KEY} system property and clears it when it finishes.
+     * The image build server accepts builds concurrently, but until that state is kept per build,
+     * the builds themselves run one at a time.
+     */
+    private static final ReentrantLock globalStateLock = new ReentrantLock();
+
     public NativeImageGenerator(ImageClassLoader loader, HostedOptionProvider optionProvider) {
         this.loader = loader;
         this.featureHandler = new FeatureHandler();
@@ -382,6 +392,25 @@ public class NativeImageGenerator {
                     SubstitutionProcessor harnessSubstitutions,
                     ForkJoinPool compilationExecutor, ForkJoinPool analysisExecutor,
                     EconomicSet<String> allOptionNames) {
+        try {
+            globalStateLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted!");
+            throw new InterruptImageBuilding();
+        }
+        try {
+            runLocked(entryPoints, mainEntryPoint, javaMainSupport, imageName, k, harnessSubstitutions, compilationExecutor, analysisExecutor, allOptionNames);
+        } finally {
+            globalStateLock.unlock();
+        }
+    }
+
+    private void runLocked(Map<Method, CEntryPointData> entryPoints, Method mainEntryPoint,
+                    JavaMainSupport javaMainSupport, String imageName,
+                    AbstractBootImage.NativeImageKind k,
+                    SubstitutionProcessor harnessSubstitutions,
+                    ForkJoinPool compilationExecutor, ForkJoinPool analysisExecutor,
+                    EconomicSet<String> allOptionNames) {
         try {
             if (!buildStarted.compareAndSet(false, true)) {
                 throw UserError.abort("An image build has already been performed with this generator.");
@@ -393,6 +422,7 @@ public class NativeImageGenerator {
                 try {
                     ImageSingletons.add(HostedOptionValues.class, new HostedOptionValues(optionProvider.getHostedValues()));
                     ImageSingletons.add(RuntimeOptionValues.class, new RuntimeOptionValues(optionProvider.getRuntimeValues(), allOptionNames));
+                    IncrementalBuildFeature.checkPreviousImage(loader, optionProvider, imageName, k);
 
                     doRun(entryPoints, mainEntryPoint, javaMainSupport, imageName, k, harnessSubstitutions, compilationExecutor, analysisExecutor);
                 } finally {
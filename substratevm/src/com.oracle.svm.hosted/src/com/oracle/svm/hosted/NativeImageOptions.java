@@ -90,6 +90,9 @@ public class NativeImageOptions {
     @Option(help = "Print the sizes of the native image heap as the image is built")//
     public static final HostedOptionKey<Boolean> PrintImageHeapPartitionSizes = new HostedOptionKey<>(false);
 
+    @Option(help = "Read the fields of the objects of the native image heap in parallel. The layout of the native image heap does not depend on this option.")//
+    public static final HostedOptionKey<Boolean> ParallelImageHeapScanning = new HostedOptionKey<>(true);
+
     @Option(help = "Compiles all methods as deoptimization targets for testing")//
     public static final HostedOptionKey<Boolean> DeoptimizeAll = new HostedOptionKey<>(false);
 
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -173,6 +174,9 @@ public class CompileQueue {
 
     private volatile boolean inliningProgress;
 
+    /** The execution profile used to guide inlining and code layout, or null. */
+    private final ImageProfileData profile;
+
     public abstract static class CompileReason {
         /**
          * For debugging only: chaining of the compile reason, so that you can track the compilation
@@ -312,6 +316,7 @@ public class CompileQueue {
         this.deoptimizeAll = deoptimizeAll;
         this.dataCache = new ConcurrentHashMap<>();
         this.executor = new CompletionExecutor(universe.getBigBang(), executorService);
+        this.profile = ImageProfileData.load();
 
         regularSuites = NativeImageGenerator.createSuites(featureHandler, runtimeConfig, snippetReflection, true);
         deoptTargetSuites = NativeImageGenerator.createSuites(featureHandler, runtimeConfig, snippetReflection, true);
@@ -572,7 +577,7 @@ public class CompileQueue {
         }
     }
 
-    private static boolean tryInlineTrivial(StructuredGraph graph, Invoke invoke, boolean firstInline) {
+    private boolean tryInlineTrivial(StructuredGraph graph, Invoke invoke, boolean firstInline) {
         if (invoke.getInvokeKind().isDirect()) {
             HostedMethod singleCallee = (HostedMethod) invoke.callTarget().targetMethod();
             if (makeInlineDecision(invoke, singleCallee) && InliningUtilities.recursionDepth(invoke, singleCallee) == 0) {
@@ -588,7 +593,7 @@ public class CompileQueue {
         return false;
     }
 
-    private static boolean makeInlineDecision(Invoke invoke, HostedMethod callee) {
+    private boolean makeInlineDecision(Invoke invoke, HostedMethod callee) {
         if (!callee.canBeInlined() || callee.getAnnotation(NeverInlineTrivial.class) != null) {
             return false;
         }
@@ -598,6 +603,11 @@ public class CompileQueue {
         if (callee.compilationInfo.isTrivialMethod()) {
             return true;
         }
+        if (profile != null && invoke.stateAfter() != null && profile.isHotCall(invoke.stateAfter().getMethod(), callee)) {
+            /* The call site is hot in the execution profile: also inline small, non-trivial callees. */
+            StructuredGraph calleeGraph = callee.compilationInfo.getGraph();
+            return calleeGraph != null && calleeGraph.getNodeCount() <= ImageProfileData.Options.MaxNodesInProfiledInlining.getValue();
+        }
         return false;
     }
 
@@ -1115,11 +1125,34 @@ public class CompileQueue {
         }
     }
 
+    /**
+     * Returns the compilation results in the order in which the methods are placed in the code
+     * section. Without an execution profile, the methods are sorted by name. With a profile, the
+     * methods that were sampled come first, the hottest first, so that the hot code is compact.
+     */
     public Map<HostedMethod, CompilationResult> getCompilations() {
-        Map<HostedMethod, CompilationResult> result = new TreeMap<>();
+        Map<HostedMethod, CompilationResult> sorted = new TreeMap<>();
         for (Entry<HostedMethod, CompileTask> entry : compilations.entrySet()) {
-            result.put(entry.getKey(), entry.getValue().result);
+            sorted.put(entry.getKey(), entry.getValue().result);
+        }
+        if (profile == null) {
+            return sorted;
+        }
+
+        List<HostedMethod> hotMethods = new ArrayList<>();
+        for (HostedMethod method : sorted.keySet()) {
+            if (profile.getMethodSamples(method) > 0) {
+                hotMethods.add(method);
+            }
+        }
+        /* The sort is stable, so methods with the same number of samples stay sorted by name. */
+        hotMethods.sort(Comparator.comparingLong((HostedMethod method) -> profile.getMethodSamples(method)).reversed());
+
+        Map<HostedMethod, CompilationResult> result = new LinkedHashMap<>();
+        for (HostedMethod method : hotMethods) {
+            result.put(method, sorted.get(method));
         }
+        result.putAll(sorted);
         return result;
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.code;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.graalvm.compiler.options.Option;
+
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.profile.ExecutionSampler;
+import com.oracle.svm.core.util.UserError;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * An execution profile recorded by an image built with {@code -H:+CollectImageProfile}, see
+ * {@link ExecutionSampler}. The profile is used by the {@link CompileQueue} to inline small
+ * methods at hot call sites in addition to the trivial methods, and to place the hot methods
+ * next to each other at the beginning of the code section.
+ * <p>
+ * Methods are matched by their declaring class and name, because the runtime frame information
+ * does not contain signatures. All overloads of a method therefore share one profile entry.
+ */
+public final class ImageProfileData {
+
+    public static class Options {
+        @Option(help = "Use the execution profile in the given file, recorded by an image built with -H:+CollectImageProfile, to guide inlining and code layout.")//
+        public static final HostedOptionKey<String> UseImageProfile = new HostedOptionKey<>("");
+
+        @Option(help = "The maximum number of nodes of a method that is inlined at a hot call site of the execution profile.")//
+        public static final HostedOptionKey<Integer> MaxNodesInProfiledInlining = new HostedOptionKey<>(200);
+
+        @Option(help = "The minimum share of all samples of the execution profile, in per mille, that a call site needs to be hot.")//
+        public static final HostedOptionKey<Integer> ImageProfileHotCallPerMille = new HostedOptionKey<>(1);
+    }
+
+    private final Map<String, Long> methodSamples = new HashMap<>();
+    private final Map<String, Long> callSamples = new HashMap<>();
+    private long totalSamples;
+    private long hotCallThreshold;
+
+    private ImageProfileData() {
+    }
+
+    /** Loads the profile specified by {@link Options#UseImageProfile}, or returns null. */
+    public static ImageProfileData load() {
+        String file = Options.UseImageProfile.getValue();
+        if (file.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(file);
+        ImageProfileData data = new ImageProfileData();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!ExecutionSampler.FORMAT_HEADER.equals(header)) {
+                throw UserError.abort("File " + path + " is not an execution profile, it must start with \"" + ExecutionSampler.FORMAT_HEADER + "\"");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t");
+                if (parts.length == 3 && parts[0].equals(ExecutionSampler.METHOD_ENTRY)) {
+                    long samples = parseSamples(path, parts[1]);
+                    data.methodSamples.merge(parts[2], samples, Long::sum);
+                    data.totalSamples += samples;
+                } else if (parts.length == 4 && parts[0].equals(ExecutionSampler.CALL_ENTRY)) {
+                    data.callSamples.merge(callKey(parts[2], parts[3]), parseSamples(path, parts[1]), Long::sum);
+                } else {
+                    throw UserError.abort("Malformed line in execution profile " + path + ": " + line);
+                }
+            }
+        } catch (IOException e) {
+            throw UserError.abort("Reading the execution profile " + path + " failed: " + e.getMessage());
+        }
+        data.hotCallThreshold = Math.max(1, data.totalSamples * Options.ImageProfileHotCallPerMille.getValue() / 1000);
+        return data;
+    }
+
+    private static long parseSamples(Path path, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw UserError.abort("Malformed sample count in execution profile " + path + ": " + value);
+        }
+    }
+
+    private static String key(ResolvedJavaMethod method) {
+        return method.getDeclaringClass().toJavaName(true) + "." + method.getName();
+    }
+
+    private static String callKey(String caller, String callee) {
+        return caller + "\t" + callee;
+    }
+
+    /** The number of samples in which the method was executing. */
+    public long getMethodSamples(ResolvedJavaMethod method) {
+        return methodSamples.getOrDefault(key(method), 0L);
+    }
+
+    /** The number of samples in which the caller was executing a call of the callee. */
+    public long getCallSamples(ResolvedJavaMethod caller, ResolvedJavaMethod callee) {
+        return callSamples.getOrDefault(callKey(key(caller), key(callee)), 0L);
+    }
+
+    public boolean isHotCall(ResolvedJavaMethod caller, ResolvedJavaMethod callee) {
+        return getCallSamples(caller, callee) >= hotCallThreshold;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.code;
+
+import static org.graalvm.compiler.bytecode.Bytecodes.ANEWARRAY;
+import static org.graalvm.compiler.bytecode.Bytecodes.CHECKCAST;
+import static org.graalvm.compiler.bytecode.Bytecodes.GETFIELD;
+import static org.graalvm.compiler.bytecode.Bytecodes.GETSTATIC;
+import static org.graalvm.compiler.bytecode.Bytecodes.INSTANCEOF;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKEDYNAMIC;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKEINTERFACE;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKESPECIAL;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKESTATIC;
+import static org.graalvm.compiler.bytecode.Bytecodes.INVOKEVIRTUAL;
+import static org.graalvm.compiler.bytecode.Bytecodes.LDC;
+import static org.graalvm.compiler.bytecode.Bytecodes.LDC2_W;
+import static org.graalvm.compiler.bytecode.Bytecodes.LDC_W;
+import static org.graalvm.compiler.bytecode.Bytecodes.MULTIANEWARRAY;
+import static org.graalvm.compiler.bytecode.Bytecodes.NEW;
+import static org.graalvm.compiler.bytecode.Bytecodes.PUTFIELD;
+import static org.graalvm.compiler.bytecode.Bytecodes.PUTSTATIC;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.options.Option;
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+
+import com.oracle.graal.pointsto.flow.InvokeTypeFlow;
+import com.oracle.graal.pointsto.meta.AnalysisMethod;
+import com.oracle.graal.pointsto.reports.ReportUtils;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.util.InterruptImageBuilding;
+import com.oracle.svm.core.util.UserError;
+import com.oracle.svm.core.util.VMError;
+import com.oracle.svm.hosted.FeatureImpl.AfterAnalysisAccessImpl;
+import com.oracle.svm.hosted.FeatureImpl.AfterImageWriteAccessImpl;
+import com.oracle.svm.hosted.ImageClassLoader;
+import com.oracle.svm.hosted.c.GraalAccess;
+import com.oracle.svm.hosted.image.AbstractBootImage.NativeImageKind;
+import com.oracle.svm.hosted.option.HostedOptionProvider;
+
+import jdk.vm.ci.meta.ConstantPool;
+import jdk.vm.ci.meta.ExceptionHandler;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Keeps fingerprints of the inputs and of all reachable methods across image builds.
+ * <p>
+ * The inputs of a build are the contents of the image class path and of the image builder class
+ * path, the Java version, the image name and kind, and the values of all hosted and runtime
+ * options. When they are unchanged since the previous successful build and the executable written
+ * by that build is unchanged too, the executable is reused and the build ends before the analysis.
+ * <p>
+ * Otherwise the fingerprints of all reachable methods are compared with the previous build, and
+ * the changed, new and removed methods are reported. The fingerprint of a method is a hash of its
+ * bytecode, of the constant pool entries that the bytecode refers to, and of the fingerprints of
+ * all methods that the static analysis found as callees, transitively. Methods that call each
+ * other recursively share the hash of their cycle. Methods without bytecode, e.g., generated stubs,
+ * are hashed by their name, since their code is determined by the image builder, which is part of
+ * the inputs. Method fingerprints are only reported: the analysis results and the compiled code of
+ * a single method refer to the universe and the image heap of one build, so reusing them needs a
+ * relinking step that does not exist yet.
+ * <p>
+ * The fingerprints of a successful build are stored in the {@link Options#IncrementalBuildCache}
+ * directory.
+ */
+@AutomaticFeature
+public class IncrementalBuildFeature implements Feature {
+
+    public static class Options {
+        @Option(help = "Directory in which the inputs and method fingerprints of image builds are kept, to reuse an unchanged image and to report the methods that are invalidated by a rebuild.")//
+        public static final HostedOptionKey<String> IncrementalBuildCache = new HostedOptionKey<>("");
+
+        @Option(help = "List the methods that are invalidated since the previous build in the IncrementalBuildCache in the incremental build report.")//
+        public static final HostedOptionKey<Boolean> PrintIncrementalBuildInvalidation = new HostedOptionKey<>(false);
+    }
+
+    private static final String FINGERPRINTS_FILE = "method-fingerprints.txt";
+    private static final String FINGERPRINTS_HEADER = "# SubstrateVM method fingerprints v2";
+    private static final String INPUTS_FILE = "image-inputs.txt";
+    private static final String INPUTS_HEADER = "# SubstrateVM image inputs v1";
+
+    /** The fingerprint of the inputs of the current build. */
+    static final class ImageInputs {
+        final String fingerprint;
+
+        ImageInputs(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /** The fingerprints of this build, by qualified method name. */
+    private Map<String, String> fingerprints;
+
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return !Options.IncrementalBuildCache.getValue().isEmpty();
+    }
+
+    /**
+     * Computes the fingerprint of the inputs of the current build and ends the build if the
+     * executable written by the previous build with the same inputs can be reused. Called before
+     * the features are registered.
+     */
+    public static void checkPreviousImage(ImageClassLoader loader, HostedOptionProvider optionProvider, String imageName, NativeImageKind kind) {
+        if (Options.IncrementalBuildCache.getValue().isEmpty()) {
+            return;
+        }
+        String fingerprint = computeInputsFingerprint(loader, optionProvider, imageName, kind);
+        ImageSingletons.add(ImageInputs.class, new ImageInputs(fingerprint));
+        if (!kind.executable) {
+            /* Shared libraries also write header files, which are not tracked. */
+            return;
+        }
+        List<String> previous = readCacheFile(getCacheDirectory().resolve(INPUTS_FILE), INPUTS_HEADER);
+        if (previous == null || previous.size() != 3 || !previous.get(0).equals(fingerprint)) {
+            return;
+        }
+        Path image = Paths.get(previous.get(1));
+        if (Files.isRegularFile(image) && previous.get(2).equals(toHex(fileHash(image)))) {
+            throw new InterruptImageBuilding("reusing image " + image + ", its inputs are unchanged since the previous build in the incremental build cache");
+        }
+    }
+
+    @Override
+    public void afterAnalysis(AfterAnalysisAccess a) {
+        AfterAnalysisAccessImpl access = (AfterAnalysisAccessImpl) a;
+        fingerprints = computeFingerprints(access.getUniverse().getMethods());
+
+        Map<String, String> previous = loadFingerprints(getCacheDirectory().resolve(FINGERPRINTS_FILE));
+        List<String> changed = new ArrayList<>();
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        int unchanged = 0;
+        if (previous != null) {
+            for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                String previousFingerprint = previous.get(entry.getKey());
+                if (previousFingerprint == null) {
+                    added.add(entry.getKey());
+                } else if (!entry.getValue().equals(previousFingerprint)) {
+                    changed.add(entry.getKey());
+                } else {
+                    unchanged++;
+                }
+            }
+            for (String name : previous.keySet()) {
+                if (!fingerprints.containsKey(name)) {
+                    removed.add(name);
+                }
+            }
+        }
+        int unchangedMethods = unchanged;
+        ReportUtils.report("incremental build invalidation", SubstrateOptions.Path.getValue() + "/reports", "incremental_build_invalidation", "txt", writer -> {
+            if (previous == null) {
+                writer.println("No previous fingerprints, all " + fingerprints.size() + " methods are new");
+                return;
+            }
+            writer.println("Methods unchanged: " + unchangedMethods + ", changed: " + changed.size() + ", new: " + added.size() + ", removed: " + removed.size());
+            if (Options.PrintIncrementalBuildInvalidation.getValue()) {
+                printMethods(writer, "Changed", changed);
+                printMethods(writer, "New", added);
+                printMethods(writer, "Removed", removed);
+            }
+        });
+    }
+
+    @Override
+    public void afterImageWrite(AfterImageWriteAccess a) {
+        AfterImageWriteAccessImpl access = (AfterImageWriteAccessImpl) a;
+        /* Only a successful build replaces the fingerprints of the previous build. */
+        Path cacheDirectory = getCacheDirectory();
+        storeFingerprints(cacheDirectory.resolve(FINGERPRINTS_FILE), fingerprints);
+        Path image = access.getImagePath().toAbsolutePath();
+        List<String> inputs = Arrays.asList(ImageSingletons.lookup(ImageInputs.class).fingerprint, image.toString(), toHex(fileHash(image)));
+        writeCacheFile(cacheDirectory.resolve(INPUTS_FILE), INPUTS_HEADER, inputs);
+    }
+
+    private static void printMethods(PrintWriter writer, String title, List<String> methods) {
+        Collections.sort(methods);
+        writer.println(title + " methods: " + methods.size());
+        for (String method : methods) {
+            writer.println("  " + method);
+        }
+    }
+
+    private static Path getCacheDirectory() {
+        return Paths.get(Options.IncrementalBuildCache.getValue());
+    }
+
+    private static String computeInputsFingerprint(ImageClassLoader loader, HostedOptionProvider optionProvider, String imageName, NativeImageKind kind) {
+        MessageDigest digest = newDigest();
+        update(digest, "java " + System.getProperty("java.home") + " " + System.getProperty("java.vm.version"));
+        update(digest, "image " + imageName + " " + kind);
+        for (String argument : new TreeSet<>(optionProvider.getAppliedArguments())) {
+            update(digest, argument);
+        }
+        List<String> builderClasspath = Arrays.asList(System.getProperty("java.class.path", "").split(File.pathSeparator));
+        for (List<String> classpath : Arrays.asList(builderClasspath, loader.getClasspath())) {
+            for (String entry : classpath) {
+                update(digest, "classpath " + entry);
+                hashPath(digest, Paths.get(entry));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /** Hashes the content of a class path entry. Missing entries are only hashed by name. */
+    private static void hashPath(MessageDigest digest, Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+                try (Stream<Path> stream = Files.walk(path)) {
+                    files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    update(digest, path.relativize(file).toString());
+                    hashFile(digest, file);
+                }
+            } else if (Files.isRegularFile(path)) {
+                hashFile(digest, path);
+            }
+        } catch (IOException ex) {
+            throw UserError.abort("Cannot read the class path entry " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private static void hashFile(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static byte[] fileHash(Path file) {
+        MessageDigest digest = newDigest();
+        try {
+            hashFile(digest, file);
+        } catch (IOException ex) {
+            throw UserError.abort("Cannot read the image " + file + ": " + ex.getMessage());
+        }
+        return digest.digest();
+    }
+
+    private static Map<String, String> computeFingerprints(Iterable<AnalysisMethod> methods) {
+        List<AnalysisMethod> reachable = new ArrayList<>();
+        Map<AnalysisMethod, Integer> ids = new HashMap<>();
+        for (AnalysisMethod method : methods) {
+            if (method.isImplementationInvoked()) {
+                ids.put(method, reachable.size());
+                reachable.add(method);
+            }
+        }
+
+        int count = reachable.size();
+        String[] names = new String[count];
+        byte[][] codeHashes = new byte[count][];
+        int[][] callees = new int[count][];
+        for (int i = 0; i < count; i++) {
+            AnalysisMethod method = reachable.get(i);
+            names[i] = qualifiedName(method);
+            codeHashes[i] = codeHash(method);
+            TreeSet<Integer> calleeIds = new TreeSet<>();
+            if (method.getTypeFlow() != null) {
+                for (InvokeTypeFlow invoke : method.getTypeFlow().getInvokes()) {
+                    for (AnalysisMethod callee : invoke.getCallees()) {
+                        Integer calleeId = ids.get(callee);
+                        if (calleeId != null) {
+                            calleeIds.add(calleeId);
+                        }
+                    }
+                }
+            }
+            callees[i] = calleeIds.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /*
+         * Components are numbered in the order in which they are completed, so the components
+         * called from a component are hashed before it.
+         */
+        int[] components = stronglyConnectedComponents(callees);
+        int componentCount = 0;
+        for (int component : components) {
+            componentCount = Math.max(componentCount, component + 1);
+        }
+        List<List<Integer>> members = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            members.get(components[i]).add(i);
+        }
+        String[] componentHashes = new String[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            /* Sort everything so that the hash does not depend on the analysis order. */
+            TreeSet<String> memberHashes = new TreeSet<>();
+            TreeSet<String> calleeHashes = new TreeSet<>();
+            for (int member : members.get(c)) {
+                memberHashes.add(names[member] + ":" + toHex(codeHashes[member]));
+                for (int callee : callees[member]) {
+                    if (components[callee] != c) {
+                        calleeHashes.add(componentHashes[components[callee]]);
+                    }
+                }
+            }
+            MessageDigest digest = newDigest();
+            for (String memberHash : memberHashes) {
+                update(digest, memberHash);
+            }
+            for (String calleeHash : calleeHashes) {
+                update(digest, calleeHash);
+            }
+            componentHashes[c] = toHex(digest.digest());
+        }
+
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            MessageDigest digest = newDigest();
+            update(digest, names[i]);
+            update(digest, componentHashes[components[i]]);
+            result.put(names[i], toHex(digest.digest()));
+        }
+        return result;
+    }
+
+    /**
+     * Tarjan's algorithm, with an explicit stack since call chains can be deeper than the Java
+     * stack. Returns the component of each node, numbered in the order in which the components are
+     * completed: all components reachable from a component have a smaller number.
+     */
+    private static int[] stronglyConnectedComponents(int[][] successors) {
+        int count = successors.length;
+        int[] index = new int[count];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[count];
+        int[] components = new int[count];
+        boolean[] onStack = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        int[] path = new int[count];
+        int[] nextSuccessor = new int[count];
+        int nextIndex = 0;
+        int nextComponent = 0;
+        for (int root = 0; root < count; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            path[0] = root;
+            nextSuccessor[0] = 0;
+            index[root] = nextIndex;
+            lowLink[root] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int node = path[depth];
+                if (nextSuccessor[depth] < successors[node].length) {
+                    int successor = successors[node][nextSuccessor[depth]++];
+                    if (index[successor] == -1) {
+                        index[successor] = nextIndex;
+                        lowLink[successor] = nextIndex;
+                        nextIndex++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        depth++;
+                        path[depth] = successor;
+                        nextSuccessor[depth] = 0;
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+                } else {
+                    if (lowLink[node] == index[node]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = nextComponent;
+                        } while (member != node);
+                        nextComponent++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = path[depth];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Hashes the bytecode of a method together with the constant pool entries it refers to, so that
+     * a changed constant, field, type or callee at the same constant pool index changes the hash.
+     */
+    private static byte[] codeHash(AnalysisMethod method) {
+        MessageDigest digest = newDigest();
+        ResolvedJavaMethod original = method.getWrapped();
+        byte[] code = original.getCode();
+        if (code == null) {
+            update(digest, "generated " + qualifiedName(method));
+            return digest.digest();
+        }
+        update(digest, "modifiers " + original.getModifiers() + " " + Arrays.toString(original.getAnnotations()));
+        digest.update(code);
+        ConstantPool constantPool = original.getConstantPool();
+        for (BytecodeStream stream = new BytecodeStream(code); stream.currentBC() != Bytecodes.END; stream.next()) {
+            String entry = constantPoolEntry(original, constantPool, stream);
+            if (entry != null) {
+                update(digest, stream.currentBCI() + " " + entry);
+            }
+        }
+        for (ExceptionHandler handler : original.getExceptionHandlers()) {
+            JavaType catchType = handler.getCatchType();
+            update(digest, "catch " + (catchType == null ? "any" : catchType.toJavaName()));
+        }
+        return digest.digest();
+    }
+
+    private static String constantPoolEntry(ResolvedJavaMethod method, ConstantPool constantPool, BytecodeStream stream) {
+        int opcode = stream.currentBC();
+        try {
+            switch (opcode) {
+                case INVOKEVIRTUAL:
+                case INVOKESPECIAL:
+                case INVOKESTATIC:
+                case INVOKEINTERFACE:
+                    return constantPool.lookupMethod(stream.readCPI(), opcode).format("%H.%n(%P)%R");
+                case INVOKEDYNAMIC:
+                    return constantPool.lookupMethod(stream.readCPI4(), opcode).format("%H.%n(%P)%R");
+                case GETFIELD:
+                case PUTFIELD:
+                case GETSTATIC:
+                case PUTSTATIC:
+                    return constantPool.lookupField(stream.readCPI(), method, opcode).format("%H.%n:%T");
+                case NEW:
+                case ANEWARRAY:
+                case CHECKCAST:
+                case INSTANCEOF:
+                case MULTIANEWARRAY:
+                    return constantPool.lookupType(stream.readCPI(), opcode).toJavaName();
+                case LDC:
+                case LDC_W:
+                case LDC2_W:
+                    return constantString(constantPool.lookupConstant(stream.readCPI()));
+                default:
+                    return null;
+            }
+        } catch (RuntimeException | LinkageError ex) {
+            /* The entry cannot be resolved, which is only known by its failure. */
+            return "unresolvable " + ex.getClass().getName();
+        }
+    }
+
+    private static String constantString(Object constant) {
+        if (constant instanceof JavaType) {
+            return ((JavaType) constant).toJavaName();
+        } else if (constant instanceof JavaConstant) {
+            JavaConstant javaConstant = (JavaConstant) constant;
+            if (javaConstant.getJavaKind().isPrimitive()) {
+                return javaConstant.toValueString();
+            }
+            Object value = GraalAccess.getOriginalSnippetReflection().asObject(Object.class, javaConstant);
+            return value == null ? "null" : value.getClass().getName() + " " + value;
+        }
+        return String.valueOf(constant);
+    }
+
+    private static String qualifiedName(AnalysisMethod method) {
+        return method.format("%H.%n(%P)%R");
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw VMError.shouldNotReachHere(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** Returns the fingerprints of the previous build, or null if there are none. */
+    private static Map<String, String> loadFingerprints(Path file) {
+        List<String> lines = readCacheFile(file, FINGERPRINTS_HEADER);
+        if (lines == null) {
+            return null;
+        }
+        Map<String, String> result = new HashMap<>();
+        for (String line : lines) {
+            int separator = line.indexOf('\t');
+            if (separator >= 0) {
+                result.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+        }
+        return result;
+    }
+
+    private static void storeFingerprints(Path file, Map<String, String> methodFingerprints) {
+        List<String> lines = new ArrayList<>(methodFingerprints.size());
+        for (Map.Entry<String, String> entry : methodFingerprints.entrySet()) {
+            lines.add(entry.getValue() + '\t' + entry.getKey());
+        }
+        writeCacheFile(file, FINGERPRINTS_HEADER, lines);
+    }
+
+    /**
+     * Returns the lines of a cache file after its header, or null if the file does not exist or was
+     * written by an incompatible version.
+     */
+    private static List<String> readCacheFile(Path file, String header) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!header.equals(line)) {
+                return null;
+            }
+            while ((line = reader.readLine()) != null) {
+                result.add(line);
+            }
+        } catch (IOException ex) {
+            throw UserError.abort("Cannot read the incremental build cache " + file + ": " + ex.getMessage());
+        }
+        return result;
+    }
+
+    private static void writeCacheFile(Path file, String header, List<String> lines) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(header);
+                writer.newLine();
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw UserError.abort("Cannot write the incremental build cache " + file + ": " + ex.getMessage());
+        }
+    }
+}
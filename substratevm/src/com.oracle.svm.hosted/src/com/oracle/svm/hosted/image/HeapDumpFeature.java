@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.nativeimage.Feature;
+import org.graalvm.nativeimage.ImageSingletons;
+
+import com.oracle.svm.core.VMInspection;
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.heapdump.HeapDumpMetadata;
+import com.oracle.svm.core.heapdump.HeapDumpWriter;
+import com.oracle.svm.core.util.VMError;
+import com.oracle.svm.hosted.FeatureImpl.BeforeCompilationAccessImpl;
+import com.oracle.svm.hosted.meta.HostedField;
+import com.oracle.svm.hosted.meta.HostedType;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaField;
+
+/**
+ * Computes the {@link HeapDumpMetadata} from the field layouts of all types once the layouts are
+ * final, i.e., before compilation.
+ */
+@AutomaticFeature
+public class HeapDumpFeature implements Feature {
+
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return VMInspection.isEnabled();
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        ImageSingletons.add(HeapDumpMetadata.class, new HeapDumpMetadata());
+    }
+
+    @Override
+    public void beforeCompilation(BeforeCompilationAccess a) {
+        BeforeCompilationAccessImpl access = (BeforeCompilationAccessImpl) a;
+
+        int typeCount = 0;
+        for (HostedType type : access.getUniverse().getTypes()) {
+            typeCount = Math.max(typeCount, type.getTypeID() + 1);
+        }
+        HostedType[] typesByID = new HostedType[typeCount];
+        for (HostedType type : access.getUniverse().getTypes()) {
+            typesByID[type.getTypeID()] = type;
+        }
+
+        int[] fieldStarts = new int[2 * typeCount + 1];
+        List<HostedField> fields = new ArrayList<>();
+        int[] instanceFieldsSizes = new int[typeCount];
+        byte[] arrayElementTypes = new byte[typeCount];
+        for (int typeID = 0; typeID < typeCount; typeID++) {
+            HostedType type = typesByID[typeID];
+            fieldStarts[2 * typeID] = fields.size();
+            if (type != null) {
+                for (HostedField field : type.getInstanceFields(false)) {
+                    if (field.hasLocation()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            fieldStarts[2 * typeID + 1] = fields.size();
+            if (type != null) {
+                for (ResolvedJavaField field : type.getStaticFields()) {
+                    if (((HostedField) field).hasLocation()) {
+                        fields.add((HostedField) field);
+                    }
+                }
+                instanceFieldsSizes[typeID] = computeInstanceFieldsSize(type);
+                if (type.isArray()) {
+                    arrayElementTypes[typeID] = basicType(type.getComponentType().getStorageKind());
+                }
+            }
+        }
+        fieldStarts[2 * typeCount] = fields.size();
+
+        String[] fieldNames = new String[fields.size()];
+        byte[] fieldTypes = new byte[fields.size()];
+        int[] fieldOffsets = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            HostedField field = fields.get(i);
+            fieldNames[i] = field.getName();
+            fieldTypes[i] = basicType(field.getStorageKind());
+            fieldOffsets[i] = field.getLocation();
+        }
+        ImageSingletons.lookup(HeapDumpMetadata.class).setData(fieldStarts, fieldNames, fieldTypes, fieldOffsets, instanceFieldsSizes, arrayElementTypes);
+    }
+
+    private static int computeInstanceFieldsSize(HostedType type) {
+        int size = 0;
+        for (HostedField field : type.getInstanceFields(true)) {
+            if (field.hasLocation()) {
+                size += HeapDumpWriter.getBasicTypeSize(basicType(field.getStorageKind()));
+            }
+        }
+        return size;
+    }
+
+    private static byte basicType(JavaKind kind) {
+        switch (kind) {
+            case Object:
+                return HeapDumpWriter.TYPE_OBJECT;
+            case Boolean:
+                return HeapDumpWriter.TYPE_BOOLEAN;
+            case Char:
+                return HeapDumpWriter.TYPE_CHAR;
+            case Float:
+                return HeapDumpWriter.TYPE_FLOAT;
+            case Double:
+                return HeapDumpWriter.TYPE_DOUBLE;
+            case Byte:
+                return HeapDumpWriter.TYPE_BYTE;
+            case Short:
+                return HeapDumpWriter.TYPE_SHORT;
+            case Int:
+                return HeapDumpWriter.TYPE_INT;
+            case Long:
+                return HeapDumpWriter.TYPE_LONG;
+            default:
+                throw VMError.shouldNotReachHere("Unexpected field kind: " + kind);
+        }
+    }
+}
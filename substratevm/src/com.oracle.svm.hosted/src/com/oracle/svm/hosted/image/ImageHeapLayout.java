@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.image;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.compiler.options.Option;
+
+import com.oracle.svm.core.hub.DynamicHub;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.util.UserError;
+import com.oracle.svm.hosted.image.NativeImageHeap.ObjectInfo;
+import com.oracle.svm.hosted.meta.HostedField;
+
+/**
+ * Orders the objects within each partition of the native image heap so that the objects that are
+ * accessed first at run time are packed together at the beginning of the partition. At startup,
+ * the image heap is then touched in few pages instead of page faults scattered over the whole
+ * image heap.
+ * <p>
+ * The access order is specified as a list of class names, in the order in which an instrumented
+ * run of the application used them the first time. The class loading log of the application on
+ * the Java HotSpot VM ({@code -verbose:class}) can be used directly. An object is ranked by the
+ * first listed class that it belongs to: its own class, the class that its {@link DynamicHub}
+ * describes, or the class with the static field from which it was reached first. Objects that
+ * belong to no listed class follow in discovery order, so the layout remains deterministic.
+ * <p>
+ * The grouping by mutability is provided by the partitions: read-only objects are in partitions
+ * that are mapped read-only, so their pages can be shared between processes that run the same
+ * image.
+ */
+final class ImageHeapLayout {
+
+    public static class Options {
+        @Option(help = "File with class names, one per line, in the order in which they are first used at run time. Image heap objects of these classes are placed first in their partition.")//
+        public static final HostedOptionKey<String> ImageHeapLayoutProfile = new HostedOptionKey<>("");
+    }
+
+    private static final String CLASS_LOADING_LOG_PREFIX = "[Loaded ";
+
+    private final Map<String, Integer> ranks;
+
+    private ImageHeapLayout(Map<String, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
+    /** Loads the profile specified by {@link Options#ImageHeapLayoutProfile}, or returns null. */
+    static ImageHeapLayout load() {
+        String file = Options.ImageHeapLayoutProfile.getValue();
+        if (file.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(file);
+        Map<String, Integer> ranks = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String className = parseClassName(line.trim());
+                if (className != null) {
+                    ranks.putIfAbsent(className, ranks.size());
+                }
+            }
+        } catch (IOException e) {
+            throw UserError.abort("Reading the image heap layout profile " + path + " failed: " + e.getMessage());
+        }
+        return new ImageHeapLayout(ranks);
+    }
+
+    private static String parseClassName(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        if (line.startsWith(CLASS_LOADING_LOG_PREFIX)) {
+            int end = line.indexOf(' ', CLASS_LOADING_LOG_PREFIX.length());
+            return end < 0 ? null : line.substring(CLASS_LOADING_LOG_PREFIX.length(), end);
+        }
+        return line;
+    }
+
+    /**
+     * Sorts the objects, which are in discovery order, by their rank. The sort is stable, so
+     * objects with the same rank keep their discovery order.
+     */
+    void sort(List<ObjectInfo> objects) {
+        Map<ObjectInfo, Integer> objectRanks = new HashMap<>();
+        for (ObjectInfo info : objects) {
+            objectRanks.put(info, rank(info));
+        }
+        Collections.sort(objects, Comparator.comparingInt(objectRanks::get));
+    }
+
+    private int rank(ObjectInfo info) {
+        int result = rank(info.getObject().getClass().getName());
+        if (info.getObject() instanceof DynamicHub) {
+            result = Math.min(result, rank(((DynamicHub) info.getObject()).getName()));
+        }
+        HostedField root = StaticStateReport.staticFieldRoot(info);
+        if (root != null) {
+            result = Math.min(result, rank(root.getDeclaringClass().toJavaName(true)));
+        }
+        return result;
+    }
+
+    private int rank(String className) {
+        Integer result = ranks.get(className);
+        return result != null ? result : Integer.MAX_VALUE;
+    }
+}
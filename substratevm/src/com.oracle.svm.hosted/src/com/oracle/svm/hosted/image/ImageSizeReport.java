@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.image;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.options.Option;
+
+import com.oracle.graal.pointsto.reports.ReportUtils;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.code.CodeInfoTable;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.hosted.image.NativeImageHeap.ObjectInfo;
+import com.oracle.svm.hosted.meta.HostedField;
+import com.oracle.svm.hosted.meta.HostedMethod;
+
+/**
+ * Reports where the bytes of the image go, in a tab separated format that is easy to process by
+ * scripts. Each line attributes a number of bytes and elements to one key of a category:
+ * <ul>
+ * <li>{@code code.method}: the machine code of a method.
+ * <li>{@code code.package}: the machine code of all methods declared in a package.
+ * <li>{@code heap.type}: the image heap objects of a type.
+ * <li>{@code heap.root}: the image heap objects that were added because of a root, i.e., the
+ * reason given when the first object on the path to them was added to the heap. An object
+ * reachable from multiple roots is attributed to the root it was first discovered from.
+ * <li>{@code metadata}: the arrays of the {@link CodeInfoTable} that encode the metadata of the
+ * code, e.g., frame and reference map information. These arrays are image heap objects, so they
+ * are part of the {@code heap.type} category too.
+ * </ul>
+ * <p>
+ * When the report of a previous build is specified as the baseline, a second report lists the
+ * keys whose size changed, ordered by the change, so that size regressions can be found in a
+ * continuous integration system by comparing against a known good build.
+ */
+public final class ImageSizeReport {
+
+    public static class Options {
+        @Option(help = "Print a report that attributes the code, image heap and metadata sizes of the image to methods, types and roots.")//
+        public static final HostedOptionKey<Boolean> PrintImageSizeReport = new HostedOptionKey<>(false);
+
+        @Option(help = "An image size report of a previous build. Prints the differences of this build to it.")//
+        public static final HostedOptionKey<String> ImageSizeReportBaseline = new HostedOptionKey<>("");
+    }
+
+    private static final String HEADER = "# Category\tKey\tBytes\tCount";
+    private static final String DIFF_HEADER = "# Category\tKey\tBytes\tBaselineBytes\tDelta";
+
+    static final class Entry {
+        final String category;
+        final String key;
+        long bytes;
+        long count;
+
+        Entry(String category, String key) {
+            this.category = category;
+            this.key = key;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private void add(String category, String key, long bytes) {
+        Entry entry = entries.computeIfAbsent(category + "\t" + key, k -> new Entry(category, key));
+        entry.bytes += bytes;
+        entry.count++;
+    }
+
+    public static void print(NativeImageCodeCache codeCache, NativeImageHeap heap) {
+        ImageSizeReport report = new ImageSizeReport();
+        report.collectCode(codeCache);
+        report.collectHeap(heap);
+        report.collectMetadata(heap);
+
+        List<Entry> sorted = new ArrayList<>(report.entries.values());
+        sorted.sort((e1, e2) -> {
+            int result = e1.category.compareTo(e2.category);
+            if (result == 0) {
+                result = Long.compare(e2.bytes, e1.bytes);
+            }
+            return result != 0 ? result : e1.key.compareTo(e2.key);
+        });
+
+        String reportsPath = SubstrateOptions.Path.getValue() + "/reports";
+        ReportUtils.report("image size attribution", reportsPath, "image_size", "txt", writer -> {
+            writer.println(HEADER);
+            for (Entry entry : sorted) {
+                writer.println(entry.category + "\t" + entry.key + "\t" + entry.bytes + "\t" + entry.count);
+            }
+            printTotals(writer, categoryTotals(sorted), null);
+        });
+
+        Map<String, Long> baseline = StaticStateReport.loadBaseline(Options.ImageSizeReportBaseline.getValue(), "image size report", parts -> parts[0] + "\t" + parts[1], 2);
+        if (baseline != null) {
+            ReportUtils.report("image size difference", reportsPath, "image_size_diff", "txt", writer -> printDiff(writer, sorted, baseline));
+        }
+    }
+
+    private void collectCode(NativeImageCodeCache codeCache) {
+        for (Map.Entry<HostedMethod, CompilationResult> entry : codeCache.getCompilations().entrySet()) {
+            HostedMethod method = entry.getKey();
+            int size = entry.getValue().getTargetCodeSize();
+            add("code.method", method.format("%H.%n(%p)"), size);
+            add("code.package", packageName(method.getDeclaringClass().toJavaName(true)), size);
+        }
+    }
+
+    private void collectHeap(NativeImageHeap heap) {
+        for (ObjectInfo info : StaticStateReport.distinctObjects(heap)) {
+            add("heap.type", info.getClazz().toJavaName(true), info.getSize());
+            add("heap.root", rootReason(info), info.getSize());
+        }
+    }
+
+    private void collectMetadata(NativeImageHeap heap) {
+        for (Map.Entry<String, Object> entry : CodeInfoTable.getImageCodeCache().getMetadataArrays().entrySet()) {
+            ObjectInfo info = entry.getValue() == null ? null : heap.objects.get(entry.getValue());
+            if (info != null) {
+                add("metadata", entry.getKey(), info.getSize());
+            }
+        }
+    }
+
+    private static String packageName(String className) {
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "<default>" : className.substring(0, index);
+    }
+
+    private static String rootReason(ObjectInfo info) {
+        HostedField field = StaticStateReport.staticFieldRoot(info);
+        if (field != null) {
+            return "static field " + field.format("%H.%n");
+        }
+        Object reason = StaticStateReport.rootReason(info);
+        if (reason == null) {
+            return "<unknown>";
+        }
+        /* Reasons are single line descriptions, but be safe for the tab separated format. */
+        return reason.toString().replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static Map<String, Long> categoryTotals(List<Entry> sorted) {
+        Map<String, Long> totals = new TreeMap<>();
+        for (Entry entry : sorted) {
+            totals.merge(entry.category, entry.bytes, Long::sum);
+        }
+        return totals;
+    }
+
+    private static void printTotals(PrintWriter writer, Map<String, Long> totals, Map<String, Long> baselineTotals) {
+        for (Map.Entry<String, Long> total : totals.entrySet()) {
+            String line = "# Total " + total.getKey() + ": " + total.getValue() + " bytes";
+            if (baselineTotals != null) {
+                long baselineTotal = baselineTotals.getOrDefault(total.getKey(), 0L);
+                line += ", baseline " + baselineTotal + " bytes, delta " + (total.getValue() - baselineTotal) + " bytes";
+            }
+            writer.println(line);
+        }
+    }
+
+    private static void printDiff(PrintWriter writer, List<Entry> sorted, Map<String, Long> baseline) {
+        Map<String, Long> current = new LinkedHashMap<>();
+        for (Entry entry : sorted) {
+            current.put(entry.category + "\t" + entry.key, entry.bytes);
+        }
+        Set<String> keys = new TreeSet<>(current.keySet());
+        keys.addAll(baseline.keySet());
+
+        Map<String, Long> totals = new TreeMap<>();
+        Map<String, Long> baselineTotals = new TreeMap<>();
+        List<String[]> changes = new ArrayList<>();
+        for (String key : keys) {
+            String category = key.substring(0, key.indexOf('\t'));
+            long bytes = current.getOrDefault(key, 0L);
+            long baselineBytes = baseline.getOrDefault(key, 0L);
+            totals.merge(category, bytes, Long::sum);
+            baselineTotals.merge(category, baselineBytes, Long::sum);
+            if (bytes != baselineBytes) {
+                changes.add(new String[]{key, Long.toString(bytes), Long.toString(baselineBytes), Long.toString(bytes - baselineBytes)});
+            }
+        }
+        /* Largest growth first, largest shrinking last. */
+        changes.sort((c1, c2) -> {
+            int result = Long.compare(Long.parseLong(c2[3]), Long.parseLong(c1[3]));
+            return result != 0 ? result : c1[0].compareTo(c2[0]);
+        });
+
+        writer.println(DIFF_HEADER);
+        for (String[] change : changes) {
+            writer.println(String.join("\t", change));
+        }
+        printTotals(writer, totals, baselineTotals);
+    }
+}
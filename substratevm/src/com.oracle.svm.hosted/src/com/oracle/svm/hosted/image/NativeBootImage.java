@@ -418,6 +418,9 @@ public abstract class NativeBootImage extends AbstractBootImage {
                 assert heapSectionBuffer == null;
                 heap.writeHeap(debug, roDataBuffer, rwDataBuffer);
             }
+            if (ImageSizeReport.Options.PrintImageSizeReport.getValue()) {
+                ImageSizeReport.print(codeCache, heap);
+            }
 
             // Mark the sections with the relocations from the maps.
             // - "null" as the objectMap is because relocations from text are always to constants.
@@ -43,6 +43,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import org.graalvm.compiler.api.replacements.Fold;
 import org.graalvm.compiler.core.common.CompressEncoding;
@@ -146,6 +148,29 @@ public final class NativeImageHeap {
 
         addObjectsPhase.disallow();
         assert addObjectWorklist.isEmpty();
+
+        layoutPartitions();
+
+        if (StaticStateReport.Options.PrintStaticStateReport.getValue()) {
+            StaticStateReport.print(this);
+        }
+    }
+
+    /**
+     * Assigns the offsets of the objects within their partitions, once all objects are known. The
+     * objects are in discovery order, unless an {@link ImageHeapLayout} profile orders them.
+     */
+    private void layoutPartitions() {
+        ImageHeapLayout heapLayout = ImageHeapLayout.load();
+        for (HeapPartition partition : new HeapPartition[]{readOnlyPrimitive, readOnlyReference, readOnlyRelocatable, writablePrimitive, writableReference}) {
+            if (heapLayout != null) {
+                heapLayout.sort(partition.unallocatedObjects);
+            }
+            for (ObjectInfo info : partition.unallocatedObjects) {
+                info.allocateInPartition(layout);
+            }
+            partition.unallocatedObjects.clear();
+        }
     }
 
     private static Object readObjectField(HostedField field, JavaConstant receiver) {
@@ -217,6 +242,12 @@ public final class NativeImageHeap {
      * Not every object is added to the heap, for various reasons.
      */
     public void addObject(DebugContext debug, final Object original, final boolean parentCanonicalizable, boolean immutableFromParent, final Object reason) {
+        addObject(debug, new AddObjectData(original, parentCanonicalizable, immutableFromParent, reason), Collections.emptyMap());
+    }
+
+    private void addObject(DebugContext debug, final AddObjectData data, Map<Object, ObjectScan> scans) {
+        final Object original = data.original;
+        final Object reason = data.reason;
         assert addObjectsPhase.isAllowed() : "Objects cannot be added at phase: " + addObjectsPhase.toString() + " with reason: " + reason;
 
         if (original == null || original instanceof WordBase) {
@@ -234,15 +265,12 @@ public final class NativeImageHeap {
             identityHashCode = System.identityHashCode(original);
         }
 
-        // Determine if the object is canonicalizable and if so canonicalize it.
-        // Canonicalization is used to construct singleton objects in the native image heap
-        // from possibly-distinct objects in the host heap.
-        // TODO: What I would like here is a method that takes an instance and whether its
-        // ... container is canonicalizable and returns a boolean about whether the instance is
-        // ... canonicalizable and the canonicalized instance. But I can not do that in Java.
-        final boolean canonicalizable = isCanonicalizable(original, parentCanonicalizable);
+        if (data.canonical == null) {
+            canonicalize(data);
+        }
+        final boolean canonicalizable = data.canonicalizable;
         debug.log("canonicalizable: %b", canonicalizable);
-        final Object canonical = canonicalizable ? canonicalize(original) : original;
+        final Object canonical = data.canonical;
 
         final ObjectInfo existing = objects.get(canonical);
         if (existing != null) {
@@ -252,10 +280,21 @@ public final class NativeImageHeap {
             }
             debug.log("already existing object");
         } else {
-            addObjectToBootImageHeap(original, canonical, canonicalizable, immutableFromParent, identityHashCode, reason);
+            addObjectToBootImageHeap(original, canonical, canonicalizable, data.immutableFromParent, identityHashCode, reason, scans.get(canonical));
         }
     }
 
+    private void canonicalize(AddObjectData data) {
+        // Determine if the object is canonicalizable and if so canonicalize it.
+        // Canonicalization is used to construct singleton objects in the native image heap
+        // from possibly-distinct objects in the host heap.
+        // TODO: What I would like here is a method that takes an instance and whether its
+        // ... container is canonicalizable and returns a boolean about whether the instance is
+        // ... canonicalizable and the canonicalized instance. But I can not do that in Java.
+        data.canonicalizable = isCanonicalizable(data.original, data.parentCanonicalizable);
+        data.canonical = data.canonicalizable ? canonicalize(data.original) : data.original;
+    }
+
     /**
      * Write the model of the native image heap to the RelocatableBuffers that represent the native
      * image.
@@ -374,9 +413,12 @@ public final class NativeImageHeap {
      * It has been determined that an object should be added to the model of the native image heap.
      * This is the mechanics of recursively adding the object and all its fields and array elements
      * to the model of the native image heap.
+     *
+     * @param scan the field values and array elements of the object if they have been read ahead,
+     *            or null
      */
     private void addObjectToBootImageHeap(final Object original, final Object canonicalObj, final boolean canonicalizable,
-                    boolean immutableFromParent, final int identityHashCode, final Object reason) {
+                    boolean immutableFromParent, final int identityHashCode, final Object reason, final ObjectScan scan) {
 
         final Optional<HostedType> optionalType = getMetaAccess().optionalLookupJavaType(canonicalObj.getClass());
         if (!optionalType.isPresent() || !optionalType.get().isInstantiated()) {
@@ -413,11 +455,7 @@ public final class NativeImageHeap {
             final long size;
 
             if (HybridLayout.isHybrid(clazz)) {
-                HybridLayout<?> hybridLayout = hybridLayouts.get(clazz);
-                if (hybridLayout == null) {
-                    hybridLayout = new HybridLayout<>(clazz, layout);
-                    hybridLayouts.put(clazz, hybridLayout);
-                }
+                HybridLayout<?> hybridLayout = getHybridLayout(clazz);
 
                 /*
                  * The hybrid array and bit set are written within the hybrid object. So they may
@@ -447,12 +485,14 @@ public final class NativeImageHeap {
             recursiveAddObject(hub, canonicalizable, false, info);
             // Recursively add all the fields of the object.
             final boolean fieldsAreImmutable = canonicalObj instanceof String;
-            for (HostedField field : clazz.getInstanceFields(true)) {
+            final HostedField[] fields = clazz.getInstanceFields(true);
+            for (int i = 0; i < fields.length; i++) {
+                final HostedField field = fields[i];
                 if (field.isAccessed() && !field.equals(hybridArrayField) && !field.equals(hybridBitsetField)) {
                     boolean fieldRelocatable = false;
                     if (field.getJavaKind() == JavaKind.Object) {
                         assert field.hasLocation();
-                        JavaConstant value = field.readValue(con);
+                        JavaConstant value = scan != null ? scan.fieldValues[i] : field.readValue(con);
                         if (value.getJavaKind() == JavaKind.Object) {
                             Object obj = SubstrateObjectConstant.asObject(value);
                             if (spawnIsolates()) {
@@ -473,7 +513,7 @@ public final class NativeImageHeap {
 
             }
             if (hybridArray instanceof Object[]) {
-                relocatable = addArrayElements((Object[]) hybridArray, relocatable, canonicalizable, info);
+                relocatable = addArrayElements((Object[]) hybridArray, scan, relocatable, canonicalizable, info);
                 references = true;
             }
         } else if (type.isArray()) {
@@ -482,7 +522,7 @@ public final class NativeImageHeap {
             info = addToImageHeap(original, canonicalObj, clazz, size, identityHashCode, reason);
             recursiveAddObject(hub, canonicalizable, false, info);
             if (canonicalObj instanceof Object[]) {
-                relocatable = addArrayElements((Object[]) canonicalObj, false, canonicalizable, info);
+                relocatable = addArrayElements((Object[]) canonicalObj, scan, false, canonicalizable, info);
                 references = true;
             }
             written = true; /* How to know if any of the array elements are written? */
@@ -491,7 +531,7 @@ public final class NativeImageHeap {
         }
 
         final HeapPartition partition = choosePartition(!written || immutable, references, relocatable);
-        info.assignToHeapPartition(partition, layout);
+        info.assignToHeapPartition(partition);
     }
 
     /** Determine if an object in the host heap will be immutable in the native image heap. */
@@ -538,10 +578,11 @@ public final class NativeImageHeap {
     }
 
     // Deep-copy an array from the host heap to the model of the native image heap.
-    private boolean addArrayElements(Object[] array, boolean otherFieldsRelocatable, boolean canonicalizable, Object reason) {
+    private boolean addArrayElements(Object[] array, ObjectScan scan, boolean otherFieldsRelocatable, boolean canonicalizable, Object reason) {
         boolean relocatable = otherFieldsRelocatable;
-        for (Object element : array) {
-            Object value = aUniverse.replaceObject(element);
+        final Object[] replacedElements = scan != null ? scan.elements : null;
+        for (int i = 0; i < array.length; i++) {
+            Object value = replacedElements != null ? replacedElements[i] : aUniverse.replaceObject(array[i]);
             if (spawnIsolates()) {
                 relocatable = relocatable || value instanceof RelocatedPointer;
             }
@@ -560,13 +601,121 @@ public final class NativeImageHeap {
         }
     }
 
+    /**
+     * Process the worklist in waves: the fields of all objects of a wave are read in parallel, and
+     * then the objects are added to the model of the native image heap sequentially, in worklist
+     * order, which pushes the objects of the next wave. Reading the fields, including the object
+     * replacement of the analysis, is the expensive part. Adding the objects in a fixed order keeps
+     * the layout of the native image heap deterministic, and the same with and without
+     * {@link NativeImageOptions#ParallelImageHeapScanning}.
+     * <p>
+     * Because whole waves are drained, the objects are discovered breadth-first, level by level,
+     * and no longer depth-first as when the worklist was popped one object at a time. The order
+     * of the objects within their partitions, and so the layout of the native image heap, differs
+     * from images built before. An {@link ImageHeapLayout} profile still orders the objects it
+     * ranks, but the unranked objects are in the new order.
+     */
     private void processAddObjectWorklist(DebugContext debug) {
         while (!addObjectWorklist.isEmpty()) {
-            AddObjectData data = addObjectWorklist.pop();
-            addObject(debug, data.original, data.parentCanonicalizable, data.immutableFromParent, data.reason);
+            final List<AddObjectData> wave = new ArrayList<>(addObjectWorklist.size());
+            while (!addObjectWorklist.isEmpty()) {
+                wave.add(addObjectWorklist.pop());
+            }
+            final Map<Object, ObjectScan> scans = scanObjects(wave);
+            for (AddObjectData data : wave) {
+                addObject(debug, data, scans);
+            }
         }
     }
 
+    /**
+     * Read ahead the fields of the objects of a wave that are not yet in the heap, in parallel. The
+     * fields are read from the canonical objects, which are also the keys of the returned map.
+     */
+    private Map<Object, ObjectScan> scanObjects(List<AddObjectData> wave) {
+        if (!NativeImageOptions.ParallelImageHeapScanning.getValue() || wave.size() < MIN_PARALLEL_SCAN_WAVE_SIZE) {
+            return Collections.emptyMap();
+        }
+        final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<Object> toScan = new ArrayList<>();
+        for (AddObjectData data : wave) {
+            final Object object = data.original;
+            if (object != null && !(object instanceof WordBase) && !(object instanceof Class)) {
+                /*
+                 * Canonicalize in worklist order, like adding the objects one by one does, so the
+                 * canonical objects are the same as without the read-ahead.
+                 */
+                canonicalize(data);
+                if (!objects.containsKey(data.canonical) && seen.add(data.canonical)) {
+                    toScan.add(data.canonical);
+                }
+            }
+        }
+        /* The tasks only read: the objects map and the worklist are not modified concurrently. */
+        final ObjectScan[] results = new ObjectScan[toScan.size()];
+        IntStream.range(0, results.length).parallel().forEach(i -> results[i] = scanObject(toScan.get(i)));
+
+        final Map<Object, ObjectScan> scans = new IdentityHashMap<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                scans.put(toScan.get(i), results[i]);
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * Read the values of the object fields of an instance and the replaced elements of an object
+     * array (or of the array of a hybrid object). Returns null if there is nothing to read ahead,
+     * or if reading fails with an exception, in which case {@link #addObjectToBootImageHeap} reads
+     * the values again and reports the failure. Errors are not recoverable and are rethrown.
+     */
+    private ObjectScan scanObject(Object object) {
+        try {
+            final Optional<HostedType> optionalType = getMetaAccess().optionalLookupJavaType(object.getClass());
+            if (!optionalType.isPresent() || !optionalType.get().isInstantiated()) {
+                return null;
+            }
+            final HostedType type = optionalType.get();
+            if (type.isInstanceClass()) {
+                final HostedInstanceClass clazz = (HostedInstanceClass) type;
+                final JavaConstant con = SubstrateObjectConstant.forObject(object);
+                final HostedField[] fields = clazz.getInstanceFields(true);
+                final JavaConstant[] fieldValues = new JavaConstant[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    if (fields[i].isAccessed() && fields[i].getJavaKind() == JavaKind.Object) {
+                        fieldValues[i] = fields[i].readValue(con);
+                    }
+                }
+                Object[] elements = null;
+                if (HybridLayout.isHybrid(clazz)) {
+                    final Object hybridArray = readObjectField(getHybridLayout(clazz).getArrayField(), con);
+                    if (hybridArray instanceof Object[]) {
+                        elements = replaceElements((Object[]) hybridArray);
+                    }
+                }
+                return new ObjectScan(fieldValues, elements);
+            } else if (object instanceof Object[]) {
+                return new ObjectScan(null, replaceElements((Object[]) object));
+            }
+            return null;
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private Object[] replaceElements(Object[] array) {
+        final Object[] result = new Object[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = aUniverse.replaceObject(array[i]);
+        }
+        return result;
+    }
+
+    private HybridLayout<?> getHybridLayout(HostedClass clazz) {
+        return hybridLayouts.computeIfAbsent(clazz, c -> new HybridLayout<>((HostedInstanceClass) c, layout));
+    }
+
     private void writeStaticFields(RelocatableBuffer buffer) {
         /*
          * Write the values of static fields. The arrays for primitive and object fields are empty
@@ -973,7 +1122,7 @@ public final class NativeImageHeap {
     private final Set<Object> blacklist = Collections.newSetFromMap(new IdentityHashMap<>());
 
     /** A map from hosted classes to classes that have hybrid layouts in the native image heap. */
-    private final Map<HostedClass, HybridLayout<?>> hybridLayouts = new HashMap<>();
+    private final Map<HostedClass, HybridLayout<?>> hybridLayouts = new ConcurrentHashMap<>();
 
     /** A Map to build what will be the String intern map in the native image heap. */
     private final Map<String, String> internedStrings = new HashMap<>();
@@ -1002,6 +1151,25 @@ public final class NativeImageHeap {
     private final HeapPartition writablePrimitive;
     private final HeapPartition writableReference;
 
+    /** Waves of the worklist that are smaller than this are not worth scanning in parallel. */
+    private static final int MIN_PARALLEL_SCAN_WAVE_SIZE = 256;
+
+    /**
+     * The field values of an instance and the replaced elements of an object array (or of the
+     * array of a hybrid object), read ahead by {@link #scanObjects}.
+     */
+    static final class ObjectScan {
+
+        ObjectScan(JavaConstant[] fieldValues, Object[] elements) {
+            this.fieldValues = fieldValues;
+            this.elements = elements;
+        }
+
+        /** Indexed like {@link HostedType#getInstanceFields(boolean) getInstanceFields(true)}. */
+        final JavaConstant[] fieldValues;
+        final Object[] elements;
+    }
+
     static class AddObjectData {
 
         AddObjectData(Object original, boolean parentCanonicalizable, boolean immutableFromParent, Object reason) {
@@ -1016,6 +1184,10 @@ public final class NativeImageHeap {
         final boolean parentCanonicalizable;
         final boolean immutableFromParent;
         final Object reason;
+
+        /** Set by {@link NativeImageHeap#canonicalize(AddObjectData)}, before the object is added. */
+        Object canonical;
+        boolean canonicalizable;
     }
 
     public static final class ObjectInfo {
@@ -1130,9 +1302,14 @@ public final class NativeImageHeap {
             this.reason = reason;
         }
 
-        void assignToHeapPartition(HeapPartition objectPartition, ObjectLayout layout) {
+        void assignToHeapPartition(HeapPartition objectPartition) {
             assert partition == null;
             partition = objectPartition;
+            partition.unallocatedObjects.add(this);
+        }
+
+        void allocateInPartition(ObjectLayout layout) {
+            assert offsetInPartition == -1L;
             offsetInPartition = partition.allocate(this);
             assert layout.isAligned(offsetInPartition) : "start: " + offsetInPartition + " must be aligned.";
             assert layout.isAligned(size) : "size: " + size + " must be aligned.";
@@ -1276,6 +1453,8 @@ public final class NativeImageHeap {
         private long size;
         /** The number of objects in this partition. */
         private long count;
+        /** The objects assigned to this partition that do not have an offset yet. */
+        final List<ObjectInfo> unallocatedObjects = new ArrayList<>();
 
         Object firstAllocatedObject;
         Object lastAllocatedObject;
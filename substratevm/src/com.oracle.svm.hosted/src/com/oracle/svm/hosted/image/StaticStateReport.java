@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.image;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.Bytecodes;
+import org.graalvm.compiler.options.Option;
+
+import com.oracle.graal.pointsto.reports.ReportUtils;
+import com.oracle.svm.core.SubstrateOptions;
+import com.oracle.svm.core.option.HostedOptionKey;
+import com.oracle.svm.core.util.UserError;
+import com.oracle.svm.hosted.image.NativeImageHeap.ObjectInfo;
+import com.oracle.svm.hosted.meta.HostedField;
+import com.oracle.svm.hosted.meta.HostedType;
+
+import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Reports the static state that the image build snapshots into the native image heap. All classes
+ * of the image are initialized during the image build, and the objects reachable from their static
+ * fields become part of the image heap, so the static initializers do not run at image startup.
+ * <p>
+ * For each class, the report lists the objects and bytes of the image heap that were added because
+ * of the static fields of the class. An object reachable from multiple roots is attributed to the
+ * root it was first discovered from. The report also lists, for each class, the calls in its
+ * static initializer whose result depends on the environment of the image build, e.g., reading
+ * system properties or the current time. The values computed by such calls are frozen into the
+ * image, which is usually unintended. Only the calls directly in the static initializer are found.
+ * <p>
+ * When a baseline report of a previous build is specified, the difference of the bytes of each
+ * class to the baseline is reported too.
+ */
+public final class StaticStateReport {
+
+    public static class Options {
+        @Option(help = "Print a report of the static state of each class that is snapshotted into the native image heap.")//
+        public static final HostedOptionKey<Boolean> PrintStaticStateReport = new HostedOptionKey<>(false);
+
+        @Option(help = "A static state report of a previous build to compare the static state of this build with.")//
+        public static final HostedOptionKey<String> StaticStateReportBaseline = new HostedOptionKey<>("");
+    }
+
+    /** Methods whose result depends on the environment in which the static initializer runs. */
+    private static final Set<String> ENVIRONMENT_DEPENDENT_METHODS = new HashSet<>(Arrays.asList(
+                    "java.lang.System.getProperty",
+                    "java.lang.System.getProperties",
+                    "java.lang.System.getenv",
+                    "java.lang.System.currentTimeMillis",
+                    "java.lang.System.nanoTime",
+                    "java.lang.Boolean.getBoolean",
+                    "java.lang.Integer.getInteger",
+                    "java.lang.Long.getLong",
+                    "java.lang.Runtime.availableProcessors",
+                    "java.lang.Runtime.maxMemory",
+                    "java.lang.Runtime.totalMemory",
+                    "java.lang.Runtime.freeMemory",
+                    "java.lang.Thread.start",
+                    "java.lang.Math.random",
+                    "java.util.Random.<init>",
+                    "java.net.InetAddress.getLocalHost"));
+
+    private static final String HEADER = "# Bytes\tObjects\tBaselineDelta\tClass\tEnvironmentDependentCalls";
+
+    static final class ClassState {
+        long bytes;
+        long objects;
+        Set<String> environmentCalls = new TreeSet<>();
+    }
+
+    public static void print(NativeImageHeap heap) {
+        Map<HostedType, ClassState> states = new HashMap<>();
+
+        for (ObjectInfo info : distinctObjects(heap)) {
+            HostedField root = staticFieldRoot(info);
+            if (root != null) {
+                ClassState state = states.computeIfAbsent(root.getDeclaringClass(), t -> new ClassState());
+                state.bytes += info.getSize();
+                state.objects++;
+            }
+        }
+        for (HostedType type : heap.getUniverse().getTypes()) {
+            ResolvedJavaMethod clinit = type.getWrapped().getWrapped().getClassInitializer();
+            if (clinit != null && clinit.getCode() != null) {
+                Set<String> calls = findEnvironmentDependentCalls(clinit);
+                if (!calls.isEmpty()) {
+                    states.computeIfAbsent(type, t -> new ClassState()).environmentCalls.addAll(calls);
+                }
+            }
+        }
+
+        Map<String, Long> baseline = loadBaseline(Options.StaticStateReportBaseline.getValue(), "static state report", parts -> parts[3], 0);
+        List<Map.Entry<HostedType, ClassState>> entries = new ArrayList<>(states.entrySet());
+        entries.sort((e1, e2) -> {
+            int result = Long.compare(e2.getValue().bytes, e1.getValue().bytes);
+            return result != 0 ? result : e1.getKey().toJavaName(true).compareTo(e2.getKey().toJavaName(true));
+        });
+
+        ReportUtils.report("static state snapshot", SubstrateOptions.Path.getValue() + "/reports", "static_state", "txt", writer -> {
+            writer.println(HEADER);
+            long totalBytes = 0;
+            for (Map.Entry<HostedType, ClassState> entry : entries) {
+                String className = entry.getKey().toJavaName(true);
+                ClassState state = entry.getValue();
+                totalBytes += state.bytes;
+                String delta = baseline == null ? "" : Long.toString(state.bytes - baseline.getOrDefault(className, 0L));
+                writer.println(state.bytes + "\t" + state.objects + "\t" + delta + "\t" + className + "\t" + String.join(",", state.environmentCalls));
+            }
+            printSummary(writer, totalBytes, entries.size(), baseline);
+        });
+    }
+
+    private static void printSummary(PrintWriter writer, long totalBytes, int classes, Map<String, Long> baseline) {
+        writer.println("# Total: " + totalBytes + " bytes of static state in " + classes + " classes");
+        if (baseline != null) {
+            long baselineBytes = baseline.values().stream().mapToLong(Long::longValue).sum();
+            writer.println("# Baseline: " + baselineBytes + " bytes, delta " + (totalBytes - baselineBytes) + " bytes");
+        }
+    }
+
+    /** Returns the objects of the image heap, each object once. */
+    static Set<ObjectInfo> distinctObjects(NativeImageHeap heap) {
+        /* heap.objects has some ObjectInfo values registered for multiple keys. */
+        Set<ObjectInfo> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+        objects.addAll(heap.objects.values());
+        return objects;
+    }
+
+    /** Returns the reason of the first object on the path the object was discovered from. */
+    static Object rootReason(ObjectInfo info) {
+        Object reason = info.reason;
+        while (reason instanceof ObjectInfo) {
+            reason = ((ObjectInfo) reason).reason;
+        }
+        return reason;
+    }
+
+    /** Returns the static field from which the object was first discovered, or null. */
+    static HostedField staticFieldRoot(ObjectInfo info) {
+        Object reason = rootReason(info);
+        return reason instanceof HostedField ? (HostedField) reason : null;
+    }
+
+    private static Set<String> findEnvironmentDependentCalls(ResolvedJavaMethod clinit) {
+        Set<String> result = new TreeSet<>();
+        for (BytecodeStream stream = new BytecodeStream(clinit.getCode()); stream.currentBC() != Bytecodes.END; stream.next()) {
+            int opcode = stream.currentBC();
+            if (opcode == Bytecodes.INVOKEVIRTUAL || opcode == Bytecodes.INVOKESPECIAL || opcode == Bytecodes.INVOKESTATIC || opcode == Bytecodes.INVOKEINTERFACE) {
+                JavaMethod target = clinit.getConstantPool().lookupMethod(stream.readCPI(), opcode);
+                String name = target.getDeclaringClass().toJavaName(true) + "." + target.getName();
+                if (ENVIRONMENT_DEPENDENT_METHODS.contains(name)) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the bytes per key of a tab separated report of a previous build, or returns null if no
+     * baseline file is specified. Lines starting with {@code #} are comments.
+     */
+    static Map<String, Long> loadBaseline(String file, String reportName, Function<String[], String> key, int bytesColumn) {
+        if (file.isEmpty()) {
+            return null;
+        }
+        Map<String, Long> result = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t", -1);
+                if (parts.length < 4) {
+                    throw UserError.abort("Malformed line in " + reportName + " " + file + ": " + line);
+                }
+                result.put(key.apply(parts), Long.parseLong(parts[bytesColumn]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw UserError.abort("Reading the " + reportName + " " + file + " failed: " + e.getMessage());
+        }
+        return result;
+    }
+}
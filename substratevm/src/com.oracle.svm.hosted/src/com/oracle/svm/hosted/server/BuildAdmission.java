@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Decides when an image build request that the {@link NativeImageBuildServer} received may start.
+ * Builds run concurrently up to a maximum number, and a build only starts next to running builds
+ * when the heap has room for it. The heap that a build needs is estimated from the peak heap usage
+ * of builds that ran alone, so the first builds run one at a time. A build always starts when no
+ * other build is running, so a server with a small heap still makes progress.
+ * <p>
+ * Admitted builds load their classes and parse their options concurrently, but the image
+ * generation itself still runs one build at a time, see
+ * {@link com.oracle.svm.hosted.NativeImageGenerator#run}, because it sets process-global state.
+ */
+final class BuildAdmission {
+
+    private final int maxConcurrentBuilds;
+    /** Guarded by this. */
+    private int runningBuilds;
+    /** The largest increase of the heap usage during a build that ran alone, or 0 if unknown. */
+    private long estimatedBuildMemory;
+    /** Whether the running build started alone and no other build started since. */
+    private boolean measuring;
+    private long usedMemoryAtStart;
+
+    BuildAdmission(int maxConcurrentBuilds) {
+        this.maxConcurrentBuilds = Math.max(1, maxConcurrentBuilds);
+    }
+
+    /** Waits until a new build may start, and registers it as running. */
+    synchronized void acquire() throws InterruptedException {
+        while (runningBuilds > 0 && (runningBuilds >= maxConcurrentBuilds || !hasMemoryForAnotherBuild())) {
+            wait();
+        }
+        runningBuilds++;
+        measuring = runningBuilds == 1;
+        if (measuring) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+            usedMemoryAtStart = usedMemory();
+        }
+    }
+
+    /** Unregisters a build that has finished, and lets waiting builds start. */
+    synchronized void release() {
+        if (measuring && runningBuilds == 1) {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            estimatedBuildMemory = Math.max(estimatedBuildMemory, peak - usedMemoryAtStart);
+        }
+        measuring = false;
+        runningBuilds--;
+        notifyAll();
+    }
+
+    synchronized int getRunningBuilds() {
+        return runningBuilds;
+    }
+
+    private boolean hasMemoryForAnotherBuild() {
+        if (estimatedBuildMemory == 0) {
+            return false;
+        }
+        return Runtime.getRuntime().maxMemory() - usedMemory() >= estimatedBuildMemory;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
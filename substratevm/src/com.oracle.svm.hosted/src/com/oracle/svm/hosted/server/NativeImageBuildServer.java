@@ -31,6 +31,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.net.InetAddress;
@@ -45,23 +46,19 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.ResourceBundle;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.logging.LogManager;
 import java.util.stream.Collectors;
@@ -83,35 +80,45 @@ public final class NativeImageBuildServer {
     public static final String IMAGE_CLASSPATH_PREFIX = "-imagecp";
     public static final String PORT_LOG_MESSAGE_PREFIX = "Started image build server on port: ";
     private static final String TASK_PREFIX = "-task=";
+    public static final String BUILD_ID_PREFIX = "-buildId=";
     static final String PORT_PREFIX = "-port=";
     private static final String LOG_PREFIX = "-logFile=";
+    private static final String MAX_CONCURRENT_BUILDS_PREFIX = "-maxConcurrentBuilds=";
     private static final int TIMEOUT_MINUTES = 240;
     private static final String SUBSTRATEVM_VERSION_PROPERTY = "substratevm.version";
     private static final int SERVER_THREAD_POOL_SIZE = 4;
     private static final int FAILED_EXIT_STATUS = -1;
 
-    private static Set<ImageBuildTask> tasks = Collections.synchronizedSet(new HashSet<>());
-
     private boolean terminated;
     private final int port;
     private PrintStream logOutput;
 
     /*
-     * This is done as System.err and System.logOutput are replaced by reference during analysis.
+     * System.out and System.err are replaced during image building by streams that forward the
+     * output of each build to the client that requested it. This is done as System.err and
+     * System.out are replaced by reference during analysis. Output of threads that belong to no
+     * build goes to the server log.
      */
-    private final StreamingServerMessageOutputStream outJSONStream = new StreamingServerMessageOutputStream(ServerCommand.WRITE_OUT, null);
-    private final StreamingServerMessageOutputStream errorJSONStream = new StreamingServerMessageOutputStream(ServerCommand.WRITE_ERR, null);
-    private final PrintStream serverStdout = new PrintStream(outJSONStream, true);
-    private final PrintStream serverStderr = new PrintStream(errorJSONStream, true);
-
-    private final AtomicLong activeBuildTasks = new AtomicLong();
-    private Instant lastKeepAliveAction = Instant.now();
+    private final PrintStream serverStdout = new PrintStream(new BuildOutputDispatcher(false), true);
+    private final PrintStream serverStderr = new PrintStream(new BuildOutputDispatcher(true), true);
+
+    /* The state of the JVM before the first of the concurrently running builds started. */
+    private final Object jvmContextLock = new Object();
+    private int buildsInJVMContext;
+    private Properties previousProperties;
+    private PrintStream previousOut;
+    private PrintStream previousErr;
+
+    private final BuildAdmission admission;
+    private volatile Instant lastKeepAliveAction = Instant.now();
     private ThreadPoolExecutor threadPoolExecutor;
 
-    private NativeImageBuildServer(int port, PrintStream logOutput) {
+    private NativeImageBuildServer(int port, PrintStream logOutput, int maxConcurrentBuilds) {
         this.port = port;
         this.logOutput = logOutput;
-        threadPoolExecutor = new ThreadPoolExecutor(SERVER_THREAD_POOL_SIZE, SERVER_THREAD_POOL_SIZE, Long.MAX_VALUE, TimeUnit.DAYS, new LinkedBlockingQueue<>());
+        this.admission = new BuildAdmission(maxConcurrentBuilds);
+        /* Build requests wait for admission in their thread, so the pool must not be bounded. */
+        threadPoolExecutor = new ThreadPoolExecutor(SERVER_THREAD_POOL_SIZE, Integer.MAX_VALUE, 1, TimeUnit.MINUTES, new SynchronousQueue<>());
 
         /*
          * Set the right classloader in the process reaper
@@ -140,7 +147,8 @@ public final class NativeImageBuildServer {
 
     private static void printUsageAndExit() {
         System.out.println("Usage:");
-        System.out.println(String.format("  java -cp <compiler_class_path> " + NativeImageBuildServer.class.getName() + " %s<port_number> %s<log_file>", PORT_PREFIX, LOG_PREFIX));
+        System.out.println(String.format("  java -cp <compiler_class_path> " + NativeImageBuildServer.class.getName() + " %s<port_number> %s<log_file> [%s<number>]",
+                        PORT_PREFIX, LOG_PREFIX, MAX_CONCURRENT_BUILDS_PREFIX));
         System.exit(FAILED_EXIT_STATUS);
     }
 
@@ -157,6 +165,7 @@ public final class NativeImageBuildServer {
             printUsageAndExit();
         } else {
             Optional<String> logFile = extractLogFile(args);
+            int maxConcurrentBuilds = extractMaxConcurrentBuilds(args);
             PrintStream output = System.out;
             try {
                 if (logFile.isPresent()) {
@@ -167,7 +176,7 @@ public final class NativeImageBuildServer {
                     }
                     output = new PrintStream(new FileOutputStream(file));
                 }
-                new NativeImageBuildServer(port.get(), output).serve();
+                new NativeImageBuildServer(port.get(), output, maxConcurrentBuilds).serve();
             } catch (IOException e) {
                 System.err.println("Starting server failed with an exception: " + e);
                 System.exit(FAILED_EXIT_STATUS);
@@ -185,6 +194,21 @@ public final class NativeImageBuildServer {
         return portArg.map(arg -> arg.substring(LOG_PREFIX.length()));
     }
 
+    /**
+     * Image builds use all processors, so running more builds than a few concurrently only adds
+     * memory pressure. The default allows one build per eight processors.
+     */
+    private static int extractMaxConcurrentBuilds(List<String> args) {
+        Optional<String> arg = extractArg(args, MAX_CONCURRENT_BUILDS_PREFIX);
+        try {
+            return arg.map(a -> Integer.parseInt(a.substring(MAX_CONCURRENT_BUILDS_PREFIX.length()))).orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 8));
+        } catch (NumberFormatException ignored) {
+            System.err.println("error: invalid number of concurrent builds");
+            System.exit(FAILED_EXIT_STATUS);
+            return 1;
+        }
+    }
+
     static Optional<Integer> extractPort(List<String> args) {
         Optional<String> portArg = extractArg(args, PORT_PREFIX);
         try {
@@ -223,7 +247,7 @@ public final class NativeImageBuildServer {
             while (true) {
                 Socket socket = serverSocket.accept();
 
-                log("Accepted request from " + socket.getInetAddress().getHostName() + ". Queuing to position: " + threadPoolExecutor.getQueue().size() + "\n");
+                log("Accepted request from " + socket.getInetAddress().getHostName() + ". Running builds: " + admission.getRunningBuilds() + "\n");
                 threadPoolExecutor.execute(() -> {
                     if (!processRequest(socket)) {
                         closeServerSocket(serverSocket);
@@ -276,10 +300,12 @@ public final class NativeImageBuildServer {
         } finally {
             closeConnection(socket);
             log("Connection with the client closed.\n");
-            // Remove the application class loader and save a GC on the next compilation
-            System.gc();
-            System.runFinalization();
-            System.gc();
+            if (admission.getRunningBuilds() == 0) {
+                // Remove the application class loader and save a GC on the next compilation
+                System.gc();
+                System.runFinalization();
+                System.gc();
+            }
             log("Available Memory: " + Runtime.getRuntime().freeMemory() + "\n");
         }
         return true;
@@ -305,54 +331,44 @@ public final class NativeImageBuildServer {
                 SubstrateServerMessage.send(new SubstrateServerMessage(serverCommand.command, System.getProperty(SUBSTRATEVM_VERSION_PROPERTY).getBytes()), output);
                 return Instant.now().isBefore(lastKeepAliveAction.plus(Duration.ofMinutes(TIMEOUT_MINUTES)));
             case BUILD_IMAGE:
+                final ArrayList<String> arguments = new ArrayList<>(Arrays.asList(serverCommand.payloadString().split("\\s+?")));
+                String buildId = extractArg(arguments, BUILD_ID_PREFIX).map(arg -> arg.substring(BUILD_ID_PREFIX.length())).orElse("");
+                RunningBuild build = new RunningBuild(buildId, socket.getOutputStream());
+                build.register();
                 try {
-                    long activeTasks = activeBuildTasks.incrementAndGet();
-                    if (activeTasks > 1) {
-                        String message = "Can not build image: tasks are already running in the server.\n";
+                    try {
+                        admission.acquire();
+                    } catch (InterruptedException e) {
+                        String message = "Can not build image: the server was interrupted while the build was waiting to start.\n";
                         log(message);
                         sendError(output, message);
                         sendExitStatus(output, -1);
-                    } else {
+                        return true;
+                    }
+                    try {
+                        if (build.isAborted()) {
+                            log("Build %s was aborted before it started.\n", buildId);
+                            sendExitStatus(output, -1);
+                            return true;
+                        }
                         log("Starting compilation for request:\n%s\n", serverCommand.payloadString());
-                        final ArrayList<String> arguments = new ArrayList<>(Arrays.asList(serverCommand.payloadString().split("\\s+?")));
-
-                        errorJSONStream.writingInterrupted(false);
-                        errorJSONStream.setOriginal(socket.getOutputStream());
-                        outJSONStream.writingInterrupted(false);
-                        outJSONStream.setOriginal(socket.getOutputStream());
 
-                        int exitStatus = withJVMContext(
-                                        serverStdout,
-                                        serverStderr,
-                                        () -> executeCompilation(arguments));
+                        int exitStatus = withJVMContext(build, () -> executeCompilation(build, arguments));
                         sendExitStatus(output, exitStatus);
                         log("Image building completed.\n");
 
                         lastKeepAliveAction = Instant.now();
+                    } finally {
+                        admission.release();
                     }
                 } finally {
-                    activeBuildTasks.decrementAndGet();
+                    build.unregister();
                 }
                 return true;
             case ABORT_BUILD:
-                log("Received 'abort' request. Interrupting all image build tasks.\n");
-                /*
-                 * Busy wait for all writing to complete, otherwise JSON messages are malformed.
-                 */
-                errorJSONStream.writingInterrupted(true);
-                outJSONStream.writingInterrupted(true);
-
-                // Checkstyle: stop
-                // noinspection StatementWithEmptyBody
-                while (errorJSONStream.isWriting() || outJSONStream.isWriting()) {
-                }
-                // Checkstyle: start
-
-                outJSONStream.flush();
-                errorJSONStream.flush();
-                for (ImageBuildTask task : tasks) {
-                    threadPoolExecutor.submit(task::interruptBuild);
-                }
+                String abortId = serverCommand.payloadString().trim();
+                int aborted = RunningBuild.abort(abortId, threadPoolExecutor);
+                log("Received 'abort' request for build %s. Interrupted %d image build tasks.\n", abortId, aborted);
                 sendExitStatus(output, 0);
                 return true;
             default:
@@ -378,38 +394,59 @@ public final class NativeImageBuildServer {
         }
     }
 
-    private static Integer executeCompilation(ArrayList<String> arguments) {
+    private static Integer executeCompilation(RunningBuild build, ArrayList<String> arguments) {
         final String[] classpath = NativeImageGeneratorRunner.extractImageClassPath(arguments);
         URLClassLoader imageClassLoader;
         ClassLoader applicationClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             imageClassLoader = NativeImageGeneratorRunner.installNativeImageClassLoader(classpath);
             final ImageBuildTask task = loadCompilationTask(arguments, imageClassLoader);
-            try {
-                tasks.add(task);
-                return task.build(arguments.toArray(new String[arguments.size()]), classpath, imageClassLoader);
-            } finally {
-                tasks.remove(task);
-            }
+            build.setTask(task);
+            return task.build(arguments.toArray(new String[arguments.size()]), classpath, imageClassLoader);
         } finally {
             Thread.currentThread().setContextClassLoader(applicationClassLoader);
         }
     }
 
-    private static int withJVMContext(PrintStream out, PrintStream err, Supplier<Integer> body) {
-        Properties previousProperties = (Properties) System.getProperties().clone();
-        PrintStream previousOut = System.out;
-        PrintStream previousErr = System.err;
-
-        System.setOut(out);
-        System.setErr(err);
-        ResourceBundle.clearCache();
+    /**
+     * Runs a build with the output of the build forwarded to its client. The JVM is reset to its
+     * state before the builds when the last of the concurrently running builds finishes.
+     */
+    private int withJVMContext(RunningBuild build, Supplier<Integer> body) {
+        enterJVMContext();
         try {
-            return body.get();
-        } catch (Throwable t) {
-            t.printStackTrace();
-            throw t;
+            return build.run(() -> {
+                try {
+                    return body.get();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    throw t;
+                }
+            });
         } finally {
+            exitJVMContext();
+        }
+    }
+
+    private void enterJVMContext() {
+        synchronized (jvmContextLock) {
+            if (buildsInJVMContext++ == 0) {
+                previousProperties = (Properties) System.getProperties().clone();
+                previousOut = System.out;
+                previousErr = System.err;
+
+                System.setOut(serverStdout);
+                System.setErr(serverStderr);
+            }
+            ResourceBundle.clearCache();
+        }
+    }
+
+    private void exitJVMContext() {
+        synchronized (jvmContextLock) {
+            if (--buildsInJVMContext > 0) {
+                return;
+            }
             System.setProperties(previousProperties);
             System.setOut(previousOut);
             System.setErr(previousErr);
@@ -427,6 +464,39 @@ public final class NativeImageBuildServer {
         }
     }
 
+    /** Forwards the output of a thread to its build, or to the server log. */
+    private final class BuildOutputDispatcher extends OutputStream {
+        private final boolean error;
+
+        BuildOutputDispatcher(boolean error) {
+            this.error = error;
+        }
+
+        private OutputStream current() {
+            RunningBuild build = RunningBuild.current();
+            if (build == null) {
+                /* Not a build thread, or a thread that outlived its build. */
+                return logOutput;
+            }
+            return error ? build.err : build.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+
     private static void resetGlobalStateInLoggers() {
         LogManager.getLogManager().reset();
         withGlobalStaticField("java.util.logging.Level$KnownLevel", "nameToLevels", NativeImageBuildServer::removeImageLoggers);
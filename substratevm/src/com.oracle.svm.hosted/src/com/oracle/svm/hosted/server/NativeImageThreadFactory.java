@@ -31,6 +31,12 @@ public class NativeImageThreadFactory implements ForkJoinPool.ForkJoinWorkerThre
     @Override
     public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
         ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                /* The common pool is shared by all builds, its workers must not keep a build. */
+                RunningBuild.detachCurrentThread();
+            }
         };
         thread.setContextClassLoader(NativeImageBuildServer.class.getClassLoader());
         return thread;
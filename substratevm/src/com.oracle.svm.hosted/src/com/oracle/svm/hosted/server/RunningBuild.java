@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.oracle.svm.hosted.ImageBuildTask;
+import com.oracle.svm.hosted.server.SubstrateServerMessage.ServerCommand;
+
+/**
+ * An image build request that the {@link NativeImageBuildServer} is processing, from the time it
+ * waits for admission until the build finishes. The output of the build is forwarded to the client
+ * that requested it. Each build has an id chosen by its client, which uses it to abort only its own
+ * build.
+ * <p>
+ * The threads that run a build are found with an inheritable thread-local, so the threads that a
+ * build starts belong to the build too. Worker threads of the common fork-join pool are shared by
+ * all builds and {@linkplain #detachCurrentThread() belong to no build}.
+ */
+final class RunningBuild {
+
+    private static final InheritableThreadLocal<RunningBuild> currentBuild = new InheritableThreadLocal<>();
+    private static final Set<RunningBuild> runningBuilds = ConcurrentHashMap.newKeySet();
+
+    final String id;
+    final StreamingServerMessageOutputStream out;
+    final StreamingServerMessageOutputStream err;
+    private volatile ImageBuildTask task;
+    private volatile boolean aborted;
+
+    RunningBuild(String id, OutputStream clientOutput) {
+        this.id = id;
+        this.out = new StreamingServerMessageOutputStream(ServerCommand.WRITE_OUT, clientOutput);
+        this.err = new StreamingServerMessageOutputStream(ServerCommand.WRITE_ERR, clientOutput);
+    }
+
+    /** Registers the build, so that it can be aborted while it waits for admission. */
+    void register() {
+        runningBuilds.add(this);
+    }
+
+    void unregister() {
+        runningBuilds.remove(this);
+    }
+
+    /** Runs the body of the build in the current thread, which belongs to the build meanwhile. */
+    <T> T run(Supplier<T> body) {
+        currentBuild.set(this);
+        try {
+            return body.get();
+        } finally {
+            currentBuild.remove();
+        }
+    }
+
+    /** Sets the task of the build once it is loaded. The task is interrupted if already aborted. */
+    void setTask(ImageBuildTask buildTask) {
+        this.task = buildTask;
+        if (aborted) {
+            buildTask.interruptBuild();
+        }
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    private void abort(Executor executor) throws IOException {
+        aborted = true;
+        /*
+         * Busy wait for all writing to complete, otherwise JSON messages are malformed.
+         */
+        err.writingInterrupted(true);
+        out.writingInterrupted(true);
+
+        // Checkstyle: stop
+        // noinspection StatementWithEmptyBody
+        while (err.isWriting() || out.isWriting()) {
+        }
+        // Checkstyle: start
+
+        out.flush();
+        err.flush();
+
+        ImageBuildTask buildTask = task;
+        if (buildTask != null) {
+            executor.execute(buildTask::interruptBuild);
+        }
+    }
+
+    /**
+     * Aborts the running builds with the given id. Returns the number of builds that were aborted.
+     */
+    static int abort(String id, Executor executor) throws IOException {
+        int count = 0;
+        for (RunningBuild build : runningBuilds) {
+            if (build.id.equals(id)) {
+                build.abort(executor);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the build that the current thread belongs to, or null if it belongs to no build or
+     * to a build that has finished.
+     */
+    static RunningBuild current() {
+        RunningBuild build = currentBuild.get();
+        if (build == null || !runningBuilds.contains(build)) {
+            return null;
+        }
+        return build;
+    }
+
+    /** Makes the current thread belong to no build, e.g., a thread shared by all builds. */
+    static void detachCurrentThread() {
+        currentBuild.remove();
+    }
+}
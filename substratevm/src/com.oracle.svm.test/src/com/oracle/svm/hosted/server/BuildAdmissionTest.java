@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BuildAdmissionTest {
+
+    @Test
+    public void idleServerAdmitsBuild() throws InterruptedException {
+        BuildAdmission admission = new BuildAdmission(1);
+        admission.acquire();
+        Assert.assertEquals(1, admission.getRunningBuilds());
+        admission.release();
+        Assert.assertEquals(0, admission.getRunningBuilds());
+    }
+
+    @Test
+    public void buildWaitsForMaximum() throws InterruptedException {
+        BuildAdmission admission = new BuildAdmission(1);
+        admission.acquire();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                admission.acquire();
+                started.countDown();
+                admission.release();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        waiting.start();
+        Assert.assertFalse(started.await(200, TimeUnit.MILLISECONDS));
+        admission.release();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        waiting.join();
+        Assert.assertEquals(0, admission.getRunningBuilds());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.hosted.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.svm.hosted.ImageBuildTask;
+
+public class RunningBuildTest {
+
+    private static final class TestTask implements ImageBuildTask {
+        final AtomicInteger interrupts = new AtomicInteger();
+
+        @Override
+        public int build(String[] args, String[] classpath, ClassLoader compilationClassLoader) {
+            return 0;
+        }
+
+        @Override
+        public void interruptBuild() {
+            interrupts.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void abortOnlyBuildWithId() throws IOException {
+        RunningBuild first = new RunningBuild("first", new ByteArrayOutputStream());
+        RunningBuild second = new RunningBuild("second", new ByteArrayOutputStream());
+        TestTask firstTask = new TestTask();
+        TestTask secondTask = new TestTask();
+        first.register();
+        second.register();
+        try {
+            first.setTask(firstTask);
+            second.setTask(secondTask);
+
+            Assert.assertEquals(1, RunningBuild.abort("first", Runnable::run));
+            Assert.assertTrue(first.isAborted());
+            Assert.assertEquals(1, firstTask.interrupts.get());
+            Assert.assertFalse(second.isAborted());
+            Assert.assertEquals(0, secondTask.interrupts.get());
+
+            try {
+                first.out.write(1);
+                Assert.fail("output of an aborted build must be closed");
+            } catch (ClosedByInterruptException e) {
+                // expected
+            }
+            second.out.write(1);
+        } finally {
+            first.unregister();
+            second.unregister();
+        }
+    }
+
+    @Test
+    public void abortUnknownId() throws IOException {
+        RunningBuild build = new RunningBuild("build", new ByteArrayOutputStream());
+        build.register();
+        try {
+            Assert.assertEquals(0, RunningBuild.abort("other", Runnable::run));
+            Assert.assertFalse(build.isAborted());
+        } finally {
+            build.unregister();
+        }
+        Assert.assertEquals(0, RunningBuild.abort("build", Runnable::run));
+    }
+
+    @Test
+    public void abortBeforeTaskIsLoaded() throws IOException {
+        RunningBuild build = new RunningBuild("waiting", new ByteArrayOutputStream());
+        build.register();
+        try {
+            Assert.assertEquals(1, RunningBuild.abort("waiting", Runnable::run));
+            TestTask task = new TestTask();
+            build.setTask(task);
+            Assert.assertEquals(1, task.interrupts.get());
+        } finally {
+            build.unregister();
+        }
+    }
+
+    @Test
+    public void startedThreadsBelongToBuild() throws InterruptedException {
+        RunningBuild build = new RunningBuild("build", new ByteArrayOutputStream());
+        AtomicReference<RunningBuild> seen = new AtomicReference<>();
+        build.register();
+        try {
+            Thread thread = build.run(() -> {
+                Assert.assertSame(build, RunningBuild.current());
+                Thread t = new Thread(() -> seen.set(RunningBuild.current()));
+                t.start();
+                return t;
+            });
+            thread.join();
+            Assert.assertSame(build, seen.get());
+            Assert.assertNull(RunningBuild.current());
+        } finally {
+            build.unregister();
+        }
+    }
+
+    @Test
+    public void finishedBuildHasNoThreads() {
+        RunningBuild build = new RunningBuild("build", new ByteArrayOutputStream());
+        build.register();
+        build.unregister();
+        Assert.assertNull(build.run(RunningBuild::current));
+    }
+
+    @Test
+    public void sharedPoolWorkersBelongToNoBuild() throws Exception {
+        RunningBuild build = new RunningBuild("build", new ByteArrayOutputStream());
+        build.register();
+        ForkJoinPool pool = new ForkJoinPool(1, new NativeImageThreadFactory(), null, false);
+        try {
+            /* The worker is started by a thread of the build. */
+            RunningBuild seen = build.run(() -> pool.submit(RunningBuild::current).join());
+            Assert.assertNull(seen);
+        } finally {
+            pool.shutdown();
+            build.unregister();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests synchronization on objects with a monitor slot and on objects without one ({@link String}s
+ * and arrays), uncontended and with several threads.
+ */
+public class MonitorTest {
+
+    private static final int THREADS = 4;
+    private static final int ITERATIONS = 100_000;
+
+    static class Counter {
+        int value;
+    }
+
+    /** Locks the given objects in a round robin, incrementing the counter under each lock. */
+    private static void lockLoop(Object[] locks, Counter[] counters) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            int index = i % locks.length;
+            synchronized (locks[index]) {
+                counters[index].value++;
+            }
+        }
+    }
+
+    private static Object[] newLocks(String kind, int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (kind) {
+                case "object":
+                    locks[i] = new Object();
+                    break;
+                case "string":
+                    locks[i] = new String("lock" + i);
+                    break;
+                case "array":
+                    locks[i] = new int[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException(kind);
+            }
+        }
+        return locks;
+    }
+
+    private static Counter[] newCounters(int count) {
+        Counter[] counters = new Counter[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = new Counter();
+        }
+        return counters;
+    }
+
+    /**
+     * Runs the lock loop in several threads. With {@code shared}, all threads lock the same
+     * objects, otherwise every thread has its own objects.
+     */
+    private static void runThreads(String kind, boolean shared) throws Exception {
+        Object[] sharedLocks = newLocks(kind, 16);
+        Counter[] sharedCounters = newCounters(16);
+        Object[][] locks = new Object[THREADS][];
+        Counter[][] counters = new Counter[THREADS][];
+        for (int t = 0; t < THREADS; t++) {
+            locks[t] = shared ? sharedLocks : newLocks(kind, 16);
+            counters[t] = shared ? sharedCounters : newCounters(16);
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(THREADS + 1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    lockLoop(locks[index], counters[index]);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        barrier.await();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failures.size());
+
+        long total = 0;
+        for (int t = 0; t < (shared ? 1 : THREADS); t++) {
+            for (Counter counter : counters[t]) {
+                total += counter.value;
+            }
+        }
+        Assert.assertEquals((long) THREADS * ITERATIONS, total);
+    }
+
+    private static void runUncontended(String kind) {
+        Object[] locks = newLocks(kind, 16);
+        Counter[] counters = newCounters(16);
+        lockLoop(locks, counters);
+        for (Counter counter : counters) {
+            Assert.assertEquals(ITERATIONS / 16, counter.value);
+        }
+    }
+
+    @Test
+    public void uncontended() {
+        runUncontended("object");
+        runUncontended("string");
+        runUncontended("array");
+    }
+
+    @Test
+    public void privateLocks() throws Exception {
+        runThreads("object", false);
+        runThreads("string", false);
+        runThreads("array", false);
+    }
+
+    @Test
+    public void sharedLocks() throws Exception {
+        runThreads("object", true);
+        runThreads("string", true);
+        runThreads("array", true);
+    }
+
+    @Test
+    public void recursiveLocking() {
+        for (String kind : new String[]{"object", "string", "array"}) {
+            Object lock = newLocks(kind, 1)[0];
+            synchronized (lock) {
+                Assert.assertTrue(Thread.holdsLock(lock));
+                synchronized (lock) {
+                    Assert.assertTrue(Thread.holdsLock(lock));
+                }
+                Assert.assertTrue(Thread.holdsLock(lock));
+            }
+            Assert.assertFalse(Thread.holdsLock(lock));
+        }
+    }
+
+    @Test
+    public void waitAndNotify() throws Exception {
+        for (String kind : new String[]{"object", "string", "array"}) {
+            Object lock = newLocks(kind, 1)[0];
+            boolean[] notified = new boolean[1];
+            Thread waiter = new Thread(() -> {
+                synchronized (lock) {
+                    while (!notified[0]) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                }
+            });
+            waiter.start();
+            synchronized (lock) {
+                notified[0] = true;
+                lock.notifyAll();
+            }
+            waiter.join();
+            Assert.assertFalse(Thread.holdsLock(lock));
+        }
+    }
+
+    /**
+     * Waiting while the lock is held recursively inflates the lock, releases all recursion levels
+     * so that another thread can take the lock, and restores them afterwards.
+     */
+    @Test
+    public void waitWhileLockedRecursively() throws Exception {
+        for (String kind : new String[]{"object", "string", "array"}) {
+            Object lock = newLocks(kind, 1)[0];
+            boolean[] acquired = new boolean[1];
+            Thread other = new Thread(() -> {
+                synchronized (lock) {
+                    acquired[0] = true;
+                    lock.notifyAll();
+                }
+            });
+            synchronized (lock) {
+                synchronized (lock) {
+                    other.start();
+                    while (!acquired[0]) {
+                        lock.wait();
+                    }
+                    Assert.assertTrue(Thread.holdsLock(lock));
+                }
+                Assert.assertTrue(Thread.holdsLock(lock));
+            }
+            Assert.assertFalse(Thread.holdsLock(lock));
+            other.join();
+        }
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void notifyWithoutLock() {
+        new String("unlocked").notify();
+    }
+}
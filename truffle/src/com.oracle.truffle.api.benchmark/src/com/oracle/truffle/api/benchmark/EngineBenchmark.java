@@ -162,6 +162,18 @@ public class EngineBenchmark extends TruffleBenchmark {
         state.context.leave();
     }
 
+    /*
+     * Executes without entering the context explicitly, so every execute enters and leaves the
+     * context on a thread that is not the last thread that entered.
+     */
+    @Benchmark
+    @Threads(8)
+    public void executeMultiThread(ContextLookupMultiThread state) {
+        for (int i = 0; i < CONTEXT_LOOKUP_ITERATIONS; i++) {
+            state.value.executeVoid();
+        }
+    }
+
     @State(org.openjdk.jmh.annotations.Scope.Benchmark)
     public static class ContextLookupMultiThreadMultiContext {
         final Source source = Source.create(TEST_LANGUAGE, CONTEXT_LOOKUP_SOURCE);
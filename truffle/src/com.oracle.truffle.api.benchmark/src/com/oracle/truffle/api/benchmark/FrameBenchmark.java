@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
+import com.oracle.truffle.api.frame.FrameSlotTypeException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Compares calls of a root node using frame slots with kinds that are tracked by the frame to calls
+ * of a root node using static frame slots.
+ */
+@State(Scope.Thread)
+public class FrameBenchmark extends TruffleBenchmark {
+
+    private static final int SLOTS = 8;
+
+    private final CallTarget dynamicSlots = createTarget(false);
+    private final CallTarget staticSlots = createTarget(true);
+
+    @Benchmark
+    public Object callDynamicSlots() {
+        return dynamicSlots.call(42);
+    }
+
+    @Benchmark
+    public Object callStaticSlots() {
+        return staticSlots.call(42);
+    }
+
+    private static CallTarget createTarget(boolean isStatic) {
+        FrameDescriptor descriptor = new FrameDescriptor();
+        FrameSlot[] slots = new FrameSlot[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            if (isStatic) {
+                slots[i] = descriptor.addStaticFrameSlot(i, null, FrameSlotKind.Int);
+            } else {
+                slots[i] = descriptor.addFrameSlot(i, FrameSlotKind.Int);
+            }
+        }
+        return Truffle.getRuntime().createCallTarget(new LocalsRootNode(descriptor, slots));
+    }
+
+    private static final class LocalsRootNode extends RootNode {
+
+        @CompilationFinal(dimensions = 1) private final FrameSlot[] slots;
+
+        LocalsRootNode(FrameDescriptor descriptor, FrameSlot[] slots) {
+            super(null, descriptor);
+            this.slots = slots;
+        }
+
+        @Override
+        @ExplodeLoop
+        public Object execute(VirtualFrame frame) {
+            int value = (int) frame.getArguments()[0];
+            try {
+                for (int i = 0; i < slots.length; i++) {
+                    frame.setInt(slots[i], value + i);
+                }
+                int sum = 0;
+                for (int i = 0; i < slots.length; i++) {
+                    sum += frame.getInt(slots[i]);
+                }
+                return sum;
+            } catch (FrameSlotTypeException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -260,6 +260,10 @@ public abstract class Shape {
 
     /**
      * Query whether the shape has a transition with the given key.
+     * <p>
+     * Transitions to successor shapes that are no longer used are normally forgotten. Past the
+     * dictionary transition limit, however, a shape keeps the keys of its transitions, so this
+     * method may also return {@code true} for a key whose successor shape has been collected.
      *
      * @since 0.8 or earlier
      */
@@ -240,4 +240,93 @@ public class FrameDescriptorTest {
         assertEquals("c", frame.getObject(slot3));
         assertEquals("d", frame.getObject(slot4));
     }
+
+    @Test
+    public void staticFrameSlots() throws FrameSlotTypeException {
+        FrameDescriptor d = new FrameDescriptor("default");
+        FrameSlot intSlot = d.addStaticFrameSlot("int", null, FrameSlotKind.Int);
+        FrameSlot objectSlot = d.addStaticFrameSlot("object", null, FrameSlotKind.Object);
+        FrameSlot dynamicSlot = d.addFrameSlot("dynamic");
+        assertTrue(d.isStaticFrameSlot(intSlot));
+        assertTrue(d.isStaticFrameSlot(objectSlot));
+        assertFalse(d.isStaticFrameSlot(dynamicSlot));
+
+        Frame f = Truffle.getRuntime().createVirtualFrame(new Object[0], d);
+        assertEquals("default", f.getObject(objectSlot));
+        f.setInt(intSlot, 42);
+        f.setObject(objectSlot, "value");
+        f.setLong(dynamicSlot, 43L);
+        assertEquals(42, f.getInt(intSlot));
+        assertEquals("value", f.getObject(objectSlot));
+        assertEquals(43L, f.getLong(dynamicSlot));
+        assertTrue(f.isInt(intSlot));
+        assertEquals(42, f.getValue(intSlot));
+
+        d.setFrameSlotKind(intSlot, FrameSlotKind.Int);
+        try {
+            d.setFrameSlotKind(intSlot, FrameSlotKind.Object);
+            fail("kind of static slot changed");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(FrameSlotKind.Int, d.getFrameSlotKind(intSlot));
+
+        try {
+            d.addStaticFrameSlot("illegal", null, FrameSlotKind.Illegal);
+            fail("static slot with illegal kind added");
+        } catch (IllegalArgumentException e) {
+        }
+
+        FrameDescriptor copy = d.copy();
+        FrameSlot intSlotCopy = copy.findFrameSlot("int");
+        assertTrue(copy.isStaticFrameSlot(intSlotCopy));
+        assertEquals(FrameSlotKind.Int, copy.getFrameSlotKind(intSlotCopy));
+        assertFalse(copy.isStaticFrameSlot(copy.findFrameSlot("dynamic")));
+    }
+
+    @Test
+    public void allStaticFrameSlots() throws FrameSlotTypeException {
+        FrameDescriptor d = new FrameDescriptor();
+        FrameSlot objectSlot = d.addStaticFrameSlot("object", null, FrameSlotKind.Object);
+        Frame f = Truffle.getRuntime().createVirtualFrame(new Object[0], d);
+        f.setObject(objectSlot, "value");
+        assertEquals("value", f.getObject(objectSlot));
+        assertTrue(f.isObject(objectSlot));
+
+        // the frame is resized for slots added after it was created
+        FrameSlot intSlot = d.addStaticFrameSlot("int", null, FrameSlotKind.Int);
+        f.setInt(intSlot, 42);
+        assertEquals(42, f.getInt(intSlot));
+        assertEquals(42, f.getValue(intSlot));
+        FrameSlot dynamicSlot = d.addFrameSlot("dynamic");
+        f.setDouble(dynamicSlot, 43d);
+        assertEquals(43d, f.getDouble(dynamicSlot), 0d);
+        assertTrue(f.isDouble(dynamicSlot));
+        assertEquals("value", f.getObject(objectSlot));
+        assertEquals(42, f.getInt(intSlot));
+    }
+
+    @Test
+    public void staticFrameSlotWrongKind() throws FrameSlotTypeException {
+        FrameDescriptor d = new FrameDescriptor();
+        FrameSlot intSlot = d.addStaticFrameSlot("int", null, FrameSlotKind.Int);
+        FrameSlot objectSlot = d.addStaticFrameSlot("object", null, FrameSlotKind.Object);
+        Frame f = Truffle.getRuntime().createVirtualFrame(new Object[0], d);
+        f.setInt(intSlot, 42);
+        try {
+            f.setLong(intSlot, 43L);
+            fail("static int slot set to a long");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            f.setObject(intSlot, "value");
+            fail("static int slot set to an object");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            f.setInt(objectSlot, 44);
+            fail("static object slot set to an int");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(42, f.getInt(intSlot));
+    }
 }
@@ -357,6 +357,33 @@ public class ContextPolicyTest {
         engine.close();
     }
 
+    @Test
+    public void testOneReuseContextSharedCode() {
+        Engine engine = Engine.newBuilder().option("engine.SharedCode", "true").build();
+        Source source0 = Source.create(SINGLE_REUSE_LANGUAGE, "s0");
+
+        Context context0 = Context.newBuilder().engine(engine).build();
+        context0.eval(source0);
+        Context context1 = Context.newBuilder().engine(engine).build();
+        context1.eval(source0);
+        assertEquals(2, languageInstances.size());
+        assertEquals(2, parseRequest.size());
+
+        context0.close();
+        context1.close();
+
+        // the most recently freed language instance is reused with its code
+        Context context2 = Context.newBuilder().engine(engine).build();
+        context2.eval(source0);
+        assertEquals(2, languageInstances.size());
+        assertEquals(3, contextCreate.size());
+        assertSame(languageInstances.get(1), contextCreate.get(2));
+        assertEquals(2, parseRequest.size());
+
+        context2.close();
+        engine.close();
+    }
+
     @Test
     public void testManyContext() {
         Engine engine = Engine.create();
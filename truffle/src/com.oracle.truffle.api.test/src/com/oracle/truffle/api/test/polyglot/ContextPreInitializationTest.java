@@ -908,6 +908,32 @@ public class ContextPreInitializationTest {
         assertEquals(1, firstLangCtx.disposeThreadCount);
     }
 
+    @Test
+    public void testContextPool() throws Exception {
+        setPatchable(FIRST);
+        try (Engine engine = Engine.newBuilder().option("engine.ContextPoolSize", "1").option("engine.PreinitializeContexts", FIRST).build()) {
+            // the pool is filled by a background thread
+            for (int i = 0; i < 1000 && emittedContexts.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            List<CountingContext> contexts = new ArrayList<>(emittedContexts);
+            assertEquals(1, contexts.size());
+            CountingContext firstLangCtx = findContext(FIRST, contexts);
+            assertNotNull(firstLangCtx);
+            assertEquals(1, firstLangCtx.initializeContextCount);
+            assertEquals(0, firstLangCtx.patchContextCount);
+            try (Context ctx = Context.newBuilder().engine(engine).build()) {
+                Value res = ctx.eval(Source.create(FIRST, "test"));
+                assertEquals("test", res.asString());
+                assertEquals(1, firstLangCtx.createContextCount);
+                assertEquals(1, firstLangCtx.initializeContextCount);
+                assertEquals(1, firstLangCtx.patchContextCount);
+                assertEquals(0, firstLangCtx.disposeContextCount);
+            }
+            assertEquals(1, firstLangCtx.disposeContextCount);
+        }
+    }
+
     private static void resetSystemPropertiesOptions() {
         System.getProperties().remove("polyglot.engine.PreinitializeContexts");
         System.getProperties().remove(SYS_OPTION1_KEY);
@@ -548,6 +548,83 @@ public class MultiThreadedLanguageTest {
         Assert.assertEquals(1, initializeMultiThreadingCount.get());
     }
 
+    @Test
+    public void testLockFreeEnterAndLeave() throws InterruptedException, ExecutionException {
+        MultiThreadedLanguage.isThreadAccessAllowed = (req) -> {
+            return true;
+        };
+        final int threadCount = 4;
+        final int iterations = 1000;
+        ExecutorService executor = createExecutor(threadCount);
+        Context context = Context.create(MultiThreadedLanguage.ID);
+        eval(context, (env) -> null);
+
+        /*
+         * Once the context is multi-threaded, threads that were seen before enter and leave the
+         * context without the context lock, also nested in an explicit enter.
+         */
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                for (int iteration = 0; iteration < iterations; iteration++) {
+                    assertSame(MultiThreadedLanguage.langContext, eval(context, (env) -> MultiThreadedLanguage.getContext()).asHostObject());
+                    context.enter();
+                    try {
+                        eval(context, (env) -> null);
+                    } finally {
+                        context.leave();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(threadCount + 1, initializeCount.get());
+        assertEquals(1, initializeMultiThreadingCount.get());
+
+        // fails if an enter was not balanced by a leave
+        context.close();
+        assertEquals(threadCount + 1, disposeCount.get());
+    }
+
+    @Test
+    public void testCancelDuringLockFreeEnterAndLeave() throws InterruptedException, ExecutionException {
+        MultiThreadedLanguage.isThreadAccessAllowed = (req) -> {
+            return true;
+        };
+        final int threadCount = 4;
+        final int iterations = 10000;
+        ExecutorService executor = createExecutor(threadCount);
+        Context context = Context.create(MultiThreadedLanguage.ID);
+        eval(context, (env) -> null);
+
+        CountDownLatch entered = new CountDownLatch(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    for (int iteration = 0; iteration < iterations; iteration++) {
+                        eval(context, (env) -> null);
+                        if (iteration == 0) {
+                            entered.countDown();
+                        }
+                    }
+                } catch (PolyglotException | IllegalStateException e) {
+                    // cancelled or closed
+                    entered.countDown();
+                }
+            }));
+        }
+        entered.await();
+
+        // the cancelling thread must be notified when the last thread leaves the context
+        context.close(true);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
     @Test
     public void testAsssertionIfThreadStillActive() throws InterruptedException {
         MultiThreadedLanguage.isThreadAccessAllowed = (req) -> {
@@ -81,6 +81,37 @@ public class PolyglotCachingTest {
         assertEquals(4, parseCalled.get());
     }
 
+    @Test
+    public void testSourceCacheSize() throws Exception {
+        AtomicInteger parseCalled = new AtomicInteger(0);
+        ProxyLanguage.setDelegate(new ProxyLanguage() {
+            @Override
+            protected CallTarget parse(ParsingRequest request) throws Exception {
+                parseCalled.incrementAndGet();
+                return Truffle.getRuntime().createCallTarget(RootNode.createConstantNode(""));
+            }
+        });
+        Context c = Context.newBuilder().option("engine.SourceCacheSize", "2").build();
+        Source source1 = Source.create(ProxyLanguage.ID, "testSourceCacheSize1");
+        Source source2 = Source.create(ProxyLanguage.ID, "testSourceCacheSize2");
+        Source source3 = Source.create(ProxyLanguage.ID, "testSourceCacheSize3");
+        c.eval(source1);
+        c.eval(source2);
+        assertEquals(2, parseCalled.get());
+        c.eval(source1);
+        assertEquals(2, parseCalled.get());
+
+        // source2 is the least recently used and gets evicted
+        c.eval(source3);
+        assertEquals(3, parseCalled.get());
+        c.eval(source1);
+        c.eval(source3);
+        assertEquals(3, parseCalled.get());
+        c.eval(source2);
+        assertEquals(4, parseCalled.get());
+        c.close();
+    }
+
     /*
      * Tests that the outer source instance is never the same as the one passed in. That allows the
      * outer source instance to be collected while the inner one is still referenced strongly. The
@@ -32,7 +32,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -84,11 +83,22 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
 
     private final Assumption singleThreaded = Truffle.getRuntime().createAssumption("Single threaded");
     private final Assumption singleThreadedConstant = Truffle.getRuntime().createAssumption("Single threaded constant thread");
-    private final Map<Thread, PolyglotThreadInfo> threads = new HashMap<>();
+    /*
+     * Only modified while holding the context lock, but concurrent so that threads that were seen
+     * before can look up their thread info without the lock.
+     */
+    private final Map<Thread, PolyglotThreadInfo> threads = new ConcurrentHashMap<>();
 
     private volatile PolyglotThreadInfo currentThreadInfo = PolyglotThreadInfo.NULL;
     @CompilationFinal private volatile PolyglotThreadInfo constantCurrentThreadInfo = PolyglotThreadInfo.NULL;
 
+    /*
+     * True if threads that were seen before may enter and leave without taking the context lock.
+     * Cleared, like the cached thread info, by every operation that needs to see a consistent state
+     * of the entered threads, e.g., closing and cancelling, which forces enters into the lock.
+     */
+    private volatile boolean lockFreeEnter;
+
     /*
      * While canceling the context can no longer be entered. The context goes from canceling into
      * closed state.
@@ -363,6 +373,25 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
 
     @TruffleBoundary
     PolyglotContextImpl enterThreadChanged() {
+        PolyglotThreadInfo seenInfo = lockFreeEnter && !singleThreaded.isValid() ? threads.get(Thread.currentThread()) : null;
+        if (seenInfo != null) {
+            PolyglotContextImpl prev = (PolyglotContextImpl) singleContextState.contextThreadLocal.setReturnParent(this);
+            seenInfo.enter();
+            /*
+             * The entered count is updated before the flag is read again. A thread that clears the
+             * flag before it inspects the entered counts therefore either sees this thread as
+             * entered or this thread backs off and enters with the lock.
+             */
+            if (lockFreeEnter) {
+                return prev;
+            }
+            seenInfo.leave();
+            singleContextState.contextThreadLocal.set(prev);
+        }
+        return enterThreadChangedLocked();
+    }
+
+    private PolyglotContextImpl enterThreadChangedLocked() {
         Thread current = Thread.currentThread();
         PolyglotContextImpl prev;
         boolean needsInitialization = false;
@@ -431,6 +460,7 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
         }
         constantCurrentThreadInfo = info;
         currentThreadInfo = info;
+        lockFreeEnter = info != PolyglotThreadInfo.NULL;
     }
 
     private void checkAllThreadAccesses() {
@@ -465,7 +495,26 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
     }
 
     @TruffleBoundary
-    synchronized PolyglotThreadInfo leaveThreadChanged() {
+    PolyglotThreadInfo leaveThreadChanged() {
+        /* While cancelling, the last leave of a thread must notify the cancelling thread. */
+        PolyglotThreadInfo seenInfo = lockFreeEnter && !cancelling && !singleThreaded.isValid() ? threads.get(Thread.currentThread()) : null;
+        if (seenInfo != null) {
+            boolean lastActive = seenInfo.isLastActive();
+            seenInfo.leave();
+            /*
+             * The entered count is updated before the flags are read again. A close or cancel that
+             * started concurrently either sees this thread as left, or this thread sees the
+             * cancelling flag and notifies it like a leave with the lock does.
+             */
+            if (lastActive && !lockFreeEnter && cancelling) {
+                notifyThreadClosed();
+            }
+            return seenInfo;
+        }
+        return leaveThreadChangedLocked();
+    }
+
+    private synchronized PolyglotThreadInfo leaveThreadChangedLocked() {
         Thread current = Thread.currentThread();
         setCachedThreadInfo(PolyglotThreadInfo.NULL);
 
@@ -1013,6 +1062,57 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
         return true;
     }
 
+    /**
+     * Creates a context for the {@link PolyglotContextPool} and initializes the given languages.
+     * Like a pre-initialized context, it is patched when it is handed out. The context is not yet
+     * registered with the engine.
+     */
+    static PolyglotContextImpl createPooled(final PolyglotEngineImpl engine, Set<String> languageIds) {
+        final FileSystems.PreInitializeContextFileSystem fs = new FileSystems.PreInitializeContextFileSystem();
+        final PolyglotContextConfig config = new PolyglotContextConfig(engine,
+                        engine.out,
+                        engine.err,
+                        engine.in,
+                        false,
+                        false,
+                        false,
+                        false,
+                        null,
+                        Collections.emptyMap(),
+                        engine.getLanguages().keySet(),
+                        Collections.emptyMap(),
+                        fs,
+                        engine.logHandler);
+        final PolyglotContextImpl context;
+        synchronized (engine) {
+            engine.checkState();
+            context = new PolyglotContextImpl(engine, config);
+        }
+        context.inContextPreInitialization = true;
+        try {
+            Object prev = context.enter();
+            try {
+                for (String languageId : languageIds) {
+                    PolyglotLanguage language = engine.findLanguage(languageId, null, false);
+                    if (language != null) {
+                        context.getContextInitialized(language, null).preInitialize();
+                    }
+                }
+            } finally {
+                context.leave(prev);
+            }
+        } finally {
+            context.inContextPreInitialization = false;
+            fs.patchDelegate(FileSystems.newNoIOFileSystem(null));
+        }
+        synchronized (context) {
+            // the pool thread never enters the context again
+            context.setCachedThreadInfo(PolyglotThreadInfo.NULL);
+        }
+        disposeStaticContext(context);
+        return context;
+    }
+
     static PolyglotContextImpl preInitialize(final PolyglotEngineImpl engine) {
         final FileSystems.PreInitializeContextFileSystem fs = new FileSystems.PreInitializeContextFileSystem();
         final PolyglotContextConfig config = new PolyglotContextConfig(engine,
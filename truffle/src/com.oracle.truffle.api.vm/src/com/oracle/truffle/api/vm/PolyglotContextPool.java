@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.api.vm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import com.oracle.truffle.api.TruffleLogger;
+
+/**
+ * Keeps a number of contexts of an engine ready, with the languages of the
+ * {@link PolyglotEngineOptions#PreinitializeContexts} option initialized, so that creating a
+ * context does not have to initialize the languages. A pooled context is handed out like a
+ * pre-initialized context: it is patched to the configuration of the created context, and
+ * languages that do not support
+ * {@link com.oracle.truffle.api.TruffleLanguage#patchContext(Object, com.oracle.truffle.api.TruffleLanguage.Env)
+ * patching} cause a new context to be created instead.
+ * <p>
+ * A pooled context is handed out only once. A closed context is not returned to the pool, as the
+ * values of the closed context could otherwise observe the state of the next context.
+ * <p>
+ * The pool is filled by a daemon thread. If no context is taken from the pool for
+ * {@link PolyglotEngineOptions#ContextPoolIdleTimeout} milliseconds, the pooled contexts are
+ * closed, and the pool is filled again when the next context is created.
+ */
+final class PolyglotContextPool implements Runnable {
+
+    private static final TruffleLogger LOG = TruffleLogger.getLogger("engine", PolyglotContextPool.class);
+
+    private final PolyglotEngineImpl engine;
+    private final int size;
+    private final long idleTimeoutMillis;
+    private final Set<String> languages;
+
+    private final ArrayDeque<PolyglotContextImpl> ready = new ArrayDeque<>();
+    private long lastUsedMillis;
+    private boolean evicted;
+    private boolean closed;
+
+    private PolyglotContextPool(PolyglotEngineImpl engine, int size, long idleTimeoutMillis, Set<String> languages) {
+        this.engine = engine;
+        this.size = size;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.languages = languages;
+        this.lastUsedMillis = System.currentTimeMillis();
+    }
+
+    static PolyglotContextPool start(PolyglotEngineImpl engine, int size, long idleTimeoutMillis, String languageIds) {
+        Set<String> languages = languageIds == null || languageIds.isEmpty() ? Collections.emptySet() : new LinkedHashSet<>(Arrays.asList(languageIds.split(",")));
+        PolyglotContextPool pool = new PolyglotContextPool(engine, size, idleTimeoutMillis, languages);
+        Thread thread = new Thread(pool, "Polyglot Context Pool");
+        thread.setDaemon(true);
+        thread.start();
+        return pool;
+    }
+
+    /**
+     * Returns a pooled context for the configuration, or null if the pool is empty or the
+     * configuration does not allow all pooled languages. The context still needs to be patched.
+     */
+    PolyglotContextImpl take(PolyglotContextConfig config) {
+        assert Thread.holdsLock(engine);
+        synchronized (this) {
+            lastUsedMillis = System.currentTimeMillis();
+            evicted = false;
+            notifyAll();
+            if (!config.allowedPublicLanguages.containsAll(languages)) {
+                return null;
+            }
+            return ready.pollFirst();
+        }
+    }
+
+    /**
+     * Stops filling the pool. The pooled contexts are registered with the engine, which closes
+     * them.
+     */
+    synchronized void shutdown() {
+        assert Thread.holdsLock(engine);
+        closed = true;
+        ready.clear();
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            List<PolyglotContextImpl> toEvict = null;
+            synchronized (this) {
+                while (!closed && !needsEviction() && !needsFill()) {
+                    try {
+                        wait(ready.isEmpty() ? 0 : Math.max(1, lastUsedMillis + idleTimeoutMillis - System.currentTimeMillis()));
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                if (needsEviction()) {
+                    toEvict = new ArrayList<>(ready);
+                    ready.clear();
+                    evicted = true;
+                }
+            }
+            if (toEvict != null) {
+                for (PolyglotContextImpl context : toEvict) {
+                    context.closeImpl(false, false);
+                }
+                continue;
+            }
+
+            PolyglotContextImpl context;
+            try {
+                context = PolyglotContextImpl.createPooled(engine, languages);
+            } catch (RuntimeException e) {
+                /*
+                 * Stop pooling, contexts are then created without the pool. Errors are not caught,
+                 * they terminate the pool thread with the pool still open, which only stops filling
+                 * it.
+                 */
+                LOG.log(Level.WARNING, "Failed to create a pooled context, contexts are created without the pool.", e);
+                synchronized (this) {
+                    closed = true;
+                }
+                return;
+            }
+            boolean added = false;
+            synchronized (engine) {
+                synchronized (this) {
+                    if (!closed && !engine.closed) {
+                        engine.addContext(context);
+                        ready.addLast(context);
+                        added = true;
+                    }
+                }
+            }
+            if (!added) {
+                context.closeImpl(false, false);
+            }
+        }
+    }
+
+    private boolean needsFill() {
+        assert Thread.holdsLock(this);
+        return !evicted && ready.size() < size;
+    }
+
+    private boolean needsEviction() {
+        assert Thread.holdsLock(this);
+        return !ready.isEmpty() && System.currentTimeMillis() - lastUsedMillis >= idleTimeoutMillis;
+    }
+}
@@ -118,10 +118,13 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
     final OptionValuesImpl compilerOptionValues;
     ClassLoader contextClassLoader;     // effectively final
     boolean boundEngine;    // effectively final
+    boolean sharedCode;     // effectively final
     Handler logHandler;     // effectively final
     final Exception createdLocation = DEBUG_MISSING_CLOSE ? new Exception() : null;
     private final Set<PolyglotContextImpl> contexts = new LinkedHashSet<>();
     private PolyglotContextImpl preInitializedContext;
+    private PolyglotContextPool contextPool;
+    final PolyglotSourceCache.Statistics sourceCacheStatistics = new PolyglotSourceCache.Statistics();
 
     PolyglotLanguage hostLanguage;
     final Assumption singleContext = Truffle.getRuntime().createAssumption();
@@ -212,12 +215,20 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
 
         if (!boundEngine) {
             initializeMultiContext(null);
+            if (engineOptionValues.get(PolyglotEngineOptions.SharedCode)) {
+                initializeSharedCode();
+            }
         }
 
         ENGINES.put(this, null);
         if (!preInitialization) {
             createInstruments(instrumentsOptions);
             registerShutDownHook();
+            int contextPoolSize = engineOptionValues.get(PolyglotEngineOptions.ContextPoolSize);
+            if (contextPoolSize > 0 && !boundEngine) {
+                contextPool = PolyglotContextPool.start(this, contextPoolSize, engineOptionValues.get(PolyglotEngineOptions.ContextPoolIdleTimeout),
+                                engineOptionValues.get(PolyglotEngineOptions.PreinitializeContexts));
+            }
         }
     }
 
@@ -297,6 +308,25 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
         }
     }
 
+    /**
+     * Code of an engine in shared code mode is used by many, typically short-lived, contexts. The
+     * engine never speculates on a single context, so code compiled for one context stays valid for
+     * all other contexts and nothing is deoptimized when contexts are created or closed. Language
+     * instances with the {@link com.oracle.truffle.api.TruffleLanguage.ContextPolicy#REUSE reuse}
+     * policy are reused most recently freed first, so that the instance with the warmest code is
+     * used.
+     * <p>
+     * Only the single context profiles of this engine are disabled. The static single context
+     * assumption of {@link PolyglotContextImpl} is shared by all engines of the VM, so it is not
+     * invalidated here. It is invalidated once, when the second context of the VM is created.
+     */
+    private void initializeSharedCode() {
+        sharedCode = true;
+        for (PolyglotLanguage language : idToLanguage.values()) {
+            language.profile.disableSingleContext();
+        }
+    }
+
     private void parseOptions(Map<String, String> options, boolean useSystemProperties,
                     Map<String, String> originalEngineOptions, Map<String, String> originalCompilerOptions,
                     Map<PolyglotLanguage, Map<String, String>> languagesOptions, Map<PolyglotInstrument, Map<String, String>> instrumentsOptions,
@@ -681,6 +711,9 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
 
     synchronized void ensureClosed(boolean cancelIfExecuting, boolean ignoreCloseFailure) {
         if (!closed) {
+            if (contextPool != null) {
+                contextPool.shutdown();
+            }
             PolyglotContextImpl[] localContexts = contexts.toArray(new PolyglotContextImpl[0]);
             /*
              * Check ahead of time for open contexts to fail early and avoid closing only some
@@ -720,6 +753,9 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
             }
 
             contexts.clear();
+            if (engineOptionValues.get(PolyglotEngineOptions.SourceCacheStatistics)) {
+                sourceCacheStatistics.log();
+            }
             for (Instrument instrument : idToPublicInstrument.values()) {
                 PolyglotInstrument instrumentImpl = (PolyglotInstrument) getAPIAccess().getImpl(instrument);
                 try {
@@ -1036,6 +1072,9 @@ class PolyglotEngineImpl extends org.graalvm.polyglot.impl.AbstractPolyglotImpl.
     private PolyglotContextImpl loadPreinitializedContext(PolyglotContextConfig config) {
         PolyglotContextImpl context = preInitializedContext;
         preInitializedContext = null;
+        if (context == null && contextPool != null) {
+            context = contextPool.take(config);
+        }
         if (context != null) {
             FileSystems.PreInitializeContextFileSystem preInitFs = (FileSystems.PreInitializeContextFileSystem) context.config.fileSystem;
             preInitFs.patchDelegate(config.fileSystem);
@@ -37,6 +37,16 @@ final class PolyglotEngineOptions {
     private static final String INSTRUMENT_EXCEPTIONS_ARE_THROWN_NAME = "InstrumentExceptionsAreThrown";
     @Option(name = PREINITIALIZE_CONTEXT_NAME, category = OptionCategory.EXPERT, help = "Preinitialize language contexts for given languages.") static final OptionKey<String> PreinitializeContexts = new OptionKey<>(
                     null, OptionType.defaultType(String.class));
+    @Option(category = OptionCategory.EXPERT, help = "Reuse language instances and their parsed and compiled code across the contexts of the engine, without specializing code on a single context (default false).") static final OptionKey<Boolean> SharedCode = new OptionKey<>(
+                    false);
+    @Option(category = OptionCategory.EXPERT, help = "Maximum number of AST nodes of the code cached for parsed sources per language, least recently used code is evicted (default 0, unbounded).") static final OptionKey<Integer> SourceCacheSize = new OptionKey<>(
+                    0);
+    @Option(category = OptionCategory.EXPERT, help = "Log the hit, miss and eviction counts of the source caches when the engine is closed (default false).") static final OptionKey<Boolean> SourceCacheStatistics = new OptionKey<>(
+                    false);
+    @Option(category = OptionCategory.EXPERT, help = "Number of contexts, with the languages of PreinitializeContexts initialized, that are kept ready for context creation (default 0).") static final OptionKey<Integer> ContextPoolSize = new OptionKey<>(
+                    0);
+    @Option(category = OptionCategory.EXPERT, help = "Milliseconds without context creation after which the pooled contexts are closed (default 60000).") static final OptionKey<Long> ContextPoolIdleTimeout = new OptionKey<>(
+                    60000L);
     /**
      * When the option is set the exceptions thrown by instruments are propagated rather than logged
      * into err.
@@ -27,9 +27,9 @@ package com.oracle.truffle.api.vm;
 import static com.oracle.truffle.api.vm.VMAccessor.LANGUAGE;
 import static com.oracle.truffle.api.vm.VMAccessor.NODES;
 
-import java.util.Queue;
+import java.util.Deque;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.graalvm.options.OptionDescriptors;
 import org.graalvm.polyglot.Language;
@@ -59,7 +59,7 @@ final class PolyglotLanguage extends AbstractLanguageImpl implements com.oracle.
     private volatile boolean initialized;
 
     private volatile PolyglotLanguageInstance initLanguage = null;
-    private final Queue<PolyglotLanguageInstance> instancePool = new ConcurrentLinkedQueue<>();
+    private final Deque<PolyglotLanguageInstance> instancePool = new ConcurrentLinkedDeque<>();
 
     final ContextProfile profile;
 
@@ -156,7 +156,7 @@ final class PolyglotLanguage extends AbstractLanguageImpl implements com.oracle.
                     instance = ensureInitialized(new PolyglotLanguageInstance(this, true));
                     break;
                 case REUSE:
-                    instance = instancePool.poll();
+                    instance = engine.sharedCode ? instancePool.pollLast() : instancePool.pollFirst();
                     if (instance == null) {
                         instance = ensureInitialized(new PolyglotLanguageInstance(this, false));
                     }
@@ -315,6 +315,11 @@ final class PolyglotLanguage extends AbstractLanguageImpl implements com.oracle.
             }
         }
 
+        void disableSingleContext() {
+            singleContext.invalidate();
+            cachedSingleContext = UNSET_CONTEXT;
+        }
+
         void notifyLanguageFreed() {
             if (singleContext.isValid()) {
                 // do not invalidate assumptions if engine is disposed anyway
@@ -41,11 +41,7 @@ final class PolyglotLanguageInstance {
 
     private final PolyglotSourceCache sourceCache;
     private final Map<Object, PolyglotSourceCache> sourceCaches;
-    private static final Function<Object, PolyglotSourceCache> sourceCacheCompute = new Function<Object, PolyglotSourceCache>() {
-        public PolyglotSourceCache apply(Object t) {
-            return new PolyglotSourceCache();
-        }
-    };
+    private final Function<Object, PolyglotSourceCache> sourceCacheCompute;
 
     PolyglotLanguageInstance(PolyglotLanguage language, boolean singleContext) {
         this.singleContext = singleContext;
@@ -61,11 +57,17 @@ final class PolyglotLanguageInstance {
             throw new IllegalStateException(String.format("Error initializing language '%s' using class '%s'.", language.cache.getId(), language.cache.getClassName()), e);
         }
         if (singleContext) {
-            this.sourceCache = new PolyglotSourceCache();
+            this.sourceCache = new PolyglotSourceCache(language.engine);
             this.sourceCaches = null;
+            this.sourceCacheCompute = null;
         } else {
             this.sourceCache = null;
             this.sourceCaches = new ConcurrentHashMap<>();
+            this.sourceCacheCompute = new Function<Object, PolyglotSourceCache>() {
+                public PolyglotSourceCache apply(Object t) {
+                    return new PolyglotSourceCache(language.engine);
+                }
+            };
         }
     }
 
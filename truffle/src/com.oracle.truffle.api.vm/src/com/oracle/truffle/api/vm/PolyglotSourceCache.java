@@ -28,18 +28,40 @@ import static com.oracle.truffle.api.vm.VMAccessor.LANGUAGE;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.source.Source;
 
+/**
+ * Caches the call targets parsed for cached sources. By default the cache is unbounded, an entry is
+ * only removed when its source is collected. With the {@link PolyglotEngineOptions#SourceCacheSize}
+ * option the cache evicts the least recently used entries once the total number of AST nodes of the
+ * cached call targets exceeds the limit. With the
+ * {@link PolyglotEngineOptions#SourceCacheStatistics} option, hits, misses and evictions are
+ * counted per engine and logged on engine close.
+ */
 final class PolyglotSourceCache {
 
-    private final ConcurrentHashMap<Object, CallTarget> sourceCache;
+    private static final TruffleLogger LOG = TruffleLogger.getLogger("engine", PolyglotSourceCache.class);
+
+    private final PolyglotEngineImpl engine;
+    private final ConcurrentHashMap<Object, Entry> sourceCache;
     private final ReferenceQueue<Source> deadSources = new ReferenceQueue<>();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong totalWeight = new AtomicLong();
 
-    PolyglotSourceCache() {
+    PolyglotSourceCache(PolyglotEngineImpl engine) {
+        this.engine = engine;
         this.sourceCache = new ConcurrentHashMap<>();
     }
 
@@ -48,25 +70,77 @@ final class PolyglotSourceCache {
 
         CallTarget target;
         if (source.isCached()) {
+            Statistics statistics = engine.engineOptionValues.get(PolyglotEngineOptions.SourceCacheStatistics) ? engine.sourceCacheStatistics : null;
+            long maxWeight = engine.engineOptionValues.get(PolyglotEngineOptions.SourceCacheSize);
             Object sourceId = VMAccessor.SOURCE.getSourceIdentifier(source);
             WeakSourceKey ref = new WeakSourceKey(sourceId, source, argumentNames, deadSources);
-            target = sourceCache.get(ref);
-            if (target == null) {
+            Entry entry = sourceCache.get(ref);
+            if (entry == null) {
+                if (statistics != null) {
+                    statistics.misses.increment();
+                }
                 target = parseImpl(context, argumentNames, VMAccessor.SOURCE.copySource(source));
-                CallTarget prev = sourceCache.putIfAbsent(ref, target);
+                entry = new Entry(target, maxWeight > 0 ? weightOf(target) : 1);
+                if (maxWeight > 0) {
+                    entry.lastAccess = accessClock.incrementAndGet();
+                }
+                Entry prev = sourceCache.putIfAbsent(ref, entry);
                 if (prev != null) {
                     /*
                      * Parsed twice -> discard the one not in the cache.
                      */
-                    target = prev;
+                    entry = prev;
+                } else if (totalWeight.addAndGet(entry.weight) > maxWeight && maxWeight > 0) {
+                    evict(maxWeight, statistics);
+                }
+            } else {
+                if (statistics != null) {
+                    statistics.hits.increment();
+                }
+                if (maxWeight > 0) {
+                    /* Only a bounded cache needs the access order, to evict the oldest entries. */
+                    entry.lastAccess = accessClock.incrementAndGet();
                 }
             }
+            target = entry.target;
         } else {
             target = parseImpl(context, argumentNames, source);
         }
         return target;
     }
 
+    private static int weightOf(CallTarget target) {
+        if (target instanceof RootCallTarget) {
+            return Math.max(1, NodeUtil.countNodes(((RootCallTarget) target).getRootNode()));
+        }
+        return 1;
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is below the limit. Evictions are
+     * done in batches to a slightly lower weight, so that the scan of the cache is amortized over
+     * many inserts.
+     */
+    private synchronized void evict(long maxWeight, Statistics statistics) {
+        long targetWeight = maxWeight - maxWeight / 8;
+        if (totalWeight.get() <= maxWeight) {
+            return;
+        }
+        List<Map.Entry<Object, Entry>> entries = new ArrayList<>(sourceCache.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess));
+        for (Map.Entry<Object, Entry> entry : entries) {
+            if (totalWeight.get() <= targetWeight) {
+                break;
+            }
+            if (sourceCache.remove(entry.getKey(), entry.getValue())) {
+                totalWeight.addAndGet(-entry.getValue().weight);
+                if (statistics != null) {
+                    statistics.evictions.increment();
+                }
+            }
+        }
+    }
+
     private static CallTarget parseImpl(PolyglotLanguageContext context, String[] argumentNames, Source source) {
         CallTarget parsedTarget = LANGUAGE.parse(context.requireEnv(), source, null, argumentNames);
         if (parsedTarget == null) {
@@ -78,7 +152,34 @@ final class PolyglotSourceCache {
     private void cleanupStaleEntries() {
         WeakSourceKey sourceRef = null;
         while ((sourceRef = (WeakSourceKey) deadSources.poll()) != null) {
-            sourceCache.remove(sourceRef);
+            Entry entry = sourceCache.remove(sourceRef);
+            if (entry != null) {
+                totalWeight.addAndGet(-entry.weight);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final CallTarget target;
+        final int weight;
+        volatile long lastAccess;
+
+        Entry(CallTarget target, int weight) {
+            this.target = target;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The hit, miss and eviction counts of all source caches of an engine.
+     */
+    static final class Statistics {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        void log() {
+            LOG.info(String.format("Source cache: %d hits, %d misses, %d evictions", hits.sum(), misses.sum(), evictions.sum()));
         }
     }
 
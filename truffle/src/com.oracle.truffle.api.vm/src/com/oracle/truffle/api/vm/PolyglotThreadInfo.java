@@ -25,6 +25,7 @@
 package com.oracle.truffle.api.vm;
 
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 final class PolyglotThreadInfo {
 
@@ -32,7 +33,14 @@ final class PolyglotThreadInfo {
 
     final Thread thread;
 
-    private int enteredCount;
+    private static final AtomicIntegerFieldUpdater<PolyglotThreadInfo> ENTERED_COUNT_UPDATER = AtomicIntegerFieldUpdater.newUpdater(PolyglotThreadInfo.class, "enteredCount");
+
+    /*
+     * Only modified by the thread itself, but read by other threads that check whether the context
+     * is active without holding a lock on the entering thread. Volatile so that the update is
+     * ordered before the entering thread checks whether it may enter without the context lock.
+     */
+    private volatile int enteredCount;
     final LinkedList<Object> explicitContextStack = new LinkedList<>();
     volatile boolean cancelled;
 
@@ -46,7 +54,7 @@ final class PolyglotThreadInfo {
 
     void enter() {
         assert Thread.currentThread() == thread;
-        enteredCount++;
+        ENTERED_COUNT_UPDATER.incrementAndGet(this);
     }
 
     boolean isPolyglotThread(PolyglotContextImpl c) {
@@ -58,7 +66,7 @@ final class PolyglotThreadInfo {
 
     void leave() {
         assert Thread.currentThread() == thread;
-        --enteredCount;
+        ENTERED_COUNT_UPDATER.decrementAndGet(this);
     }
 
     boolean isLastActive() {
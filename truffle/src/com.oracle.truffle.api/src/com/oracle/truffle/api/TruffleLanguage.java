@@ -572,6 +572,11 @@ public abstract class TruffleLanguage<C> {
      * successful for all pre-initialized languages the pre-initialized context is used, otherwise a
      * new context is created.
      * <p>
+     * The method is also called for contexts of an engine created with the
+     * {@code engine.ContextPoolSize} option. Such an engine initializes contexts for the languages
+     * of the {@code engine.PreinitializeContexts} option ahead of time, and patches one of them
+     * for each created context.
+     * <p>
      * Typical implementation looks like:
      *
      * {@link TruffleLanguageSnippets.PreInitializedLanguage#patchContext}
@@ -70,6 +70,15 @@ public final class FrameDescriptor implements Cloneable {
      */
     boolean materializeCalled;
 
+    /**
+     * Flags that tell the runtime which parts of a frame need to be allocated. A descriptor has
+     * dynamic slots if any slot was not added with {@link #addStaticFrameSlot static} kind and
+     * primitive slots if any slot can hold a primitive value. The flags are not reset when slots
+     * are removed. The flags are kept in one field so that a frame allocation reads them with a
+     * single load. Since the flags are not public API, access is encapsulated via {@link TVMCI}.
+     */
+    private volatile int frameLayout;
+
     private static final String NEVER_PART_OF_COMPILATION_MESSAGE = "interpreter-only. includes hashmap operations.";
 
     /**
@@ -155,8 +164,38 @@ public final class FrameDescriptor implements Cloneable {
      * @throws NullPointerException if {@code identifier} or {@code kind} is {@code null}
      * @since 0.8 or earlier
      */
-    @SuppressFBWarnings(value = "VO_VOLATILE_INCREMENT", justification = "All increments and decrements are synchronized.")
     public FrameSlot addFrameSlot(Object identifier, Object info, FrameSlotKind kind) {
+        return addFrameSlotImpl(identifier, info, kind, false);
+    }
+
+    /**
+     * Adds new frame slot with a static kind to {@link #getSlots()} list. The kind of a static slot
+     * never changes, it can only be accessed with the accessors of its kind. Frames do not need to
+     * track the kind of the value stored in a static slot, which makes accesses to it cheaper in
+     * the interpreter and in compiled code. If all slots of a descriptor are static, the runtime
+     * may allocate frames without any per slot kind information. This is a slow operation that
+     * switches to interpreter mode.
+     *
+     * @param identifier key for the slot - must not be {@code null} and needs proper
+     *            {@link #equals(java.lang.Object)} and {@link Object#hashCode()} implementations
+     * @param info additional {@linkplain FrameSlot#getInfo() information for the slot}, may be null
+     * @param kind the static kind of the new slot, must not be {@link FrameSlotKind#Illegal}
+     * @return the newly created slot
+     * @throws IllegalArgumentException if a frame slot with the same identifier exists or the kind
+     *             is {@link FrameSlotKind#Illegal}
+     * @throws NullPointerException if {@code identifier} or {@code kind} is {@code null}
+     * @since 1.0
+     */
+    public FrameSlot addStaticFrameSlot(Object identifier, Object info, FrameSlotKind kind) {
+        Objects.requireNonNull(kind, "kind");
+        if (kind == FrameSlotKind.Illegal) {
+            throw new IllegalArgumentException("static frame slot must not have the Illegal kind: " + identifier);
+        }
+        return addFrameSlotImpl(identifier, info, kind, true);
+    }
+
+    @SuppressFBWarnings(value = "VO_VOLATILE_INCREMENT", justification = "All increments and decrements are synchronized.")
+    private FrameSlot addFrameSlotImpl(Object identifier, Object info, FrameSlotKind kind, boolean isStatic) {
         Objects.requireNonNull(identifier, "identifier");
         Objects.requireNonNull(kind, "kind");
         lock();
@@ -164,7 +203,12 @@ public final class FrameDescriptor implements Cloneable {
             if (identifierToSlotMap.containsKey(identifier)) {
                 throw new IllegalArgumentException("duplicate frame slot: " + identifier);
             }
-            FrameSlot slot = new FrameSlot(this, identifier, info, kind, size);
+            FrameSlot slot = new FrameSlot(this, identifier, info, kind, size, isStatic);
+            if (!isStatic) {
+                frameLayout = TVMCI.FRAME_DYNAMIC_SLOTS | TVMCI.FRAME_PRIMITIVE_SLOTS;
+            } else if (kind != FrameSlotKind.Object) {
+                frameLayout = frameLayout | TVMCI.FRAME_PRIMITIVE_SLOTS;
+            }
             size++;
             slots.add(slot);
             identifierToSlotMap.put(identifier, slot);
@@ -300,12 +344,26 @@ public final class FrameDescriptor implements Cloneable {
         return frameSlot.kind;
     }
 
+    /**
+     * Returns <code>true</code> if the provided slot was added with a static kind using
+     * {@link #addStaticFrameSlot(Object, Object, FrameSlotKind)}.
+     *
+     * @param frameSlot the slot
+     * @return whether the kind of this slot never changes
+     * @since 1.0
+     */
+    public boolean isStaticFrameSlot(final FrameSlot frameSlot) {
+        assert checkFrameSlotOwnership(frameSlot);
+        return frameSlot.isStatic;
+    }
+
     /**
      * Changes the kind of the provided slot. Change of the slot kind is done on <em>slow path</em>
      * and invalidates assumptions about version of {@link FrameDescriptor this descriptor}.
      *
      * @param frameSlot the slot
      * @param kind new kind of the slot
+     * @throws IllegalArgumentException if the slot is {@link #isStaticFrameSlot(FrameSlot) static}
      * @since 1.0
      */
     public void setFrameSlotKind(final FrameSlot frameSlot, final FrameSlotKind kind) {
@@ -316,6 +374,9 @@ public final class FrameDescriptor implements Cloneable {
     }
 
     private void setFrameSlotKindSlow(FrameSlot frameSlot, FrameSlotKind kind) {
+        if (frameSlot.isStatic) {
+            throw new IllegalArgumentException(String.format("The kind of the static frame slot '%s' cannot be changed to %s.", frameSlot.getIdentifier(), kind));
+        }
         lock();
         try {
             assert checkFrameSlotOwnershipUnsafe(frameSlot);
@@ -476,7 +537,8 @@ public final class FrameDescriptor implements Cloneable {
     /**
      * Deeper copy of the descriptor. Copies all slots in the descriptor, but only their
      * {@linkplain FrameSlot#getIdentifier() identifier} and {@linkplain FrameSlot#getInfo() info}
-     * but not their {@linkplain FrameDescriptor#getFrameSlotKind(FrameSlot) kind}!
+     * but not their {@linkplain FrameDescriptor#getFrameSlotKind(FrameSlot) kind}! Only the kind of
+     * {@linkplain #isStaticFrameSlot(FrameSlot) static} slots is copied.
      *
      * @return new instance of a descriptor with copies of values from this one
      * @since 0.8 or earlier
@@ -487,7 +549,11 @@ public final class FrameDescriptor implements Cloneable {
             FrameDescriptor clonedFrameDescriptor = new FrameDescriptor(this.defaultValue);
             for (int i = 0; i < slots.size(); i++) {
                 FrameSlot slot = slots.get(i);
-                clonedFrameDescriptor.addFrameSlot(slot.getIdentifier(), slot.getInfo(), FrameSlotKind.Illegal);
+                if (slot.isStatic) {
+                    clonedFrameDescriptor.addStaticFrameSlot(slot.getIdentifier(), slot.getInfo(), slot.kind);
+                } else {
+                    clonedFrameDescriptor.addFrameSlot(slot.getIdentifier(), slot.getInfo(), FrameSlotKind.Illegal);
+                }
             }
             return clonedFrameDescriptor;
         } finally {
@@ -517,6 +583,7 @@ public final class FrameDescriptor implements Cloneable {
             }
             clonedFrameDescriptor.lock = lock;
             clonedFrameDescriptor.size = size;
+            clonedFrameDescriptor.frameLayout = frameLayout;
             return clonedFrameDescriptor;
         } finally {
             unlock();
@@ -679,6 +746,11 @@ public final class FrameDescriptor implements Cloneable {
                 return descriptor.materializeCalled;
             }
 
+            @Override
+            protected int getFrameLayout(FrameDescriptor descriptor) {
+                return descriptor.frameLayout;
+            }
+
             @Override
             public FrameDescriptor makeThreadSafe(FrameDescriptor frameDescriptor, ReentrantLock lock) {
                 return frameDescriptor.makeThreadSafe(lock, true);
@@ -55,13 +55,18 @@ public final class FrameSlot implements Cloneable {
      * field.
      */
     @CompilationFinal volatile FrameSlotKind kind;
+    /*
+     * A static slot never changes its kind, so frames do not need to track the tag of its value.
+     */
+    final boolean isStatic;
 
-    FrameSlot(FrameDescriptor descriptor, Object identifier, Object info, FrameSlotKind kind, int index) {
+    FrameSlot(FrameDescriptor descriptor, Object identifier, Object info, FrameSlotKind kind, int index, boolean isStatic) {
         this.descriptor = descriptor;
         this.identifier = identifier;
         this.info = info;
         this.index = index;
         this.kind = kind;
+        this.isStatic = isStatic;
         this.sharedWith = null;
     }
 
@@ -133,7 +138,7 @@ public final class FrameSlot implements Cloneable {
     @Override
     public String toString() {
         CompilerAsserts.neverPartOfCompilation("do not call FrameSlot.toString from compiled code");
-        return "[" + index + "," + identifier + "," + kind + "]";
+        return "[" + index + "," + identifier + "," + kind + (isStatic ? ",static" : "") + "]";
     }
 
     /**
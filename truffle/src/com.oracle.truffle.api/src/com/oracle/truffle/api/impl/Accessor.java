@@ -497,6 +497,8 @@ public abstract class Accessor {
 
         protected abstract boolean getMaterializeCalled(FrameDescriptor descriptor);
 
+        protected abstract int getFrameLayout(FrameDescriptor descriptor);
+
         public abstract FrameDescriptor makeThreadSafe(FrameDescriptor frameDescriptor, ReentrantLock lock);
     }
 
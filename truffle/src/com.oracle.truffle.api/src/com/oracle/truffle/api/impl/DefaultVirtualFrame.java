@@ -173,6 +173,10 @@ final class DefaultVirtualFrame implements VirtualFrame {
 
     private void verifySet(FrameSlot slot, FrameSlotKind accessKind) {
         int slotIndex = getSlotIndexChecked(slot);
+        if (descriptor.isStaticFrameSlot(slot) && descriptor.getFrameSlotKind(slot) != accessKind) {
+            throw new IllegalArgumentException(String.format("The static frame slot '%s' of kind %s cannot be set to a value of another kind.", slot.getIdentifier(),
+                            descriptor.getFrameSlotKind(slot)));
+        }
         tags[slotIndex] = (byte) accessKind.ordinal();
     }
 
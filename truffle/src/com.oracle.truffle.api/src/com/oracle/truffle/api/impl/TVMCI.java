@@ -163,6 +163,33 @@ public abstract class TVMCI {
         return Accessor.framesAccess().getMaterializeCalled(descriptor);
     }
 
+    /**
+     * Flag of {@link #getFrameLayout(FrameDescriptor)}: not all slots of the descriptor have a
+     * static kind, so frames need to track slot kinds.
+     *
+     * @since 1.0
+     */
+    public static final int FRAME_DYNAMIC_SLOTS = 1;
+
+    /**
+     * Flag of {@link #getFrameLayout(FrameDescriptor)}: a slot of the descriptor can hold a
+     * primitive value.
+     *
+     * @since 1.0
+     */
+    public static final int FRAME_PRIMITIVE_SLOTS = 2;
+
+    /**
+     * Accessor for non-public state in {@link FrameDescriptor}. Returns a combination of
+     * {@link #FRAME_DYNAMIC_SLOTS} and {@link #FRAME_PRIMITIVE_SLOTS}, read with a single load so
+     * that frame allocations stay cheap.
+     *
+     * @since 1.0
+     */
+    protected int getFrameLayout(FrameDescriptor descriptor) {
+        return Accessor.framesAccess().getFrameLayout(descriptor);
+    }
+
     /**
      * Accessor for non-public API in {@link RootNode}.
      *
@@ -24,6 +24,8 @@
  */
 package com.oracle.truffle.object.basic.test;
 
+import java.lang.reflect.Field;
+
 import org.junit.Assert;
 
 import com.oracle.truffle.api.object.DynamicObject;
@@ -35,6 +37,7 @@ import com.oracle.truffle.object.basic.BasicLocations.FieldLocation;
 import com.oracle.truffle.object.basic.BasicLocations.PrimitiveLocationDecorator;
 import com.oracle.truffle.object.basic.BasicLocations.SimpleLongFieldLocation;
 import com.oracle.truffle.object.basic.BasicLocations.SimpleObjectFieldLocation;
+import com.oracle.truffle.object.basic.DynamicObjectBasic;
 
 public abstract class DOTestAsserts {
 
@@ -72,6 +75,16 @@ public abstract class DOTestAsserts {
         }
     }
 
+    public static Object[] getObjectArray(DynamicObject object) {
+        try {
+            Field field = DynamicObjectBasic.class.getDeclaredField("objext");
+            field.setAccessible(true);
+            return (Object[]) field.get(object);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public static void assertShape(String fields, Shape shape) {
         Assert.assertEquals(shapeId(shape) + fields, shape.toString());
     }
@@ -24,13 +24,23 @@
  */
 package com.oracle.truffle.object.basic.test;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.DynamicObjectFactory;
 import com.oracle.truffle.api.object.Layout;
 import com.oracle.truffle.api.object.Layout.ImplicitCast;
 import com.oracle.truffle.api.object.ObjectType;
 import com.oracle.truffle.api.object.Property;
 import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.object.ShapeImpl;
 import com.oracle.truffle.object.basic.DefaultLayoutFactory;
 
 public class ShapeTest {
@@ -75,4 +85,170 @@ public class ShapeTest {
                         "\"a\":int@0" +
                         "\n}", shapeWithExtArray);
     }
+
+    private static DynamicObject newObjectWithProperties(DynamicObjectFactory factory, int count) {
+        DynamicObject object = factory.newInstance();
+        for (int i = 0; i < count; i++) {
+            object.define("p" + i, new Object());
+        }
+        return object;
+    }
+
+    @Test
+    public void testPresizedExtensionArrays() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        ShapeImpl rootShape = (ShapeImpl) layout.createShape(new ObjectType());
+        DynamicObjectFactory factory = rootShape.createFactory();
+        Assert.assertEquals(0, rootShape.getPresizedObjectArrayCapacity());
+
+        DynamicObject first = newObjectWithProperties(factory, 10);
+        Assert.assertEquals(0, rootShape.getPresizedObjectArrayCapacity());
+        ShapeImpl finalShape = (ShapeImpl) first.getShape();
+        int capacity = finalShape.getObjectArrayCapacity();
+        Assert.assertTrue(capacity > 0);
+
+        for (int i = 0; i < 100; i++) {
+            newObjectWithProperties(factory, 10);
+        }
+        Assert.assertEquals(capacity, rootShape.getPresizedObjectArrayCapacity());
+        // only the allocation shape is pre-sized
+        ShapeImpl intermediateShape = (ShapeImpl) finalShape.getParent();
+        Assert.assertEquals(intermediateShape.getObjectArrayCapacity(), intermediateShape.getPresizedObjectArrayCapacity());
+
+        DynamicObject second = factory.newInstance();
+        Object[] store = DOTestAsserts.getObjectArray(second);
+        Assert.assertEquals(capacity, store.length);
+        Object[] values = new Object[10];
+        for (int i = 0; i < 10; i++) {
+            values[i] = new Object();
+            second.define("p" + i, values[i]);
+        }
+        Assert.assertSame(finalShape, second.getShape());
+        Assert.assertSame(store, DOTestAsserts.getObjectArray(second));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertSame(values[i], second.get("p" + i));
+        }
+    }
+
+    @Test
+    public void testPresizingIgnoresOutliers() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        ShapeImpl rootShape = (ShapeImpl) layout.createShape(new ObjectType());
+        DynamicObjectFactory factory = rootShape.createFactory();
+        int capacity = ((ShapeImpl) newObjectWithProperties(factory, 10).getShape()).getObjectArrayCapacity();
+        int largeCapacity = ((ShapeImpl) newObjectWithProperties(factory, 60).getShape()).getObjectArrayCapacity();
+        Assert.assertTrue(largeCapacity > capacity);
+
+        for (int i = 0; i < 200; i++) {
+            newObjectWithProperties(factory, i % 50 == 0 ? 60 : 10);
+        }
+        Assert.assertEquals(capacity, rootShape.getPresizedObjectArrayCapacity());
+    }
+
+    @Test
+    public void testPresizedCapacityShrinks() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        ShapeImpl rootShape = (ShapeImpl) layout.createShape(new ObjectType());
+        DynamicObjectFactory factory = rootShape.createFactory();
+        for (int i = 0; i < 100; i++) {
+            newObjectWithProperties(factory, 60);
+        }
+        Assert.assertTrue(rootShape.getPresizedObjectArrayCapacity() > 0);
+
+        for (int i = 0; i < 100; i++) {
+            newObjectWithProperties(factory, 0);
+        }
+        Assert.assertEquals(0, rootShape.getPresizedObjectArrayCapacity());
+        Assert.assertNull(DOTestAsserts.getObjectArray(factory.newInstance()));
+    }
+
+    @Test
+    public void testNoPresizingWithoutFactory() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        ShapeImpl rootShape = (ShapeImpl) layout.createShape(new ObjectType());
+        DynamicObject object = rootShape.newInstance();
+        for (int i = 0; i < 10; i++) {
+            object.define("p" + i, new Object());
+        }
+        Assert.assertTrue(((ShapeImpl) object.getShape()).getObjectArrayCapacity() > 0);
+        Assert.assertEquals(0, rootShape.getPresizedObjectArrayCapacity());
+        Assert.assertNull(DOTestAsserts.getObjectArray(rootShape.newInstance()));
+    }
+
+    @Test
+    public void testDictionaryTransitionLimit() {
+        int limit = Integer.getInteger(Layout.OPTION_PREFIX + "DictionaryTransitionLimit", 1024);
+        Assume.assumeTrue(limit > 0);
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        Shape rootShape = layout.createShape(new ObjectType());
+
+        // keep the objects alive so that their shapes stay in the transition map
+        List<DynamicObject> objects = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            DynamicObject object = rootShape.newInstance();
+            object.define("p" + i, i);
+            objects.add(object);
+        }
+        DynamicObject first = rootShape.newInstance();
+        first.define("p0", 0);
+        Assert.assertSame(objects.get(0).getShape(), first.getShape());
+
+        // successors past the limit are cached per key instead of in the transition tree
+        DynamicObject second = rootShape.newInstance();
+        DynamicObject third = rootShape.newInstance();
+        second.define("q", 1);
+        third.define("q", 1);
+        Assert.assertSame(second.getShape(), third.getShape());
+        Assert.assertEquals(1, second.get("q"));
+        Assert.assertEquals(1, third.get("q"));
+        Assert.assertTrue(rootShape.hasTransitionWithKey("q"));
+        Assert.assertTrue(((ShapeImpl) rootShape).getTransitionMapForRead().containsValue(second.getShape()));
+
+        // another transition with the same key replaces the cached successor
+        DynamicObject fourth = rootShape.newInstance();
+        fourth.define("q", "string");
+        Assert.assertNotSame(second.getShape(), fourth.getShape());
+        Assert.assertEquals("string", fourth.get("q"));
+        Assert.assertTrue(rootShape.hasTransitionWithKey("q"));
+    }
+
+    @Test
+    public void testManyPropertiesShareShapes() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        Shape rootShape = layout.createShape(new ObjectType());
+
+        DynamicObject first = rootShape.newInstance();
+        DynamicObject second = rootShape.newInstance();
+        for (int i = 0; i < 1000; i++) {
+            first.define("p" + i, i);
+            second.define("p" + i, i);
+            Assert.assertSame(first.getShape(), second.getShape());
+        }
+    }
+
+    @Test
+    public void testUnusedShapeIsCollected() {
+        Layout layout = new DefaultLayoutFactory().createLayout(Layout.newLayout());
+        Shape rootShape = layout.createShape(new ObjectType());
+
+        ReferenceQueue<Shape> queue = new ReferenceQueue<>();
+        WeakReference<Shape> successor = defineInNewObject(rootShape, queue);
+        Assert.assertFalse(rootShape.isLeaf());
+        for (int i = 0; i < 100 && queue.poll() == null; i++) {
+            System.gc();
+        }
+        Assert.assertNull(successor.get());
+
+        // the collected successor is created again
+        DynamicObject object = rootShape.newInstance();
+        object.define("a", 1);
+        Assert.assertSame(rootShape, object.getShape().getParent());
+        Assert.assertEquals(1, object.get("a"));
+    }
+
+    private static WeakReference<Shape> defineInNewObject(Shape rootShape, ReferenceQueue<Shape> queue) {
+        DynamicObject object = rootShape.newInstance();
+        object.define("a", 1);
+        return new WeakReference<>(object.getShape(), queue);
+    }
 }
@@ -54,12 +54,13 @@ public class DynamicObjectBasic extends DynamicObjectImpl {
     @Override
     protected final void initialize(Shape shape) {
         assert getObjectStore(shape) == null;
-        int capacity = ((ShapeImpl) shape).getObjectArrayCapacity();
+        int capacity = ((ShapeImpl) shape).getPresizedObjectArrayCapacity();
         if (capacity != 0) {
             this.setObjectStore(new Object[capacity], shape);
         }
-        if (((ShapeImpl) shape).getPrimitiveArrayCapacity() != 0) {
-            this.setPrimitiveStore(new long[((ShapeImpl) shape).getPrimitiveArrayCapacity()], shape);
+        int primitiveCapacity = ((ShapeImpl) shape).getPresizedPrimitiveArrayCapacity();
+        if (primitiveCapacity != 0) {
+            this.setPrimitiveStore(new long[primitiveCapacity], shape);
         }
     }
 
@@ -71,6 +72,12 @@ public class DynamicObjectBasic extends DynamicObjectImpl {
         int oldObjectArrayCapacity = ((ShapeImpl) oldShape).getObjectArrayCapacity();
         int newObjectArrayCapacity = ((ShapeImpl) newShape).getObjectArrayCapacity();
         if (oldObjectArrayCapacity != newObjectArrayCapacity) {
+            Object[] oldObjectStore = this.getObjectStore(oldShape);
+            if (oldObjectStore != null && oldObjectStore.length >= newObjectArrayCapacity) {
+                // the store was pre-sized at allocation
+                presizedGrowthSaved();
+                return;
+            }
             growObjectStoreIntl(oldObjectArrayCapacity, newObjectArrayCapacity, oldShape);
         }
     }
@@ -100,6 +107,12 @@ public class DynamicObjectBasic extends DynamicObjectImpl {
             // due to obsolescence, we might have to reserve an empty primitive array slot
             this.setPrimitiveStore(null, newShape);
         } else if (oldPrimitiveCapacity != newPrimitiveCapacity) {
+            long[] oldPrimitiveStore = this.getPrimitiveStore(oldShape);
+            if (oldPrimitiveStore != null && oldPrimitiveStore.length >= newPrimitiveCapacity && oldPrimitiveCapacity < newPrimitiveCapacity) {
+                // the store was pre-sized at allocation
+                presizedGrowthSaved();
+                return;
+            }
             growPrimitiveStoreIntl(oldPrimitiveCapacity, newPrimitiveCapacity, oldShape);
         }
     }
@@ -183,15 +196,16 @@ public class DynamicObjectBasic extends DynamicObjectImpl {
 
     /**
      * Check whether the extension arrays are in accordance with the description in the shape.
+     * Extension arrays pre-sized at allocation may be larger than the shape requires.
      */
     @Override
     protected final boolean checkExtensionArrayInvariants(Shape newShape) {
         assert getShape() == newShape;
         assert (getObjectStore(newShape) == null && ((ShapeImpl) newShape).getObjectArrayCapacity() == 0) ||
-                        (getObjectStore(newShape) != null && getObjectStore(newShape).length == ((ShapeImpl) newShape).getObjectArrayCapacity());
+                        (getObjectStore(newShape) != null && getObjectStore(newShape).length >= ((ShapeImpl) newShape).getObjectArrayCapacity());
         if (((ShapeImpl) newShape).hasPrimitiveArray()) {
             assert (getPrimitiveStore(newShape) == null && ((ShapeImpl) newShape).getPrimitiveArrayCapacity() == 0) ||
-                            (getPrimitiveStore(newShape) != null && getPrimitiveStore(newShape).length == ((ShapeImpl) newShape).getPrimitiveArrayCapacity());
+                            (getPrimitiveStore(newShape) != null && getPrimitiveStore(newShape).length >= ((ShapeImpl) newShape).getPrimitiveArrayCapacity());
         }
         return true;
     }
@@ -26,6 +26,7 @@ package com.oracle.truffle.object;
 
 import java.util.Iterator;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.interop.ForeignAccess;
 import com.oracle.truffle.api.object.DynamicObject;
@@ -39,12 +40,16 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
 
     /** @since 0.17 or earlier */
     public static final DebugCounter reshapeCount = DebugCounter.create("Reshape count");
+    private static final DebugCounter presizedGrowthCount = DebugCounter.create("Extension array growths saved by pre-sizing");
 
     /** @since 0.17 or earlier */
     protected DynamicObjectImpl(Shape shape) {
         assert shape instanceof ShapeImpl;
         initialize(shape);
         setShape(shape);
+        if (CompilerDirectives.inInterpreter()) {
+            this.shape.profileAllocation(this);
+        }
 
         if (ObjectStorageOptions.Profile) {
             Debug.trackObject(this);
@@ -124,6 +129,20 @@ public abstract class DynamicObjectImpl extends DynamicObject implements Cloneab
     /** @since 0.17 or earlier */
     protected abstract void growObjectStore(Shape oldShape, Shape newShape);
 
+    /**
+     * Records that an extension array pre-sized at allocation was large enough for a new shape, so
+     * it did not have to be reallocated.
+     *
+     * @see ShapeImpl#getPresizedObjectArrayCapacity()
+     * @since 1.0
+     */
+    protected static void presizedGrowthSaved() {
+        presizedGrowthCount.inc();
+        if (ObjectStorageOptions.Profile) {
+            ShapeProfiler.getInstance().trackPresizedGrowthSaved();
+        }
+    }
+
     /** @since 0.17 or earlier */
     protected abstract void growPrimitiveStore(Shape oldShape, Shape newShape);
 
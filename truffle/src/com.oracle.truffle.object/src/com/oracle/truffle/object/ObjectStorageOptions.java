@@ -53,6 +53,18 @@ public final class ObjectStorageOptions {
 
     static final boolean TriePropertyMap = booleanOption(OPTION_PREFIX + "TriePropertyMap", true);
 
+    /**
+     * Maximum extension array capacity that objects are pre-sized to at allocation, based on the
+     * shapes derived from their allocation shape. 0 disables pre-sizing.
+     */
+    static final int PresizeLimit = Integer.getInteger(OPTION_PREFIX + "PresizeLimit", 64);
+
+    /**
+     * Maximum number of transitions recorded per shape; further successor shapes are not recorded
+     * in the transition tree. 0 disables the limit.
+     */
+    static final int DictionaryTransitionLimit = Integer.getInteger(OPTION_PREFIX + "DictionaryTransitionLimit", 1024);
+
     // Debug options (should be final)
     /** @since 0.17 or earlier */
     public static final boolean TraceReshape = booleanOption(OPTION_PREFIX + "TraceReshape", false);
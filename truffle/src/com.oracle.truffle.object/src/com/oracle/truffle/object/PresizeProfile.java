@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.object;
+
+import java.lang.ref.WeakReference;
+
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * Profiles the extension array capacities that objects allocated with an allocation shape reach,
+ * to pre-size the extension arrays of later objects to them.
+ * <p>
+ * Every {@link #SAMPLE_INTERVAL}th allocation is sampled. At the next sample, the capacities of
+ * the shape that the previously sampled object has reached by then are compared to the current
+ * candidate. The candidate is committed to the allocation shape once {@link #REQUIRED_AGREEMENTS}
+ * consecutive samples agree, so a single unusually large object does not pre-size all later
+ * objects, and the committed capacities shrink again when the objects get smaller.
+ */
+final class PresizeProfile {
+
+    static final int SAMPLE_INTERVAL = 16;
+    static final int REQUIRED_AGREEMENTS = 3;
+
+    private final ShapeImpl allocationShape;
+    /** Updated racily, so some allocations may not be counted. */
+    private int allocations;
+    private WeakReference<DynamicObject> sample;
+    private int candidateObjectArrayCapacity = -1;
+    private int candidatePrimitiveArrayCapacity = -1;
+    private int agreements;
+
+    PresizeProfile(ShapeImpl allocationShape) {
+        this.allocationShape = allocationShape;
+    }
+
+    void profileAllocation(DynamicObject object) {
+        if (++allocations % SAMPLE_INTERVAL == 0) {
+            sample(object);
+        }
+    }
+
+    private synchronized void sample(DynamicObject object) {
+        DynamicObject previous = sample == null ? null : sample.get();
+        sample = new WeakReference<>(object);
+        if (previous == null) {
+            return;
+        }
+        ShapeImpl reached = (ShapeImpl) previous.getShape();
+        int objectArrayCapacity = Math.min(reached.getObjectArrayCapacity(), ObjectStorageOptions.PresizeLimit);
+        int primitiveArrayCapacity = Math.min(reached.getPrimitiveArrayCapacity(), ObjectStorageOptions.PresizeLimit);
+        if (objectArrayCapacity == candidateObjectArrayCapacity && primitiveArrayCapacity == candidatePrimitiveArrayCapacity) {
+            if (++agreements == REQUIRED_AGREEMENTS) {
+                allocationShape.setPresizedCapacities(objectArrayCapacity, primitiveArrayCapacity);
+            }
+        } else {
+            candidateObjectArrayCapacity = objectArrayCapacity;
+            candidatePrimitiveArrayCapacity = primitiveArrayCapacity;
+            agreements = 1;
+        }
+    }
+}
@@ -24,12 +24,14 @@
  */
 package com.oracle.truffle.object;
 
-import java.util.AbstractMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -107,6 +109,21 @@ public abstract class ShapeImpl extends Shape {
     /** @since 0.17 or earlier */
     protected final boolean hasPrimitiveArray;
 
+    /**
+     * The extension array capacities that objects allocated with this shape typically reach, if
+     * this shape is an allocation shape, as determined by {@link #presizeProfile}. Objects
+     * allocated with this shape pre-size their extension arrays to them, so objects built with the
+     * same sequence of property additions do not reallocate their extension arrays as they grow.
+     * The capacities are hints: they can grow and shrink, and compiled code may use a stale value.
+     */
+    @CompilationFinal private int presizedObjectArrayCapacity;
+    @CompilationFinal private int presizedPrimitiveArrayCapacity;
+    /**
+     * The profile of the objects allocated with this shape, if a {@link DynamicObjectFactory}
+     * allocates objects with this shape, or null. Only allocation shapes are pre-sized.
+     */
+    private volatile PresizeProfile presizeProfile;
+
     /** @since 0.18 */
     protected final boolean shared;
 
@@ -121,21 +138,34 @@ public abstract class ShapeImpl extends Shape {
     @CompilationFinal protected volatile Assumption leafAssumption;
 
     /**
-     * Shape transition map; lazily initialized. One of:
+     * Shape transition map; lazily initialized. Successor shapes are only weakly reachable from
+     * the map, so shapes that are no longer used by any object can be collected. One of:
      * <ol>
      * <li>{@code null}: empty map
-     * <li>{@link Map.Entry}: immutable single entry map
-     * <li>{@link Map}: mutable multiple entry map
+     * <li>{@link TransitionReference}: immutable single entry map
+     * <li>{@link ConcurrentHashMap}: mutable multiple entry map of {@link TransitionReference}s
      * </ol>
      *
      * @see #getTransitionMapForRead()
      * @see #addTransitionInternal(Transition, ShapeImpl)
      */
     private volatile Object transitionMap;
+    /**
+     * Successors that are not recorded in the {@link #transitionMap} because it has reached the
+     * dictionary transition limit, at most one per property key; lazily initialized. A successor
+     * is reused for equal transitions and replaced by other transitions with the same key. Keys
+     * stay in the map after their successor has been collected, so that
+     * {@link #hasTransitionWithKey(Object)} still reports them.
+     *
+     * @see #isDictionaryTransition()
+     */
+    private volatile ConcurrentHashMap<Object, TransitionReference> dictionaryTransitions;
 
     private final Transition transitionFromParent;
 
     private static final AtomicReferenceFieldUpdater<ShapeImpl, Object> TRANSITION_MAP_UPDATER = AtomicReferenceFieldUpdater.newUpdater(ShapeImpl.class, Object.class, "transitionMap");
+    @SuppressWarnings("rawtypes") private static final AtomicReferenceFieldUpdater<ShapeImpl, ConcurrentHashMap> DICTIONARY_TRANSITIONS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    ShapeImpl.class, ConcurrentHashMap.class, "dictionaryTransitions");
     private static final AtomicReferenceFieldUpdater<ShapeImpl, Assumption> LEAF_ASSUMPTION_UPDATER = AtomicReferenceFieldUpdater.newUpdater(ShapeImpl.class, Assumption.class, "leafAssumption");
 
     /**
@@ -236,6 +266,46 @@ public abstract class ShapeImpl extends Shape {
         }
     }
 
+    /**
+     * Records an object allocated with this shape in the interpreter, if this shape is an
+     * allocation shape.
+     */
+    final void profileAllocation(DynamicObject object) {
+        PresizeProfile profile = presizeProfile;
+        if (profile != null) {
+            profile.profileAllocation(object);
+        }
+    }
+
+    /** Sets the capacities that the {@link #presizeProfile} of this allocation shape agreed on. */
+    final void setPresizedCapacities(int objectCapacity, int primitiveCapacity) {
+        presizedObjectArrayCapacity = objectCapacity;
+        presizedPrimitiveArrayCapacity = primitiveCapacity;
+    }
+
+    /**
+     * Object extension array capacity that objects allocated with this shape should have, at least
+     * {@link #getObjectArrayCapacity()}.
+     *
+     * @since 1.0
+     */
+    public final int getPresizedObjectArrayCapacity() {
+        return Math.max(objectArrayCapacity, presizedObjectArrayCapacity);
+    }
+
+    /**
+     * Primitive extension array capacity that objects allocated with this shape should have. Only
+     * shapes that already have a primitive extension array are pre-sized.
+     *
+     * @since 1.0
+     */
+    public final int getPresizedPrimitiveArrayCapacity() {
+        if (primitiveArrayCapacity == 0) {
+            return 0;
+        }
+        return Math.max(primitiveArrayCapacity, presizedPrimitiveArrayCapacity);
+    }
+
     /** @since 0.17 or earlier */
     public final int getObjectArraySize() {
         return objectArraySize;
@@ -304,41 +374,133 @@ public abstract class ShapeImpl extends Shape {
 
     @SuppressWarnings("unchecked")
     private void addTransitionInternal(Transition transition, ShapeImpl successor) {
+        expungeStaleTransitions();
+        if (isDictionaryTransition()) {
+            /*
+             * The successor is not recorded in the transition tree, only in the per-key cache of
+             * dictionary transitions. The leaf assumption still has to be invalidated since this
+             * shape has a successor.
+             */
+            invalidateLeafAssumption();
+            dictionaryTransitionCount.inc();
+            getDictionaryTransitions().put(getDictionaryTransitionKey(transition), new TransitionReference(transition, successor, this, null));
+            return;
+        }
         Object prev;
         Object next;
         do {
             prev = TRANSITION_MAP_UPDATER.get(this);
             if (prev == null) {
                 invalidateLeafAssumption();
-                next = new AbstractMap.SimpleImmutableEntry<>(transition, successor);
-            } else if (prev instanceof Map.Entry<?, ?>) {
-                Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) prev;
-                ConcurrentHashMap<Transition, ShapeImpl> map = new ConcurrentHashMap<>();
-                map.put(entry.getKey(), entry.getValue());
-                map.put(transition, successor);
-                next = map;
+                next = new TransitionReference(transition, successor, this, null);
+            } else if (prev instanceof TransitionReference) {
+                TransitionReference entry = (TransitionReference) prev;
+                ShapeImpl entryShape = entry.get();
+                if (entryShape == null || entry.transition.equals(transition)) {
+                    // replace a collected or an equal single entry
+                    next = new TransitionReference(transition, successor, this, null);
+                } else {
+                    ConcurrentHashMap<Transition, TransitionReference> map = new ConcurrentHashMap<>();
+                    map.put(entry.transition, new TransitionReference(entry.transition, entryShape, this, STALE_TRANSITIONS));
+                    map.put(transition, new TransitionReference(transition, successor, this, STALE_TRANSITIONS));
+                    next = map;
+                }
             } else {
-                assert prev instanceof Map<?, ?>;
-                Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) prev;
-                map.put(transition, successor);
+                assert prev instanceof ConcurrentHashMap<?, ?>;
+                ConcurrentHashMap<Transition, TransitionReference> map = (ConcurrentHashMap<Transition, TransitionReference>) prev;
+                map.put(transition, new TransitionReference(transition, successor, this, STALE_TRANSITIONS));
                 break;
             }
         } while (!TRANSITION_MAP_UPDATER.compareAndSet(this, prev, next));
     }
 
+    /**
+     * Whether a successor shape should not be recorded in the transition tree because this shape
+     * already has too many transitions. Successors of a shape with few transitions are always
+     * recorded, however many properties they have, so that objects growing along the same path
+     * share their shapes instead of creating a new shape for every property they add.
+     */
+    private boolean isDictionaryTransition() {
+        if (ObjectStorageOptions.DictionaryTransitionLimit > 0) {
+            Object trans = transitionMap;
+            return trans instanceof ConcurrentHashMap<?, ?> && ((ConcurrentHashMap<?, ?>) trans).size() >= ObjectStorageOptions.DictionaryTransitionLimit;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentHashMap<Object, TransitionReference> getDictionaryTransitions() {
+        ConcurrentHashMap<Object, TransitionReference> dictionary = dictionaryTransitions;
+        if (dictionary == null) {
+            DICTIONARY_TRANSITIONS_UPDATER.compareAndSet(this, null, new ConcurrentHashMap<>());
+            dictionary = dictionaryTransitions;
+        }
+        return dictionary;
+    }
+
+    /**
+     * The key of a dictionary transition: the property key of property transitions, or the
+     * transition itself for other transitions.
+     */
+    private static Object getDictionaryTransitionKey(Transition transition) {
+        return transition instanceof PropertyTransition ? ((PropertyTransition) transition).getProperty().getKey() : transition;
+    }
+
+    private ShapeImpl queryDictionaryTransition(Transition transition) {
+        ConcurrentHashMap<Object, TransitionReference> dictionary = dictionaryTransitions;
+        if (dictionary == null) {
+            return null;
+        }
+        TransitionReference entry = dictionary.get(getDictionaryTransitionKey(transition));
+        return entry != null && entry.transition.equals(transition) ? entry.get() : null;
+    }
+
+    /**
+     * Removes the transitions to collected successor shapes from the multiple entry transition maps.
+     * Stale single entries are replaced by the next transition added to their shape.
+     */
+    private static void expungeStaleTransitions() {
+        TransitionReference stale;
+        while ((stale = (TransitionReference) STALE_TRANSITIONS.poll()) != null) {
+            Object trans = stale.owner.transitionMap;
+            if (trans instanceof ConcurrentHashMap<?, ?>) {
+                ((ConcurrentHashMap<?, ?>) trans).remove(stale.transition, stale);
+            }
+        }
+    }
+
     /** @since 0.17 or earlier */
     @SuppressWarnings("unchecked")
     public final Map<Transition, ShapeImpl> getTransitionMapForRead() {
         Object trans = transitionMap;
         if (trans == null) {
             return Collections.<Transition, ShapeImpl> emptyMap();
-        } else if (trans instanceof Map.Entry<?, ?>) {
-            Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) trans;
-            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        } else if (trans instanceof TransitionReference) {
+            TransitionReference entry = (TransitionReference) trans;
+            ShapeImpl entryShape = entry.get();
+            if (entryShape == null) {
+                return Collections.<Transition, ShapeImpl> emptyMap();
+            }
+            return Collections.singletonMap(entry.transition, entryShape);
         } else {
-            assert trans instanceof Map<?, ?>;
-            Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) trans;
-            return map;
+            assert trans instanceof ConcurrentHashMap<?, ?>;
+            Map<Transition, ShapeImpl> snapshot = new LinkedHashMap<>();
+            for (TransitionReference entry : ((ConcurrentHashMap<Transition, TransitionReference>) trans).values()) {
+                ShapeImpl entryShape = entry.get();
+                if (entryShape != null) {
+                    snapshot.put(entry.transition, entryShape);
+                }
+            }
+            ConcurrentHashMap<Object, TransitionReference> dictionary = dictionaryTransitions;
+            if (dictionary != null) {
+                for (TransitionReference entry : dictionary.values()) {
+                    ShapeImpl entryShape = entry.get();
+                    if (entryShape != null) {
+                        snapshot.put(entry.transition, entryShape);
+                    }
+                }
+            }
+            return snapshot;
         }
     }
 
@@ -347,17 +509,33 @@ public abstract class ShapeImpl extends Shape {
         Object trans = transitionMap;
         if (trans == null) {
             return null;
-        } else if (trans instanceof Map.Entry<?, ?>) {
-            Map.Entry<Transition, ShapeImpl> entry = (Map.Entry<Transition, ShapeImpl>) trans;
-            if (entry.getKey().equals(transition)) {
-                return entry.getValue();
+        } else if (trans instanceof TransitionReference) {
+            TransitionReference entry = (TransitionReference) trans;
+            if (entry.transition.equals(transition)) {
+                return entry.get();
             } else {
                 return null;
             }
         } else {
-            assert trans instanceof Map<?, ?>;
-            Map<Transition, ShapeImpl> map = (Map<Transition, ShapeImpl>) trans;
-            return map.get(transition);
+            assert trans instanceof ConcurrentHashMap<?, ?>;
+            TransitionReference entry = ((ConcurrentHashMap<Transition, TransitionReference>) trans).get(transition);
+            ShapeImpl entryShape = entry == null ? null : entry.get();
+            return entryShape != null ? entryShape : queryDictionaryTransition(transition);
+        }
+    }
+
+    /**
+     * A transition to a successor shape that does not keep the successor alive. Shapes keep their
+     * parent alive, so a shape and its ancestors stay reachable as long as an object uses it.
+     */
+    private static final class TransitionReference extends WeakReference<ShapeImpl> {
+        final Transition transition;
+        final ShapeImpl owner;
+
+        TransitionReference(Transition transition, ShapeImpl successor, ShapeImpl owner, ReferenceQueue<ShapeImpl> queue) {
+            super(successor, queue);
+            this.transition = transition;
+            this.owner = owner;
         }
     }
 
@@ -836,7 +1014,8 @@ public abstract class ShapeImpl extends Shape {
                 }
             }
         }
-        return false;
+        ConcurrentHashMap<Object, TransitionReference> dictionary = dictionaryTransitions;
+        return dictionary != null && dictionary.containsKey(key);
     }
 
     /**
@@ -912,6 +1091,9 @@ public abstract class ShapeImpl extends Shape {
         if (filtered != null) {
             properties = filtered;
         }
+        if (presizeProfile == null && ObjectStorageOptions.PresizeLimit > 0) {
+            presizeProfile = new PresizeProfile(this);
+        }
         return new DynamicObjectFactoryImpl(this, properties);
     }
 
@@ -1172,6 +1354,8 @@ public abstract class ShapeImpl extends Shape {
     private static final DebugCounter shapeCloneCount = DebugCounter.create("Shapes allocated cloned");
     private static final DebugCounter shapeCacheHitCount = DebugCounter.create("Shape cache hits");
     private static final DebugCounter shapeCacheMissCount = DebugCounter.create("Shape cache misses");
+    private static final DebugCounter dictionaryTransitionCount = DebugCounter.create("Shape transitions not recorded (dictionary mode)");
+    private static final ReferenceQueue<ShapeImpl> STALE_TRANSITIONS = new ReferenceQueue<>();
 
     /** @since 0.17 or earlier */
     public ForeignAccess getForeignAccessFactory(DynamicObject object) {
@@ -32,6 +32,7 @@ import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.Shape;
@@ -41,15 +42,21 @@ class ShapeProfiler {
     private static final String BULLET = "* ";
     private static final String TOKEN_SEPARATOR = "\t";
     private final ConcurrentLinkedQueue<DynamicObject> queue;
+    private final LongAdder presizedGrowthsSaved;
 
     ShapeProfiler() {
         queue = new ConcurrentLinkedQueue<>();
+        presizedGrowthsSaved = new LongAdder();
     }
 
     public void track(DynamicObject obj) {
         queue.add(obj);
     }
 
+    public void trackPresizedGrowthSaved() {
+        presizedGrowthsSaved.increment();
+    }
+
     public void dump(PrintWriter out) {
         ShapeStats globalStats = new ShapeStats("Cumulative results for all shapes");
         for (DynamicObject obj : queue) {
@@ -57,6 +64,7 @@ class ShapeProfiler {
             globalStats.profile(shape);
         }
 
+        globalStats.presizedGrowthsSaved = presizedGrowthsSaved.sum();
         globalStats.dump(out);
     }
 
@@ -108,6 +116,8 @@ class ShapeProfiler {
         private long pac;
         private long pas;
         private long pfs;
+        /** Only reported for the cumulative results; -1 otherwise. */
+        private long presizedGrowthsSaved = -1;
 
         ShapeStats(String label) {
             this.label = label;
@@ -162,6 +172,9 @@ class ShapeProfiler {
             out.println(BULLET + "Average primitive field size:\t" + avgPFS(format));
             out.println(LINE_SEPARATOR);
             out.println(BULLET + toString());
+            if (presizedGrowthsSaved >= 0) {
+                out.println(BULLET + "Extension array growths saved by pre-sizing:\t" + presizedGrowthsSaved);
+            }
             out.println(LINE_SEPARATOR + "\n");
             out.flush();
         }